@@ -37,6 +37,12 @@ dependencies {
     implementation("org.commonmark:commonmark-ext-heading-anchor:0.22.0")
     implementation("org.commonmark:commonmark-ext-autolink:0.22.0")
 
+    // Attachment text extraction
+    implementation("org.apache.pdfbox:pdfbox:3.0.3")
+
+    // Tag filtering bitmaps
+    implementation("org.roaringbitmap:RoaringBitmap:1.3.0")
+
     // Lombok
     compileOnly("org.projectlombok:lombok")
     annotationProcessor("org.projectlombok:lombok")
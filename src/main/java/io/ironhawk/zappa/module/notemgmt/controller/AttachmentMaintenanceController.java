@@ -0,0 +1,33 @@
+package io.ironhawk.zappa.module.notemgmt.controller;
+
+import io.ironhawk.zappa.module.notemgmt.dto.AttachmentGcReport;
+import io.ironhawk.zappa.module.notemgmt.service.AttachmentGarbageCollector;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@Slf4j
+@RestController
+@RequestMapping("/admin/attachments")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class AttachmentMaintenanceController {
+
+    private final AttachmentGarbageCollector attachmentGarbageCollector;
+
+    /**
+     * Delete upload files no attachment references. Defaults to a dry run that only reports.
+     */
+    @PostMapping("/gc")
+    public ResponseEntity<AttachmentGcReport> collectGarbage(@RequestParam(defaultValue = "true") boolean dryRun) {
+        try {
+            return ResponseEntity.ok(attachmentGarbageCollector.collect(dryRun));
+        } catch (IllegalStateException e) {
+            log.warn("Attachment GC request rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+}
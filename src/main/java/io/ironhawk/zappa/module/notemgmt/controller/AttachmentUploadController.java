@@ -0,0 +1,160 @@
+package io.ironhawk.zappa.module.notemgmt.controller;
+
+import io.ironhawk.zappa.module.notemgmt.dto.AttachmentUploadStatus;
+import io.ironhawk.zappa.module.notemgmt.entity.Note;
+import io.ironhawk.zappa.module.notemgmt.entity.NoteAttachment;
+import io.ironhawk.zappa.module.notemgmt.service.AttachmentUploadService;
+import io.ironhawk.zappa.module.notemgmt.service.AttachmentUploadService.UploadOffsetMismatchException;
+import io.ironhawk.zappa.module.notemgmt.service.FileStorageService;
+import io.ironhawk.zappa.module.notemgmt.service.NoteService;
+import io.ironhawk.zappa.security.service.CurrentUserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Upload endpoints that stream the request body straight into the attachment store,
+ * bypassing multipart parsing and its temporary file.
+ *
+ * <ul>
+ *   <li>{@code POST /api/attachments/notes/{noteId}?filename=...} with the raw file as the body
+ *       stores it in one request.</li>
+ *   <li>{@code POST /api/attachments/uploads} starts a resumable upload; chunks are then sent with
+ *       {@code PUT /api/attachments/uploads/{uploadId}} and a {@code Content-Range: bytes start-end/total}
+ *       header. {@code GET} on the upload returns the offset to resume from.</li>
+ * </ul>
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/attachments")
+@RequiredArgsConstructor
+public class AttachmentUploadController {
+
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+
+    private final FileStorageService fileStorageService;
+    private final AttachmentUploadService attachmentUploadService;
+    private final NoteService noteService;
+    private final CurrentUserService currentUserService;
+
+    @PostMapping("/notes/{noteId}")
+    public ResponseEntity<FileAttachmentController.AttachmentInfo> uploadStream(
+        @PathVariable UUID noteId,
+        @RequestParam String filename,
+        @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+        InputStream body) {
+
+        try {
+            Note note = findNote(noteId);
+            NoteAttachment attachment = fileStorageService.storeStream(body, filename, mimeType(contentType), note);
+            return ResponseEntity.status(HttpStatus.CREATED).body(toInfo(attachment));
+        } catch (Exception e) {
+            log.error("Failed to stream upload {} for note {}: {}", filename, noteId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/uploads")
+    public ResponseEntity<AttachmentUploadStatus> startUpload(
+        @RequestParam UUID noteId,
+        @RequestParam String filename,
+        @RequestParam String contentType,
+        @RequestParam long size) {
+
+        try {
+            Note note = findNote(noteId);
+            AttachmentUploadStatus status = attachmentUploadService.startUpload(note,
+                currentUserService.getCurrentUsername(), filename, mimeType(contentType), size);
+            return ResponseEntity.status(HttpStatus.CREATED).body(status);
+        } catch (Exception e) {
+            log.error("Failed to start upload {} for note {}: {}", filename, noteId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PutMapping("/uploads/{uploadId}")
+    public ResponseEntity<AttachmentUploadStatus> uploadChunk(
+        @PathVariable UUID uploadId,
+        @RequestHeader(value = HttpHeaders.CONTENT_RANGE, required = false) String contentRange,
+        @RequestParam(required = false) Long offset,
+        InputStream body) {
+
+        try {
+            long start = chunkOffset(contentRange, offset);
+            AttachmentUploadStatus status = attachmentUploadService.appendChunk(uploadId,
+                currentUserService.getCurrentUsername(), start, body);
+            return ResponseEntity.status(status.isComplete() ? HttpStatus.CREATED : HttpStatus.OK).body(status);
+        } catch (UploadOffsetMismatchException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getStatus());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Failed to upload chunk for {}: {}", uploadId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<AttachmentUploadStatus> getUploadStatus(@PathVariable UUID uploadId) {
+        try {
+            return ResponseEntity.ok(attachmentUploadService.getStatus(uploadId, currentUserService.getCurrentUsername()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<Void> cancelUpload(@PathVariable UUID uploadId) {
+        try {
+            attachmentUploadService.cancelUpload(uploadId, currentUserService.getCurrentUsername());
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    private Note findNote(UUID noteId) {
+        return noteService.getNoteById(noteId)
+            .orElseThrow(() -> new RuntimeException("Note not found with id: " + noteId));
+    }
+
+    // Drop parameters such as charset so the type can be matched against the allow-list
+    private static String mimeType(String contentType) {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        return mediaType.getType() + "/" + mediaType.getSubtype();
+    }
+
+    private static long chunkOffset(String contentRange, Long offset) {
+        if (contentRange != null) {
+            Matcher matcher = CONTENT_RANGE.matcher(contentRange.trim());
+            if (!matcher.matches()) {
+                throw new RuntimeException("Invalid Content-Range: " + contentRange);
+            }
+            return Long.parseLong(matcher.group(1));
+        }
+        if (offset == null) {
+            throw new RuntimeException("Content-Range header or offset parameter is required");
+        }
+        return offset;
+    }
+
+    private static FileAttachmentController.AttachmentInfo toInfo(NoteAttachment attachment) {
+        return new FileAttachmentController.AttachmentInfo(
+            attachment.getId(),
+            attachment.getOriginalFilename(),
+            attachment.getFormattedFileSize(),
+            attachment.getMimeType(),
+            attachment.getFileExtension(),
+            attachment.getUploadedAt() != null ? attachment.getUploadedAt().toString() : null
+        );
+    }
+}
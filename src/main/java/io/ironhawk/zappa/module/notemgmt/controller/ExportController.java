@@ -1,10 +1,12 @@
 package io.ironhawk.zappa.module.notemgmt.controller;
 
+import io.ironhawk.zappa.module.notemgmt.dto.TagPairCount;
 import io.ironhawk.zappa.module.notemgmt.entity.Note;
 import io.ironhawk.zappa.module.notemgmt.entity.Tag;
 import io.ironhawk.zappa.module.notemgmt.service.NoteService;
 import io.ironhawk.zappa.module.notemgmt.service.TagService;
 import io.ironhawk.zappa.module.notemgmt.service.NoteTagService;
+import io.ironhawk.zappa.module.notemgmt.service.TagCooccurrenceService;
 import io.ironhawk.zappa.security.entity.User;
 import io.ironhawk.zappa.security.service.CurrentUserService;
 import lombok.RequiredArgsConstructor;
@@ -26,6 +28,7 @@ public class ExportController {
     private final NoteService noteService;
     private final TagService tagService;
     private final NoteTagService noteTagService;
+    private final TagCooccurrenceService tagCooccurrenceService;
     private final CurrentUserService currentUserService;
 
     @GetMapping("/notes-and-tags-report")
@@ -115,26 +118,12 @@ public class ExportController {
             report.append("## TAG CO-OCCURRENCE PATTERNS\n");
             report.append("Tags that frequently appear together:\n\n");
 
-            Map<String, Integer> tagPairCounts = new HashMap<>();
-            for (Note note : allNotes) {
-                List<Tag> noteTags = tagService.findTagsByNoteId(note.getId());
-                if (noteTags.size() > 1) {
-                    for (int i = 0; i < noteTags.size(); i++) {
-                        for (int j = i + 1; j < noteTags.size(); j++) {
-                            String pair = noteTags.get(i).getName() + " + " + noteTags.get(j).getName();
-                            tagPairCounts.merge(pair, 1, Integer::sum);
-                        }
-                    }
-                }
+            // Only pairs that appear more than once
+            for (TagPairCount pair : tagCooccurrenceService.findTopPairs(2, 15)) {
+                report.append("- ").append(pair.getFirstTagName()).append(" + ").append(pair.getSecondTagName())
+                      .append(": ").append(pair.getCount()).append(" times\n");
             }
 
-            tagPairCounts.entrySet().stream()
-                .filter(entry -> entry.getValue() > 1) // Only pairs that appear more than once
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .limit(15)
-                .forEach(entry -> report.append("- ").append(entry.getKey())
-                                       .append(": ").append(entry.getValue()).append(" times\n"));
-
             // 4. Content Analysis Summary
             report.append("\n## CONTENT ANALYSIS SUMMARY\n");
 
@@ -2,21 +2,30 @@ package io.ironhawk.zappa.module.notemgmt.controller;
 
 import io.ironhawk.zappa.module.notemgmt.entity.Note;
 import io.ironhawk.zappa.module.notemgmt.entity.NoteAttachment;
+import io.ironhawk.zappa.module.notemgmt.service.AttachmentDerivativeService;
 import io.ironhawk.zappa.module.notemgmt.service.FileStorageService;
 import io.ironhawk.zappa.module.notemgmt.service.NoteService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.io.IOException;
+import java.net.URI;
+import java.time.ZoneId;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Controller
 @RequestMapping("/attachments")
@@ -24,6 +33,10 @@ public class FileAttachmentController {
 
     private static final Logger logger = LoggerFactory.getLogger(FileAttachmentController.class);
 
+    // Attachments are private to their owner; stored files never change once written
+    private static final CacheControl ATTACHMENT_CACHE_CONTROL =
+        CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable();
+
     private final FileStorageService fileStorageService;
     private final NoteService noteService;
 
@@ -65,26 +78,9 @@ public class FileAttachmentController {
      * Download file attachment
      */
     @GetMapping("/download/{attachmentId}")
-    public ResponseEntity<Resource> downloadFile(@PathVariable UUID attachmentId) {
+    public ResponseEntity<Resource> downloadFile(@PathVariable UUID attachmentId, WebRequest request) {
         try {
-            // Get attachment record
-            NoteAttachment attachment = fileStorageService.getAttachmentById(attachmentId);
-
-            // Load file as resource
-            Resource resource = fileStorageService.loadFileAsResource(attachment.getFilename());
-
-            // Determine content type
-            String contentType = attachment.getMimeType();
-            if (contentType == null) {
-                contentType = "application/octet-stream";
-            }
-
-            return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION,
-                    "attachment; filename=\"" + attachment.getOriginalFilename() + "\"")
-                .body(resource);
-
+            return serveAttachment(attachmentId, "attachment", request);
         } catch (Exception ex) {
             logger.error("Failed to download file with attachment id {}: {}", attachmentId, ex.getMessage());
             return ResponseEntity.notFound().build();
@@ -95,32 +91,103 @@ public class FileAttachmentController {
      * View file inline (for images, PDFs, etc.)
      */
     @GetMapping("/view/{attachmentId}")
-    public ResponseEntity<Resource> viewFile(@PathVariable UUID attachmentId) {
+    public ResponseEntity<Resource> viewFile(@PathVariable UUID attachmentId, WebRequest request) {
+        try {
+            return serveAttachment(attachmentId, "inline", request);
+        } catch (Exception ex) {
+            logger.error("Failed to view file with attachment id {}: {}", attachmentId, ex.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Resized JPEG preview of an image attachment. Until the variant has been generated
+     * (or for types without variants) this redirects to the original, uncached, so the
+     * next page load picks up the thumbnail.
+     */
+    @GetMapping("/thumb/{attachmentId}")
+    public ResponseEntity<Resource> viewThumbnail(@PathVariable UUID attachmentId,
+                                                  @RequestParam(defaultValue = "320") int w,
+                                                  WebRequest request) {
         try {
-            // Get attachment record
             NoteAttachment attachment = fileStorageService.getAttachmentById(attachmentId);
+            int width = AttachmentDerivativeService.snapWidth(w);
 
-            // Load file as resource
-            Resource resource = fileStorageService.loadFileAsResource(attachment.getFilename());
+            String eTag = "\"" + attachment.getContentHash() + "-w" + width + "\"";
+            if (attachment.getContentHash() != null && request.checkNotModified(eTag)) {
+                return null;
+            }
 
-            // Determine content type
-            String contentType = attachment.getMimeType();
-            if (contentType == null) {
-                contentType = "application/octet-stream";
+            Optional<FileSystemResource> thumbnail = fileStorageService.loadThumbnailResource(attachment, width);
+            if (thumbnail.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.FOUND)
+                    .location(URI.create("/attachments/view/" + attachmentId))
+                    .cacheControl(CacheControl.noStore())
+                    .build();
             }
 
             return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION,
-                    "inline; filename=\"" + attachment.getOriginalFilename() + "\"")
-                .body(resource);
+                .contentType(MediaType.IMAGE_JPEG)
+                .cacheControl(ATTACHMENT_CACHE_CONTROL)
+                .eTag(eTag)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
+                .body(thumbnail.get());
 
         } catch (Exception ex) {
-            logger.error("Failed to view file with attachment id {}: {}", attachmentId, ex.getMessage());
+            logger.error("Failed to view thumbnail for attachment id {}: {}", attachmentId, ex.getMessage());
             return ResponseEntity.notFound().build();
         }
     }
 
+    /**
+     * Serve a stored attachment. Stored files are immutable, so the response carries a strong
+     * ETag (content hash) and a long-lived cache lifetime. Conditional requests are answered
+     * with 304 before the file is touched; Range requests are served as 206 partial content
+     * by Spring's resource region support.
+     */
+    private ResponseEntity<Resource> serveAttachment(UUID attachmentId, String dispositionType, WebRequest request) {
+        // Get attachment record
+        NoteAttachment attachment = fileStorageService.getAttachmentById(attachmentId);
+
+        String eTag = attachmentETag(attachment);
+        // uploadedAt is a local time in the JVM's default zone, the zone that wrote it
+        long lastModified = attachment.getUploadedAt() != null
+            ? attachment.getUploadedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+            : -1;
+
+        // If-None-Match / If-Modified-Since: 304 has already been written to the response
+        if (request.checkNotModified(eTag, lastModified)) {
+            return null;
+        }
+
+        Resource resource = fileStorageService.loadAttachmentResource(attachment);
+        if (!resource.isReadable()) {
+            throw new RuntimeException("File not found or not readable: " + attachment.getFilePath());
+        }
+
+        // Determine content type
+        String contentType = attachment.getMimeType();
+        if (contentType == null) {
+            contentType = "application/octet-stream";
+        }
+
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(contentType))
+            .cacheControl(ATTACHMENT_CACHE_CONTROL)
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                dispositionType + "; filename=\"" + attachment.getOriginalFilename() + "\"")
+            .body(resource);
+    }
+
+    /**
+     * Strong ETag for an attachment: the SHA-256 content hash (identical across deduplicated
+     * uploads), or the stored filename for attachments uploaded before hashing was introduced.
+     */
+    private String attachmentETag(NoteAttachment attachment) {
+        String tag = attachment.getContentHash() != null ? attachment.getContentHash() : attachment.getFilename();
+        return "\"" + tag + "\"";
+    }
+
     /**
      * Delete file attachment
      */
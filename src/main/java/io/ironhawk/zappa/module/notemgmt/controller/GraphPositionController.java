@@ -1,5 +1,6 @@
 package io.ironhawk.zappa.module.notemgmt.controller;
 
+import io.ironhawk.zappa.module.notemgmt.service.GraphLayoutService;
 import io.ironhawk.zappa.security.service.CurrentUserService;
 import io.ironhawk.zappa.security.service.UserPreferencesService;
 import lombok.RequiredArgsConstructor;
@@ -17,6 +18,7 @@ public class GraphPositionController {
 
     private final UserPreferencesService userPreferencesService;
     private final CurrentUserService currentUserService;
+    private final GraphLayoutService graphLayoutService;
 
     @GetMapping("/{groupKey}")
     public ResponseEntity<Map<String, Object>> getPositions(@PathVariable String groupKey) {
@@ -54,6 +56,29 @@ public class GraphPositionController {
         }
     }
 
+    /**
+     * Server-computed positions for the group's linked notes. Saved positions are kept and only
+     * new notes and the neighbourhoods of new links are moved, unless {@code recompute} is set.
+     */
+    @PostMapping("/{groupKey}/layout")
+    public ResponseEntity<Map<String, Object>> computeLayout(
+            @PathVariable String groupKey,
+            @RequestParam(defaultValue = "false") boolean recompute) {
+        try {
+            Map<String, Object> layout = graphLayoutService.getLayout(groupKey, recompute);
+
+            log.debug("Computed layout for group {}: {} nodes", groupKey, layout.size());
+
+            return ResponseEntity.ok(layout);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid layout request for group {}: {}", groupKey, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error computing graph layout for group: {}", groupKey, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @DeleteMapping("/{groupKey}")
     public ResponseEntity<String> clearPositions(@PathVariable String groupKey) {
         try {
@@ -2,14 +2,22 @@ package io.ironhawk.zappa.module.notemgmt.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import io.ironhawk.zappa.module.notemgmt.dto.DuplicateCluster;
 import io.ironhawk.zappa.module.notemgmt.dto.NoteCreateRequest;
+import io.ironhawk.zappa.module.notemgmt.dto.NoteDuplicate;
 import io.ironhawk.zappa.module.notemgmt.dto.NoteResponse;
 import io.ironhawk.zappa.module.notemgmt.dto.NoteUpdateRequest;
+import io.ironhawk.zappa.module.notemgmt.dto.RelatedNote;
 import io.ironhawk.zappa.module.notemgmt.dto.TagResponse;
+import io.ironhawk.zappa.module.notemgmt.dto.TagSuggestion;
+import io.ironhawk.zappa.module.notemgmt.dto.TagSuggestionRequest;
 import io.ironhawk.zappa.module.notemgmt.entity.Note;
 import io.ironhawk.zappa.module.notemgmt.entity.Tag;
+import io.ironhawk.zappa.module.notemgmt.service.NoteDuplicateService;
 import io.ironhawk.zappa.module.notemgmt.service.NoteService;
+import io.ironhawk.zappa.module.notemgmt.service.RelatedNotesService;
 import io.ironhawk.zappa.module.notemgmt.service.TagService;
+import io.ironhawk.zappa.module.notemgmt.service.TagSuggestionService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -33,6 +41,9 @@ public class NoteController {
 
     private final NoteService noteService;
     private final TagService tagService;
+    private final RelatedNotesService relatedNotesService;
+    private final NoteDuplicateService noteDuplicateService;
+    private final TagSuggestionService tagSuggestionService;
 
     @PostMapping
     public ResponseEntity<NoteResponse> createNote(@Valid @RequestBody NoteCreateRequest request) {
@@ -44,9 +55,8 @@ public class NoteController {
 
         // Add tags if provided
         if (request.getTagNames() != null && !request.getTagNames().isEmpty()) {
-            for (String tagName : request.getTagNames()) {
-                Tag tag = tagService.getOrCreateTag(tagName, null);
-                noteService.addTagToNote(createdNote.getId(), tag.getId());
+            for (UUID tagId : tagService.getOrCreateTagIds(request.getTagNames())) {
+                noteService.addTagToNote(createdNote.getId(), tagId);
             }
             // Refresh note with tags
             createdNote = noteService.getNoteWithTags(createdNote.getId()).orElse(createdNote);
@@ -55,6 +65,21 @@ public class NoteController {
         return ResponseEntity.status(HttpStatus.CREATED).body(toNoteResponse(createdNote));
     }
 
+    /**
+     * Tags for a note being written, from how similar notes were tagged; works before the note is saved
+     */
+    @PostMapping("/suggest-tags")
+    public ResponseEntity<List<TagSuggestion>> suggestTags(
+        @RequestBody TagSuggestionRequest request,
+        @RequestParam(defaultValue = "5") int limit) {
+
+        log.debug("Suggesting tags for note titled: {}", request.getTitle());
+
+        int cappedLimit = Math.max(1, Math.min(limit, TagSuggestionService.MAX_LIMIT));
+        return ResponseEntity.ok(tagSuggestionService.suggestTags(request.getTitle(), request.getContent(),
+            request.getTagNames(), cappedLimit));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<NoteResponse> getNote(@PathVariable UUID id) {
         log.info("Fetching note with id: {}", id);
@@ -105,9 +130,8 @@ public class NoteController {
                 }
 
                 // Add new tags
-                for (String tagName : request.getTagNames()) {
-                    Tag tag = tagService.getOrCreateTag(tagName, null);
-                    noteService.addTagToNote(id, tag.getId());
+                for (UUID tagId : tagService.getOrCreateTagIds(request.getTagNames())) {
+                    noteService.addTagToNote(id, tagId);
                 }
 
                 // Refresh note with tags
@@ -132,6 +156,40 @@ public class NoteController {
         }
     }
 
+    @GetMapping("/{id}/related")
+    public ResponseEntity<List<RelatedNote>> getRelatedNotes(
+        @PathVariable UUID id,
+        @RequestParam(defaultValue = "10") int limit) {
+
+        log.info("Fetching related notes for note {}", id);
+
+        int cappedLimit = Math.max(1, Math.min(limit, RelatedNotesService.MAX_LIMIT));
+        return relatedNotesService.findRelatedNotes(id, cappedLimit)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{id}/duplicates")
+    public ResponseEntity<List<NoteDuplicate>> getDuplicateNotes(
+        @PathVariable UUID id,
+        @RequestParam(defaultValue = "" + NoteDuplicateService.DEFAULT_MIN_SIMILARITY) double minSimilarity) {
+
+        log.info("Fetching near-duplicates of note {} with similarity >= {}", id, minSimilarity);
+
+        return noteDuplicateService.findDuplicates(id, minSimilarity)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/duplicates")
+    public ResponseEntity<List<DuplicateCluster>> getDuplicateClusters(
+        @RequestParam(defaultValue = "" + NoteDuplicateService.DEFAULT_MIN_SIMILARITY) double minSimilarity) {
+
+        log.info("Finding duplicate note clusters with similarity >= {}", minSimilarity);
+
+        return ResponseEntity.ok(noteDuplicateService.findDuplicateClusters(minSimilarity));
+    }
+
     @GetMapping("/search")
     public ResponseEntity<List<NoteResponse>> searchNotes(@RequestParam String query) {
         log.info("Searching notes with query: {}", query);
@@ -144,6 +202,27 @@ public class NoteController {
         return ResponseEntity.ok(responses);
     }
 
+    /**
+     * Notes matching a tag query such as {@code (java OR kotlin) AND NOT archived group:Programming created:>2025-01},
+     * newest first
+     */
+    @GetMapping("/query")
+    public ResponseEntity<Page<NoteResponse>> queryNotes(
+        @RequestParam String q,
+        @RequestParam(defaultValue = "0") int page,
+        @RequestParam(defaultValue = "20") int size) {
+
+        log.info("Querying notes: {}", q);
+
+        try {
+            Page<Note> notes = noteService.findNotesByQuery(q, PageRequest.of(page, size));
+            return ResponseEntity.ok(notes.map(this::toNoteResponse));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid note query '{}': {}", q, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/by-tag")
     public ResponseEntity<List<NoteResponse>> getNotesByTag(@RequestParam String tagName) {
         log.info("Fetching notes by tag: {}", tagName);
@@ -2,9 +2,14 @@ package io.ironhawk.zappa.module.notemgmt.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import io.ironhawk.zappa.module.notemgmt.dto.NoteComponent;
 import io.ironhawk.zappa.module.notemgmt.dto.NoteLinkDto;
+import io.ironhawk.zappa.module.notemgmt.dto.NoteNeighbour;
+import io.ironhawk.zappa.module.notemgmt.dto.NotePathResponse;
+import io.ironhawk.zappa.module.notemgmt.dto.NoteScore;
 import io.ironhawk.zappa.module.notemgmt.entity.NoteLink;
 import io.ironhawk.zappa.module.notemgmt.entity.NoteLinkType;
+import io.ironhawk.zappa.module.notemgmt.service.GraphAlgorithmService;
 import io.ironhawk.zappa.module.notemgmt.service.NoteLinkService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -21,6 +26,7 @@ public class
 NoteLinkController {
 
     private final NoteLinkService noteLinkService;
+    private final GraphAlgorithmService graphAlgorithmService;
 
     @PostMapping
     public ResponseEntity<NoteLinkDto> createLink(
@@ -86,9 +92,10 @@ NoteLinkController {
     @GetMapping("/graph/path")
     public ResponseEntity<List<UUID>> getShortestPath(
         @RequestParam UUID startNoteId,
-        @RequestParam UUID targetNoteId) {
+        @RequestParam UUID targetNoteId,
+        @RequestParam(required = false) List<NoteLinkType> linkTypes) {
 
-        return noteLinkService.findShortestPath(startNoteId, targetNoteId)
+        return noteLinkService.findShortestPath(startNoteId, targetNoteId, linkTypes)
             .map(ResponseEntity::ok)
             .orElse(ResponseEntity.notFound().build());
     }
@@ -107,6 +114,41 @@ NoteLinkController {
         return ResponseEntity.ok(orphans);
     }
 
+    @GetMapping("/graph/weighted-path")
+    public ResponseEntity<NotePathResponse> getWeightedPath(
+        @RequestParam UUID startNoteId,
+        @RequestParam UUID targetNoteId) {
+
+        return graphAlgorithmService.findWeightedPath(startNoteId, targetNoteId)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/graph/k-hop")
+    public ResponseEntity<List<NoteNeighbour>> getKHopNeighbourhood(
+        @RequestParam UUID noteId,
+        @RequestParam(defaultValue = "2") int hops,
+        @RequestParam(defaultValue = "200") int limit,
+        @RequestParam(defaultValue = "true") boolean undirected) {
+
+        return ResponseEntity.ok(graphAlgorithmService.findNeighbourhood(noteId, hops, limit, undirected));
+    }
+
+    @GetMapping("/graph/pagerank")
+    public ResponseEntity<List<NoteScore>> getPageRank(
+        @RequestParam(defaultValue = "20") int limit) {
+
+        return ResponseEntity.ok(graphAlgorithmService.rankNotes(limit));
+    }
+
+    @GetMapping("/graph/components")
+    public ResponseEntity<List<NoteComponent>> getConnectedComponents(
+        @RequestParam(defaultValue = "2") int minSize,
+        @RequestParam(defaultValue = "50") int limit) {
+
+        return ResponseEntity.ok(graphAlgorithmService.findComponents(minSize, limit));
+    }
+
     @GetMapping("/statistics")
     public ResponseEntity<List<Object[]>> getLinkStatistics() {
         List<Object[]> stats = noteLinkService.getLinkTypeStatistics();
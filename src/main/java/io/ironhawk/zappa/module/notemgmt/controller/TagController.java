@@ -2,22 +2,35 @@ package io.ironhawk.zappa.module.notemgmt.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import io.ironhawk.zappa.module.notemgmt.dto.TagBulkRenameRequest;
+import io.ironhawk.zappa.module.notemgmt.dto.TagBulkResult;
+import io.ironhawk.zappa.module.notemgmt.dto.TagBulkUpdateRequest;
+import io.ironhawk.zappa.module.notemgmt.dto.TagCooccurrence;
 import io.ironhawk.zappa.module.notemgmt.dto.TagCreateRequest;
+import io.ironhawk.zappa.module.notemgmt.dto.TagMergeRequest;
+import io.ironhawk.zappa.module.notemgmt.dto.TagOverviewPage;
 import io.ironhawk.zappa.module.notemgmt.dto.TagResponse;
 import io.ironhawk.zappa.module.notemgmt.dto.TagUpdateRequest;
+import io.ironhawk.zappa.module.notemgmt.dto.TagUsageHistogram;
 import io.ironhawk.zappa.module.notemgmt.entity.Tag;
 import io.ironhawk.zappa.module.notemgmt.service.NoteTagService;
+import io.ironhawk.zappa.module.notemgmt.service.TagAutocompleteService;
+import io.ironhawk.zappa.module.notemgmt.service.TagCooccurrenceService;
+import io.ironhawk.zappa.module.notemgmt.service.TagOverviewService;
 import io.ironhawk.zappa.module.notemgmt.service.TagService;
+import io.ironhawk.zappa.module.notemgmt.service.TagUsageService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -29,8 +42,14 @@ import java.util.stream.Collectors;
 @Validated
 public class TagController {
 
+    private static final int MAX_CO_OCCURRING_LIMIT = 100;
+
     private final TagService tagService;
     private final NoteTagService noteTagService;
+    private final TagCooccurrenceService tagCooccurrenceService;
+    private final TagAutocompleteService tagAutocompleteService;
+    private final TagOverviewService tagOverviewService;
+    private final TagUsageService tagUsageService;
 
     @PostMapping
     public ResponseEntity<TagResponse> createTag(@Valid @RequestBody TagCreateRequest request) {
@@ -115,6 +134,37 @@ public class TagController {
         return ResponseEntity.ok(responses);
     }
 
+    /**
+     * Typeahead: tags with a name or word starting with q, most used first. Served from memory,
+     * so it is cheap enough to call on every keystroke.
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<TagResponse>> suggestTags(
+        @RequestParam(defaultValue = "") String q,
+        @RequestParam(defaultValue = "10") int limit) {
+
+        log.debug("Suggesting tags for prefix: {}", q);
+
+        return ResponseEntity.ok(tagAutocompleteService.suggest(q, limit));
+    }
+
+    /**
+     * Tags with group and usage count, key tags first then by name, one keyset page at a time:
+     * pass the page's nextCursor as after or its previousCursor as before
+     */
+    @GetMapping("/overview")
+    public ResponseEntity<TagOverviewPage> getTagOverview(
+        @RequestParam(defaultValue = "") String search,
+        @RequestParam(defaultValue = "") String color,
+        @RequestParam(required = false) UUID after,
+        @RequestParam(required = false) UUID before,
+        @RequestParam(defaultValue = "50") int size) {
+
+        log.debug("Fetching tag overview after: {} before: {}", after, before);
+
+        return ResponseEntity.ok(tagOverviewService.getOverview(search, color, after, before, size));
+    }
+
     @GetMapping("/by-name")
     public ResponseEntity<TagResponse> getTagByName(@RequestParam String name) {
         log.info("Fetching tag by name: {}", name);
@@ -176,16 +226,14 @@ public class TagController {
         return ResponseEntity.ok(responses);
     }
 
+    /**
+     * The most used tags with their usage counts, from the cached autocompletion index
+     */
     @GetMapping("/popular")
-    public ResponseEntity<List<TagResponse>> getPopularTags() {
-        log.info("Fetching popular tags");
+    public ResponseEntity<List<TagResponse>> getPopularTags(@RequestParam(defaultValue = "20") int limit) {
+        log.info("Fetching {} popular tags", limit);
 
-        List<Tag> tags = tagService.findPopularTags();
-        List<TagResponse> responses = tags.stream()
-            .map(this::toTagResponse)
-            .collect(Collectors.toList());
-
-        return ResponseEntity.ok(responses);
+        return ResponseEntity.ok(tagOverviewService.getPopularTags(limit));
     }
 
     @GetMapping("/with-min-usage")
@@ -213,11 +261,62 @@ public class TagController {
     }
 
     @GetMapping("/{id}/co-occurring")
-    public ResponseEntity<List<TagResponse>> getCoOccurringTags(@PathVariable UUID id) {
+    public ResponseEntity<List<TagResponse>> getCoOccurringTags(
+        @PathVariable UUID id,
+        @RequestParam(defaultValue = "20") int limit) {
+
         log.info("Fetching co-occurring tags for tag: {}", id);
 
-        List<Tag> tags = tagService.findCoOccurringTags(id);
-        List<TagResponse> responses = tags.stream()
+        List<TagResponse> responses = tagCooccurrenceService.findCoOccurring(id, capLimit(limit)).stream()
+            .map(this::toTagResponse)
+            .collect(Collectors.toList());
+
+        return ResponseEntity.ok(responses);
+    }
+
+    /**
+     * Weekly usage of the tags of a group and its subgroups, or of all tags, from the
+     * precomputed roll-up. Dates are ISO (yyyy-MM-dd); the range defaults to the last 26 weeks.
+     */
+    @GetMapping("/usage-histogram")
+    public ResponseEntity<TagUsageHistogram> getUsageHistogram(
+        @RequestParam(required = false) UUID groupId,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        log.info("Fetching tag usage histogram for group: {}", groupId);
+
+        try {
+            return ResponseEntity.ok(tagUsageService.getHistogram(groupId, null, from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{id}/usage-histogram")
+    public ResponseEntity<TagUsageHistogram> getTagUsageHistogram(
+        @PathVariable UUID id,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        log.info("Fetching usage histogram for tag: {}", id);
+
+        try {
+            return ResponseEntity.ok(tagUsageService.getHistogram(null, id, from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Tags most often used together with all the given tags, e.g. to suggest more tags for a note
+    @GetMapping("/co-occurring")
+    public ResponseEntity<List<TagResponse>> getTagsCoOccurringWith(
+        @RequestParam List<UUID> tagIds,
+        @RequestParam(defaultValue = "10") int limit) {
+
+        log.info("Fetching tags co-occurring with: {}", tagIds);
+
+        List<TagResponse> responses = tagCooccurrenceService.suggestFor(tagIds, capLimit(limit)).stream()
             .map(this::toTagResponse)
             .collect(Collectors.toList());
 
@@ -246,12 +345,80 @@ public class TagController {
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Move the notes of the source tags to the target tag and delete the source tags, in one
+     * transaction with set-based statements
+     */
+    @PostMapping("/merge")
+    public ResponseEntity<TagBulkResult> mergeTags(@Valid @RequestBody TagMergeRequest request) {
+        log.info("Merging tags {} into {}", request.getSourceTagIds(), request.getTargetTagId());
+
+        try {
+            return ResponseEntity.ok(tagService.mergeTags(request.getSourceTagIds(), request.getTargetTagId()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/bulk/rename")
+    public ResponseEntity<TagBulkResult> renameTags(@Valid @RequestBody TagBulkRenameRequest request) {
+        log.info("Renaming {} tags", request.getNames().size());
+
+        try {
+            return ResponseEntity.ok(tagService.renameTags(request.getNames()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/bulk/recolor")
+    public ResponseEntity<TagBulkResult> recolorTags(@Valid @RequestBody TagBulkUpdateRequest request) {
+        log.info("Recolouring {} tags to {}", request.getTagIds().size(), request.getColor());
+
+        try {
+            return ResponseEntity.ok(tagService.recolorTags(request.getTagIds(), request.getColor()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/bulk/move")
+    public ResponseEntity<TagBulkResult> moveTagsToGroup(@Valid @RequestBody TagBulkUpdateRequest request) {
+        log.info("Moving {} tags to group {}", request.getTagIds().size(), request.getGroupId());
+
+        if (request.getGroupId() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(tagService.moveTagsToGroup(request.getTagIds(), request.getGroupId()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/{id}/stats")
     public ResponseEntity<Long> getTagUsageCount(@PathVariable UUID id) {
         long count = noteTagService.countNotesForTag(id);
         return ResponseEntity.ok(count);
     }
 
+    private static int capLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_CO_OCCURRING_LIMIT));
+    }
+
+    // Usage comes from the co-occurrence counts, so no query per tag
+    private TagResponse toTagResponse(TagCooccurrence coOccurrence) {
+        return TagResponse.builder()
+            .id(coOccurrence.getTagId())
+            .name(coOccurrence.getName())
+            .color(coOccurrence.getColor())
+            .isKey(coOccurrence.isKey())
+            .usageCount((long) coOccurrence.getUsageCount())
+            .coOccurrenceCount(coOccurrence.getCount())
+            .coOccurrenceScore(coOccurrence.getScore())
+            .build();
+    }
+
     private TagResponse toTagResponse(Tag tag) {
         Long usageCount = noteTagService.countNotesForTag(tag.getId());
 
@@ -0,0 +1,45 @@
+package io.ironhawk.zappa.module.notemgmt.controller;
+
+import io.ironhawk.zappa.module.notemgmt.dto.TagCleanupReport;
+import io.ironhawk.zappa.module.notemgmt.service.TagCleanupService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@Slf4j
+@RestController
+@RequestMapping("/admin/tags")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class TagMaintenanceController {
+
+    private final TagCleanupService tagCleanupService;
+
+    /**
+     * Delete orphaned note-tags and optionally unused tags of all users. Defaults to a dry run
+     * that only counts.
+     */
+    @PostMapping("/cleanup")
+    public ResponseEntity<TagCleanupReport> cleanup(@RequestParam(defaultValue = "true") boolean dryRun,
+                                                    @RequestParam(defaultValue = "false") boolean deleteUnusedTags) {
+        try {
+            return ResponseEntity.ok(tagCleanupService.cleanup(dryRun, deleteUnusedTags));
+        } catch (IllegalStateException e) {
+            log.warn("Tag cleanup request rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    /**
+     * Progress of the running cleanup, or the outcome of the last one
+     */
+    @GetMapping("/cleanup")
+    public ResponseEntity<TagCleanupReport> getCleanupProgress() {
+        return tagCleanupService.getProgress()
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.noContent().build());
+    }
+}
@@ -0,0 +1,28 @@
+package io.ironhawk.zappa.module.notemgmt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outcome of one attachment garbage collection run. In a dry run the deleted counts are
+ * what would have been deleted.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttachmentGcReport {
+
+    private boolean dryRun;
+    private LocalDateTime startedAt;
+    private long durationMs;
+    private long filesScanned;
+    private long filesSkipped;
+    private long filesDeleted;
+    private long bytesReclaimed;
+    private long errors;
+}
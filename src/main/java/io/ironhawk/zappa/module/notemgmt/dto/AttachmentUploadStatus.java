@@ -0,0 +1,29 @@
+package io.ironhawk.zappa.module.notemgmt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Progress of a resumable attachment upload. {@code attachmentId} is set once the last chunk
+ * has been received and the file committed.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttachmentUploadStatus {
+
+    private UUID uploadId;
+    private String filename;
+    private long offset;
+    private long totalSize;
+    private UUID attachmentId;
+
+    public boolean isComplete() {
+        return attachmentId != null;
+    }
+}
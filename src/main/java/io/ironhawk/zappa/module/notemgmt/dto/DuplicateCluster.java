@@ -0,0 +1,22 @@
+package io.ironhawk.zappa.module.notemgmt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DuplicateCluster {
+
+    private UUID representativeId;
+    private String representativeTitle;
+
+    // Other notes of the cluster, with their similarity to the representative
+    private List<NoteDuplicate> duplicates;
+}
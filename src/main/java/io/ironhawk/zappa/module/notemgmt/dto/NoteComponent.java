@@ -0,0 +1,19 @@
+package io.ironhawk.zappa.module.notemgmt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteComponent {
+
+    private int size;
+    private List<UUID> noteIds;
+}
@@ -0,0 +1,21 @@
+package io.ironhawk.zappa.module.notemgmt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteDuplicate {
+
+    private UUID noteId;
+    private String title;
+
+    // Estimated share of word shingles in common, 0..1
+    private double similarity;
+}
@@ -0,0 +1,50 @@
+package io.ironhawk.zappa.module.notemgmt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Notes within a few hops of a centre note and the links among them. Degrees count all of
+ * a note's links, including those leading out of the subgraph.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteSubgraph {
+
+    private UUID centreId;
+    private int hops;
+    private boolean truncated;
+    private List<Node> nodes;
+    private List<Edge> edges;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Node {
+        private UUID noteId;
+        private String title;
+        private int depth;
+        private int inDegree;
+        private int outDegree;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Edge {
+        private UUID source;
+        private UUID target;
+        private String type;
+        private int weight;
+        private boolean bidirectional;
+    }
+}
@@ -0,0 +1,27 @@
+package io.ironhawk.zappa.module.notemgmt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RelatedNote {
+
+    private UUID noteId;
+    private String title;
+    private double score;
+
+    // Per-signal scores in 0..1 behind the combined score
+    private double tagScore;
+    private double linkScore;
+    private double textScore;
+
+    private int sharedTags;
+    private int commonNeighbours;
+}
@@ -0,0 +1,23 @@
+package io.ironhawk.zappa.module.notemgmt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagBulkRenameRequest {
+
+    // New name per tag id
+    @NotEmpty(message = "At least one tag is required")
+    private Map<UUID, @NotBlank(message = "Name is required") @Size(max = 255, message = "Name must not exceed 255 characters") String> names;
+}
@@ -0,0 +1,20 @@
+package io.ironhawk.zappa.module.notemgmt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagBulkResult {
+
+    // Tags renamed, recoloured, moved or merged away
+    private int tagsAffected;
+
+    // Set only for merges: notes that gained the target tag, and the target afterwards
+    private Integer notesRetagged;
+    private TagResponse target;
+}
@@ -0,0 +1,28 @@
+package io.ironhawk.zappa.module.notemgmt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagBulkUpdateRequest {
+
+    @NotEmpty(message = "At least one tag is required")
+    private List<UUID> tagIds;
+
+    // For recolouring
+    @Size(max = 255, message = "Color must not exceed 255 characters")
+    private String color;
+
+    // For moving
+    private UUID groupId;
+}
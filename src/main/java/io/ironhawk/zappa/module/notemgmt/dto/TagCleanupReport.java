@@ -0,0 +1,27 @@
+package io.ironhawk.zappa.module.notemgmt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress or outcome of one tag cleanup run. In a dry run the deleted counts are what
+ * would have been deleted.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagCleanupReport {
+
+    private boolean dryRun;
+    private boolean finished;
+    private LocalDateTime startedAt;
+    private long durationMs;
+    private long batches;
+    private long orphanedNoteTagsDeleted;
+    private long unusedTagsDeleted;
+}
@@ -0,0 +1,27 @@
+package io.ironhawk.zappa.module.notemgmt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagCooccurrence {
+
+    private UUID tagId;
+    private String name;
+    private String color;
+    private boolean isKey;
+
+    // Notes carrying this tag together with the queried tag(s)
+    private int count;
+    // Notes carrying this tag at all
+    private int usageCount;
+    // Ranking score: summed share of the queried tags' notes that also carry this tag
+    private double score;
+}
@@ -0,0 +1,26 @@
+package io.ironhawk.zappa.module.notemgmt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagMergeRequest {
+
+    // Tags to merge away; they are deleted
+    @NotEmpty(message = "At least one source tag is required")
+    private List<UUID> sourceTagIds;
+
+    // Tag that takes over their notes
+    @NotNull(message = "Target tag is required")
+    private UUID targetTagId;
+}
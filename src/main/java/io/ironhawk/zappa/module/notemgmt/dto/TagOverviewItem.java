@@ -0,0 +1,30 @@
+package io.ironhawk.zappa.module.notemgmt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A tag with its group and the number of notes carrying it, as listed on the tags page
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagOverviewItem {
+
+    private UUID id;
+    private String name;
+    private String color;
+    private boolean key;
+    private LocalDateTime createdAt;
+    private UUID groupId;
+    private String groupName;
+    private String groupIcon;
+    private String groupColor;
+    private long usageCount;
+}
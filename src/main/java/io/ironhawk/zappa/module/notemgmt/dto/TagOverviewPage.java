@@ -0,0 +1,29 @@
+package io.ironhawk.zappa.module.notemgmt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One page of the tag overview, key tags first and then by name, with counts over all tags
+ * matching the filter. Pages are addressed by the id of the tag they follow or precede.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagOverviewPage {
+
+    private List<TagOverviewItem> tags;
+    private long totalTags;
+    private long usedTags;
+    private long unusedTags;
+    // Cursor for the next page (its "after"), null on the last page
+    private UUID nextCursor;
+    // Cursor for the previous page (its "before"), null on the first page
+    private UUID previousCursor;
+}
@@ -0,0 +1,21 @@
+package io.ironhawk.zappa.module.notemgmt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagPairCount {
+
+    private UUID firstTagId;
+    private String firstTagName;
+    private UUID secondTagId;
+    private String secondTagName;
+    private int count;
+}
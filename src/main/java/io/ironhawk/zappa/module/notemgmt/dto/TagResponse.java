@@ -21,4 +21,8 @@ public class TagResponse {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private Long usageCount;
+
+    // Set only when listing tags by co-occurrence
+    private Integer coOccurrenceCount;
+    private Double coOccurrenceScore;
 }
\ No newline at end of file
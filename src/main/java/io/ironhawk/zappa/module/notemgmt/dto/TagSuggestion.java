@@ -0,0 +1,23 @@
+package io.ironhawk.zappa.module.notemgmt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagSuggestion {
+
+    private UUID tagId;
+    private String name;
+    private String color;
+    private boolean isKey;
+
+    // Estimated probability, between 0 and 1, that the note should carry the tag
+    private double confidence;
+}
@@ -0,0 +1,22 @@
+package io.ironhawk.zappa.module.notemgmt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagSuggestionRequest {
+
+    private String title;
+
+    private String content;
+
+    // Tags already chosen for the note, left out of the suggestions
+    private List<String> tagNames;
+}
@@ -0,0 +1,26 @@
+package io.ironhawk.zappa.module.notemgmt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Weekly tag usage over a range of weeks, per tag and summed over all tags in scope. Tags
+ * not used in the range are included with zero counts, as they are the candidates for pruning.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagUsageHistogram {
+
+    // Monday of each week, oldest first
+    private List<LocalDate> weeks;
+    private List<TagUsageSeries> tags;
+    // Per week, summed over all tags
+    private long[] totals;
+}
@@ -0,0 +1,26 @@
+package io.ironhawk.zappa.module.notemgmt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Number of notes a tag was put on in each week of a {@link TagUsageHistogram}
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagUsageSeries {
+
+    private UUID tagId;
+    private String name;
+    private String color;
+    private UUID groupId;
+    // One count per week, aligned with the histogram's weeks
+    private long[] counts;
+    private long total;
+}
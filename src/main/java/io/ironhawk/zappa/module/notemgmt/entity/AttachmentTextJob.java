@@ -0,0 +1,53 @@
+package io.ironhawk.zappa.module.notemgmt.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Pending text extraction for an attachment. Rows are claimed by the extraction workers and
+ * deleted once the text has been stored; failed rows are retried with backoff until
+ * {@link Status#FAILED}.
+ */
+@Entity
+@Table(name = "attachment_text_jobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AttachmentTextJob {
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        FAILED
+    }
+
+    @Id
+    @Column(name = "attachment_id")
+    private UUID attachmentId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private Status status;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(name = "locked_at")
+    private LocalDateTime lockedAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
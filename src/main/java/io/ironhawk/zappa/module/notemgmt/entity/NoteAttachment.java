@@ -33,6 +33,10 @@ public class NoteAttachment {
     @Column(name = "mime_type", nullable = false, length = 100)
     private String mimeType;
 
+    // SHA-256 of the stored bytes (hex), null for attachments uploaded before hashing was introduced
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @CreationTimestamp
     @Column(name = "uploaded_at", nullable = false)
     private LocalDateTime uploadedAt;
@@ -108,6 +112,14 @@ public class NoteAttachment {
         this.mimeType = mimeType;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
     public LocalDateTime getUploadedAt() {
         return uploadedAt;
     }
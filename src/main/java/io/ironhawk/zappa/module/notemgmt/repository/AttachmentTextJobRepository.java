@@ -0,0 +1,71 @@
+package io.ironhawk.zappa.module.notemgmt.repository;
+
+import io.ironhawk.zappa.module.notemgmt.entity.AttachmentTextJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Queue operations are native so that all timestamps come from the database clock.
+ */
+@Repository
+public interface AttachmentTextJobRepository extends JpaRepository<AttachmentTextJob, UUID> {
+
+    /**
+     * Queue an attachment, or re-queue it if it already has a (failed) job
+     */
+    @Modifying
+    @Query(value = "INSERT INTO attachment_text_jobs (attachment_id) VALUES (:attachmentId) " +
+                   "ON CONFLICT (attachment_id) DO UPDATE SET status = 'PENDING', attempts = 0, " +
+                   "last_error = NULL, available_at = CURRENT_TIMESTAMP, locked_at = NULL",
+           nativeQuery = true)
+    void enqueue(@Param("attachmentId") UUID attachmentId);
+
+    /**
+     * Lock up to {@code limit} due jobs, skipping rows another worker has already locked.
+     * Must run in the same transaction as {@link #markRunning}.
+     */
+    @Query(value = "SELECT attachment_id FROM attachment_text_jobs " +
+                   "WHERE status = 'PENDING' AND available_at <= CURRENT_TIMESTAMP " +
+                   "ORDER BY available_at " +
+                   "LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<UUID> lockDueJobIds(@Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "UPDATE attachment_text_jobs SET status = 'RUNNING', attempts = attempts + 1, " +
+                   "locked_at = CURRENT_TIMESTAMP WHERE attachment_id IN (:ids)",
+           nativeQuery = true)
+    int markRunning(@Param("ids") List<UUID> ids);
+
+    /**
+     * Schedule another attempt after {@code delaySeconds}, or give up once attempts are exhausted
+     */
+    @Modifying
+    @Query(value = "UPDATE attachment_text_jobs SET " +
+                   "status = CASE WHEN attempts >= :maxAttempts THEN 'FAILED' ELSE 'PENDING' END, " +
+                   "available_at = CURRENT_TIMESTAMP + make_interval(secs => :delaySeconds * attempts), " +
+                   "last_error = :error, locked_at = NULL " +
+                   "WHERE attachment_id = :attachmentId",
+           nativeQuery = true)
+    int markFailed(@Param("attachmentId") UUID attachmentId,
+                   @Param("error") String error,
+                   @Param("maxAttempts") int maxAttempts,
+                   @Param("delaySeconds") int delaySeconds);
+
+    /**
+     * Return jobs whose worker died mid-extraction (e.g. on restart) to the queue
+     */
+    @Modifying
+    @Query(value = "UPDATE attachment_text_jobs SET status = 'PENDING', locked_at = NULL " +
+                   "WHERE status = 'RUNNING' AND locked_at < CURRENT_TIMESTAMP - make_interval(secs => :timeoutSeconds)",
+           nativeQuery = true)
+    int releaseStaleJobs(@Param("timeoutSeconds") int timeoutSeconds);
+
+    long countByStatus(AttachmentTextJob.Status status);
+}
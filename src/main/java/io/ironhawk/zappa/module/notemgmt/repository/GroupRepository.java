@@ -35,6 +35,10 @@ public interface GroupRepository extends JpaRepository<Group, UUID> {
     @Query("SELECT g FROM Group g LEFT JOIN FETCH g.parentGroup WHERE g.user = :user ORDER BY g.sortOrder ASC, g.name ASC")
     List<Group> findAllWithParentByUser(@Param("user") User user);
 
+    // (id, name, parent id) of every group of a user, for building in-memory indexes without loading entities
+    @Query("SELECT g.id, g.name, p.id FROM Group g LEFT JOIN g.parentGroup p WHERE g.user.id = :userId")
+    List<Object[]> findIdsNamesAndParentsByUserId(@Param("userId") UUID userId);
+
     // Find groups by color for specific user
     List<Group> findByUserAndColor(User user, String color);
 
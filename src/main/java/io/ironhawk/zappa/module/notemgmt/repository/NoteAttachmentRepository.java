@@ -3,10 +3,12 @@ package io.ironhawk.zappa.module.notemgmt.repository;
 import io.ironhawk.zappa.module.notemgmt.entity.Note;
 import io.ironhawk.zappa.module.notemgmt.entity.NoteAttachment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -80,4 +82,49 @@ public interface NoteAttachmentRepository extends JpaRepository<NoteAttachment,
      * Check if attachment exists by stored filename
      */
     boolean existsByFilename(String filename);
-}
\ No newline at end of file
+
+    /**
+     * Count attachments referencing a stored object (its reference count)
+     */
+    long countByContentHash(String contentHash);
+
+    /**
+     * Which of the given content hashes are referenced by at least one attachment
+     */
+    @Query("SELECT DISTINCT na.contentHash FROM NoteAttachment na WHERE na.contentHash IN :contentHashes")
+    List<String> findReferencedContentHashes(@Param("contentHashes") Collection<String> contentHashes);
+
+    /**
+     * Which of the given stored filenames belong to an attachment (pre content-addressing layout)
+     */
+    @Query("SELECT na.filename FROM NoteAttachment na WHERE na.filename IN :filenames")
+    List<String> findReferencedFilenames(@Param("filenames") Collection<String> filenames);
+
+    /**
+     * Store text extracted from an attachment. The text is not mapped on the entity so that
+     * loading a note's attachments never pulls it in.
+     */
+    @Modifying
+    @Query(value = "UPDATE note_attachments SET extracted_text = :text WHERE id = :id", nativeQuery = true)
+    int updateExtractedText(@Param("id") UUID id, @Param("text") String text);
+
+    /**
+     * Copy extracted text from another attachment with identical content, if one has been extracted
+     */
+    @Modifying
+    @Query(value = "UPDATE note_attachments a SET extracted_text = src.extracted_text " +
+                   "FROM (SELECT extracted_text FROM note_attachments " +
+                   "      WHERE content_hash = :contentHash AND extracted_text IS NOT NULL LIMIT 1) src " +
+                   "WHERE a.id = :id",
+           nativeQuery = true)
+    int copyExtractedTextFromSameContent(@Param("id") UUID id, @Param("contentHash") String contentHash);
+
+    /**
+     * Notes of a user with an attachment whose extracted text matches a web-style search query
+     */
+    @Query(value = "SELECT DISTINCT a.note_id FROM note_attachments a JOIN notes n ON n.id = a.note_id " +
+                   "WHERE n.user_id = :userId " +
+                   "AND a.extracted_text_tsv @@ websearch_to_tsquery('english', :searchTerm)",
+           nativeQuery = true)
+    List<UUID> findNoteIdsByExtractedText(@Param("userId") UUID userId, @Param("searchTerm") String searchTerm);
+}
@@ -10,6 +10,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -51,59 +52,35 @@ public interface NoteLinkRepository extends JpaRepository<NoteLink, UUID> {
     @Query("SELECT nl FROM NoteLink nl WHERE (nl.sourceNote.id = :noteId OR nl.targetNote.id = :noteId) AND nl.linkType = :linkType")
     List<NoteLink> findLinksForNoteByType(@Param("noteId") UUID noteId, @Param("linkType") NoteLinkType linkType);
 
-    // Graph traversal queries
+    // Graph traversal steps for bidirectional BFS: one query expands a whole frontier.
+    // Forward: (from, to) for every link that can be followed out of a frontier note
     @Query(value = """
-        WITH RECURSIVE note_graph(note_id, depth, path) AS (
-            SELECT :startNoteId::uuid, 0, ARRAY[:startNoteId::uuid]
-            UNION ALL
-            SELECT CASE
-                WHEN nl.source_note_id = ng.note_id THEN nl.target_note_id
-                WHEN nl.target_note_id = ng.note_id AND nl.is_bidirectional = true THEN nl.source_note_id
-                ELSE NULL
-            END, ng.depth + 1, ng.path || CASE
-                WHEN nl.source_note_id = ng.note_id THEN nl.target_note_id
-                WHEN nl.target_note_id = ng.note_id AND nl.is_bidirectional = true THEN nl.source_note_id
-            END
-            FROM note_links nl
-            JOIN note_graph ng ON (
-                (nl.source_note_id = ng.note_id OR (nl.target_note_id = ng.note_id AND nl.is_bidirectional = true))
-                AND NOT (CASE
-                    WHEN nl.source_note_id = ng.note_id THEN nl.target_note_id
-                    WHEN nl.target_note_id = ng.note_id AND nl.is_bidirectional = true THEN nl.source_note_id
-                END = ANY(ng.path))
-            )
-            WHERE ng.depth < :maxDepth
-        )
-        SELECT DISTINCT note_id FROM note_graph WHERE depth > 0 AND depth <= :maxDepth
+        SELECT nl.source_note_id, nl.target_note_id FROM note_links nl
+        WHERE nl.source_note_id IN (:frontier) AND nl.link_type IN (:linkTypes)
+        UNION ALL
+        SELECT nl.target_note_id, nl.source_note_id FROM note_links nl
+        WHERE nl.target_note_id IN (:frontier) AND nl.is_bidirectional = true AND nl.link_type IN (:linkTypes)
         """, nativeQuery = true)
-    List<UUID> findConnectedNotes(@Param("startNoteId") UUID startNoteId, @Param("maxDepth") Integer maxDepth);
+    List<Object[]> findForwardSteps(@Param("frontier") Collection<UUID> frontier,
+                                    @Param("linkTypes") Collection<String> linkTypes);
 
-    // Find shortest path between two notes
+    // Backward: (from, to) for every link that can be followed into a frontier note, reversed
     @Query(value = """
-        WITH RECURSIVE shortest_path(note_id, target_id, depth, path) AS (
-            SELECT :startNoteId::uuid, :targetNoteId::uuid, 0, ARRAY[:startNoteId::uuid]
-            WHERE :startNoteId != :targetNoteId
-            UNION ALL
-            SELECT CASE
-                WHEN nl.source_note_id = sp.note_id THEN nl.target_note_id
-                WHEN nl.target_note_id = sp.note_id AND nl.is_bidirectional = true THEN nl.source_note_id
-            END, sp.target_id, sp.depth + 1, sp.path || CASE
-                WHEN nl.source_note_id = sp.note_id THEN nl.target_note_id
-                WHEN nl.target_note_id = sp.note_id AND nl.is_bidirectional = true THEN nl.source_note_id
-            END
-            FROM note_links nl
-            JOIN shortest_path sp ON (
-                (nl.source_note_id = sp.note_id OR (nl.target_note_id = sp.note_id AND nl.is_bidirectional = true))
-                AND NOT (CASE
-                    WHEN nl.source_note_id = sp.note_id THEN nl.target_note_id
-                    WHEN nl.target_note_id = sp.note_id AND nl.is_bidirectional = true THEN nl.source_note_id
-                END = ANY(sp.path))
-            )
-            WHERE sp.depth < 10 AND sp.note_id != sp.target_id
-        )
-        SELECT path FROM shortest_path WHERE note_id = target_id ORDER BY depth LIMIT 1
+        SELECT nl.target_note_id, nl.source_note_id FROM note_links nl
+        WHERE nl.target_note_id IN (:frontier) AND nl.link_type IN (:linkTypes)
+        UNION ALL
+        SELECT nl.source_note_id, nl.target_note_id FROM note_links nl
+        WHERE nl.source_note_id IN (:frontier) AND nl.is_bidirectional = true AND nl.link_type IN (:linkTypes)
         """, nativeQuery = true)
-    Optional<Object[]> findShortestPath(@Param("startNoteId") UUID startNoteId, @Param("targetNoteId") UUID targetNoteId);
+    List<Object[]> findBackwardSteps(@Param("frontier") Collection<UUID> frontier,
+                                     @Param("linkTypes") Collection<String> linkTypes);
+
+    // Compact edge list of a user's link graph: source, target, weight, is_bidirectional, link_type
+    @Query(value = "SELECT nl.source_note_id, nl.target_note_id, nl.weight, nl.is_bidirectional, nl.link_type " +
+                   "FROM note_links nl JOIN notes n ON n.id = nl.source_note_id " +
+                   "WHERE n.user_id = :userId",
+           nativeQuery = true)
+    List<Object[]> findGraphEdgesByUserId(@Param("userId") UUID userId);
 
     // Analytics and statistics
     @Query("SELECT COUNT(nl) FROM NoteLink nl WHERE nl.sourceNote.id = :noteId OR nl.targetNote.id = :noteId")
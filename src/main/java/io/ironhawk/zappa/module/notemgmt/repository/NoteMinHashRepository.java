@@ -0,0 +1,134 @@
+package io.ironhawk.zappa.module.notemgmt.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * MinHash signatures in {@code note_minhashes} and their LSH buckets in
+ * {@code note_minhash_buckets}, accessed with plain JDBC since neither is an entity
+ */
+@Repository
+@RequiredArgsConstructor
+public class NoteMinHashRepository {
+
+    // Signatures of deleted notes are skipped; the owner is taken from the note itself
+    private static final String UPSERT_SIGNATURE_SQL = """
+        INSERT INTO note_minhashes (note_id, user_id, signature, updated_at)
+        SELECT n.id, n.user_id, ?, CURRENT_TIMESTAMP
+        FROM notes n
+        WHERE n.id = ?
+        ON CONFLICT (note_id)
+        DO UPDATE SET signature = EXCLUDED.signature, updated_at = EXCLUDED.updated_at
+        """;
+
+    private static final String INSERT_BUCKET_SQL = """
+        INSERT INTO note_minhash_buckets (user_id, bucket, note_id)
+        SELECT n.user_id, ?, n.id
+        FROM notes n
+        WHERE n.id = ?
+        ON CONFLICT DO NOTHING
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Replace a note's signature and buckets. Runs in its own transaction, since it is called
+     * after the transaction that saved the note has committed.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void save(UUID noteId, byte[] signature, long[] buckets) {
+        jdbcTemplate.update(UPSERT_SIGNATURE_SQL, signature, noteId);
+        jdbcTemplate.update("DELETE FROM note_minhash_buckets WHERE note_id = ?", noteId);
+        List<Object[]> rows = new ArrayList<>(buckets.length);
+        for (long bucket : buckets) {
+            rows.add(new Object[]{bucket, noteId});
+        }
+        jdbcTemplate.batchUpdate(INSERT_BUCKET_SQL, rows);
+    }
+
+    public byte[] findSignature(UUID noteId) {
+        List<byte[]> signatures = jdbcTemplate.query(
+            "SELECT signature FROM note_minhashes WHERE note_id = ?",
+            (rs, rowNum) -> rs.getBytes("signature"), noteId);
+        return signatures.isEmpty() ? null : signatures.get(0);
+    }
+
+    /**
+     * Signatures of the user's notes sharing at least one of the given buckets
+     */
+    public Map<UUID, byte[]> findSignaturesInBuckets(UUID userId, long[] buckets) {
+        Map<UUID, byte[]> signatures = new LinkedHashMap<>();
+        if (buckets.length == 0) {
+            return signatures;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(buckets.length, "?"));
+        Object[] args = new Object[buckets.length + 1];
+        args[0] = userId;
+        for (int i = 0; i < buckets.length; i++) {
+            args[i + 1] = buckets[i];
+        }
+        jdbcTemplate.query(
+            "SELECT m.note_id, m.signature FROM note_minhashes m " +
+            "WHERE m.note_id IN (SELECT b.note_id FROM note_minhash_buckets b " +
+            "WHERE b.user_id = ? AND b.bucket IN (" + placeholders + "))",
+            rs -> {
+                signatures.put(rs.getObject("note_id", UUID.class), rs.getBytes("signature"));
+            }, args);
+        return signatures;
+    }
+
+    /**
+     * Members of every bucket of the user's that holds more than one note, as
+     * (bucket, note_id) rows ordered by bucket
+     */
+    public List<Object[]> findSharedBuckets(UUID userId) {
+        return jdbcTemplate.query(
+            "SELECT b.bucket, b.note_id FROM note_minhash_buckets b " +
+            "WHERE b.user_id = ? AND b.bucket IN (SELECT bucket FROM note_minhash_buckets " +
+            "WHERE user_id = ? GROUP BY bucket HAVING COUNT(*) > 1) " +
+            "ORDER BY b.bucket",
+            (rs, rowNum) -> new Object[]{rs.getLong("bucket"), rs.getObject("note_id", UUID.class)},
+            userId, userId);
+    }
+
+    public Map<UUID, byte[]> findSignatures(UUID userId, List<UUID> noteIds) {
+        Map<UUID, byte[]> signatures = new LinkedHashMap<>();
+        if (noteIds.isEmpty()) {
+            return signatures;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(noteIds.size(), "?"));
+        Object[] args = new Object[noteIds.size() + 1];
+        args[0] = userId;
+        for (int i = 0; i < noteIds.size(); i++) {
+            args[i + 1] = noteIds.get(i);
+        }
+        jdbcTemplate.query(
+            "SELECT note_id, signature FROM note_minhashes WHERE user_id = ? AND note_id IN (" + placeholders + ")",
+            rs -> {
+                signatures.put(rs.getObject("note_id", UUID.class), rs.getBytes("signature"));
+            }, args);
+        return signatures;
+    }
+
+    /**
+     * (id, title, content) of the user's notes that have no signature yet
+     */
+    public List<Object[]> findUnsignedNotes(UUID userId, int limit) {
+        return jdbcTemplate.query(
+            "SELECT n.id, n.title, n.content FROM notes n " +
+            "WHERE n.user_id = ? AND NOT EXISTS (SELECT 1 FROM note_minhashes m WHERE m.note_id = n.id) " +
+            "LIMIT ?",
+            (rs, rowNum) -> new Object[]{rs.getObject("id", UUID.class), rs.getString("title"), rs.getString("content")},
+            userId, limit);
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -30,6 +31,30 @@ public interface NoteRepository extends JpaRepository<Note, UUID> {
     Page<Note> findByUserWithOrderedTags(@Param("user") User user, Pageable pageable);
     Optional<Note> findByIdAndUser(UUID id, User user);
 
+    // Ids only, oldest first, for building in-memory indexes without loading entities
+    @Query("SELECT n.id FROM Note n WHERE n.user.id = :userId ORDER BY n.createdAt")
+    List<UUID> findIdsByUserId(@Param("userId") UUID userId);
+
+    // (id, group id, created at) of every note of a user, oldest first, for the tag bitmap index
+    @Query("SELECT n.id, g.id, n.createdAt FROM Note n LEFT JOIN n.group g WHERE n.user.id = :userId ORDER BY n.createdAt")
+    List<Object[]> findIndexAttributesByUserId(@Param("userId") UUID userId);
+
+    // (id, title) pairs for a batch of the user's notes
+    @Query("SELECT n.id, n.title FROM Note n WHERE n.user.id = :userId AND n.id IN :ids")
+    List<Object[]> findTitlesByUserIdAndIdIn(@Param("userId") UUID userId, @Param("ids") Collection<UUID> ids);
+
+    // (id, title, start of content) for every note of a user, for building the related-notes index
+    @Query(value = "SELECT n.id, n.title, LEFT(n.content, :contentLength) FROM notes n WHERE n.user_id = :userId",
+           nativeQuery = true)
+    List<Object[]> findTextByUserId(@Param("userId") UUID userId, @Param("contentLength") int contentLength);
+
+    // (id, title, start of content) for a batch of a user's notes
+    @Query(value = "SELECT n.id, n.title, LEFT(n.content, :contentLength) FROM notes n " +
+                   "WHERE n.user_id = :userId AND n.id IN (:ids)",
+           nativeQuery = true)
+    List<Object[]> findTextByUserIdAndIdIn(@Param("userId") UUID userId, @Param("ids") Collection<UUID> ids,
+                                           @Param("contentLength") int contentLength);
+
     // Find notes by title (case-insensitive) for specific user
     List<Note> findByUserAndTitleContainingIgnoreCase(User user, String title);
 
@@ -47,6 +72,10 @@ public interface NoteRepository extends JpaRepository<Note, UUID> {
     @Query("SELECT DISTINCT n FROM Note n JOIN n.noteTags nt JOIN nt.tag t WHERE n.user = :user AND t.name IN :tagNames")
     List<Note> findByUserAndTagNames(@Param("user") User user, @Param("tagNames") List<String> tagNames);
 
+    // Batch of the user's notes with tags loaded, in no particular order
+    @Query("SELECT DISTINCT n FROM Note n LEFT JOIN FETCH n.noteTags nt LEFT JOIN FETCH nt.tag WHERE n.user = :user AND n.id IN :ids")
+    List<Note> findByUserAndIdInWithTags(@Param("user") User user, @Param("ids") Collection<UUID> ids);
+
     // Find notes with eager loading of tags for specific user
     @Query("SELECT DISTINCT n FROM Note n LEFT JOIN FETCH n.noteTags nt LEFT JOIN FETCH nt.tag WHERE n.user = :user AND n.id = :id")
     Optional<Note> findByIdAndUserWithTags(@Param("id") UUID id, @Param("user") User user);
@@ -62,21 +91,20 @@ public interface NoteRepository extends JpaRepository<Note, UUID> {
            "LOWER(n.content) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
     Page<Note> searchNotesByUser(@Param("user") User user, @Param("searchTerm") String searchTerm, Pageable pageable);
 
-    // Advanced tag filtering - AND operation (notes that have ALL specified tags)
-    @Query("SELECT DISTINCT n FROM Note n WHERE " +
-           "(SELECT COUNT(DISTINCT t.name) FROM Note n2 JOIN n2.noteTags nt JOIN nt.tag t " +
-           "WHERE n2.id = n.id AND t.name IN :tagNames) = :tagCount")
-    List<Note> findByAllTags(@Param("tagNames") List<String> tagNames, @Param("tagCount") long tagCount);
-
-    // Advanced tag filtering with pagination - AND operation
-    @Query("SELECT DISTINCT n FROM Note n WHERE " +
-           "(SELECT COUNT(DISTINCT t.name) FROM Note n2 JOIN n2.noteTags nt JOIN nt.tag t " +
-           "WHERE n2.id = n.id AND t.name IN :tagNames) = :tagCount")
-    Page<Note> findByAllTags(@Param("tagNames") List<String> tagNames, @Param("tagCount") long tagCount, Pageable pageable);
-
-    // Advanced tag filtering with pagination - OR operation (existing method enhanced)
-    @Query("SELECT DISTINCT n FROM Note n JOIN n.noteTags nt JOIN nt.tag t WHERE t.name IN :tagNames")
-    Page<Note> findByAnyTags(@Param("tagNames") List<String> tagNames, Pageable pageable);
+    // Search that also matches notes found by attachment text search
+    @Query("SELECT n FROM Note n WHERE n.user = :user AND (" +
+           "LOWER(n.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(n.content) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "n.id IN :noteIds)")
+    List<Note> searchNotesByUserOrIds(@Param("user") User user, @Param("searchTerm") String searchTerm,
+                                      @Param("noteIds") List<UUID> noteIds);
+
+    @Query("SELECT n FROM Note n WHERE n.user = :user AND (" +
+           "LOWER(n.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(n.content) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "n.id IN :noteIds)")
+    Page<Note> searchNotesByUserOrIds(@Param("user") User user, @Param("searchTerm") String searchTerm,
+                                      @Param("noteIds") List<UUID> noteIds, Pageable pageable);
 
     // Group-based filtering for specific user
     List<Note> findByUserAndGroupOrderByCreatedAtDesc(User user, Group group);
@@ -1,13 +1,14 @@
 package io.ironhawk.zappa.module.notemgmt.repository;
 
 import io.ironhawk.zappa.module.notemgmt.entity.NoteTag;
-import io.ironhawk.zappa.module.notemgmt.entity.Tag;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -21,6 +22,10 @@ public interface NoteTagRepository extends JpaRepository<NoteTag, NoteTag.NoteTa
     // Find all note-tag relationships for a tag
     List<NoteTag> findByTagId(UUID tagId);
 
+    // Tag ids of a note
+    @Query("SELECT nt.tag.id FROM NoteTag nt WHERE nt.note.id = :noteId")
+    List<UUID> findTagIdsByNoteId(@Param("noteId") UUID noteId);
+
     // Find specific note-tag relationship
     Optional<NoteTag> findByNoteIdAndTagId(UUID noteId, UUID tagId);
 
@@ -53,8 +58,20 @@ public interface NoteTagRepository extends JpaRepository<NoteTag, NoteTag.NoteTa
            "GROUP BY nt.note.id HAVING COUNT(DISTINCT nt.tag.id) = :tagCount")
     List<UUID> findNoteIdsWithAllTags(@Param("tagIds") List<UUID> tagIds, @Param("tagCount") long tagCount);
 
-    // Find tags that are used with a specific tag (co-occurrence)
-    @Query("SELECT DISTINCT nt2.tag FROM NoteTag nt1 JOIN NoteTag nt2 ON nt1.note.id = nt2.note.id " +
-           "WHERE nt1.tag.id = :tagId AND nt2.tag.id != :tagId")
-    List<Tag> findCoOccurringTags(@Param("tagId") UUID tagId);
+    // (note_id, tag_id) pairs for every tagged note of a user
+    @Query(value = "SELECT nt.note_id, nt.tag_id FROM note_tags nt JOIN notes n ON n.id = nt.note_id " +
+                   "WHERE n.user_id = :userId",
+           nativeQuery = true)
+    List<Object[]> findNoteTagPairsByUserId(@Param("userId") UUID userId);
+
+    // (note id, tag id, created at) of a user's newest note-tag pairs, newest first
+    @Query("SELECT nt.note.id, nt.tag.id, nt.createdAt FROM NoteTag nt WHERE nt.note.user.id = :userId " +
+           "ORDER BY nt.createdAt DESC")
+    List<Object[]> findRecentNoteTagPairsByUserId(@Param("userId") UUID userId, Pageable pageable);
+
+    // (note id, tag id, created at) of a user's note-tag pairs created after a time, oldest first
+    @Query("SELECT nt.note.id, nt.tag.id, nt.createdAt FROM NoteTag nt WHERE nt.note.user.id = :userId " +
+           "AND nt.createdAt > :since ORDER BY nt.createdAt")
+    List<Object[]> findNoteTagPairsByUserIdCreatedAfter(@Param("userId") UUID userId, @Param("since") LocalDateTime since,
+                                                        Pageable pageable);
 }
\ No newline at end of file
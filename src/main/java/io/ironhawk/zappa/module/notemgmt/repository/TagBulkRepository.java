@@ -0,0 +1,173 @@
+package io.ironhawk.zappa.module.notemgmt.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Set-based updates over many tags of one user, each a single statement, for bulk operations
+ * that would otherwise load and save every tag and note-tag row through JPA.
+ *
+ * Statements bypass the persistence context, so callers must not rely on tag entities
+ * loaded earlier in the same transaction afterwards.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TagBulkRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Put the target tag on every note carrying one of the source tags, keeping the earliest
+     * tagging time, then delete the source tags; their note-tag rows go with them by cascade.
+     *
+     * @return number of notes that gained the target tag
+     */
+    public int mergeInto(UUID userId, Collection<UUID> sourceTagIds, UUID targetTagId) {
+        String placeholders = placeholders(sourceTagIds.size());
+        List<Object> args = new ArrayList<>();
+        args.add(targetTagId);
+        args.add(userId);
+        args.addAll(sourceTagIds);
+        int added = jdbcTemplate.update("""
+            INSERT INTO note_tags (note_id, tag_id, created_at, updated_at)
+            SELECT nt.note_id, ?, MIN(nt.created_at), CURRENT_TIMESTAMP
+            FROM note_tags nt
+            JOIN tags t ON t.id = nt.tag_id
+            WHERE t.user_id = ? AND nt.tag_id IN (%s)
+            GROUP BY nt.note_id
+            ON CONFLICT (note_id, tag_id) DO NOTHING
+            """.formatted(placeholders), args.toArray());
+
+        deleteTags(userId, sourceTagIds);
+        return added;
+    }
+
+    /**
+     * Look up tags by name, ignoring case, and insert those that are missing into the group, in
+     * one statement. Each name matches a tag in the group or, with matchAnyGroup, in any of the
+     * user's groups, preferring the given one and then the oldest.
+     *
+     * The insert skips names that conflict on the case-insensitive unique index, which happens
+     * when another transaction created the same tag concurrently. Such a tag is not visible to
+     * this statement and the name is left out of the result, so callers look it up again.
+     *
+     * @param names distinct names
+     * @return (index into names, tag id, whether it was created) for each resolved name
+     */
+    public List<Object[]> getOrCreate(UUID userId, UUID groupId, List<String> names, String color, boolean matchAnyGroup) {
+        List<Object> args = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            args.add(i);
+            args.add(names.get(i));
+        }
+        args.add(userId);
+        if (!matchAnyGroup) {
+            args.add(groupId);
+        }
+        args.add(groupId);
+        args.add(color);
+        args.add(userId);
+        args.add(groupId);
+
+        String values = String.join(", ", Collections.nCopies(names.size(), "(CAST(? AS INTEGER), CAST(? AS VARCHAR))"));
+        return jdbcTemplate.query("""
+            WITH input(ord, name) AS (VALUES %s),
+            existing AS (
+                SELECT DISTINCT ON (i.ord) i.ord, t.id
+                FROM input i
+                JOIN tags t ON t.user_id = ? AND lower(t.name) = lower(i.name) %s
+                ORDER BY i.ord, (t.group_id = ?) DESC, t.created_at, t.id
+            ),
+            inserted AS (
+                INSERT INTO tags (id, name, color, is_key, user_id, group_id, created_at, updated_at)
+                SELECT gen_random_uuid(), i.name, ?, FALSE, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP
+                FROM input i
+                WHERE NOT EXISTS (SELECT 1 FROM existing e WHERE e.ord = i.ord)
+                ON CONFLICT (user_id, group_id, lower(name)) DO NOTHING
+                RETURNING id, name
+            )
+            SELECT e.ord, e.id, FALSE AS created FROM existing e
+            UNION ALL
+            SELECT i.ord, n.id, TRUE AS created FROM inserted n JOIN input i ON i.name = n.name
+            """.formatted(values, matchAnyGroup ? "" : "AND t.group_id = ?"),
+            (rs, rowNum) -> new Object[]{rs.getInt("ord"), rs.getObject("id", UUID.class), rs.getBoolean("created")},
+            args.toArray());
+    }
+
+    /**
+     * Rename in two passes, first to a placeholder unique to each tag and then to the new
+     * names, both in the caller's transaction. The unique index on lower(name) is checked row
+     * by row and cannot be deferred, so renaming in one statement fails on batches that swap
+     * or rotate names between tags.
+     *
+     * @return number of tags renamed
+     */
+    public int rename(UUID userId, Map<UUID, String> namesById) {
+        List<Object> idArgs = new ArrayList<>();
+        idArgs.add(userId);
+        idArgs.addAll(namesById.keySet());
+        jdbcTemplate.update(
+            "UPDATE tags SET name = '~renaming~' || id WHERE user_id = ? AND id IN ("
+                + placeholders(namesById.size()) + ")",
+            idArgs.toArray());
+
+        List<Object> args = new ArrayList<>();
+        for (Map.Entry<UUID, String> entry : namesById.entrySet()) {
+            args.add(entry.getKey());
+            args.add(entry.getValue());
+        }
+        args.add(userId);
+        String values = String.join(", ", Collections.nCopies(namesById.size(), "(CAST(? AS UUID), ?)"));
+        return jdbcTemplate.update("""
+            UPDATE tags t
+            SET name = r.name, updated_at = CURRENT_TIMESTAMP
+            FROM (VALUES %s) AS r(id, name)
+            WHERE t.id = r.id AND t.user_id = ?
+            """.formatted(values), args.toArray());
+    }
+
+    /**
+     * @return number of tags recoloured
+     */
+    public int recolor(UUID userId, Collection<UUID> tagIds, String color) {
+        return updateColumn(userId, tagIds, "color", color);
+    }
+
+    /**
+     * @return number of tags moved
+     */
+    public int moveToGroup(UUID userId, Collection<UUID> tagIds, UUID groupId) {
+        return updateColumn(userId, tagIds, "group_id", groupId);
+    }
+
+    private int updateColumn(UUID userId, Collection<UUID> tagIds, String column, Object value) {
+        List<Object> args = new ArrayList<>();
+        args.add(value);
+        args.add(userId);
+        args.addAll(tagIds);
+        return jdbcTemplate.update(
+            "UPDATE tags SET " + column + " = ?, updated_at = CURRENT_TIMESTAMP WHERE user_id = ? AND id IN ("
+                + placeholders(tagIds.size()) + ")",
+            args.toArray());
+    }
+
+    private void deleteTags(UUID userId, Collection<UUID> tagIds) {
+        List<Object> args = new ArrayList<>();
+        args.add(userId);
+        args.addAll(tagIds);
+        jdbcTemplate.update("DELETE FROM tags WHERE user_id = ? AND id IN (" + placeholders(tagIds.size()) + ")",
+            args.toArray());
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
@@ -0,0 +1,91 @@
+package io.ironhawk.zappa.module.notemgmt.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Set-based deletes of unused tags and of note-tag rows whose note or tag is gone, each
+ * statement removing at most one batch so callers can commit and report between batches.
+ *
+ * PostgreSQL has no {@code DELETE ... LIMIT}, so each statement deletes the rows picked by a
+ * limited sub-select. Statements bypass the persistence context.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TagCleanupRepository {
+
+    private static final String ORPHANED_NOTE_TAGS = """
+        FROM note_tags nt
+        WHERE NOT EXISTS (SELECT 1 FROM notes n WHERE n.id = nt.note_id)
+           OR NOT EXISTS (SELECT 1 FROM tags t WHERE t.id = nt.tag_id)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return number of note-tag rows deleted, less than batchSize once none are left
+     */
+    public int deleteOrphanedNoteTags(int batchSize) {
+        return jdbcTemplate.update(
+            "DELETE FROM note_tags WHERE ctid IN (SELECT nt.ctid " + ORPHANED_NOTE_TAGS + " LIMIT ?)",
+            batchSize);
+    }
+
+    public long countOrphanedNoteTags() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) " + ORPHANED_NOTE_TAGS, Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Delete a batch of one user's tags that are on no note
+     *
+     * @param groupId only tags in this group; global tags when null
+     * @return number of tags deleted, less than batchSize once none are left
+     */
+    public int deleteUnusedTagsInGroup(UUID userId, UUID groupId, int batchSize) {
+        if (groupId == null) {
+            return jdbcTemplate.update(
+                "DELETE FROM tags WHERE id IN (SELECT t.id " + unusedTags("t.user_id = ? AND t.group_id IS NULL") + " LIMIT ?)",
+                userId, batchSize);
+        }
+        return jdbcTemplate.update(
+            "DELETE FROM tags WHERE id IN (SELECT t.id " + unusedTags("t.user_id = ? AND t.group_id = ?") + " LIMIT ?)",
+            userId, groupId, batchSize);
+    }
+
+    /**
+     * Delete a batch of one user's tags that are on no note, in any group
+     *
+     * @return number of tags deleted, less than batchSize once none are left
+     */
+    public int deleteUnusedTags(UUID userId, int batchSize) {
+        return jdbcTemplate.update(
+            "DELETE FROM tags WHERE id IN (SELECT t.id " + unusedTags("t.user_id = ?") + " LIMIT ?)",
+            userId, batchSize);
+    }
+
+    /**
+     * Delete a batch of tags of any user that are on no note
+     *
+     * @return owner of each deleted tag, fewer than batchSize once none are left
+     */
+    public List<UUID> deleteAllUnusedTags(int batchSize) {
+        return jdbcTemplate.queryForList(
+            "DELETE FROM tags WHERE id IN (SELECT t.id " + unusedTags("TRUE") + " LIMIT ?) RETURNING user_id",
+            UUID.class, batchSize);
+    }
+
+    public long countAllUnusedTags() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) " + unusedTags("TRUE"), Long.class);
+        return count != null ? count : 0;
+    }
+
+    private static String unusedTags(String condition) {
+        return "FROM tags t WHERE " + condition
+            + " AND NOT EXISTS (SELECT 1 FROM note_tags nt WHERE nt.tag_id = t.id)";
+    }
+}
@@ -0,0 +1,127 @@
+package io.ironhawk.zappa.module.notemgmt.repository;
+
+import io.ironhawk.zappa.module.notemgmt.dto.TagOverviewItem;
+import io.ironhawk.zappa.module.notemgmt.dto.TagOverviewPage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The tags page in one statement: each tag with its group and usage count, plus the total and
+ * unused counts over all matching tags computed by window functions alongside the page rows.
+ *
+ * Pages are ordered key tags first, then by name and id, and read by keyset: a page starts
+ * after (or ends before) a given tag, so reading deep pages costs no more than the first one
+ * and concurrent inserts do not shift rows between pages as an offset would.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TagOverviewRepository {
+
+    private static final String OVERVIEW_SQL = """
+        WITH matching AS (
+            SELECT t.id, t.name, t.color, t.is_key, t.created_at, t.group_id,
+                   CASE WHEN t.is_key THEN 0 ELSE 1 END AS key_order,
+                   (SELECT COUNT(*) FROM note_tags nt WHERE nt.tag_id = t.id) AS usage_count
+            FROM tags t
+            WHERE t.user_id = ? %s
+        ), counted AS (
+            SELECT m.*,
+                   COUNT(*) OVER () AS total_tags,
+                   COUNT(*) FILTER (WHERE m.usage_count = 0) OVER () AS unused_tags
+            FROM matching m
+        )
+        SELECT c.*, g.name AS group_name, g.icon AS group_icon, g.color AS group_color
+        FROM counted c
+        LEFT JOIN groups g ON g.id = c.group_id
+        %s
+        ORDER BY c.key_order %s, c.name %s, c.id %s
+        LIMIT ?
+        """;
+
+    // Position of the cursor tag in the page order
+    private static final String CURSOR_SQL =
+        "(SELECT CASE WHEN a.is_key THEN 0 ELSE 1 END, a.name, a.id FROM tags a WHERE a.id = ? AND a.user_id = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param search case-insensitive part of the name, or null
+     * @param color  exact colour, or null
+     * @param after  tag the page follows, or null
+     * @param before tag the page precedes, or null; ignored when after is given
+     * @return the page; empty, with zero counts, when nothing matches or the cursor tag is gone
+     */
+    public TagOverviewPage findPage(UUID userId, String search, String color, UUID after, UUID before, int size) {
+        List<Object> args = new ArrayList<>();
+        args.add(userId);
+
+        StringBuilder filter = new StringBuilder();
+        if (search != null) {
+            filter.append(" AND t.name ILIKE ?");
+            args.add("%" + escapeLike(search) + "%");
+        }
+        if (color != null) {
+            filter.append(" AND t.color = ?");
+            args.add(color);
+        }
+
+        boolean backwards = after == null && before != null;
+        String keyset = "";
+        if (after != null || before != null) {
+            keyset = "WHERE (c.key_order, c.name, c.id) " + (backwards ? "<" : ">") + " " + CURSOR_SQL;
+            args.add(backwards ? before : after);
+            args.add(userId);
+        }
+        String direction = backwards ? "DESC" : "ASC";
+        // One extra row tells whether there is a further page
+        args.add(size + 1);
+
+        long[] counts = new long[2];
+        List<TagOverviewItem> tags = new ArrayList<>();
+        jdbcTemplate.query(OVERVIEW_SQL.formatted(filter, keyset, direction, direction, direction), rs -> {
+            counts[0] = rs.getLong("total_tags");
+            counts[1] = rs.getLong("unused_tags");
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            tags.add(TagOverviewItem.builder()
+                .id(rs.getObject("id", UUID.class))
+                .name(rs.getString("name"))
+                .color(rs.getString("color"))
+                .key(rs.getBoolean("is_key"))
+                .createdAt(createdAt != null ? createdAt.toLocalDateTime() : null)
+                .groupId(rs.getObject("group_id", UUID.class))
+                .groupName(rs.getString("group_name"))
+                .groupIcon(rs.getString("group_icon"))
+                .groupColor(rs.getString("group_color"))
+                .usageCount(rs.getLong("usage_count"))
+                .build());
+        }, args.toArray());
+
+        boolean more = tags.size() > size;
+        List<TagOverviewItem> page = more ? new ArrayList<>(tags.subList(0, size)) : tags;
+        if (backwards) {
+            Collections.reverse(page);
+        }
+
+        boolean hasNext = backwards || more;
+        boolean hasPrevious = backwards ? more : after != null;
+        return TagOverviewPage.builder()
+            .tags(page)
+            .totalTags(counts[0])
+            .usedTags(counts[0] - counts[1])
+            .unusedTags(counts[1])
+            .nextCursor(hasNext && !page.isEmpty() ? page.get(page.size() - 1).getId() : null)
+            .previousCursor(hasPrevious && !page.isEmpty() ? page.get(0).getId() : null)
+            .build();
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
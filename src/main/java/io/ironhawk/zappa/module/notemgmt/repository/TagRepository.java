@@ -22,6 +22,15 @@ public interface TagRepository extends JpaRepository<Tag, UUID> {
     Page<Tag> findByUserOrderByNameAsc(User user, Pageable pageable);
     Optional<Tag> findByIdAndUser(UUID id, User user);
 
+    // (id, name) of every tag of a user, for building in-memory indexes without loading entities
+    @Query("SELECT t.id, t.name FROM Tag t WHERE t.user.id = :userId")
+    List<Object[]> findIdsAndNamesByUserId(@Param("userId") UUID userId);
+
+    // (id, name, color, is key, usage count) of every tag of a user, for tag autocompletion
+    @Query("SELECT t.id, t.name, t.color, t.isKey, COUNT(nt) FROM Tag t LEFT JOIN t.noteTags nt " +
+           "WHERE t.user.id = :userId GROUP BY t.id, t.name, t.color, t.isKey")
+    List<Object[]> findAutocompleteEntriesByUserId(@Param("userId") UUID userId);
+
     // Find tag by name (case-sensitive) for specific user
     Optional<Tag> findByUserAndName(User user, String name);
 
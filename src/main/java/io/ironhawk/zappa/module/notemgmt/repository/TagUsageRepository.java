@@ -0,0 +1,90 @@
+package io.ironhawk.zappa.module.notemgmt.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads the weekly tag usage roll-up in {@code tag_usage_weekly}, which triggers on
+ * {@code note_tags} keep current as tags are put on and taken off notes.
+ *
+ * Every query takes a scope: all of a user's tags, the tags of a group and its subgroups,
+ * or a single tag.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TagUsageRepository {
+
+    private static final String GROUP_WITH_DESCENDANTS = """
+        WITH RECURSIVE scope_groups AS (
+            SELECT g.id FROM groups g WHERE g.id = ? AND g.user_id = ?
+            UNION
+            SELECT g.id FROM groups g JOIN scope_groups s ON g.parent_group_id = s.id
+        )
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * (id, name, color, group_id) of the tags in scope, ordered by name
+     *
+     * @param groupId tags of this group and its subgroups, or null
+     * @param tagId   only this tag, or null
+     */
+    public List<Object[]> findTags(UUID userId, UUID groupId, UUID tagId) {
+        List<Object> args = new ArrayList<>();
+        String sql = scopePrefix(userId, groupId, args)
+            + "SELECT t.id, t.name, t.color, t.group_id FROM tags t WHERE t.user_id = ?";
+        args.add(userId);
+        sql += scopeCondition(groupId, tagId, args) + " ORDER BY t.name, t.id";
+        return jdbcTemplate.query(sql,
+            (rs, rowNum) -> new Object[]{rs.getObject("id", UUID.class), rs.getString("name"),
+                rs.getString("color"), rs.getObject("group_id", UUID.class)},
+            args.toArray());
+    }
+
+    /**
+     * (tag_id, week_start, note_count) for the tags in scope and weeks starting in [from, to)
+     */
+    public List<Object[]> findWeeklyCounts(UUID userId, UUID groupId, UUID tagId, LocalDate from, LocalDate to) {
+        List<Object> args = new ArrayList<>();
+        String sql = scopePrefix(userId, groupId, args)
+            + "SELECT u.tag_id, u.week_start, u.note_count FROM tag_usage_weekly u"
+            + " JOIN tags t ON t.id = u.tag_id"
+            + " WHERE u.user_id = ? AND u.week_start >= ? AND u.week_start < ?";
+        args.add(userId);
+        args.add(from);
+        args.add(to);
+        sql += scopeCondition(groupId, tagId, args);
+        return jdbcTemplate.query(sql,
+            (rs, rowNum) -> new Object[]{rs.getObject("tag_id", UUID.class),
+                rs.getObject("week_start", LocalDate.class), rs.getLong("note_count")},
+            args.toArray());
+    }
+
+    private static String scopePrefix(UUID userId, UUID groupId, List<Object> args) {
+        if (groupId == null) {
+            return "";
+        }
+        args.add(groupId);
+        args.add(userId);
+        return GROUP_WITH_DESCENDANTS;
+    }
+
+    private static String scopeCondition(UUID groupId, UUID tagId, List<Object> args) {
+        StringBuilder condition = new StringBuilder();
+        if (groupId != null) {
+            condition.append(" AND t.group_id IN (SELECT id FROM scope_groups)");
+        }
+        if (tagId != null) {
+            condition.append(" AND t.id = ?");
+            args.add(tagId);
+        }
+        return condition.toString();
+    }
+}
@@ -0,0 +1,101 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import java.util.Set;
+
+/**
+ * Detects the real type of an upload from its leading bytes and reconciles it with the
+ * Content-Type the client declared, so a renamed executable cannot be stored as a PDF.
+ */
+final class AttachmentContentSniffer {
+
+    // Enough for every signature below plus a text heuristic sample
+    static final int HEAD_SIZE = 512;
+
+    static final String DOCX = "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+    static final String DOC = "application/msword";
+
+    private static final Set<String> TEXT_TYPES = Set.of("text/plain", "text/markdown");
+
+    private AttachmentContentSniffer() {
+    }
+
+    /**
+     * Resolve the MIME type to store for an upload.
+     *
+     * @return the detected type, or the declared type when the content is consistent with it
+     * @throws RuntimeException when the content does not match any allowed type
+     */
+    static String resolveMimeType(String declaredType, byte[] head, int length) {
+        String sniffed = sniff(head, length);
+
+        if (sniffed != null) {
+            if ("application/zip".equals(sniffed)) {
+                // .docx is a zip container; a bare zip is not an allowed attachment
+                if (DOCX.equals(declaredType)) {
+                    return DOCX;
+                }
+                throw new RuntimeException("File content is a zip archive, which is not an allowed type");
+            }
+            return sniffed;
+        }
+
+        if (declaredType != null && TEXT_TYPES.contains(declaredType) && looksLikeText(head, length)) {
+            return declaredType;
+        }
+
+        throw new RuntimeException("File content does not match declared type: " + declaredType);
+    }
+
+    private static String sniff(byte[] b, int n) {
+        if (startsWith(b, n, 0x25, 0x50, 0x44, 0x46)) {                       // %PDF
+            return "application/pdf";
+        }
+        if (startsWith(b, n, 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A)) {  // PNG
+            return "image/png";
+        }
+        if (startsWith(b, n, 0xFF, 0xD8, 0xFF)) {                              // JPEG SOI
+            return "image/jpeg";
+        }
+        if (startsWith(b, n, 0x47, 0x49, 0x46, 0x38)) {                        // GIF8
+            return "image/gif";
+        }
+        if (n >= 12 && startsWith(b, n, 0x52, 0x49, 0x46, 0x46)                // RIFF....WEBP
+            && b[8] == 'W' && b[9] == 'E' && b[10] == 'B' && b[11] == 'P') {
+            return "image/webp";
+        }
+        if (startsWith(b, n, 0x50, 0x4B, 0x03, 0x04)) {                        // PK zip
+            return "application/zip";
+        }
+        if (startsWith(b, n, 0xD0, 0xCF, 0x11, 0xE0, 0xA1, 0xB1, 0x1A, 0xE1)) {  // OLE2 (.doc)
+            return DOC;
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] b, int n, int... signature) {
+        if (n < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((b[i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Text files carry no NUL bytes and few control characters
+    private static boolean looksLikeText(byte[] b, int n) {
+        int control = 0;
+        for (int i = 0; i < n; i++) {
+            int c = b[i] & 0xFF;
+            if (c == 0) {
+                return false;
+            }
+            if (c < 0x09 || (c > 0x0D && c < 0x20)) {
+                control++;
+            }
+        }
+        return control * 20 <= n;
+    }
+}
@@ -0,0 +1,283 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resized JPEG variants of image attachments, generated in the background.
+ *
+ * A derivative is stored next to its object as {@code <hash>.w<width>.jpg}, so it is shared by
+ * every attachment with the same content and removed together with the object. Requested widths
+ * are snapped up to a small fixed set to keep the number of variants per image bounded.
+ * Generation runs on a bounded pool, one task per image that decodes it once and writes every
+ * missing width; when the queue is full the request is dropped and retried the next time a
+ * thumbnail is asked for.
+ */
+@Service
+public class AttachmentDerivativeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentDerivativeService.class);
+
+    static final List<Integer> WIDTHS = List.of(160, 320, 640, 1280);
+
+    // Types the JDK's ImageIO can decode; WebP needs a plugin and is served as the original
+    private static final Set<String> SUPPORTED_TYPES = Set.of("image/jpeg", "image/png", "image/gif");
+
+    // Refuse to decode images whose raster would need more than ~200MB of heap
+    private static final long MAX_SOURCE_PIXELS = 50_000_000L;
+
+    private static final float JPEG_QUALITY = 0.82f;
+
+    private final ThreadPoolExecutor executor;
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+
+    public AttachmentDerivativeService(@Value("${app.upload.derivatives.workers:2}") int workers,
+                                       @Value("${app.upload.derivatives.queue-capacity:200}") int queueCapacity) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "attachment-derivatives-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public boolean supports(String mimeType) {
+        return mimeType != null && SUPPORTED_TYPES.contains(mimeType);
+    }
+
+    /**
+     * Snap a requested width to the nearest generated width at or above it
+     */
+    public static int snapWidth(int requestedWidth) {
+        for (int width : WIDTHS) {
+            if (requestedWidth <= width) {
+                return width;
+            }
+        }
+        return WIDTHS.get(WIDTHS.size() - 1);
+    }
+
+    /**
+     * Queue generation of all derivative widths for a newly stored object
+     */
+    public void enqueueAll(Path objectFile, String mimeType) {
+        if (!supports(mimeType)) {
+            return;
+        }
+        enqueue(objectFile);
+    }
+
+    /**
+     * Existing derivative of an object at the given (snapped) width. When it does not exist yet
+     * generation of the object's missing widths is queued and an empty result returned.
+     */
+    public Optional<Path> findDerivative(Path objectFile, String mimeType, int width) {
+        if (!supports(mimeType)) {
+            return Optional.empty();
+        }
+        Path derivative = derivativePath(objectFile, width);
+        if (Files.exists(derivative)) {
+            return Optional.of(derivative);
+        }
+        enqueue(objectFile);
+        return Optional.empty();
+    }
+
+    /**
+     * Remove every derivative of an object; called when the object itself is removed
+     */
+    public void deleteDerivatives(Path objectFile) {
+        for (int width : WIDTHS) {
+            FileStorageService.deleteQuietly(derivativePath(objectFile, width));
+        }
+    }
+
+    static Path derivativePath(Path objectFile, int width) {
+        return objectFile.resolveSibling(objectFile.getFileName() + ".w" + width + ".jpg");
+    }
+
+    private void enqueue(Path objectFile) {
+        if (!inFlight.add(objectFile)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(objectFile);
+                } finally {
+                    inFlight.remove(objectFile);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            inFlight.remove(objectFile);
+            logger.debug("Derivative queue full, skipping {}", objectFile.getFileName());
+        }
+    }
+
+    /**
+     * Decode the object once and write every missing width, largest first, each scaled from the
+     * previous one so later steps work on ever smaller images
+     */
+    private void generate(Path objectFile) {
+        List<Integer> missing = WIDTHS.stream()
+            .filter(width -> !Files.exists(derivativePath(objectFile, width)))
+            .toList();
+        if (missing.isEmpty() || !Files.exists(objectFile)) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        BufferedImage source;
+        try {
+            source = readImage(objectFile);
+        } catch (Exception ex) {
+            logger.warn("Failed to decode image {}: {}", objectFile.getFileName(), ex.getMessage());
+            return;
+        }
+        if (source == null) {
+            logger.warn("Could not decode image {}", objectFile.getFileName());
+            return;
+        }
+
+        BufferedImage current = source;
+        int generated = 0;
+        for (int i = missing.size() - 1; i >= 0; i--) {
+            int width = missing.get(i);
+            // The source always goes through scaleToWidth once, which makes it opaque RGB
+            if (current == source || current.getWidth() > width) {
+                current = scaleToWidth(current, Math.min(width, current.getWidth()));
+            }
+            if (writeDerivative(current, derivativePath(objectFile, width))) {
+                generated++;
+            }
+        }
+
+        logger.debug("Generated {} derivatives of {} in {} ms", generated, objectFile.getFileName(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private boolean writeDerivative(BufferedImage image, Path derivative) {
+        Path tempFile = derivative.resolveSibling(derivative.getFileName() + ".tmp");
+        try {
+            writeJpeg(image, tempFile);
+            Files.move(tempFile, derivative, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (Exception ex) {
+            logger.warn("Failed to generate derivative {}: {}", derivative.getFileName(), ex.getMessage());
+            return false;
+        } finally {
+            FileStorageService.deleteQuietly(tempFile);
+        }
+    }
+
+    // Check the declared dimensions before decoding, so a tiny file cannot claim a huge raster
+    private BufferedImage readImage(Path file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > MAX_SOURCE_PIXELS) {
+                    throw new IOException("Image too large to thumbnail: " + pixels + " pixels");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scale down by repeated halving, then a final bilinear step: close to area-averaged quality
+     * at a fraction of the cost. The result is opaque RGB since JPEG has no alpha channel.
+     */
+    private BufferedImage scaleToWidth(BufferedImage source, int targetWidth) {
+        int targetHeight = Math.max(1, (int) Math.round((double) source.getHeight() * targetWidth / source.getWidth()));
+
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+
+        do {
+            int nextWidth = Math.max(targetWidth, currentWidth / 2);
+            int nextHeight = Math.max(targetHeight, currentHeight / 2);
+
+            BufferedImage next = new BufferedImage(nextWidth, nextHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, nextWidth, nextHeight);
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, nextWidth, nextHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+
+            current = next;
+            currentWidth = nextWidth;
+            currentHeight = nextHeight;
+        } while (currentWidth > targetWidth || currentHeight > targetHeight);
+
+        return current;
+    }
+
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,276 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import io.ironhawk.zappa.module.notemgmt.dto.AttachmentGcReport;
+import io.ironhawk.zappa.module.notemgmt.repository.NoteAttachmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reclaims upload files that no attachment row references any more, e.g. after a note and
+ * its attachments were deleted through cascade without going through {@link FileStorageService}.
+ *
+ * The upload directory is walked once; candidate files are grouped into sorted batches and
+ * checked against {@code note_attachments} with one query per batch, so memory stays bounded
+ * however large the volume. Files younger than the grace period are never touched, which keeps
+ * the collector clear of uploads that are still being committed. Deletions are paced to a
+ * configurable rate so a large backlog does not saturate the disk.
+ */
+@Slf4j
+@Service
+public class AttachmentGarbageCollector {
+
+    // objects/aa/bb/<hash>, <hash>.w<N>.jpg and in-progress <hash>.w<N>.jpg.tmp
+    private static final Pattern OBJECT_FILE = Pattern.compile("([0-9a-f]{64})(\\.w\\d+\\.jpg(\\.tmp)?)?");
+
+    private static final int BATCH_SIZE = 500;
+
+    private final FileStorageService fileStorageService;
+    private final NoteAttachmentRepository attachmentRepository;
+    private final Duration gracePeriod;
+    private final Duration incomingGracePeriod;
+    private final int deletesPerSecond;
+    private final boolean scheduledDryRun;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public AttachmentGarbageCollector(FileStorageService fileStorageService,
+                                      NoteAttachmentRepository attachmentRepository,
+                                      @Value("${app.upload.gc.grace-period:24h}") Duration gracePeriod,
+                                      @Value("${app.upload.gc.incoming-grace-period:48h}") Duration incomingGracePeriod,
+                                      @Value("${app.upload.gc.deletes-per-second:50}") int deletesPerSecond,
+                                      @Value("${app.upload.gc.dry-run:false}") boolean scheduledDryRun) {
+        this.fileStorageService = fileStorageService;
+        this.attachmentRepository = attachmentRepository;
+        this.gracePeriod = gracePeriod;
+        this.incomingGracePeriod = incomingGracePeriod;
+        this.deletesPerSecond = deletesPerSecond;
+        this.scheduledDryRun = scheduledDryRun;
+    }
+
+    @Scheduled(cron = "${app.upload.gc.cron:0 30 3 * * *}")
+    public void scheduledRun() {
+        try {
+            collect(scheduledDryRun);
+        } catch (IllegalStateException ex) {
+            log.info("Skipping scheduled attachment GC: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Run one collection pass
+     *
+     * @throws IllegalStateException if a pass is already running
+     */
+    public AttachmentGcReport collect(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Attachment garbage collection is already running");
+        }
+        try {
+            Run run = new Run(dryRun);
+            log.info("Attachment GC started (dryRun={})", dryRun);
+
+            Files.walkFileTree(fileStorageService.getUploadPath(), run);
+            run.flushObjects();
+            run.flushLegacy();
+
+            AttachmentGcReport report = run.report();
+            log.info("Attachment GC finished (dryRun={}): scanned {} files, {} {} files, {} bytes reclaimed, {} errors in {} ms",
+                dryRun, report.getFilesScanned(), dryRun ? "would delete" : "deleted", report.getFilesDeleted(),
+                report.getBytesReclaimed(), report.getErrors(), report.getDurationMs());
+            return report;
+        } catch (IOException ex) {
+            throw new RuntimeException("Attachment garbage collection failed", ex);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * State of a single pass; also the file visitor for the walk
+     */
+    private final class Run extends SimpleFileVisitor<Path> {
+
+        private final boolean dryRun;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final long startNanos = System.nanoTime();
+        private final Instant objectCutoff = Instant.now().minus(gracePeriod);
+        private final Instant incomingCutoff = Instant.now().minus(incomingGracePeriod);
+        private final long nanosPerDelete = deletesPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / deletesPerSecond : 0;
+
+        private final Path objectsPath = fileStorageService.getObjectsPath();
+        private final Path incomingPath = fileStorageService.getIncomingPath();
+
+        // Sorted so each batch query walks the index in order
+        private final TreeMap<String, List<Path>> objectBatch = new TreeMap<>();
+        private final TreeMap<String, Path> legacyBatch = new TreeMap<>();
+
+        private long nextDeleteAt = System.nanoTime();
+        private long filesScanned;
+        private long filesSkipped;
+        private long filesDeleted;
+        private long bytesReclaimed;
+        private long errors;
+
+        private Run(boolean dryRun) {
+            this.dryRun = dryRun;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+            if (!attrs.isRegularFile()) {
+                return FileVisitResult.CONTINUE;
+            }
+            filesScanned++;
+
+            if (file.startsWith(incomingPath)) {
+                // Partial uploads: no row refers to them, only age matters
+                if (attrs.lastModifiedTime().toInstant().isBefore(incomingCutoff)) {
+                    deleteFile(file, attrs.size());
+                } else {
+                    filesSkipped++;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            if (attrs.lastModifiedTime().toInstant().isAfter(objectCutoff)) {
+                filesSkipped++;
+                return FileVisitResult.CONTINUE;
+            }
+
+            if (file.startsWith(objectsPath)) {
+                Matcher matcher = OBJECT_FILE.matcher(file.getFileName().toString());
+                if (!matcher.matches()) {
+                    log.warn("Unrecognised file in object store, leaving it: {}", file);
+                    filesSkipped++;
+                    return FileVisitResult.CONTINUE;
+                }
+                objectBatch.computeIfAbsent(matcher.group(1), hash -> new ArrayList<>()).add(file);
+                if (objectBatch.size() >= BATCH_SIZE) {
+                    flushObjects();
+                }
+            } else if (file.getParent().equals(fileStorageService.getUploadPath())) {
+                // Files written before content addressing live directly in the upload directory
+                legacyBatch.put(file.getFileName().toString(), file);
+                if (legacyBatch.size() >= BATCH_SIZE) {
+                    flushLegacy();
+                }
+            } else {
+                filesSkipped++;
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException ex) {
+            log.warn("Could not inspect {}: {}", file, ex.getMessage());
+            errors++;
+            return FileVisitResult.CONTINUE;
+        }
+
+        private void flushObjects() {
+            if (objectBatch.isEmpty()) {
+                return;
+            }
+            Set<String> referenced = new HashSet<>(attachmentRepository.findReferencedContentHashes(objectBatch.keySet()));
+            for (Map.Entry<String, List<Path>> entry : objectBatch.entrySet()) {
+                if (referenced.contains(entry.getKey())) {
+                    continue;
+                }
+                pace();
+                try {
+                    // Re-checked under the object lock in case the content was uploaded again meanwhile
+                    long reclaimed = fileStorageService.deleteUnreferencedObjectFiles(entry.getKey(), entry.getValue(), dryRun);
+                    if (reclaimed >= 0) {
+                        filesDeleted += entry.getValue().size();
+                        bytesReclaimed += reclaimed;
+                        log.debug("{} unreferenced object {} ({} bytes)", dryRun ? "Would delete" : "Deleted",
+                            entry.getKey(), reclaimed);
+                    }
+                } catch (IOException ex) {
+                    log.warn("Could not delete object {}: {}", entry.getKey(), ex.getMessage());
+                    errors++;
+                }
+            }
+            objectBatch.clear();
+        }
+
+        private void flushLegacy() {
+            if (legacyBatch.isEmpty()) {
+                return;
+            }
+            Set<String> referenced = new HashSet<>(attachmentRepository.findReferencedFilenames(legacyBatch.keySet()));
+            for (Map.Entry<String, Path> entry : legacyBatch.entrySet()) {
+                if (!referenced.contains(entry.getKey())) {
+                    try {
+                        deleteFile(entry.getValue(), Files.size(entry.getValue()));
+                    } catch (IOException ex) {
+                        log.warn("Could not delete {}: {}", entry.getValue(), ex.getMessage());
+                        errors++;
+                    }
+                }
+            }
+            legacyBatch.clear();
+        }
+
+        private void deleteFile(Path file, long size) throws IOException {
+            pace();
+            if (dryRun || Files.deleteIfExists(file)) {
+                filesDeleted++;
+                bytesReclaimed += size;
+                log.debug("{} unreferenced file {} ({} bytes)", dryRun ? "Would delete" : "Deleted", file, size);
+            }
+        }
+
+        // Spread deletions out to at most deletesPerSecond
+        private void pace() {
+            if (dryRun || nanosPerDelete == 0) {
+                return;
+            }
+            long wait = nextDeleteAt - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Attachment garbage collection interrupted", ex);
+                }
+            }
+            nextDeleteAt = Math.max(nextDeleteAt, System.nanoTime()) + nanosPerDelete;
+        }
+
+        private AttachmentGcReport report() {
+            return AttachmentGcReport.builder()
+                .dryRun(dryRun)
+                .startedAt(startedAt)
+                .durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos))
+                .filesScanned(filesScanned)
+                .filesSkipped(filesSkipped)
+                .filesDeleted(filesDeleted)
+                .bytesReclaimed(bytesReclaimed)
+                .errors(errors)
+                .build();
+        }
+    }
+}
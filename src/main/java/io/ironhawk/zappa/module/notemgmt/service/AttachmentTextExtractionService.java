@@ -0,0 +1,176 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import io.ironhawk.zappa.module.notemgmt.entity.NoteAttachment;
+import io.ironhawk.zappa.module.notemgmt.repository.NoteAttachmentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background worker pool that extracts attachment text for search.
+ *
+ * Uploads only insert a row into {@code attachment_text_jobs}; this service polls that table
+ * and claims at most as many jobs as it has idle workers, so a burst of uploads queues up in
+ * the database instead of in memory and extraction never slows an upload down.
+ */
+@Slf4j
+@Service
+public class AttachmentTextExtractionService {
+
+    // A job still RUNNING after this long belongs to a worker that died
+    private static final int STALE_JOB_SECONDS = 15 * 60;
+
+    private final AttachmentTextJobQueue jobQueue;
+    private final AttachmentTextExtractor extractor;
+    private final NoteAttachmentRepository attachmentRepository;
+    private final FileStorageService fileStorageService;
+
+    private final int workers;
+    private final ThreadPoolExecutor executor;
+    private final AtomicInteger busyWorkers = new AtomicInteger();
+    private final AtomicLong pendingJobs = new AtomicLong();
+
+    private final Timer extractionTimer;
+    private final DistributionSummary extractedBytes;
+    private final Counter succeeded;
+    private final Counter reused;
+    private final Counter failed;
+
+    public AttachmentTextExtractionService(AttachmentTextJobQueue jobQueue,
+                                           AttachmentTextExtractor extractor,
+                                           NoteAttachmentRepository attachmentRepository,
+                                           FileStorageService fileStorageService,
+                                           MeterRegistry meterRegistry,
+                                           @Value("${app.attachments.text-extraction.workers:2}") int workers) {
+        this.jobQueue = jobQueue;
+        this.extractor = extractor;
+        this.attachmentRepository = attachmentRepository;
+        this.fileStorageService = fileStorageService;
+        this.workers = workers;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "attachment-text-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        this.executor.allowCoreThreadTimeOut(true);
+
+        this.extractionTimer = Timer.builder("attachments.text.extraction")
+            .description("Time to extract text from one attachment")
+            .register(meterRegistry);
+        this.extractedBytes = DistributionSummary.builder("attachments.text.extraction.input")
+            .description("Size of attachments processed by text extraction")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        this.succeeded = meterRegistry.counter("attachments.text.extraction.jobs", "result", "extracted");
+        this.reused = meterRegistry.counter("attachments.text.extraction.jobs", "result", "reused");
+        this.failed = meterRegistry.counter("attachments.text.extraction.jobs", "result", "failed");
+        Gauge.builder("attachments.text.extraction.pending", pendingJobs, AtomicLong::get)
+            .description("Jobs waiting in the extraction queue at the last poll")
+            .register(meterRegistry);
+        Gauge.builder("attachments.text.extraction.busy", busyWorkers, AtomicInteger::get)
+            .description("Extraction workers currently busy")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.attachments.text-extraction.poll-interval-ms:5000}")
+    public void poll() {
+        int idle = workers - busyWorkers.get();
+        if (idle <= 0) {
+            return;
+        }
+
+        try {
+            List<UUID> claimed = jobQueue.claim(idle);
+            for (UUID attachmentId : claimed) {
+                busyWorkers.incrementAndGet();
+                executor.execute(() -> {
+                    try {
+                        process(attachmentId);
+                    } finally {
+                        busyWorkers.decrementAndGet();
+                    }
+                });
+            }
+            pendingJobs.set(jobQueue.countPending());
+        } catch (Exception ex) {
+            log.error("Failed to poll attachment text extraction queue", ex);
+        }
+    }
+
+    @Scheduled(fixedDelay = 5, timeUnit = TimeUnit.MINUTES)
+    public void releaseStaleJobs() {
+        try {
+            int released = jobQueue.releaseStaleJobs(STALE_JOB_SECONDS);
+            if (released > 0) {
+                log.warn("Released {} stale attachment text extraction job(s)", released);
+            }
+        } catch (Exception ex) {
+            log.error("Failed to release stale attachment text extraction jobs", ex);
+        }
+    }
+
+    private void process(UUID attachmentId) {
+        Optional<NoteAttachment> found = attachmentRepository.findById(attachmentId);
+        if (found.isEmpty()) {
+            jobQueue.discard(attachmentId);
+            return;
+        }
+        NoteAttachment attachment = found.get();
+
+        try {
+            if (attachment.getContentHash() != null
+                && jobQueue.completeFromSameContent(attachmentId, attachment.getContentHash())) {
+                reused.increment();
+                log.debug("Reused extracted text for attachment {}", attachmentId);
+                return;
+            }
+
+            long start = System.nanoTime();
+            String text = extractor.extract(fileStorageService.resolveStoredFile(attachment), attachment.getMimeType());
+            jobQueue.complete(attachmentId, text);
+
+            extractionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            extractedBytes.record(attachment.getFileSize());
+            succeeded.increment();
+            log.debug("Extracted {} chars from attachment {} ({})", text.length(), attachmentId,
+                attachment.getOriginalFilename());
+
+        } catch (Exception ex) {
+            failed.increment();
+            log.warn("Text extraction failed for attachment {} ({}): {}", attachmentId,
+                attachment.getOriginalFilename(), ex.getMessage());
+            try {
+                jobQueue.fail(attachmentId, ex.getClass().getSimpleName() + ": " + ex.getMessage());
+            } catch (Exception markEx) {
+                log.error("Could not record extraction failure for attachment {}", attachmentId, markEx);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Interrupted jobs stay RUNNING and are released as stale after restart
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,145 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Extracts plain text from PDF, DOCX and text attachments for full-text indexing.
+ * Output is capped so a single huge document cannot blow the tsvector size limit.
+ */
+@Component
+public class AttachmentTextExtractor {
+
+    static final String PDF = "application/pdf";
+
+    private static final Set<String> TEXT_TYPES = Set.of("text/plain", "text/markdown");
+
+    private static final Set<String> SUPPORTED_TYPES = Set.of(
+        PDF, AttachmentContentSniffer.DOCX, "text/plain", "text/markdown");
+
+    // Postgres caps a tsvector at 1MB; this leaves ample headroom for positions
+    static final int MAX_CHARS = 200_000;
+
+    private static final int MAX_PDF_PAGES = 500;
+
+    private static final String WORD_NAMESPACE = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+    public static boolean supports(String mimeType) {
+        return mimeType != null && SUPPORTED_TYPES.contains(mimeType);
+    }
+
+    public String extract(Path file, String mimeType) throws IOException {
+        String text;
+        if (PDF.equals(mimeType)) {
+            text = extractPdf(file);
+        } else if (AttachmentContentSniffer.DOCX.equals(mimeType)) {
+            text = extractDocx(file);
+        } else if (TEXT_TYPES.contains(mimeType)) {
+            text = extractText(file);
+        } else {
+            throw new IllegalArgumentException("Text extraction not supported for " + mimeType);
+        }
+        return clean(text);
+    }
+
+    private String extractPdf(Path file) throws IOException {
+        try (PDDocument document = Loader.loadPDF(file.toFile())) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setSortByPosition(true);
+            stripper.setEndPage(Math.min(document.getNumberOfPages(), MAX_PDF_PAGES));
+            return stripper.getText(document);
+        }
+    }
+
+    // A .docx body is word/document.xml: text runs are <w:t>, paragraphs <w:p>
+    private String extractDocx(Path file) throws IOException {
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            ZipEntry entry = zip.getEntry("word/document.xml");
+            if (entry == null) {
+                throw new IOException("Not a Word document: word/document.xml missing");
+            }
+            try (InputStream in = zip.getInputStream(entry)) {
+                return readWordXml(in);
+            }
+        }
+    }
+
+    private String readWordXml(InputStream in) throws IOException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        StringBuilder text = new StringBuilder();
+        XMLStreamReader reader = null;
+        try {
+            reader = factory.createXMLStreamReader(in);
+            boolean inText = false;
+            while (reader.hasNext() && text.length() < MAX_CHARS) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT && WORD_NAMESPACE.equals(reader.getNamespaceURI())) {
+                    switch (reader.getLocalName()) {
+                        case "t" -> inText = true;
+                        case "tab" -> text.append('\t');
+                        case "br", "cr" -> text.append('\n');
+                        default -> { }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && WORD_NAMESPACE.equals(reader.getNamespaceURI())) {
+                    if ("t".equals(reader.getLocalName())) {
+                        inText = false;
+                    } else if ("p".equals(reader.getLocalName())) {
+                        text.append('\n');
+                    }
+                } else if (inText && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)) {
+                    text.append(reader.getText());
+                }
+            }
+            return text.toString();
+        } catch (XMLStreamException ex) {
+            throw new IOException("Invalid Word document XML", ex);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                    // Input stream is closed by the caller
+                }
+            }
+        }
+    }
+
+    // Malformed UTF-8 is replaced rather than failing the whole file
+    private String extractText(Path file) throws IOException {
+        char[] buffer = new char[MAX_CHARS];
+        int total = 0;
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)) {
+            int read;
+            while (total < buffer.length && (read = reader.read(buffer, total, buffer.length - total)) != -1) {
+                total += read;
+            }
+        }
+        return new String(buffer, 0, total);
+    }
+
+    // Postgres text cannot hold NUL; runs of whitespace carry no meaning for the index
+    private String clean(String text) {
+        String cleaned = text.replace('\u0000', ' ').replaceAll("[ \\t\\x0B\\f\\r]+", " ").replaceAll("\\n\\s*\\n+", "\n\n").strip();
+        return cleaned.length() > MAX_CHARS ? cleaned.substring(0, MAX_CHARS) : cleaned;
+    }
+}
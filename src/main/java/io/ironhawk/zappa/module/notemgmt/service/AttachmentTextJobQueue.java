@@ -0,0 +1,93 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import io.ironhawk.zappa.module.notemgmt.entity.AttachmentTextJob;
+import io.ironhawk.zappa.module.notemgmt.repository.AttachmentTextJobRepository;
+import io.ironhawk.zappa.module.notemgmt.repository.NoteAttachmentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Transactional operations on the attachment text extraction queue. Claiming uses
+ * {@code FOR UPDATE SKIP LOCKED}, so several application instances can share the queue.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class AttachmentTextJobQueue {
+
+    static final int MAX_ATTEMPTS = 3;
+
+    // Retry delay grows linearly with the attempt number
+    private static final int RETRY_DELAY_SECONDS = 60;
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final AttachmentTextJobRepository jobRepository;
+    private final NoteAttachmentRepository attachmentRepository;
+
+    @Transactional
+    public void enqueue(UUID attachmentId) {
+        jobRepository.enqueue(attachmentId);
+    }
+
+    /**
+     * Claim up to {@code limit} due jobs for this worker
+     */
+    @Transactional
+    public List<UUID> claim(int limit) {
+        List<UUID> ids = jobRepository.lockDueJobIds(limit);
+        if (!ids.isEmpty()) {
+            jobRepository.markRunning(ids);
+        }
+        return ids;
+    }
+
+    /**
+     * Reuse the text of an already extracted attachment with the same content
+     *
+     * @return true if text was copied and the job is done
+     */
+    @Transactional
+    public boolean completeFromSameContent(UUID attachmentId, String contentHash) {
+        if (attachmentRepository.copyExtractedTextFromSameContent(attachmentId, contentHash) == 0) {
+            return false;
+        }
+        jobRepository.deleteById(attachmentId);
+        return true;
+    }
+
+    @Transactional
+    public void complete(UUID attachmentId, String text) {
+        attachmentRepository.updateExtractedText(attachmentId, text);
+        jobRepository.deleteById(attachmentId);
+    }
+
+    @Transactional
+    public void fail(UUID attachmentId, String error) {
+        String message = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        jobRepository.markFailed(attachmentId, message, MAX_ATTEMPTS, RETRY_DELAY_SECONDS);
+    }
+
+    /**
+     * Drop a job whose attachment no longer exists
+     */
+    @Transactional
+    public void discard(UUID attachmentId) {
+        jobRepository.deleteById(attachmentId);
+    }
+
+    @Transactional
+    public int releaseStaleJobs(int timeoutSeconds) {
+        return jobRepository.releaseStaleJobs(timeoutSeconds);
+    }
+
+    public long countPending() {
+        return jobRepository.countByStatus(AttachmentTextJob.Status.PENDING);
+    }
+}
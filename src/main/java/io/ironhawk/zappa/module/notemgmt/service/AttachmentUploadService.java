@@ -0,0 +1,219 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import io.ironhawk.zappa.module.notemgmt.dto.AttachmentUploadStatus;
+import io.ironhawk.zappa.module.notemgmt.entity.Note;
+import io.ironhawk.zappa.module.notemgmt.entity.NoteAttachment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumable uploads for files too large to send reliably in one request.
+ *
+ * A client starts a session announcing the file name, type and total size, then appends
+ * chunks in order. Each chunk is streamed straight into the session's incoming file and
+ * hashed as it is written; when the last byte arrives the upload is committed to the
+ * attachment store like any other. A client that loses its connection asks for the
+ * session status and resumes from the returned offset.
+ *
+ * Sessions live in memory: a restart abandons them and their partial files are left in
+ * the incoming area.
+ */
+@Service
+public class AttachmentUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentUploadService.class);
+
+    private final FileStorageService fileStorageService;
+    private final NoteService noteService;
+    private final Duration sessionTimeout;
+    private final int maxSessions;
+
+    private final Map<UUID, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    public AttachmentUploadService(FileStorageService fileStorageService,
+                                   NoteService noteService,
+                                   @Value("${app.upload.session-timeout:24h}") Duration sessionTimeout,
+                                   @Value("${app.upload.max-sessions:100}") int maxSessions) {
+        this.fileStorageService = fileStorageService;
+        this.noteService = noteService;
+        this.sessionTimeout = sessionTimeout;
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * Start a resumable upload for a note the caller can access
+     */
+    public AttachmentUploadStatus startUpload(Note note, String owner, String originalFilename, String contentType, long totalSize) {
+        String filename = FileStorageService.cleanFilename(originalFilename);
+        fileStorageService.validateContentType(contentType);
+        fileStorageService.validateStreamSize(totalSize);
+
+        expireIdleSessions();
+        if (sessions.size() >= maxSessions) {
+            throw new RuntimeException("Too many uploads in progress, try again later");
+        }
+
+        UploadSession session = new UploadSession(UUID.randomUUID(), note.getId(), owner, filename,
+            contentType, totalSize, fileStorageService.newIncomingUpload());
+        sessions.put(session.id, session);
+
+        logger.info("Started resumable upload {} for {} ({} bytes)", session.id, filename, totalSize);
+        return session.status(null);
+    }
+
+    /**
+     * Append a chunk starting at the given offset. Chunks must arrive in order; a chunk that
+     * does not start at the current offset is rejected so the client can resume from the
+     * offset it reports.
+     */
+    public AttachmentUploadStatus appendChunk(UUID uploadId, String owner, long offset, InputStream chunk) {
+        UploadSession session = getSession(uploadId, owner);
+
+        synchronized (session) {
+            if (session.closed) {
+                throw new IllegalArgumentException("Upload not found: " + uploadId);
+            }
+            if (offset != session.upload.size()) {
+                throw new UploadOffsetMismatchException(session.status(null));
+            }
+
+            try {
+                session.upload.append(chunk);
+                session.lastActivity = Instant.now();
+
+                if (session.upload.size() > session.totalSize) {
+                    abort(session);
+                    throw new RuntimeException("Upload exceeds announced size of " + session.totalSize + " bytes");
+                }
+                if (session.upload.size() < session.totalSize) {
+                    return session.status(null);
+                }
+
+                Note note = noteService.getNoteById(session.noteId)
+                    .orElseThrow(() -> new RuntimeException("Note not found: " + session.noteId));
+                NoteAttachment attachment = fileStorageService.commitUpload(session.upload, note,
+                    session.filename, session.contentType);
+                close(session);
+
+                logger.info("Completed resumable upload {} as attachment {}", uploadId, attachment.getId());
+                return session.status(attachment.getId());
+
+            } catch (IOException ex) {
+                // Partial bytes may have been written; the client re-queries the offset and resumes
+                logger.warn("Interrupted chunk for upload {} at offset {}", uploadId, session.upload.size(), ex);
+                throw new RuntimeException("Failed to write upload chunk", ex);
+            } catch (RuntimeException ex) {
+                if (session.upload.size() >= session.totalSize) {
+                    // The content was rejected or could not be committed: nothing to resume
+                    abort(session);
+                }
+                throw ex;
+            }
+        }
+    }
+
+    public AttachmentUploadStatus getStatus(UUID uploadId, String owner) {
+        UploadSession session = getSession(uploadId, owner);
+        synchronized (session) {
+            return session.status(null);
+        }
+    }
+
+    public void cancelUpload(UUID uploadId, String owner) {
+        UploadSession session = getSession(uploadId, owner);
+        synchronized (session) {
+            abort(session);
+        }
+        logger.info("Cancelled resumable upload {}", uploadId);
+    }
+
+    private UploadSession getSession(UUID uploadId, String owner) {
+        UploadSession session = sessions.get(uploadId);
+        if (session == null || !session.owner.equals(owner)) {
+            throw new IllegalArgumentException("Upload not found: " + uploadId);
+        }
+        return session;
+    }
+
+    private void expireIdleSessions() {
+        Instant cutoff = Instant.now().minus(sessionTimeout);
+        sessions.values().forEach(session -> {
+            synchronized (session) {
+                if (!session.closed && session.lastActivity.isBefore(cutoff)) {
+                    logger.info("Expiring idle upload {} at {} of {} bytes",
+                        session.id, session.upload.size(), session.totalSize);
+                    abort(session);
+                }
+            }
+        });
+    }
+
+    private void abort(UploadSession session) {
+        close(session);
+        FileStorageService.deleteQuietly(session.upload.file());
+    }
+
+    private void close(UploadSession session) {
+        session.closed = true;
+        sessions.remove(session.id);
+    }
+
+    private static final class UploadSession {
+        private final UUID id;
+        private final UUID noteId;
+        private final String owner;
+        private final String filename;
+        private final String contentType;
+        private final long totalSize;
+        private final IncomingUpload upload;
+        private Instant lastActivity = Instant.now();
+        private boolean closed;
+
+        private UploadSession(UUID id, UUID noteId, String owner, String filename, String contentType,
+                              long totalSize, IncomingUpload upload) {
+            this.id = id;
+            this.noteId = noteId;
+            this.owner = owner;
+            this.filename = filename;
+            this.contentType = contentType;
+            this.totalSize = totalSize;
+            this.upload = upload;
+        }
+
+        private AttachmentUploadStatus status(UUID attachmentId) {
+            return AttachmentUploadStatus.builder()
+                .uploadId(id)
+                .filename(filename)
+                .offset(upload.size())
+                .totalSize(totalSize)
+                .attachmentId(attachmentId)
+                .build();
+        }
+    }
+
+    /**
+     * A chunk did not start where the upload currently ends
+     */
+    public static class UploadOffsetMismatchException extends RuntimeException {
+        private final AttachmentUploadStatus status;
+
+        public UploadOffsetMismatchException(AttachmentUploadStatus status) {
+            super("Chunk does not start at current upload offset " + status.getOffset());
+            this.status = status;
+        }
+
+        public AttachmentUploadStatus getStatus() {
+            return status;
+        }
+    }
+}
@@ -7,30 +7,52 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.MalformedURLException;
 import java.nio.file.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
-
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Content-addressed attachment store.
+ *
+ * Files are stored once per distinct content under {@code objects/<aa>/<bb>/<sha256>}, where
+ * {@code aa} and {@code bb} are the first two bytes of the hash. Each {@code note_attachments}
+ * row referencing a hash counts as one reference; the stored object is removed when the last
+ * referencing row is deleted. {@code file_path} holds the object key relative to the upload
+ * directory, so the upload volume can be relocated without rewriting rows.
+ *
+ * Uploads are written once, into {@code incoming/}, hashed and type-sniffed on the way
+ * through, then moved into place. Multipart uploads are bounded by the servlet multipart
+ * limit; raw-body and resumable uploads by {@code app.upload.max-stream-file-size}.
+ */
 @Service
 public class FileStorageService {
 
     private static final Logger logger = LoggerFactory.getLogger(FileStorageService.class);
 
+    static final String OBJECTS_DIR = "objects";
+    static final String INCOMING_DIR = "incoming";
+
     private final Path uploadPath;
+    private final Path objectsPath;
+    private final Path incomingPath;
     private final NoteAttachmentRepository attachmentRepository;
+    private final AttachmentDerivativeService derivativeService;
+    private final AttachmentTextJobQueue textJobQueue;
     private final Environment environment;
 
+    // Serializes "link object" against "drop last reference" for the same hash
+    private final ReentrantLock[] objectLocks = new ReentrantLock[64];
+
     // Allowed file types
     private static final List<String> ALLOWED_MIME_TYPES = List.of(
         "application/vnd.openxmlformats-officedocument.wordprocessingml.document", // .docx
@@ -44,23 +66,41 @@ public class FileStorageService {
         "text/markdown" // .md
     );
 
-    // Maximum file size: 50MB
-    private static final long MAX_FILE_SIZE = 50 * 1024 * 1024;
+    // Multipart uploads are buffered by the servlet container, so share its limit
+    private final long maxFileSize;
+
+    // Streamed uploads never touch the container's buffer and may be larger
+    private final long maxStreamFileSize;
 
     public FileStorageService(@Value("${app.upload.dir}") String uploadDir,
+                             @Value("${spring.servlet.multipart.max-file-size:12MB}") DataSize maxFileSize,
+                             @Value("${app.upload.max-stream-file-size:200MB}") DataSize maxStreamFileSize,
                              NoteAttachmentRepository attachmentRepository,
+                             AttachmentDerivativeService derivativeService,
+                             AttachmentTextJobQueue textJobQueue,
                              Environment environment) {
         this.attachmentRepository = attachmentRepository;
+        this.derivativeService = derivativeService;
+        this.textJobQueue = textJobQueue;
         this.environment = environment;
+        this.maxFileSize = maxFileSize.toBytes();
+        this.maxStreamFileSize = maxStreamFileSize.toBytes();
 
         // Get active profile for environment-specific directory
         String[] activeProfiles = environment.getActiveProfiles();
         String envName = activeProfiles.length > 0 ? activeProfiles[0] : "default";
 
         this.uploadPath = Paths.get(uploadDir, envName, "note-attachments").toAbsolutePath().normalize();
+        this.objectsPath = this.uploadPath.resolve(OBJECTS_DIR);
+        this.incomingPath = this.uploadPath.resolve(INCOMING_DIR);
+
+        for (int i = 0; i < objectLocks.length; i++) {
+            objectLocks[i] = new ReentrantLock();
+        }
 
         try {
-            Files.createDirectories(this.uploadPath);
+            Files.createDirectories(this.objectsPath);
+            Files.createDirectories(this.incomingPath);
             logger.info("Upload directory created/verified: {}", this.uploadPath);
         } catch (IOException ex) {
             logger.error("Could not create upload directory: {}", this.uploadPath, ex);
@@ -69,76 +109,189 @@ public class FileStorageService {
     }
 
     /**
-     * Store a file and create attachment record
+     * Store a file and create attachment record.
+     * Identical content already in the store is reused instead of written again.
      */
     public NoteAttachment storeFile(MultipartFile file, Note note) {
         validateFile(file);
 
-        String originalFilename = StringUtils.cleanPath(file.getOriginalFilename());
-        String storedFilename = generateUniqueFilename(originalFilename);
+        try (InputStream inputStream = file.getInputStream()) {
+            return storeStream(inputStream, file.getOriginalFilename(), file.getContentType(), note, maxFileSize);
+        } catch (IOException ex) {
+            logger.error("Failed to read uploaded file: {}", file.getOriginalFilename(), ex);
+            throw new RuntimeException("Failed to store file: " + file.getOriginalFilename(), ex);
+        }
+    }
 
+    /**
+     * Store a raw request body as an attachment in a single pass.
+     * The stored MIME type is taken from the content, not trusted from the client.
+     */
+    public NoteAttachment storeStream(InputStream inputStream, String originalFilename, String contentType, Note note) {
+        return storeStream(inputStream, originalFilename, contentType, note, maxStreamFileSize);
+    }
+
+    private NoteAttachment storeStream(InputStream inputStream, String originalFilename, String contentType,
+                                       Note note, long maxSize) {
+        String filename = cleanFilename(originalFilename);
+        validateContentType(contentType);
+
+        IncomingUpload upload = newIncomingUpload(maxSize);
         try {
-            // Check for path traversal attack
-            if (originalFilename.contains("..")) {
-                throw new RuntimeException("Filename contains invalid path sequence: " + originalFilename);
-            }
+            upload.append(inputStream);
+            return commitUpload(upload, note, filename, contentType);
+        } catch (IOException ex) {
+            logger.error("Failed to store file: {}", filename, ex);
+            throw new RuntimeException("Failed to store file: " + filename, ex);
+        } finally {
+            deleteQuietly(upload.file());
+        }
+    }
 
-            Path targetLocation = this.uploadPath.resolve(storedFilename);
+    /**
+     * Start a new file in the incoming area, bounded by the streaming size limit
+     */
+    IncomingUpload newIncomingUpload() {
+        return newIncomingUpload(maxStreamFileSize);
+    }
+
+    private IncomingUpload newIncomingUpload(long maxSize) {
+        return new IncomingUpload(this.incomingPath.resolve(UUID.randomUUID() + ".upload"), maxSize);
+    }
 
-            // Copy file to target location
-            try (InputStream inputStream = file.getInputStream()) {
-                Files.copy(inputStream, targetLocation, StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * Sniff, hash and commit a fully written incoming upload as an attachment of the note.
+     * The incoming file is consumed on success; callers remove it on failure.
+     */
+    NoteAttachment commitUpload(IncomingUpload upload, Note note, String filename, String declaredType) throws IOException {
+        if (upload.size() == 0) {
+            throw new RuntimeException("Cannot store empty file");
+        }
+
+        String mimeType = upload.resolveMimeType(declaredType);
+        if (!mimeType.equals(declaredType)) {
+            logger.info("Upload {} declared as {} but content is {}", filename, declaredType, mimeType);
+        }
+
+        NoteAttachment savedAttachment = commitObject(upload.file(), upload.contentHash(), upload.size(),
+            note, filename, mimeType);
+        logger.info("File stored successfully: {} -> {}", filename, savedAttachment.getFilePath());
+
+        derivativeService.enqueueAll(resolveStoredFile(savedAttachment), mimeType);
+        enqueueTextExtraction(savedAttachment);
+        return savedAttachment;
+    }
+
+    // Extraction runs in the background; a failure to queue must not fail the upload
+    private void enqueueTextExtraction(NoteAttachment attachment) {
+        if (!AttachmentTextExtractor.supports(attachment.getMimeType())) {
+            return;
+        }
+        try {
+            textJobQueue.enqueue(attachment.getId());
+        } catch (Exception ex) {
+            logger.warn("Could not queue text extraction for attachment {}: {}", attachment.getId(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Move a fully written and hashed incoming file into the object store (or drop it if the
+     * object already exists) and create the attachment row referencing it.
+     */
+    private NoteAttachment commitObject(Path incomingFile, String contentHash, long size, Note note,
+                                        String originalFilename, String mimeType) throws IOException {
+        String objectKey = objectKey(contentHash);
+        Path objectFile = this.uploadPath.resolve(objectKey);
+
+        ReentrantLock lock = lockFor(contentHash);
+        lock.lock();
+        try {
+            if (Files.exists(objectFile)) {
+                logger.debug("Content {} already stored, reusing existing object", contentHash);
+            } else {
+                Files.createDirectories(objectFile.getParent());
+                Files.move(incomingFile, objectFile, StandardCopyOption.ATOMIC_MOVE);
             }
 
-            // Create attachment record
             NoteAttachment attachment = new NoteAttachment(
                 note,
                 originalFilename,
-                storedFilename,
-                targetLocation.toString(),
-                file.getSize(),
-                file.getContentType()
+                contentHash,
+                objectKey,
+                size,
+                mimeType
             );
+            attachment.setContentHash(contentHash);
 
-            NoteAttachment savedAttachment = attachmentRepository.save(attachment);
-            logger.info("File stored successfully: {} -> {}", originalFilename, storedFilename);
+            return attachmentRepository.save(attachment);
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            return savedAttachment;
+    /**
+     * Load a stored attachment as a file-system resource for streaming.
+     * This does not stat the file up front: stored files are immutable, and a conditional
+     * request answered with 304 never touches the disk.
+     */
+    public FileSystemResource loadAttachmentResource(NoteAttachment attachment) {
+        return new FileSystemResource(resolveStoredFile(attachment));
+    }
 
-        } catch (IOException ex) {
-            logger.error("Failed to store file: {}", originalFilename, ex);
-            throw new RuntimeException("Failed to store file: " + originalFilename, ex);
+    /**
+     * Load a resized variant of an image attachment, if it has been generated.
+     * A missing variant is queued for generation; only content-addressed attachments have variants.
+     */
+    public Optional<FileSystemResource> loadThumbnailResource(NoteAttachment attachment, int width) {
+        if (attachment.getContentHash() == null) {
+            return Optional.empty();
         }
+        return derivativeService.findDerivative(resolveStoredFile(attachment), attachment.getMimeType(), width)
+            .map(FileSystemResource::new);
     }
 
     /**
-     * Load file as resource
+     * Resolve the on-disk location of an attachment. New attachments store an object key
+     * relative to the upload directory; older ones store an absolute path, which
+     * {@link Path#resolve(String)} returns unchanged.
      */
-    public Resource loadFileAsResource(String filename) {
-        try {
-            Path filePath = this.uploadPath.resolve(filename).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                return resource;
-            } else {
-                throw new RuntimeException("File not found or not readable: " + filename);
-            }
-        } catch (MalformedURLException ex) {
-            logger.error("Malformed URL for file: {}", filename, ex);
-            throw new RuntimeException("File not found: " + filename, ex);
+    public Path resolveStoredFile(NoteAttachment attachment) {
+        Path filePath = this.uploadPath.resolve(attachment.getFilePath()).normalize();
+        if (attachment.getContentHash() != null && !filePath.startsWith(this.uploadPath)) {
+            throw new RuntimeException("Invalid stored file path: " + attachment.getFilePath());
         }
+        return filePath;
     }
 
     /**
-     * Delete file from filesystem and database
+     * Delete attachment from database, and its stored file once no other attachment references it
      */
     public void deleteFile(NoteAttachment attachment) {
+        String contentHash = attachment.getContentHash();
+        Path filePath = resolveStoredFile(attachment);
+
         try {
-            Path filePath = Paths.get(attachment.getFilePath());
-            Files.deleteIfExists(filePath);
+            if (contentHash == null) {
+                // Attachments stored before content addressing own their file exclusively
+                attachmentRepository.delete(attachment);
+                Files.deleteIfExists(filePath);
+            } else {
+                ReentrantLock lock = lockFor(contentHash);
+                lock.lock();
+                try {
+                    attachmentRepository.delete(attachment);
+                    long remainingReferences = attachmentRepository.countByContentHash(contentHash);
+                    if (remainingReferences == 0) {
+                        Files.deleteIfExists(filePath);
+                        derivativeService.deleteDerivatives(filePath);
+                    } else {
+                        logger.debug("Keeping object {} still referenced by {} attachment(s)", contentHash, remainingReferences);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
 
-            attachmentRepository.delete(attachment);
             logger.info("File deleted successfully: {}", attachment.getFilename());
 
         } catch (IOException ex) {
@@ -147,6 +300,39 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * Delete the files of a stored object (the object and/or its derivatives) if no attachment
+     * references its hash. Runs under the object's lock, so it cannot race an upload of the
+     * same content.
+     *
+     * @return bytes reclaimed (or that would be reclaimed in a dry run), or -1 if still referenced
+     */
+    public long deleteUnreferencedObjectFiles(String contentHash, List<Path> files, boolean dryRun) throws IOException {
+        ReentrantLock lock = lockFor(contentHash);
+        lock.lock();
+        try {
+            if (attachmentRepository.countByContentHash(contentHash) > 0) {
+                return -1;
+            }
+            long reclaimed = 0;
+            for (Path file : files) {
+                if (!file.normalize().startsWith(this.objectsPath)) {
+                    throw new IllegalArgumentException("Not an object store file: " + file);
+                }
+                if (!Files.exists(file)) {
+                    continue;
+                }
+                long size = Files.size(file);
+                if (dryRun || Files.deleteIfExists(file)) {
+                    reclaimed += size;
+                }
+            }
+            return reclaimed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Get all attachments for a note
      */
@@ -172,13 +358,16 @@ public class FileStorageService {
         }
 
         // Check file size
-        if (file.getSize() > MAX_FILE_SIZE) {
+        if (file.getSize() > maxFileSize) {
             throw new RuntimeException("File size exceeds maximum allowed size of " +
-                (MAX_FILE_SIZE / 1024 / 1024) + "MB");
+                (maxFileSize / 1024 / 1024) + "MB");
         }
+    }
 
-        // Check file type
-        String contentType = file.getContentType();
+    /**
+     * Check the declared type against the allow-list; the content is checked against it once read
+     */
+    void validateContentType(String contentType) {
         if (contentType == null || !ALLOWED_MIME_TYPES.contains(contentType)) {
             throw new RuntimeException("File type not allowed: " + contentType +
                 ". Allowed types: " + String.join(", ", ALLOWED_MIME_TYPES));
@@ -186,31 +375,55 @@ public class FileStorageService {
     }
 
     /**
-     * Generate unique filename to avoid conflicts
+     * Validate a size announced up front by a resumable upload
      */
-    private String generateUniqueFilename(String originalFilename) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String uuid = UUID.randomUUID().toString().substring(0, 8);
+    void validateStreamSize(long size) {
+        if (size <= 0) {
+            throw new RuntimeException("Cannot store empty file");
+        }
+        if (size > maxStreamFileSize) {
+            throw new RuntimeException("File size exceeds maximum allowed size of " +
+                (maxStreamFileSize / 1024 / 1024) + "MB");
+        }
+    }
+
+    static String cleanFilename(String originalFilename) {
+        if (!StringUtils.hasText(originalFilename)) {
+            throw new RuntimeException("Filename is required");
+        }
+        String filename = StringUtils.cleanPath(originalFilename);
 
-        String extension = "";
-        int lastDotIndex = originalFilename.lastIndexOf('.');
-        if (lastDotIndex > 0) {
-            extension = originalFilename.substring(lastDotIndex);
-            originalFilename = originalFilename.substring(0, lastDotIndex);
+        // Check for path traversal attack
+        if (filename.contains("..")) {
+            throw new RuntimeException("Filename contains invalid path sequence: " + filename);
         }
+        return filename;
+    }
+
+    /**
+     * Object key for a content hash: objects/aa/bb/&lt;hash&gt;, relative to the upload directory
+     */
+    static String objectKey(String contentHash) {
+        return OBJECTS_DIR + "/" + contentHash.substring(0, 2) + "/" + contentHash.substring(2, 4) + "/" + contentHash;
+    }
 
-        // Sanitize filename
-        String sanitizedName = originalFilename.replaceAll("[^a-zA-Z0-9._-]", "_");
+    private ReentrantLock lockFor(String contentHash) {
+        return objectLocks[Integer.parseInt(contentHash.substring(0, 2), 16) % objectLocks.length];
+    }
 
-        return String.format("%s_%s_%s%s", timestamp, uuid, sanitizedName, extension);
+    static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            logger.warn("Could not delete temporary upload file: {}", path, ex);
+        }
     }
 
     /**
-     * Check if file exists
+     * Check if the stored file of an attachment exists
      */
-    public boolean fileExists(String filename) {
-        Path filePath = this.uploadPath.resolve(filename);
-        return Files.exists(filePath);
+    public boolean fileExists(NoteAttachment attachment) {
+        return Files.exists(resolveStoredFile(attachment));
     }
 
     /**
@@ -219,4 +432,12 @@ public class FileStorageService {
     public Path getUploadPath() {
         return uploadPath;
     }
-}
\ No newline at end of file
+
+    Path getObjectsPath() {
+        return objectsPath;
+    }
+
+    Path getIncomingPath() {
+        return incomingPath;
+    }
+}
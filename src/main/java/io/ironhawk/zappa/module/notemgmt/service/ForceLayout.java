@@ -0,0 +1,226 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Force-directed layout (Fruchterman–Reingold) with Barnes–Hut approximated repulsion.
+ *
+ * Every iteration builds a quadtree over the current positions, so the repulsion on a node is
+ * computed from O(log n) cells instead of all other nodes; that part runs in parallel over the
+ * nodes. Links pull their ends together in proportion to their strength, and a weak pull
+ * towards the centroid keeps unconnected parts from drifting apart. Only nodes marked movable
+ * are moved, which lets a caller relax a neighbourhood inside an otherwise fixed layout.
+ */
+public final class ForceLayout {
+
+    // Cells smaller than THETA times their distance are treated as one body. Below 1/sqrt(2)
+    // a cell containing the node itself is never approximated.
+    private static final double THETA = 0.7;
+    private static final int MAX_TREE_DEPTH = 40;
+    private static final double MIN_DISTANCE = 0.01;
+    private static final double GRAVITY = 0.02;
+    private static final double GOLDEN_ANGLE = Math.PI * (3 - Math.sqrt(5));
+
+    private final double[] x;
+    private final double[] y;
+    private final boolean[] movable;
+    private final int[] edgeSources;
+    private final int[] edgeTargets;
+    private final double[] edgeStrengths;
+    private final double idealLength;
+
+    /**
+     * @param x             horizontal positions, updated in place
+     * @param y             vertical positions, updated in place
+     * @param movable       nodes the layout may move
+     * @param edgeStrengths attraction multiplier per edge, 1 for an average link
+     * @param idealLength   preferred distance between linked nodes
+     */
+    public ForceLayout(double[] x, double[] y, boolean[] movable,
+                       int[] edgeSources, int[] edgeTargets, double[] edgeStrengths, double idealLength) {
+        this.x = x;
+        this.y = y;
+        this.movable = movable;
+        this.edgeSources = edgeSources;
+        this.edgeTargets = edgeTargets;
+        this.edgeStrengths = edgeStrengths;
+        this.idealLength = idealLength;
+    }
+
+    /**
+     * Deterministic starting point for node {@code i} of a fresh layout: a sunflower spiral,
+     * which spreads nodes evenly without random numbers
+     */
+    public static double spiralX(int i, double centerX, double spacing) {
+        return centerX + spacing * Math.sqrt(i) * Math.cos(i * GOLDEN_ANGLE);
+    }
+
+    public static double spiralY(int i, double centerY, double spacing) {
+        return centerY + spacing * Math.sqrt(i) * Math.sin(i * GOLDEN_ANGLE);
+    }
+
+    /**
+     * Run the layout. The maximum step per iteration starts at {@code initialTemperature}
+     * and cools linearly to zero.
+     */
+    public void run(int iterations, double initialTemperature, ForkJoinPool pool) {
+        int n = x.length;
+        if (n < 2) {
+            return;
+        }
+        double k2 = idealLength * idealLength;
+        double[] dx = new double[n];
+        double[] dy = new double[n];
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            Quad tree = buildTree();
+            double centerX = tree.sumX / tree.mass;
+            double centerY = tree.sumY / tree.mass;
+
+            pool.submit(() -> IntStream.range(0, n).parallel().forEach(i -> {
+                if (!movable[i]) {
+                    return;
+                }
+                double[] force = new double[2];
+                tree.repel(i, x[i], y[i], k2, force);
+                dx[i] = force[0] - GRAVITY * (x[i] - centerX);
+                dy[i] = force[1] - GRAVITY * (y[i] - centerY);
+            })).join();
+
+            for (int e = 0; e < edgeSources.length; e++) {
+                int source = edgeSources[e];
+                int target = edgeTargets[e];
+                double ex = x[source] - x[target];
+                double ey = y[source] - y[target];
+                double distance = Math.max(MIN_DISTANCE, Math.sqrt(ex * ex + ey * ey));
+                // d^2 / k along the unit vector, i.e. d / k times the offset
+                double pull = distance / idealLength * edgeStrengths[e];
+                if (movable[source]) {
+                    dx[source] -= ex * pull;
+                    dy[source] -= ey * pull;
+                }
+                if (movable[target]) {
+                    dx[target] += ex * pull;
+                    dy[target] += ey * pull;
+                }
+            }
+
+            double temperature = initialTemperature * (1 - (double) iteration / iterations);
+            for (int i = 0; i < n; i++) {
+                if (!movable[i]) {
+                    continue;
+                }
+                double displacement = Math.sqrt(dx[i] * dx[i] + dy[i] * dy[i]);
+                if (displacement > 0) {
+                    double step = Math.min(displacement, temperature) / displacement;
+                    x[i] += dx[i] * step;
+                    y[i] += dy[i] * step;
+                }
+                dx[i] = 0;
+                dy[i] = 0;
+            }
+        }
+    }
+
+    private Quad buildTree() {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < x.length; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+
+        Quad root = new Quad(minX, minY, Math.max(maxX - minX, maxY - minY) + 1);
+        for (int i = 0; i < x.length; i++) {
+            root.insert(i, x[i], y[i], 0);
+        }
+        return root;
+    }
+
+    /**
+     * Square quadtree cell holding the total mass and position sum of the nodes below it
+     */
+    private final class Quad {
+        private final double minX;
+        private final double minY;
+        private final double size;
+        private double mass;
+        private double sumX;
+        private double sumY;
+        private int body = -1;
+        private Quad[] children;
+
+        private Quad(double minX, double minY, double size) {
+            this.minX = minX;
+            this.minY = minY;
+            this.size = size;
+        }
+
+        private void insert(int i, double px, double py, int depth) {
+            mass++;
+            sumX += px;
+            sumY += py;
+            if (children == null) {
+                if (mass == 1) {
+                    body = i;
+                    return;
+                }
+                if (depth >= MAX_TREE_DEPTH) {
+                    // (Nearly) coincident nodes share the leaf
+                    return;
+                }
+                children = new Quad[4];
+                int existing = body;
+                body = -1;
+                child(x[existing], y[existing]).insert(existing, x[existing], y[existing], depth + 1);
+            }
+            child(px, py).insert(i, px, py, depth + 1);
+        }
+
+        private Quad child(double px, double py) {
+            double half = size / 2;
+            int east = px >= minX + half ? 1 : 0;
+            int south = py >= minY + half ? 1 : 0;
+            int index = east + 2 * south;
+            if (children[index] == null) {
+                children[index] = new Quad(minX + east * half, minY + south * half, half);
+            }
+            return children[index];
+        }
+
+        private void repel(int i, double px, double py, double k2, double[] force) {
+            double ex = px - sumX / mass;
+            double ey = py - sumY / mass;
+            double distance2 = ex * ex + ey * ey;
+
+            if (children != null && size * size >= THETA * THETA * distance2) {
+                for (Quad child : children) {
+                    if (child != null) {
+                        child.repel(i, px, py, k2, force);
+                    }
+                }
+                return;
+            }
+
+            double others = children == null && body == i ? mass - 1 : mass;
+            if (others <= 0) {
+                return;
+            }
+            if (distance2 < MIN_DISTANCE * MIN_DISTANCE) {
+                // Coincident nodes: push apart in a direction that differs per node
+                ex = Math.cos(i * GOLDEN_ANGLE);
+                ey = Math.sin(i * GOLDEN_ANGLE);
+                distance2 = 1;
+            }
+            // k^2 / d along the unit vector, i.e. k^2 / d^2 times the offset
+            double push = k2 * others / distance2;
+            force[0] += ex * push;
+            force[1] += ey * push;
+        }
+    }
+}
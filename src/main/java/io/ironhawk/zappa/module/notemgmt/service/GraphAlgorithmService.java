@@ -0,0 +1,35 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import io.ironhawk.zappa.module.notemgmt.dto.NoteComponent;
+import io.ironhawk.zappa.module.notemgmt.dto.NoteNeighbour;
+import io.ironhawk.zappa.module.notemgmt.dto.NotePathResponse;
+import io.ironhawk.zappa.module.notemgmt.dto.NoteScore;
+import io.ironhawk.zappa.module.notemgmt.dto.NoteSubgraph;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Graph algorithms over the current user's note links, computed on a cached in-memory graph
+ */
+public interface GraphAlgorithmService {
+
+    // Cached graph of the current user's notes and links
+    NoteGraph getGraph();
+
+    // Traversal
+    Optional<NotePathResponse> findWeightedPath(UUID startNoteId, UUID targetNoteId);
+    List<NoteNeighbour> findNeighbourhood(UUID noteId, int hops, int limit, boolean undirected);
+    Optional<NoteSubgraph> findLocalGraph(UUID noteId, int hops, int limit);
+
+    // Analytics
+    List<NoteScore> rankNotes(int limit);
+    List<NoteComponent> findComponents(int minSize, int limit);
+
+    // Latest communities of the current user's graph; may lag behind recent link changes
+    NoteCommunities getCommunities();
+
+    // Drop a user's cached graph once the current transaction (if any) commits
+    void invalidate(UUID userId);
+}
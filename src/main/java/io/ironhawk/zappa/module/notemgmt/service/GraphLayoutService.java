@@ -0,0 +1,333 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import io.ironhawk.zappa.module.notemgmt.entity.Note;
+import io.ironhawk.zappa.security.service.CurrentUserService;
+import io.ironhawk.zappa.security.service.UserPreferencesService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Graph page layouts computed on the server, stored as the user's saved positions.
+ *
+ * A group key ("global" or a group id, as used by the graph page) with no saved positions gets
+ * a full {@link ForceLayout} run. Afterwards only what changed is relaxed: notes without a
+ * position are placed next to their linked neighbours, and together with the neighbourhoods
+ * of links added since the last run they are the only nodes allowed to move. Positions the
+ * user arranged by hand elsewhere in the graph stay put.
+ */
+@Slf4j
+@Service
+public class GraphLayoutService {
+
+    public static final String GLOBAL_GROUP_KEY = "global";
+
+    private static final double IDEAL_LINK_LENGTH = 100;
+    private static final int FULL_ITERATIONS = 300;
+    private static final int INCREMENTAL_ITERATIONS = 80;
+
+    private final GraphAlgorithmService graphAlgorithmService;
+    private final NoteService noteService;
+    private final UserPreferencesService userPreferencesService;
+    private final CurrentUserService currentUserService;
+    private final ForkJoinPool pool;
+
+    // Edge fingerprints of the last layout per user and group key, to find links added since
+    private final Map<String, long[]> lastEdgeKeys = new ConcurrentHashMap<>();
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    public GraphLayoutService(GraphAlgorithmService graphAlgorithmService,
+                              NoteService noteService,
+                              UserPreferencesService userPreferencesService,
+                              CurrentUserService currentUserService,
+                              @Value("${app.graph.layout.parallelism:0}") int parallelism) {
+        this.graphAlgorithmService = graphAlgorithmService;
+        this.noteService = noteService;
+        this.userPreferencesService = userPreferencesService;
+        this.currentUserService = currentUserService;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Positions for every linked note under a group key, updating the saved positions when
+     * anything had to be laid out
+     *
+     * @param recompute discard saved positions and lay the graph out from scratch
+     */
+    public Map<String, Object> getLayout(String groupKey, boolean recompute) {
+        UUID userId = currentUserService.getCurrentUserId();
+        String cacheKey = userId + ":" + groupKey;
+
+        synchronized (locks.computeIfAbsent(cacheKey, key -> new Object())) {
+            NoteGraph graph = graphAlgorithmService.getGraph();
+            Subgraph subgraph = extractSubgraph(graph, groupKey);
+            int n = subgraph.nodes.length;
+
+            Map<String, Object> saved = recompute ? new HashMap<>()
+                : userPreferencesService.getGraphPositionsForGroup(userId, groupKey);
+
+            double[] x = new double[n];
+            double[] y = new double[n];
+            boolean[] placed = new boolean[n];
+            int placedCount = 0;
+            for (int i = 0; i < n; i++) {
+                if (saved.get(graph.noteIdAt(subgraph.nodes[i]).toString()) instanceof Map<?, ?> position
+                    && position.get("x") instanceof Number px && position.get("y") instanceof Number py) {
+                    x[i] = px.doubleValue();
+                    y[i] = py.doubleValue();
+                    placed[i] = true;
+                    placedCount++;
+                }
+            }
+
+            long[] edgeKeys = subgraph.edgeKeys(graph);
+            long[] previousKeys = recompute ? null : lastEdgeKeys.get(cacheKey);
+            boolean[] movable = new boolean[n];
+            int movableCount = 0;
+
+            long start = System.nanoTime();
+            if (placedCount == 0) {
+                for (int i = 0; i < n; i++) {
+                    x[i] = ForceLayout.spiralX(i, 0, IDEAL_LINK_LENGTH / 2);
+                    y[i] = ForceLayout.spiralY(i, 0, IDEAL_LINK_LENGTH / 2);
+                }
+                Arrays.fill(movable, true);
+                movableCount = n;
+                new ForceLayout(x, y, movable, subgraph.sources, subgraph.targets, subgraph.strengths, IDEAL_LINK_LENGTH)
+                    .run(FULL_ITERATIONS, IDEAL_LINK_LENGTH * 5, pool);
+            } else {
+                movableCount = markChanged(subgraph, placed, edgeKeys, previousKeys, movable);
+                if (movableCount > 0) {
+                    placeNewNodes(subgraph, x, y, placed);
+                    new ForceLayout(x, y, movable, subgraph.sources, subgraph.targets, subgraph.strengths, IDEAL_LINK_LENGTH)
+                        .run(INCREMENTAL_ITERATIONS, IDEAL_LINK_LENGTH, pool);
+                }
+            }
+            long[] sortedKeys = edgeKeys.clone();
+            Arrays.sort(sortedKeys);
+            lastEdgeKeys.put(cacheKey, sortedKeys);
+
+            Map<String, Object> layout = new LinkedHashMap<>();
+            Map<String, Object> moved = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                Map<String, Object> position = new HashMap<>();
+                position.put("x", Math.round(x[i] * 10) / 10.0);
+                position.put("y", Math.round(y[i] * 10) / 10.0);
+                String noteId = graph.noteIdAt(subgraph.nodes[i]).toString();
+                layout.put(noteId, position);
+                if (movable[i]) {
+                    moved.put(noteId, position);
+                }
+            }
+
+            // Saved positions of notes no longer in the layout, by deletion, unlinking or leaving
+            // the group, are deleted; a recompute did not read the saved ones, so always clean up
+            boolean stale = recompute || !layout.keySet().containsAll(saved.keySet());
+            if (movableCount > 0 || stale) {
+                // Only the moved notes are written; the rest keep their saved position
+                userPreferencesService.saveGraphLayoutForGroup(userId, groupKey, layout, moved);
+            }
+            if (movableCount > 0) {
+                log.info("Laid out {} of {} notes for group {} ({} edges) in {} ms", movableCount, n, groupKey,
+                    subgraph.sources.length, (System.nanoTime() - start) / 1_000_000);
+            }
+            return layout;
+        }
+    }
+
+    /**
+     * Linked notes under the group key, with the links between them
+     */
+    private Subgraph extractSubgraph(NoteGraph graph, String groupKey) {
+        boolean[] included = new boolean[graph.size()];
+        if (GLOBAL_GROUP_KEY.equals(groupKey)) {
+            Arrays.fill(included, true);
+        } else {
+            UUID groupId;
+            try {
+                groupId = UUID.fromString(groupKey);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid group key: " + groupKey);
+            }
+            for (Note note : noteService.findNotesByGroupIncludingSubGroups(groupId)) {
+                int node = graph.indexOf(note.getId());
+                if (node >= 0) {
+                    included[node] = true;
+                }
+            }
+        }
+
+        int[] localIndex = new int[graph.size()];
+        Arrays.fill(localIndex, -1);
+        List<Integer> nodes = new ArrayList<>();
+        for (int node = 0; node < graph.size(); node++) {
+            if (!included[node]) {
+                continue;
+            }
+            boolean[] linked = new boolean[1];
+            graph.forEachNeighbour(node, true, (neighbour, weight, type) -> linked[0] |= included[neighbour]);
+            if (linked[0]) {
+                localIndex[node] = nodes.size();
+                nodes.add(node);
+            }
+        }
+
+        List<int[]> edges = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        for (int node : nodes) {
+            graph.forEachNeighbour(node, false, (neighbour, weight, type) -> {
+                if (localIndex[neighbour] >= 0) {
+                    edges.add(new int[]{localIndex[node], localIndex[neighbour]});
+                    weights.add(weight);
+                }
+            });
+        }
+
+        Subgraph subgraph = new Subgraph(nodes.stream().mapToInt(Integer::intValue).toArray(), edges.size());
+        for (int e = 0; e < edges.size(); e++) {
+            subgraph.sources[e] = edges.get(e)[0];
+            subgraph.targets[e] = edges.get(e)[1];
+            // Link weight is 1-10; an average link pulls with strength 1
+            subgraph.strengths[e] = weights.get(e) / 5.0;
+        }
+        return subgraph;
+    }
+
+    /**
+     * Mark notes without a position, the ends of links added since the previous layout, and
+     * the direct neighbours of both as movable
+     */
+    private int markChanged(Subgraph subgraph, boolean[] placed, long[] edgeKeys, long[] previousKeys, boolean[] movable) {
+        int n = placed.length;
+        boolean[] changed = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            changed[i] = !placed[i];
+        }
+        if (previousKeys != null) {
+            for (int e = 0; e < edgeKeys.length; e++) {
+                if (Arrays.binarySearch(previousKeys, edgeKeys[e]) < 0) {
+                    changed[subgraph.sources[e]] = true;
+                    changed[subgraph.targets[e]] = true;
+                }
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            movable[i] = changed[i];
+        }
+        for (int e = 0; e < subgraph.sources.length; e++) {
+            if (changed[subgraph.sources[e]]) {
+                movable[subgraph.targets[e]] = true;
+            }
+            if (changed[subgraph.targets[e]]) {
+                movable[subgraph.sources[e]] = true;
+            }
+        }
+
+        int count = 0;
+        for (boolean m : movable) {
+            if (m) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Start each note without a position at the centroid of its placed neighbours, or on a
+     * spiral around the whole layout when it has none
+     */
+    private void placeNewNodes(Subgraph subgraph, double[] x, double[] y, boolean[] placed) {
+        int n = placed.length;
+        double[] sumX = new double[n];
+        double[] sumY = new double[n];
+        int[] count = new int[n];
+        double centerX = 0;
+        double centerY = 0;
+        int placedCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (placed[i]) {
+                centerX += x[i];
+                centerY += y[i];
+                placedCount++;
+            }
+        }
+        centerX /= placedCount;
+        centerY /= placedCount;
+
+        for (int e = 0; e < subgraph.sources.length; e++) {
+            int source = subgraph.sources[e];
+            int target = subgraph.targets[e];
+            if (placed[target]) {
+                sumX[source] += x[target];
+                sumY[source] += y[target];
+                count[source]++;
+            }
+            if (placed[source]) {
+                sumX[target] += x[source];
+                sumY[target] += y[source];
+                count[target]++;
+            }
+        }
+
+        int spiral = placedCount;
+        for (int i = 0; i < n; i++) {
+            if (placed[i]) {
+                continue;
+            }
+            if (count[i] > 0) {
+                // Small offset so several new notes on the same neighbours do not coincide
+                x[i] = ForceLayout.spiralX(i % 16 + 1, sumX[i] / count[i], IDEAL_LINK_LENGTH / 4);
+                y[i] = ForceLayout.spiralY(i % 16 + 1, sumY[i] / count[i], IDEAL_LINK_LENGTH / 4);
+            } else {
+                x[i] = ForceLayout.spiralX(spiral, centerX, IDEAL_LINK_LENGTH / 2);
+                y[i] = ForceLayout.spiralY(spiral++, centerY, IDEAL_LINK_LENGTH / 2);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private static final class Subgraph {
+        // Graph node index per local node
+        private final int[] nodes;
+        private final int[] sources;
+        private final int[] targets;
+        private final double[] strengths;
+
+        private Subgraph(int[] nodes, int edges) {
+            this.nodes = nodes;
+            this.sources = new int[edges];
+            this.targets = new int[edges];
+            this.strengths = new double[edges];
+        }
+
+        /**
+         * Fingerprint per edge from its note ids, comparable across graph rebuilds
+         */
+        private long[] edgeKeys(NoteGraph graph) {
+            long[] keys = new long[sources.length];
+            for (int e = 0; e < sources.length; e++) {
+                UUID source = graph.noteIdAt(nodes[sources[e]]);
+                UUID target = graph.noteIdAt(nodes[targets[e]]);
+                keys[e] = (source.getMostSignificantBits() ^ source.getLeastSignificantBits()) * 0x9E3779B97F4A7C15L
+                    + (target.getMostSignificantBits() ^ target.getLeastSignificantBits());
+            }
+            return keys;
+        }
+    }
+}
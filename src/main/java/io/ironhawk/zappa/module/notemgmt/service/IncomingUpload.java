@@ -0,0 +1,89 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * A file being written into the incoming area of the attachment store.
+ * Bytes are hashed and their head captured for type sniffing as they are written,
+ * so the upload is read exactly once. Appends may arrive over several requests.
+ */
+final class IncomingUpload {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final long maxSize;
+    private final MessageDigest digest;
+    private final byte[] head = new byte[AttachmentContentSniffer.HEAD_SIZE];
+    private int headLength;
+    private long size;
+
+    IncomingUpload(Path file, long maxSize) {
+        this.file = file;
+        this.maxSize = maxSize;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    /**
+     * Append the whole stream to the file.
+     *
+     * @return number of bytes appended
+     * @throws RuntimeException when the upload would exceed the maximum size
+     */
+    long append(InputStream in) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long appended = 0;
+
+        try (OutputStream out = Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (size + read > maxSize) {
+                    throw new RuntimeException("File size exceeds maximum allowed size of " +
+                        (maxSize / 1024 / 1024) + "MB");
+                }
+                if (headLength < head.length) {
+                    int n = Math.min(read, head.length - headLength);
+                    System.arraycopy(buffer, 0, head, headLength, n);
+                    headLength += n;
+                }
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+                size += read;
+                appended += read;
+            }
+        }
+        return appended;
+    }
+
+    /**
+     * Hex SHA-256 of everything appended. Completes the digest, so call once, after the last append.
+     */
+    String contentHash() {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    String resolveMimeType(String declaredType) {
+        return AttachmentContentSniffer.resolveMimeType(declaredType, head, headLength);
+    }
+
+    Path file() {
+        return file;
+    }
+
+    long size() {
+        return size;
+    }
+}
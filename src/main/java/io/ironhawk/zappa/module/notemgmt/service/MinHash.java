@@ -0,0 +1,155 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * MinHash signatures of note text and their locality-sensitive hashing buckets.
+ *
+ * A note's text is reduced to overlapping word shingles; the signature holds, for each of
+ * SIGNATURE_SIZE hash functions, the minimum hash over the shingles. The share of equal
+ * positions in two signatures estimates the Jaccard similarity of the shingle sets.
+ *
+ * The signature is cut into BANDS bands of ROWS_PER_BAND rows and each band hashed to a
+ * bucket. Two notes share at least one bucket with probability 1 - (1 - s^ROWS)^BANDS for
+ * similarity s: about 0.95 at s = 0.8 and 0.06 at s = 0.5, so looking up a note's buckets
+ * finds its near-duplicates without comparing it to every other note.
+ */
+public final class MinHash {
+
+    public static final int SIGNATURE_SIZE = 128;
+    public static final int BANDS = 16;
+    public static final int ROWS_PER_BAND = SIGNATURE_SIZE / BANDS;
+
+    private static final int SHINGLE_WORDS = 3;
+    // Beyond this, text adds little to the signature but time to computing it
+    private static final int MAX_TEXT_LENGTH = 200_000;
+
+    private static final long[] SEEDS = new long[SIGNATURE_SIZE];
+
+    static {
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            seed = mix(seed + 0x9E3779B97F4A7C15L);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private MinHash() {
+    }
+
+    /**
+     * Signature of a note's title and content, or an empty array when it has no words
+     */
+    public static int[] signature(String title, String content) {
+        long[] shingles = shingles(words((title != null ? title : "") + "\n" + (content != null ? content : "")));
+        if (shingles.length == 0) {
+            return new int[0];
+        }
+
+        int[] signature = new int[SIGNATURE_SIZE];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (long shingle : shingles) {
+            for (int i = 0; i < SIGNATURE_SIZE; i++) {
+                // Compare as unsigned by flipping the sign bit, so MAX_VALUE is the largest
+                int hash = (int) (mix(shingle ^ SEEDS[i]) >>> 32) ^ Integer.MIN_VALUE;
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Estimated Jaccard similarity of the texts behind two signatures
+     */
+    public static double similarity(int[] a, int[] b) {
+        if (a.length != SIGNATURE_SIZE || b.length != SIGNATURE_SIZE) {
+            return 0;
+        }
+        int equal = 0;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / SIGNATURE_SIZE;
+    }
+
+    /**
+     * One bucket per band; the band index is part of the hash so buckets of different bands
+     * never collide by construction
+     */
+    public static long[] buckets(int[] signature) {
+        if (signature.length != SIGNATURE_SIZE) {
+            return new long[0];
+        }
+        long[] buckets = new long[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long hash = mix(band + 1);
+            for (int row = band * ROWS_PER_BAND; row < (band + 1) * ROWS_PER_BAND; row++) {
+                hash = mix(hash ^ (signature[row] & 0xFFFFFFFFL));
+            }
+            buckets[band] = hash;
+        }
+        return buckets;
+    }
+
+    public static byte[] toBytes(int[] signature) {
+        ByteBuffer buffer = ByteBuffer.allocate(signature.length * Integer.BYTES);
+        buffer.asIntBuffer().put(signature);
+        return buffer.array();
+    }
+
+    public static int[] fromBytes(byte[] bytes) {
+        int[] signature = new int[bytes.length / Integer.BYTES];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(signature);
+        return signature;
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        int length = Math.min(text.length(), MAX_TEXT_LENGTH);
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean wordChar = i < length && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * 64-bit hashes of the overlapping SHINGLE_WORDS-word runs; short texts are one shingle
+     */
+    private static long[] shingles(List<String> words) {
+        if (words.isEmpty()) {
+            return new long[0];
+        }
+        int count = Math.max(1, words.size() - SHINGLE_WORDS + 1);
+        long[] shingles = new long[count];
+        for (int i = 0; i < count; i++) {
+            long hash = 0;
+            for (int w = i; w < Math.min(i + SHINGLE_WORDS, words.size()); w++) {
+                hash = mix(hash * 31 + words.get(w).hashCode());
+            }
+            shingles[i] = hash;
+        }
+        return shingles;
+    }
+
+    // SplitMix64 finaliser
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,147 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Partition of a {@link NoteGraph} into communities of densely linked notes.
+ *
+ * Communities are numbered 0..count-1 from largest to smallest. Each one has a representative,
+ * its most connected note, whose id names the community to clients: unlike the numbering it
+ * stays the same when the partition is recomputed after small changes to the graph.
+ */
+public final class NoteCommunities {
+
+    private final NoteGraph graph;
+    private final int[] communityOf;
+    private final int[] offsets;
+    private final int[] members;
+
+    private NoteCommunities(NoteGraph graph, int[] communityOf, int[] offsets, int[] members) {
+        this.graph = graph;
+        this.communityOf = communityOf;
+        this.offsets = offsets;
+        this.members = members;
+    }
+
+    /**
+     * Number communities from raw per-node labels, as returned by {@link NoteGraph#labelPropagation}
+     */
+    public static NoteCommunities fromLabels(NoteGraph graph, int[] labels) {
+        int n = graph.size();
+        int[] labelSize = new int[n];
+        for (int label : labels) {
+            labelSize[label]++;
+        }
+
+        Integer[] distinct = IntStream.range(0, n).filter(label -> labelSize[label] > 0).boxed().toArray(Integer[]::new);
+        Arrays.sort(distinct, Comparator.comparingInt((Integer label) -> labelSize[label]).reversed()
+            .thenComparingInt(label -> label));
+
+        int[] idOfLabel = new int[n];
+        int[] offsets = new int[distinct.length + 1];
+        for (int id = 0; id < distinct.length; id++) {
+            idOfLabel[distinct[id]] = id;
+            offsets[id + 1] = offsets[id] + labelSize[distinct[id]];
+        }
+
+        int[] communityOf = new int[n];
+        int[] cursor = Arrays.copyOf(offsets, distinct.length);
+        int[] members = new int[n];
+        for (int node = 0; node < n; node++) {
+            int id = idOfLabel[labels[node]];
+            communityOf[node] = id;
+            members[cursor[id]++] = node;
+        }
+
+        // Most connected member first, so it serves as the representative
+        for (int id = 0; id < distinct.length; id++) {
+            sortByDegree(graph, members, offsets[id], offsets[id + 1]);
+        }
+        return new NoteCommunities(graph, communityOf, offsets, members);
+    }
+
+    private static void sortByDegree(NoteGraph graph, int[] members, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        Integer[] slice = new Integer[to - from];
+        for (int i = from; i < to; i++) {
+            slice[i - from] = members[i];
+        }
+        Arrays.sort(slice, Comparator.comparingInt((Integer node) -> graph.inDegree(node) + graph.outDegree(node)).reversed()
+            .thenComparingInt(node -> node));
+        for (int i = from; i < to; i++) {
+            members[i] = slice[i - from];
+        }
+    }
+
+    /**
+     * The graph these communities were computed for
+     */
+    public NoteGraph graph() {
+        return graph;
+    }
+
+    public int count() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Community of a note, or -1 if the note was not part of the graph
+     */
+    public int communityOf(UUID noteId) {
+        int node = graph.indexOf(noteId);
+        return node >= 0 ? communityOf[node] : -1;
+    }
+
+    public int size(int community) {
+        return offsets[community + 1] - offsets[community];
+    }
+
+    public UUID representative(int community) {
+        return graph.noteIdAt(members[offsets[community]]);
+    }
+
+    /**
+     * Community named by a representative note id, or -1 if that note does not represent one
+     */
+    public int communityOfRepresentative(UUID noteId) {
+        int community = communityOf(noteId);
+        return community >= 0 && representative(community).equals(noteId) ? community : -1;
+    }
+
+    /**
+     * Member note ids, most connected first
+     */
+    public List<UUID> members(int community) {
+        List<UUID> noteIds = new ArrayList<>(size(community));
+        for (int i = offsets[community]; i < offsets[community + 1]; i++) {
+            noteIds.add(graph.noteIdAt(members[i]));
+        }
+        return noteIds;
+    }
+
+    /**
+     * Starting labels for label propagation over a newer graph: notes keep the community they
+     * had here, notes that are new start on their own.
+     */
+    public int[] warmStartLabels(NoteGraph newGraph) {
+        int n = newGraph.size();
+        int[] labels = new int[n];
+        // A label must be a node index of the new graph: use the first node seen from each community
+        Map<Integer, Integer> labelOfCommunity = new HashMap<>();
+        for (int node = 0; node < n; node++) {
+            int index = node;
+            int community = communityOf(newGraph.noteIdAt(node));
+            labels[node] = community >= 0 ? labelOfCommunity.computeIfAbsent(community, c -> index) : node;
+        }
+        return labels;
+    }
+}
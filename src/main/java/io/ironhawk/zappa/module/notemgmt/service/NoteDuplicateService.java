@@ -0,0 +1,26 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import io.ironhawk.zappa.module.notemgmt.dto.DuplicateCluster;
+import io.ironhawk.zappa.module.notemgmt.dto.NoteDuplicate;
+import io.ironhawk.zappa.module.notemgmt.entity.Note;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Near-duplicate notes by MinHash similarity of their text
+ */
+public interface NoteDuplicateService {
+
+    double DEFAULT_MIN_SIMILARITY = 0.7;
+
+    // (Re)compute a note's signature once the current transaction (if any) commits
+    void indexNote(Note note);
+
+    // Most similar first; empty if the note is not one of the current user's
+    Optional<List<NoteDuplicate>> findDuplicates(UUID noteId, double minSimilarity);
+
+    // All groups of near-duplicate notes of the current user, largest first
+    List<DuplicateCluster> findDuplicateClusters(double minSimilarity);
+}
@@ -0,0 +1,588 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Immutable in-memory link graph of one user's notes, in compressed sparse row form.
+ *
+ * Notes are numbered 0..n-1 and edges are stored as flat int/byte arrays indexed by offset,
+ * so traversals touch a few contiguous arrays instead of entity graphs. Edges follow the
+ * traversal rules used elsewhere for links: every link can be followed from source to target,
+ * and bidirectional links also from target to source. The incoming view holds the same edges
+ * reversed. Each outgoing edge records whether it is a one-way link, a bidirectional link as
+ * stored, or the reverse edge added for one, so links can be reported as they were made.
+ * Weights are the link weight (1-10); a heavier link is a shorter hop for {@link #shortestPath}.
+ */
+public final class NoteGraph {
+
+    private static final byte ONE_WAY = 0;
+    private static final byte BIDIRECTIONAL = 1;
+    private static final byte REVERSE = 2;
+
+    private final UUID[] noteIds;
+    private final Map<UUID, Integer> indexById;
+
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final byte[] outWeights;
+    private final byte[] outTypes;
+    private final byte[] outKinds;
+
+    private final int[] inOffsets;
+    private final int[] inSources;
+    private final byte[] inWeights;
+    private final byte[] inTypes;
+
+    private NoteGraph(UUID[] noteIds, Map<UUID, Integer> indexById,
+                      int[] outOffsets, int[] outTargets, byte[] outWeights, byte[] outTypes, byte[] outKinds,
+                      int[] inOffsets, int[] inSources, byte[] inWeights, byte[] inTypes) {
+        this.noteIds = noteIds;
+        this.indexById = indexById;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.outWeights = outWeights;
+        this.outTypes = outTypes;
+        this.outKinds = outKinds;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+        this.inWeights = inWeights;
+        this.inTypes = inTypes;
+    }
+
+    public int size() {
+        return noteIds.length;
+    }
+
+    public int edgeCount() {
+        return outTargets.length;
+    }
+
+    /**
+     * Index of a note, or -1 if it is not part of this graph
+     */
+    public int indexOf(UUID noteId) {
+        Integer index = indexById.get(noteId);
+        return index != null ? index : -1;
+    }
+
+    public UUID noteIdAt(int index) {
+        return noteIds[index];
+    }
+
+    public int outDegree(int node) {
+        return outOffsets[node + 1] - outOffsets[node];
+    }
+
+    public int inDegree(int node) {
+        return inOffsets[node + 1] - inOffsets[node];
+    }
+
+    /**
+     * Call {@code visitor} for every node reachable in one step from {@code node};
+     * with {@code undirected} also for every node that can reach it in one step.
+     */
+    public void forEachNeighbour(int node, boolean undirected, NeighbourVisitor visitor) {
+        for (int e = outOffsets[node]; e < outOffsets[node + 1]; e++) {
+            visitor.visit(outTargets[e], outWeights[e], outTypes[e]);
+        }
+        if (undirected) {
+            for (int e = inOffsets[node]; e < inOffsets[node + 1]; e++) {
+                visitor.visit(inSources[e], inWeights[e], inTypes[e]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface NeighbourVisitor {
+        void visit(int neighbour, int weight, byte linkTypeOrdinal);
+    }
+
+    /**
+     * Call {@code visitor} for every link stored with {@code node} as its source, once per
+     * link: the reverse edges added for bidirectional links are skipped.
+     */
+    public void forEachLink(int node, LinkVisitor visitor) {
+        for (int e = outOffsets[node]; e < outOffsets[node + 1]; e++) {
+            if (outKinds[e] != REVERSE) {
+                visitor.visit(outTargets[e], outWeights[e], outTypes[e], outKinds[e] == BIDIRECTIONAL);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface LinkVisitor {
+        void visit(int target, int weight, byte linkTypeOrdinal, boolean bidirectional);
+    }
+
+    /**
+     * Breadth-first traversal from {@code source} up to {@code maxDepth} hops, stopping after
+     * {@code limit} nodes (the source excluded). Nodes come out nearest first.
+     */
+    public Reach breadthFirst(int source, int maxDepth, int limit, boolean undirected) {
+        int[] depth = new int[size()];
+        Arrays.fill(depth, -1);
+        int[] queue = new int[size()];
+        int head = 0;
+        int tail = 0;
+
+        depth[source] = 0;
+        queue[tail++] = source;
+        int found = 0;
+
+        while (head < tail && found < limit) {
+            int node = queue[head++];
+            int nextDepth = depth[node] + 1;
+            if (nextDepth > maxDepth) {
+                break;
+            }
+            for (int e = outOffsets[node]; e < outOffsets[node + 1] && found < limit; e++) {
+                int next = outTargets[e];
+                if (depth[next] < 0) {
+                    depth[next] = nextDepth;
+                    queue[tail++] = next;
+                    found++;
+                }
+            }
+            if (undirected) {
+                for (int e = inOffsets[node]; e < inOffsets[node + 1] && found < limit; e++) {
+                    int next = inSources[e];
+                    if (depth[next] < 0) {
+                        depth[next] = nextDepth;
+                        queue[tail++] = next;
+                        found++;
+                    }
+                }
+            }
+        }
+
+        int[] nodes = Arrays.copyOfRange(queue, 1, tail);
+        int[] depths = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            depths[i] = depth[nodes[i]];
+        }
+        return new Reach(nodes, depths);
+    }
+
+    /**
+     * Nodes reached by a traversal with their hop distance, nearest first
+     */
+    public static final class Reach {
+        public final int[] nodes;
+        public final int[] depths;
+
+        private Reach(int[] nodes, int[] depths) {
+            this.nodes = nodes;
+            this.depths = depths;
+        }
+    }
+
+    /**
+     * Weighted shortest path (Dijkstra) where following a link costs 1 / weight, so a chain of
+     * strong links beats a single weak one.
+     *
+     * @return node indexes from source to target, or null if the target is unreachable
+     */
+    public WeightedPath shortestPath(int source, int target) {
+        int n = size();
+        double[] dist = new double[n];
+        int[] previous = new int[n];
+        boolean[] settled = new boolean[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(previous, -1);
+
+        MinHeap heap = new MinHeap(Math.max(16, Math.min(n, 1024)));
+        dist[source] = 0;
+        heap.push(source, 0);
+
+        while (!heap.isEmpty()) {
+            double d = heap.peekKey();
+            int node = heap.pop();
+            if (settled[node]) {
+                continue;
+            }
+            settled[node] = true;
+            if (node == target) {
+                break;
+            }
+            for (int e = outOffsets[node]; e < outOffsets[node + 1]; e++) {
+                int next = outTargets[e];
+                if (settled[next]) {
+                    continue;
+                }
+                double candidate = d + 1.0 / outWeights[e];
+                if (candidate < dist[next]) {
+                    dist[next] = candidate;
+                    previous[next] = node;
+                    heap.push(next, candidate);
+                }
+            }
+        }
+
+        if (!settled[target]) {
+            return null;
+        }
+        int hops = 0;
+        for (int node = target; node != source; node = previous[node]) {
+            hops++;
+        }
+        int[] nodes = new int[hops + 1];
+        for (int node = target, i = hops; i >= 0; node = previous[node], i--) {
+            nodes[i] = node;
+        }
+        return new WeightedPath(nodes, dist[target]);
+    }
+
+    public static final class WeightedPath {
+        public final int[] nodes;
+        public final double cost;
+
+        private WeightedPath(int[] nodes, double cost) {
+            this.nodes = nodes;
+            this.cost = cost;
+        }
+    }
+
+    /**
+     * Weighted PageRank over traversable edges. A node spreads its rank over its outgoing
+     * edges in proportion to their weight; rank of nodes without outgoing edges is spread
+     * evenly over the whole graph.
+     */
+    public double[] pageRank(double damping, int maxIterations, double tolerance) {
+        int n = size();
+        double[] rank = new double[n];
+        double[] next = new double[n];
+        if (n == 0) {
+            return rank;
+        }
+
+        double[] outWeightSum = new double[n];
+        for (int node = 0; node < n; node++) {
+            for (int e = outOffsets[node]; e < outOffsets[node + 1]; e++) {
+                outWeightSum[node] += outWeights[e];
+            }
+        }
+
+        Arrays.fill(rank, 1.0 / n);
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            double dangling = 0;
+            Arrays.fill(next, 0);
+            for (int node = 0; node < n; node++) {
+                if (outWeightSum[node] == 0) {
+                    dangling += rank[node];
+                    continue;
+                }
+                double share = damping * rank[node] / outWeightSum[node];
+                for (int e = outOffsets[node]; e < outOffsets[node + 1]; e++) {
+                    next[outTargets[e]] += share * outWeights[e];
+                }
+            }
+
+            double base = (1 - damping) / n + damping * dangling / n;
+            double delta = 0;
+            for (int node = 0; node < n; node++) {
+                next[node] += base;
+                delta += Math.abs(next[node] - rank[node]);
+            }
+
+            double[] swap = rank;
+            rank = next;
+            next = swap;
+            if (delta < tolerance) {
+                break;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Weakly connected components: component id per node, ids numbered from 0 by first member
+     */
+    public int[] connectedComponents() {
+        int n = size();
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+        }
+        for (int node = 0; node < n; node++) {
+            for (int e = outOffsets[node]; e < outOffsets[node + 1]; e++) {
+                int a = find(parent, node);
+                int b = find(parent, outTargets[e]);
+                if (a != b) {
+                    parent[Math.max(a, b)] = Math.min(a, b);
+                }
+            }
+        }
+
+        int[] component = new int[n];
+        int[] idOfRoot = new int[n];
+        Arrays.fill(idOfRoot, -1);
+        int components = 0;
+        for (int node = 0; node < n; node++) {
+            int root = find(parent, node);
+            if (idOfRoot[root] < 0) {
+                idOfRoot[root] = components++;
+            }
+            component[node] = idOfRoot[root];
+        }
+        return component;
+    }
+
+    private static int find(int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    /**
+     * Weighted label propagation over the undirected view: every node repeatedly adopts the
+     * label carrying the most link weight among its neighbours, until no label changes or
+     * {@code maxIterations} is reached. Nodes are visited in a fixed pseudo-random order so
+     * the same input gives the same communities.
+     *
+     * @param initialLabels starting label per node, each in 0..n-1; null starts every node in
+     *                      its own community. Passing the result of an earlier run over a
+     *                      slightly different graph converges in a pass or two.
+     * @return community label per node; labels are node indexes, not numbered consecutively
+     */
+    public int[] labelPropagation(int[] initialLabels, int maxIterations, long seed) {
+        int n = size();
+        int[] labels = new int[n];
+        for (int node = 0; node < n; node++) {
+            labels[node] = initialLabels != null ? initialLabels[node] : node;
+        }
+
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Random random = new Random(seed);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+
+        // Weight per candidate label, reset after each node through the touched list
+        double[] labelWeight = new double[n];
+        int[] touched = new int[n];
+
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            int changed = 0;
+            for (int node : order) {
+                int count = 0;
+                for (int e = outOffsets[node]; e < outOffsets[node + 1]; e++) {
+                    int label = labels[outTargets[e]];
+                    if (labelWeight[label] == 0) {
+                        touched[count++] = label;
+                    }
+                    labelWeight[label] += outWeights[e];
+                }
+                for (int e = inOffsets[node]; e < inOffsets[node + 1]; e++) {
+                    int label = labels[inSources[e]];
+                    if (labelWeight[label] == 0) {
+                        touched[count++] = label;
+                    }
+                    labelWeight[label] += inWeights[e];
+                }
+                if (count == 0) {
+                    continue;
+                }
+
+                // Keep the current label on ties so labels settle instead of oscillating
+                int current = labels[node];
+                int best = current;
+                double bestWeight = labelWeight[current];
+                for (int i = 0; i < count; i++) {
+                    int label = touched[i];
+                    double weight = labelWeight[label];
+                    if (weight > bestWeight || (weight == bestWeight && best != current && label < best)) {
+                        best = label;
+                        bestWeight = weight;
+                    }
+                    labelWeight[label] = 0;
+                }
+                if (best != current) {
+                    labels[node] = best;
+                    changed++;
+                }
+            }
+            if (changed == 0) {
+                break;
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Assembles a graph from notes and links in any order
+     */
+    public static final class Builder {
+        private final UUID[] noteIds;
+        private final Map<UUID, Integer> indexById;
+        private int[] sources = new int[64];
+        private int[] targets = new int[64];
+        private byte[] weights = new byte[64];
+        private byte[] types = new byte[64];
+        private byte[] kinds = new byte[64];
+        private int edges;
+
+        public Builder(List<UUID> noteIds) {
+            this.noteIds = noteIds.toArray(new UUID[0]);
+            this.indexById = new HashMap<>(noteIds.size() * 2);
+            for (int i = 0; i < this.noteIds.length; i++) {
+                indexById.put(this.noteIds[i], i);
+            }
+        }
+
+        /**
+         * Add a link; links touching notes outside the graph are ignored
+         */
+        public Builder addLink(UUID sourceId, UUID targetId, Integer weight, boolean bidirectional, int linkTypeOrdinal) {
+            Integer source = indexById.get(sourceId);
+            Integer target = indexById.get(targetId);
+            if (source == null || target == null || source.equals(target)) {
+                return this;
+            }
+            byte w = (byte) Math.max(1, Math.min(10, weight != null ? weight : 1));
+            addEdge(source, target, w, (byte) linkTypeOrdinal, bidirectional ? BIDIRECTIONAL : ONE_WAY);
+            if (bidirectional) {
+                addEdge(target, source, w, (byte) linkTypeOrdinal, REVERSE);
+            }
+            return this;
+        }
+
+        private void addEdge(int source, int target, byte weight, byte type, byte kind) {
+            if (edges == sources.length) {
+                int capacity = edges * 2;
+                sources = Arrays.copyOf(sources, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+                types = Arrays.copyOf(types, capacity);
+                kinds = Arrays.copyOf(kinds, capacity);
+            }
+            sources[edges] = source;
+            targets[edges] = target;
+            weights[edges] = weight;
+            types[edges] = type;
+            kinds[edges] = kind;
+            edges++;
+        }
+
+        public NoteGraph build() {
+            int n = noteIds.length;
+
+            // Counting sort of edges by source (outgoing) and by target (incoming)
+            int[] outOffsets = new int[n + 1];
+            int[] inOffsets = new int[n + 1];
+            for (int e = 0; e < edges; e++) {
+                outOffsets[sources[e] + 1]++;
+                inOffsets[targets[e] + 1]++;
+            }
+            for (int i = 0; i < n; i++) {
+                outOffsets[i + 1] += outOffsets[i];
+                inOffsets[i + 1] += inOffsets[i];
+            }
+
+            int[] outTargets = new int[edges];
+            byte[] outWeights = new byte[edges];
+            byte[] outTypes = new byte[edges];
+            byte[] outKinds = new byte[edges];
+            int[] inSources = new int[edges];
+            byte[] inWeights = new byte[edges];
+            byte[] inTypes = new byte[edges];
+            int[] outCursor = Arrays.copyOf(outOffsets, n);
+            int[] inCursor = Arrays.copyOf(inOffsets, n);
+            for (int e = 0; e < edges; e++) {
+                int o = outCursor[sources[e]]++;
+                outTargets[o] = targets[e];
+                outWeights[o] = weights[e];
+                outTypes[o] = types[e];
+                outKinds[o] = kinds[e];
+                int i = inCursor[targets[e]]++;
+                inSources[i] = sources[e];
+                inWeights[i] = weights[e];
+                inTypes[i] = types[e];
+            }
+
+            return new NoteGraph(noteIds, indexById, outOffsets, outTargets, outWeights, outTypes, outKinds,
+                inOffsets, inSources, inWeights, inTypes);
+        }
+    }
+
+    /**
+     * Binary min-heap of (node, key) pairs with lazy deletion: a node may be pushed several
+     * times and stale entries are skipped by the caller.
+     */
+    private static final class MinHeap {
+        private int[] nodes;
+        private double[] keys;
+        private int size;
+
+        private MinHeap(int capacity) {
+            nodes = new int[capacity];
+            keys = new double[capacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        double peekKey() {
+            return keys[0];
+        }
+
+        void push(int node, double key) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                keys[i] = keys[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            keys[i] = key;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            double lastKey = keys[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= lastKey) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                keys[i] = keys[child];
+                i = child;
+            }
+            if (size > 0) {
+                nodes[i] = lastNode;
+                keys[i] = lastKey;
+            }
+            return top;
+        }
+    }
+}
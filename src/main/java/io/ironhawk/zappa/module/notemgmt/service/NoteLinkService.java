@@ -33,6 +33,7 @@ public interface NoteLinkService {
     // Graph traversal
     List<UUID> findConnectedNotes(UUID startNoteId, Integer maxDepth);
     Optional<List<UUID>> findShortestPath(UUID startNoteId, UUID targetNoteId);
+    Optional<List<UUID>> findShortestPath(UUID startNoteId, UUID targetNoteId, List<NoteLinkType> linkTypes);
     List<UUID> findMostConnectedNotes(Integer limit);
     List<UUID> findOrphanedNotes();
 
@@ -33,6 +33,8 @@ public interface NoteService {
     List<Note> findNotesByAnyTags(List<String> tagNames);
     Page<Note> findNotesByAllTags(List<String> tagNames, Pageable pageable);
     Page<Note> findNotesByAnyTags(List<String> tagNames, Pageable pageable);
+    // Notes matching a TagQueryParser query, newest first; IllegalArgumentException if it does not parse
+    Page<Note> findNotesByQuery(String query, Pageable pageable);
 
     // Pagination
     Page<Note> getNotes(Pageable pageable);
@@ -27,7 +27,4 @@ public interface NoteTagService {
     long countNotesForTag(UUID tagId);
     long countTagsForNote(UUID noteId);
     List<Tag> findCoOccurringTags(UUID tagId);
-
-    // Utility methods
-    void cleanupOrphanedRelationships();
 }
\ No newline at end of file
@@ -0,0 +1,559 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Immutable index for finding notes related to a given note, numbered like the {@link NoteGraph}
+ * it is built over.
+ *
+ * A candidate is scored on three signals, each in 0..1:
+ * <ul>
+ *   <li>tags: cosine similarity of the notes' tag sets, each tag weighted by its rarity;</li>
+ *   <li>links: weighted Adamic–Adar over common neighbours, where a shared neighbour counts
+ *       more the stronger both links to it are and the fewer links it has itself;</li>
+ *   <li>text: cosine similarity of TF-IDF vectors over the title and start of the content,
+ *       each cut to its strongest terms.</li>
+ * </ul>
+ * Candidates are collected from inverted lists (tag to notes, neighbour to neighbours, term to
+ * notes) into an int-keyed open-addressing table, so a query only touches notes sharing
+ * something with the source. Very common tags and terms, and hub notes, are skipped since
+ * they say little about relatedness and would make a query scan much of the index.
+ */
+public final class RelatedNotesIndex {
+
+    private static final double TAG_WEIGHT = 0.4;
+    private static final double LINK_WEIGHT = 0.35;
+    private static final double TEXT_WEIGHT = 0.25;
+
+    private static final int MAX_TAG_POSTINGS = 5000;
+    private static final int MAX_HUB_DEGREE = 1000;
+
+    private static final int MAX_TERMS_PER_NOTE = 32;
+    private static final int MIN_TERM_LENGTH = 3;
+    private static final float TITLE_TERM_BOOST = 3f;
+    // Terms in more than this share of notes (and more than MIN_COMMON_TERM_NOTES) are ignored
+    private static final double MAX_TERM_NOTE_RATIO = 0.1;
+    private static final int MIN_COMMON_TERM_NOTES = 50;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        "the", "and", "for", "are", "but", "not", "you", "all", "any", "can", "had", "her", "was", "one",
+        "our", "out", "has", "have", "this", "that", "with", "from", "they", "will", "would", "there",
+        "their", "what", "about", "which", "when", "were", "been", "into", "than", "then", "them",
+        "these", "some", "also", "just", "more", "only", "other", "such", "very", "should", "could",
+        "https", "http", "www", "com");
+
+    private final NoteGraph graph;
+    private final String[] titles;
+
+    private final int[] tagOffsets;
+    private final int[] tagIds;
+    private final int[] tagNoteOffsets;
+    private final int[] tagNotes;
+    private final double[] tagIdf;
+    private final double[] tagNorms;
+
+    private final int[] termOffsets;
+    private final int[] termIds;
+    private final float[] termWeights;
+    private final int[] termNoteOffsets;
+    private final int[] termNotes;
+    private final float[] termNoteWeights;
+
+    private RelatedNotesIndex(NoteGraph graph, String[] titles,
+                              int[] tagOffsets, int[] tagIds, int[] tagNoteOffsets, int[] tagNotes,
+                              double[] tagIdf, double[] tagNorms,
+                              int[] termOffsets, int[] termIds, float[] termWeights,
+                              int[] termNoteOffsets, int[] termNotes, float[] termNoteWeights) {
+        this.graph = graph;
+        this.titles = titles;
+        this.tagOffsets = tagOffsets;
+        this.tagIds = tagIds;
+        this.tagNoteOffsets = tagNoteOffsets;
+        this.tagNotes = tagNotes;
+        this.tagIdf = tagIdf;
+        this.tagNorms = tagNorms;
+        this.termOffsets = termOffsets;
+        this.termIds = termIds;
+        this.termWeights = termWeights;
+        this.termNoteOffsets = termNoteOffsets;
+        this.termNotes = termNotes;
+        this.termNoteWeights = termNoteWeights;
+    }
+
+    public NoteGraph graph() {
+        return graph;
+    }
+
+    public String titleAt(int node) {
+        return titles[node];
+    }
+
+    /**
+     * Best scoring related notes, highest first. The note itself and the notes it is directly
+     * linked to are left out, since those links are already shown with the note.
+     */
+    public List<Candidate> related(int node, int limit) {
+        Accumulator candidates = new Accumulator(256);
+
+        // Shared tags
+        double sourceTagNorm = tagNorms[node];
+        for (int i = tagOffsets[node]; i < tagOffsets[node + 1]; i++) {
+            int tag = tagIds[i];
+            if (tagNoteOffsets[tag + 1] - tagNoteOffsets[tag] > MAX_TAG_POSTINGS) {
+                continue;
+            }
+            double contribution = tagIdf[tag] * tagIdf[tag] / sourceTagNorm;
+            for (int p = tagNoteOffsets[tag]; p < tagNoteOffsets[tag + 1]; p++) {
+                int other = tagNotes[p];
+                if (other != node) {
+                    int slot = candidates.slot(other);
+                    candidates.tag[slot] += contribution;
+                    candidates.sharedTags[slot]++;
+                }
+            }
+        }
+
+        // Common neighbours, each counted once however many links lead through it
+        Neighbours neighbours = new Neighbours();
+        graph.forEachNeighbour(node, true, neighbours);
+        neighbours.dedupe();
+        for (int n = 0; n < neighbours.size; n++) {
+            int via = neighbours.node(n);
+            int degree = graph.inDegree(via) + graph.outDegree(via);
+            if (degree > MAX_HUB_DEGREE) {
+                continue;
+            }
+            double firstHop = neighbours.weight(n) / 10.0;
+            double damping = Math.log(1 + degree);
+            graph.forEachNeighbour(via, true, (other, weight, type) -> {
+                if (other == node) {
+                    return;
+                }
+                int slot = candidates.slot(other);
+                if (candidates.via[slot] == via) {
+                    return;
+                }
+                candidates.via[slot] = via;
+                candidates.link[slot] += firstHop * (weight / 10.0) / damping;
+                candidates.commonNeighbours[slot]++;
+            });
+        }
+
+        // Text
+        for (int i = termOffsets[node]; i < termOffsets[node + 1]; i++) {
+            int term = termIds[i];
+            float weight = termWeights[i];
+            for (int p = termNoteOffsets[term]; p < termNoteOffsets[term + 1]; p++) {
+                int other = termNotes[p];
+                if (other != node) {
+                    int slot = candidates.slot(other);
+                    candidates.text[slot] += weight * termNoteWeights[p];
+                }
+            }
+        }
+
+        PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(c -> c.score));
+        for (int slot = 0; slot < candidates.keys.length; slot++) {
+            int other = candidates.keys[slot];
+            if (other < 0 || neighbours.contains(other)) {
+                continue;
+            }
+            double tagScore = tagNorms[other] > 0 ? Math.min(1, candidates.tag[slot] / tagNorms[other]) : 0;
+            double linkScore = 1 - Math.exp(-candidates.link[slot]);
+            double textScore = Math.min(1, candidates.text[slot]);
+            double score = TAG_WEIGHT * tagScore + LINK_WEIGHT * linkScore + TEXT_WEIGHT * textScore;
+            if (score <= 0) {
+                continue;
+            }
+            if (best.size() < limit) {
+                best.add(new Candidate(other, score, tagScore, linkScore, textScore,
+                    candidates.sharedTags[slot], candidates.commonNeighbours[slot]));
+            } else if (score > best.peek().score) {
+                best.poll();
+                best.add(new Candidate(other, score, tagScore, linkScore, textScore,
+                    candidates.sharedTags[slot], candidates.commonNeighbours[slot]));
+            }
+        }
+
+        List<Candidate> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble((Candidate c) -> c.score).reversed());
+        return result;
+    }
+
+    /**
+     * A related note with its combined score and the per-signal scores behind it
+     */
+    public static final class Candidate {
+        public final int node;
+        public final double score;
+        public final double tagScore;
+        public final double linkScore;
+        public final double textScore;
+        public final int sharedTags;
+        public final int commonNeighbours;
+
+        private Candidate(int node, double score, double tagScore, double linkScore, double textScore,
+                          int sharedTags, int commonNeighbours) {
+            this.node = node;
+            this.score = score;
+            this.tagScore = tagScore;
+            this.linkScore = linkScore;
+            this.textScore = textScore;
+            this.sharedTags = sharedTags;
+            this.commonNeighbours = commonNeighbours;
+        }
+    }
+
+    /**
+     * Distinct neighbours of one note with their heaviest link weight, packed as
+     * {@code node << 8 | weight} so they sort by node without boxing
+     */
+    private static final class Neighbours implements NoteGraph.NeighbourVisitor {
+        private long[] packed = new long[16];
+        private int size;
+
+        @Override
+        public void visit(int neighbour, int weight, byte linkTypeOrdinal) {
+            if (size == packed.length) {
+                packed = Arrays.copyOf(packed, size * 2);
+            }
+            packed[size++] = (long) neighbour << 8 | weight;
+        }
+
+        /**
+         * Sort by node, heaviest link last, and keep that last entry of each node
+         */
+        private void dedupe() {
+            Arrays.sort(packed, 0, size);
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                if (i + 1 == size || packed[i + 1] >>> 8 != packed[i] >>> 8) {
+                    packed[distinct++] = packed[i];
+                }
+            }
+            size = distinct;
+        }
+
+        private int node(int i) {
+            return (int) (packed[i] >>> 8);
+        }
+
+        private int weight(int i) {
+            return (int) (packed[i] & 0xFF);
+        }
+
+        private boolean contains(int node) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int midNode = node(mid);
+                if (midNode < node) {
+                    low = mid + 1;
+                } else if (midNode > node) {
+                    high = mid - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Per-candidate partial scores in an open-addressing table keyed by node index
+     */
+    private static final class Accumulator {
+        private int[] keys;
+        private double[] tag;
+        private double[] link;
+        private double[] text;
+        private int[] sharedTags;
+        private int[] commonNeighbours;
+        private int[] via;
+        private int size;
+
+        private Accumulator(int capacity) {
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            keys = new int[capacity];
+            Arrays.fill(keys, -1);
+            tag = new double[capacity];
+            link = new double[capacity];
+            text = new double[capacity];
+            sharedTags = new int[capacity];
+            commonNeighbours = new int[capacity];
+            via = new int[capacity];
+            Arrays.fill(via, -1);
+        }
+
+        /**
+         * Slot of a node, inserting it when absent
+         */
+        private int slot(int node) {
+            int mask = keys.length - 1;
+            int slot = mix(node) & mask;
+            while (keys[slot] >= 0) {
+                if (keys[slot] == node) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (size * 2 >= keys.length) {
+                grow();
+                return slot(node);
+            }
+            keys[slot] = node;
+            size++;
+            return slot;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            double[] oldTag = tag;
+            double[] oldLink = link;
+            double[] oldText = text;
+            int[] oldSharedTags = sharedTags;
+            int[] oldCommonNeighbours = commonNeighbours;
+            int[] oldVia = via;
+
+            allocate(oldKeys.length * 2);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] >= 0) {
+                    int slot = slot(oldKeys[i]);
+                    tag[slot] = oldTag[i];
+                    link[slot] = oldLink[i];
+                    text[slot] = oldText[i];
+                    sharedTags[slot] = oldSharedTags[i];
+                    commonNeighbours[slot] = oldCommonNeighbours[i];
+                    via[slot] = oldVia[i];
+                }
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * Collects tags and text for the notes of a graph; notes outside the graph are ignored
+     */
+    public static final class Builder {
+        private final NoteGraph graph;
+        private final String[] titles;
+        private final Map<UUID, Integer> tagIndex = new HashMap<>();
+        private int[] tagPairNotes = new int[64];
+        private int[] tagPairTags = new int[64];
+        private int tagPairs;
+
+        private final Map<String, Integer> termIndex = new HashMap<>();
+        private final int[][] noteTerms;
+        private final float[][] noteTermCounts;
+
+        public Builder(NoteGraph graph) {
+            this.graph = graph;
+            this.titles = new String[graph.size()];
+            this.noteTerms = new int[graph.size()][];
+            this.noteTermCounts = new float[graph.size()][];
+        }
+
+        public Builder addTag(UUID noteId, UUID tagId) {
+            int node = graph.indexOf(noteId);
+            if (node < 0) {
+                return this;
+            }
+            if (tagPairs == tagPairNotes.length) {
+                tagPairNotes = Arrays.copyOf(tagPairNotes, tagPairs * 2);
+                tagPairTags = Arrays.copyOf(tagPairTags, tagPairs * 2);
+            }
+            tagPairNotes[tagPairs] = node;
+            tagPairTags[tagPairs] = tagIndex.computeIfAbsent(tagId, id -> tagIndex.size());
+            tagPairs++;
+            return this;
+        }
+
+        public Builder addText(UUID noteId, String title, String content) {
+            int node = graph.indexOf(noteId);
+            if (node < 0) {
+                return this;
+            }
+            titles[node] = title;
+
+            Map<Integer, Float> counts = new HashMap<>();
+            countTerms(title, TITLE_TERM_BOOST, counts);
+            countTerms(content, 1f, counts);
+
+            int[] terms = new int[counts.size()];
+            float[] termCounts = new float[counts.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Float> entry : counts.entrySet()) {
+                terms[i] = entry.getKey();
+                termCounts[i] = entry.getValue();
+                i++;
+            }
+            noteTerms[node] = terms;
+            noteTermCounts[node] = termCounts;
+            return this;
+        }
+
+        private void countTerms(String text, float weight, Map<Integer, Float> counts) {
+            if (text == null) {
+                return;
+            }
+            int start = -1;
+            for (int i = 0; i <= text.length(); i++) {
+                boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+                if (wordChar && start < 0) {
+                    start = i;
+                } else if (!wordChar && start >= 0) {
+                    if (i - start >= MIN_TERM_LENGTH) {
+                        String word = text.substring(start, i).toLowerCase(Locale.ROOT);
+                        if (!STOP_WORDS.contains(word)) {
+                            int term = termIndex.computeIfAbsent(word, w -> termIndex.size());
+                            counts.merge(term, weight, Float::sum);
+                        }
+                    }
+                    start = -1;
+                }
+            }
+        }
+
+        public RelatedNotesIndex build() {
+            int n = graph.size();
+
+            // Tags: note -> tags and tag -> notes by counting sort
+            int tagCount = tagIndex.size();
+            int[] tagOffsets = new int[n + 1];
+            int[] tagNoteOffsets = new int[tagCount + 1];
+            for (int p = 0; p < tagPairs; p++) {
+                tagOffsets[tagPairNotes[p] + 1]++;
+                tagNoteOffsets[tagPairTags[p] + 1]++;
+            }
+            for (int i = 0; i < n; i++) {
+                tagOffsets[i + 1] += tagOffsets[i];
+            }
+            for (int t = 0; t < tagCount; t++) {
+                tagNoteOffsets[t + 1] += tagNoteOffsets[t];
+            }
+            int[] tagIds = new int[tagPairs];
+            int[] tagNotes = new int[tagPairs];
+            int[] noteCursor = Arrays.copyOf(tagOffsets, n);
+            int[] tagCursor = Arrays.copyOf(tagNoteOffsets, tagCount);
+            for (int p = 0; p < tagPairs; p++) {
+                tagIds[noteCursor[tagPairNotes[p]]++] = tagPairTags[p];
+                tagNotes[tagCursor[tagPairTags[p]]++] = tagPairNotes[p];
+            }
+
+            double[] tagIdf = new double[tagCount];
+            for (int t = 0; t < tagCount; t++) {
+                tagIdf[t] = Math.log(1 + (double) n / (tagNoteOffsets[t + 1] - tagNoteOffsets[t]));
+            }
+            double[] tagNorms = new double[n];
+            for (int node = 0; node < n; node++) {
+                double sum = 0;
+                for (int i = tagOffsets[node]; i < tagOffsets[node + 1]; i++) {
+                    sum += tagIdf[tagIds[i]] * tagIdf[tagIds[i]];
+                }
+                tagNorms[node] = Math.sqrt(sum);
+            }
+
+            // Terms: document frequency, then the strongest TF-IDF terms of each note
+            int termCount = termIndex.size();
+            int[] documentFrequency = new int[termCount];
+            for (int[] terms : noteTerms) {
+                if (terms != null) {
+                    for (int term : terms) {
+                        documentFrequency[term]++;
+                    }
+                }
+            }
+            int maxDocumentFrequency = Math.max(MIN_COMMON_TERM_NOTES, (int) (n * MAX_TERM_NOTE_RATIO));
+
+            int[] termOffsets = new int[n + 1];
+            int[][] keptTerms = new int[n][];
+            float[][] keptWeights = new float[n][];
+            for (int node = 0; node < n; node++) {
+                int[] terms = noteTerms[node];
+                if (terms == null) {
+                    keptTerms[node] = new int[0];
+                    keptWeights[node] = new float[0];
+                    continue;
+                }
+                List<int[]> scored = new ArrayList<>();
+                float[] weights = new float[terms.length];
+                for (int i = 0; i < terms.length; i++) {
+                    int df = documentFrequency[terms[i]];
+                    // A term only this note has cannot match anything
+                    if (df < 2 || df > maxDocumentFrequency) {
+                        continue;
+                    }
+                    weights[i] = (float) ((1 + Math.log(noteTermCounts[node][i])) * Math.log(1 + (double) n / df));
+                    scored.add(new int[]{i});
+                }
+                scored.sort(Comparator.comparingDouble((int[] entry) -> weights[entry[0]]).reversed());
+                int kept = Math.min(MAX_TERMS_PER_NOTE, scored.size());
+
+                double norm = 0;
+                for (int k = 0; k < kept; k++) {
+                    norm += weights[scored.get(k)[0]] * weights[scored.get(k)[0]];
+                }
+                norm = Math.sqrt(norm);
+
+                keptTerms[node] = new int[kept];
+                keptWeights[node] = new float[kept];
+                for (int k = 0; k < kept; k++) {
+                    int i = scored.get(k)[0];
+                    keptTerms[node][k] = terms[i];
+                    keptWeights[node][k] = (float) (weights[i] / norm);
+                }
+                termOffsets[node + 1] = kept;
+            }
+            for (int node = 0; node < n; node++) {
+                termOffsets[node + 1] += termOffsets[node];
+            }
+
+            int entries = termOffsets[n];
+            int[] termIds = new int[entries];
+            float[] termWeights = new float[entries];
+            int[] termNoteOffsets = new int[termCount + 1];
+            for (int node = 0; node < n; node++) {
+                System.arraycopy(keptTerms[node], 0, termIds, termOffsets[node], keptTerms[node].length);
+                System.arraycopy(keptWeights[node], 0, termWeights, termOffsets[node], keptWeights[node].length);
+                for (int term : keptTerms[node]) {
+                    termNoteOffsets[term + 1]++;
+                }
+            }
+            for (int t = 0; t < termCount; t++) {
+                termNoteOffsets[t + 1] += termNoteOffsets[t];
+            }
+            int[] termNotes = new int[entries];
+            float[] termNoteWeights = new float[entries];
+            int[] termCursor = Arrays.copyOf(termNoteOffsets, termCount);
+            for (int node = 0; node < n; node++) {
+                for (int i = termOffsets[node]; i < termOffsets[node + 1]; i++) {
+                    int p = termCursor[termIds[i]]++;
+                    termNotes[p] = node;
+                    termNoteWeights[p] = termWeights[i];
+                }
+            }
+
+            return new RelatedNotesIndex(graph, titles,
+                tagOffsets, tagIds, tagNoteOffsets, tagNotes, tagIdf, tagNorms,
+                termOffsets, termIds, termWeights, termNoteOffsets, termNotes, termNoteWeights);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import io.ironhawk.zappa.module.notemgmt.dto.RelatedNote;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Notes related to a note by shared tags, common linked neighbours and similar text,
+ * beyond the links it already has
+ */
+public interface RelatedNotesService {
+
+    int MAX_LIMIT = 50;
+
+    // Best related notes first, none while the note is not indexed yet; empty if the note is
+    // not one of the current user's
+    Optional<List<RelatedNote>> findRelatedNotes(UUID noteId, int limit);
+}
@@ -0,0 +1,20 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import io.ironhawk.zappa.module.notemgmt.dto.TagResponse;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tag name completion for the current user from a cached {@link TagPrefixIndex}
+ */
+public interface TagAutocompleteService {
+
+    int MAX_LIMIT = TagPrefixIndex.PRECOMPUTED_LIMIT;
+
+    // Tags with a name or word starting with the prefix, most used first, with usage counts
+    List<TagResponse> suggest(String prefix, int limit);
+
+    // Drop a user's index after tags are created, renamed, recoloured or deleted
+    void invalidate(UUID userId);
+}
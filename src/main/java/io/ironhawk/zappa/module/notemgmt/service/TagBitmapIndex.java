@@ -0,0 +1,251 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Tag and group to note bitmaps for one user, for evaluating {@link TagExpression}s in memory.
+ *
+ * Notes are numbered densely in creation order, so a bitmap read backwards lists notes newest
+ * first and a creation time range is a contiguous range of ordinals. Tags are group-scoped and
+ * a name may be used by several tags; a name matches the notes of all of them. Mutations and
+ * evaluation are synchronized on the index, and results are fresh bitmaps the caller owns.
+ */
+public final class TagBitmapIndex {
+
+    private final List<UUID> noteIds;
+    private final Map<UUID, Integer> ordinals;
+    // Creation time per ordinal in epoch seconds, non-decreasing
+    private long[] createdAt;
+    private final RoaringBitmap allNotes = new RoaringBitmap();
+    private final Map<UUID, RoaringBitmap> notesByTag = new HashMap<>();
+    private final Map<String, Set<UUID>> tagsByName = new HashMap<>();
+    private final Map<UUID, RoaringBitmap> notesByGroup = new HashMap<>();
+    private final Map<String, Set<UUID>> groupsByName = new HashMap<>();
+    private final Map<UUID, List<UUID>> subGroups = new HashMap<>();
+
+    /**
+     * @param noteIds   the user's notes, oldest first
+     * @param createdAt their creation times, in the same order
+     */
+    public TagBitmapIndex(List<UUID> noteIds, List<LocalDateTime> createdAt) {
+        this.noteIds = new ArrayList<>(noteIds);
+        this.ordinals = new HashMap<>(noteIds.size() * 2);
+        this.createdAt = new long[Math.max(16, noteIds.size())];
+        long previous = Long.MIN_VALUE;
+        for (int ordinal = 0; ordinal < noteIds.size(); ordinal++) {
+            ordinals.put(noteIds.get(ordinal), ordinal);
+            // A missing time sorts with its predecessor, which keeps the array ordered
+            LocalDateTime time = createdAt.get(ordinal);
+            previous = time != null ? Math.max(previous, toSeconds(time)) : previous;
+            this.createdAt[ordinal] = previous;
+        }
+        allNotes.add(0L, noteIds.size());
+    }
+
+    public synchronized void addTagName(UUID tagId, String name) {
+        tagsByName.computeIfAbsent(normalize(name), n -> new HashSet<>()).add(tagId);
+    }
+
+    public synchronized void addNoteTag(UUID noteId, UUID tagId) {
+        notesByTag.computeIfAbsent(tagId, t -> new RoaringBitmap()).add(ordinalOf(noteId));
+    }
+
+    public synchronized void removeNoteTag(UUID noteId, UUID tagId) {
+        Integer ordinal = ordinals.get(noteId);
+        RoaringBitmap notes = notesByTag.get(tagId);
+        if (ordinal != null && notes != null) {
+            notes.remove(ordinal);
+        }
+    }
+
+    public synchronized void addGroup(UUID groupId, String name, UUID parentGroupId) {
+        groupsByName.computeIfAbsent(normalize(name), n -> new HashSet<>()).add(groupId);
+        if (parentGroupId != null) {
+            subGroups.computeIfAbsent(parentGroupId, g -> new ArrayList<>()).add(groupId);
+        }
+    }
+
+    public synchronized void addNoteGroup(UUID noteId, UUID groupId) {
+        notesByGroup.computeIfAbsent(groupId, g -> new RoaringBitmap()).add(ordinalOf(noteId));
+    }
+
+    /**
+     * Run-length encode runs of consecutive notes, which shrinks bitmaps of widely used tags
+     */
+    public synchronized void optimize() {
+        allNotes.runOptimize();
+        notesByTag.values().forEach(RoaringBitmap::runOptimize);
+        notesByGroup.values().forEach(RoaringBitmap::runOptimize);
+    }
+
+    /**
+     * Notes matching the expression. The positive operands of an AND are evaluated smallest
+     * first so an empty intermediate result stops the evaluation early; its NOT operands are
+     * then subtracted from that result instead of being complemented against all notes.
+     */
+    public synchronized RoaringBitmap evaluate(TagExpression expression) {
+        return switch (expression) {
+            case TagExpression.HasTag tag -> union(notesByTag, tagsByName.getOrDefault(tag.name(), Set.of()));
+            case TagExpression.InGroup group -> union(notesByGroup, groupsWithDescendants(group.name()));
+            case TagExpression.CreatedBetween created -> {
+                int from = created.from() != null ? firstCreatedAtOrAfter(created.from()) : 0;
+                int to = created.to() != null ? firstCreatedAtOrAfter(created.to()) : noteIds.size();
+                yield from < to ? RoaringBitmap.bitmapOfRange(from, to) : new RoaringBitmap();
+            }
+            case TagExpression.Or or -> {
+                RoaringBitmap result = new RoaringBitmap();
+                for (TagExpression operand : or.operands()) {
+                    result.or(evaluate(operand));
+                }
+                yield result;
+            }
+            case TagExpression.And and -> {
+                List<TagExpression> positive = new ArrayList<>();
+                List<TagExpression> negated = new ArrayList<>();
+                for (TagExpression operand : and.operands()) {
+                    if (operand instanceof TagExpression.Not not) {
+                        negated.add(not.operand());
+                    } else {
+                        positive.add(operand);
+                    }
+                }
+                positive.sort(Comparator.comparingLong(this::estimateCardinality));
+
+                RoaringBitmap result = positive.isEmpty() ? allNotes.clone() : null;
+                for (TagExpression operand : positive) {
+                    RoaringBitmap notes = evaluate(operand);
+                    if (result == null) {
+                        result = notes;
+                    } else {
+                        result.and(notes);
+                    }
+                    if (result.isEmpty()) {
+                        yield result;
+                    }
+                }
+                for (TagExpression operand : negated) {
+                    result.andNot(evaluate(operand));
+                    if (result.isEmpty()) {
+                        break;
+                    }
+                }
+                yield result;
+            }
+            case TagExpression.Not not -> RoaringBitmap.andNot(allNotes, evaluate(not.operand()));
+        };
+    }
+
+    /**
+     * Upper bound on the number of notes matching the expression, without evaluating it
+     */
+    public synchronized long estimateCardinality(TagExpression expression) {
+        return switch (expression) {
+            case TagExpression.HasTag tag -> sumCardinality(notesByTag, tagsByName.getOrDefault(tag.name(), Set.of()));
+            case TagExpression.InGroup group -> sumCardinality(notesByGroup, groupsWithDescendants(group.name()));
+            case TagExpression.CreatedBetween created -> {
+                int from = created.from() != null ? firstCreatedAtOrAfter(created.from()) : 0;
+                int to = created.to() != null ? firstCreatedAtOrAfter(created.to()) : noteIds.size();
+                yield Math.max(0, to - from);
+            }
+            case TagExpression.Or or -> Math.min(allNotes.getLongCardinality(),
+                or.operands().stream().mapToLong(this::estimateCardinality).sum());
+            case TagExpression.And and -> and.operands().stream().mapToLong(this::estimateCardinality).min().orElse(0);
+            // A NOT can only be bounded by the complement of a lower bound, so assume the worst
+            case TagExpression.Not not -> allNotes.getLongCardinality();
+        };
+    }
+
+    public synchronized UUID noteIdAt(int ordinal) {
+        return noteIds.get(ordinal);
+    }
+
+    private int ordinalOf(UUID noteId) {
+        Integer ordinal = ordinals.get(noteId);
+        if (ordinal == null) {
+            // A note created after the index was built; it is the newest
+            ordinal = noteIds.size();
+            noteIds.add(noteId);
+            ordinals.put(noteId, ordinal);
+            allNotes.add(ordinal);
+            if (ordinal == createdAt.length) {
+                createdAt = Arrays.copyOf(createdAt, createdAt.length * 2);
+            }
+            long previous = ordinal > 0 ? createdAt[ordinal - 1] : Long.MIN_VALUE;
+            createdAt[ordinal] = Math.max(previous, toSeconds(LocalDateTime.now()));
+        }
+        return ordinal;
+    }
+
+    // Lowest ordinal created at or after the time, or the note count when there is none
+    private int firstCreatedAtOrAfter(LocalDateTime time) {
+        long seconds = toSeconds(time);
+        int low = 0;
+        int high = noteIds.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (createdAt[mid] < seconds) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Groups with the name and every group below them
+    private Set<UUID> groupsWithDescendants(String name) {
+        Set<UUID> groups = new HashSet<>();
+        Deque<UUID> pending = new ArrayDeque<>(groupsByName.getOrDefault(name, Set.of()));
+        while (!pending.isEmpty()) {
+            UUID groupId = pending.pop();
+            if (groups.add(groupId)) {
+                pending.addAll(subGroups.getOrDefault(groupId, List.of()));
+            }
+        }
+        return groups;
+    }
+
+    private static RoaringBitmap union(Map<UUID, RoaringBitmap> bitmaps, Set<UUID> keys) {
+        RoaringBitmap result = new RoaringBitmap();
+        for (UUID key : keys) {
+            RoaringBitmap notes = bitmaps.get(key);
+            if (notes != null) {
+                result.or(notes);
+            }
+        }
+        return result;
+    }
+
+    private static long sumCardinality(Map<UUID, RoaringBitmap> bitmaps, Set<UUID> keys) {
+        long count = 0;
+        for (UUID key : keys) {
+            RoaringBitmap notes = bitmaps.get(key);
+            count += notes != null ? notes.getLongCardinality() : 0;
+        }
+        return count;
+    }
+
+    // Note times are zone-less local times, so any fixed offset orders them correctly
+    private static long toSeconds(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,301 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Naive Bayes model of which tags one user puts on which note text, for suggesting tags.
+ *
+ * Each tag is a separate yes/no classifier: a note's words are compared between the notes
+ * carrying the tag and all other trained notes, and the log odds turned into a confidence.
+ * Words are hashed into FEATURE_BITS bits and a note contributes only its MAX_TERMS_PER_NOTE
+ * most frequent ones, title words counting TITLE_WEIGHT times. Memory is bounded: at most
+ * MAX_NOTES notes and MAX_TAGS tags are trained, and each tag keeps counts for at most
+ * MAX_FEATURES_PER_TAG words, later words being ignored once it is full.
+ *
+ * Training is additive, so the model can be extended with new note-tag pairs as they appear;
+ * removals need a retrain. Access is synchronized on the model.
+ */
+public final class TagClassifier {
+
+    public static final int MAX_NOTES = 20_000;
+    public static final int MAX_TAGS = 1000;
+    public static final int MAX_FEATURES_PER_TAG = 2048;
+
+    private static final int FEATURE_BITS = 20;
+    private static final int MAX_BACKGROUND_FEATURES = 1 << 16;
+    private static final int MAX_TERMS_PER_NOTE = 64;
+    private static final int MIN_TERM_LENGTH = 3;
+    private static final int MAX_TERM_LENGTH = 30;
+    private static final int TITLE_WEIGHT = 3;
+    // Tags on fewer notes say too little about their words to be suggested
+    private static final int MIN_TAG_NOTES = 2;
+    private static final double SMOOTHING = 1.0;
+    // Words of a note are not independent; counting more than this many overstates the evidence
+    private static final int MAX_EVIDENCE_TERMS = 12;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        "the", "and", "for", "are", "but", "not", "you", "all", "any", "can", "had", "her", "was", "one",
+        "our", "out", "has", "have", "this", "that", "with", "from", "they", "will", "would", "there",
+        "their", "what", "about", "which", "when", "were", "been", "into", "than", "then", "them",
+        "these", "some", "also", "just", "more", "only", "other", "such", "very", "should", "could",
+        "https", "http", "www", "com");
+
+    private final Set<UUID> trainedNotes = new HashSet<>();
+    private final Counts background = new Counts(1024);
+    private long backgroundTerms;
+    private final Map<UUID, TagModel> tags = new HashMap<>();
+
+    /**
+     * The most frequent hashed words of a note's title and content
+     */
+    public static Features features(String title, String content) {
+        Counts counts = new Counts(256);
+        countWords(title, TITLE_WEIGHT, counts);
+        countWords(content, 1, counts);
+
+        int[] order = counts.keysByCountDescending();
+        int size = Math.min(order.length, MAX_TERMS_PER_NOTE);
+        int[] terms = Arrays.copyOf(order, size);
+        int[] termCounts = new int[size];
+        for (int i = 0; i < size; i++) {
+            termCounts[i] = counts.get(terms[i]);
+        }
+        return new Features(terms, termCounts);
+    }
+
+    /**
+     * Learn that a note carries a tag. A note counts towards the word statistics of all notes
+     * the first time it is seen; pairs beyond the note or tag limits are ignored.
+     *
+     * @return whether the pair was trained
+     */
+    public synchronized boolean train(UUID noteId, UUID tagId, Features features) {
+        TagModel tag = tags.get(tagId);
+        if (tag == null && tags.size() >= MAX_TAGS) {
+            return false;
+        }
+        if (!trainedNotes.contains(noteId)) {
+            if (trainedNotes.size() >= MAX_NOTES) {
+                return false;
+            }
+            trainedNotes.add(noteId);
+            for (int i = 0; i < features.terms.length; i++) {
+                if (background.contains(features.terms[i]) || background.size() < MAX_BACKGROUND_FEATURES) {
+                    background.add(features.terms[i], features.counts[i]);
+                }
+                backgroundTerms += features.counts[i];
+            }
+        }
+
+        if (tag == null) {
+            tag = new TagModel();
+            tags.put(tagId, tag);
+        }
+        tag.notes++;
+        for (int i = 0; i < features.terms.length; i++) {
+            if (tag.counts.contains(features.terms[i]) || tag.counts.size() < MAX_FEATURES_PER_TAG) {
+                tag.counts.add(features.terms[i], features.counts[i]);
+            }
+            tag.terms += features.counts[i];
+        }
+        return true;
+    }
+
+    /**
+     * Tags with the highest confidence for a text, best first, leaving out the excluded tags
+     */
+    public synchronized List<Prediction> predict(Features features, int limit, Set<UUID> excluded) {
+        int evidenceTerms = 0;
+        for (int count : features.counts) {
+            evidenceTerms += count;
+        }
+        if (evidenceTerms == 0 || trainedNotes.isEmpty()) {
+            return List.of();
+        }
+        // Average log likelihood ratio per word, applied to at most MAX_EVIDENCE_TERMS words
+        double evidenceWeight = (double) Math.min(evidenceTerms, MAX_EVIDENCE_TERMS) / evidenceTerms;
+        double vocabulary = background.size() + 1;
+        int noteCount = trainedNotes.size();
+
+        List<Prediction> predictions = new ArrayList<>();
+        for (Map.Entry<UUID, TagModel> entry : tags.entrySet()) {
+            TagModel tag = entry.getValue();
+            if (tag.notes < MIN_TAG_NOTES || excluded.contains(entry.getKey())) {
+                continue;
+            }
+
+            double tagDenominator = tag.terms + SMOOTHING * vocabulary;
+            double otherDenominator = Math.max(0, backgroundTerms - tag.terms) + SMOOTHING * vocabulary;
+            double logLikelihoodRatio = 0;
+            for (int i = 0; i < features.terms.length; i++) {
+                int inTag = tag.counts.get(features.terms[i]);
+                int elsewhere = Math.max(0, background.get(features.terms[i]) - inTag);
+                logLikelihoodRatio += features.counts[i]
+                    * (Math.log((inTag + SMOOTHING) / tagDenominator) - Math.log((elsewhere + SMOOTHING) / otherDenominator));
+            }
+
+            double priorLogOdds = Math.log((tag.notes + SMOOTHING) / (Math.max(0, noteCount - tag.notes) + SMOOTHING));
+            double logOdds = priorLogOdds + logLikelihoodRatio * evidenceWeight;
+            predictions.add(new Prediction(entry.getKey(), 1 / (1 + Math.exp(-logOdds))));
+        }
+
+        predictions.sort(Comparator.comparingDouble((Prediction p) -> p.confidence).reversed());
+        return predictions.size() > limit ? List.copyOf(predictions.subList(0, limit)) : predictions;
+    }
+
+    public synchronized int noteCount() {
+        return trainedNotes.size();
+    }
+
+    public synchronized int tagCount() {
+        return tags.size();
+    }
+
+    private static void countWords(String text, int weight, Counts counts) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                int length = i - start;
+                if (length >= MIN_TERM_LENGTH && length <= MAX_TERM_LENGTH) {
+                    String word = text.substring(start, i).toLowerCase(Locale.ROOT);
+                    if (!STOP_WORDS.contains(word)) {
+                        counts.add(hash(word), weight);
+                    }
+                }
+                start = -1;
+            }
+        }
+    }
+
+    private static int hash(String word) {
+        int h = word.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & ((1 << FEATURE_BITS) - 1);
+    }
+
+    public static final class Features {
+        private final int[] terms;
+        private final int[] counts;
+
+        private Features(int[] terms, int[] counts) {
+            this.terms = terms;
+            this.counts = counts;
+        }
+
+        public boolean isEmpty() {
+            return terms.length == 0;
+        }
+    }
+
+    public static final class Prediction {
+        public final UUID tagId;
+        public final double confidence;
+
+        private Prediction(UUID tagId, double confidence) {
+            this.tagId = tagId;
+            this.confidence = confidence;
+        }
+    }
+
+    private static final class TagModel {
+        private int notes;
+        private long terms;
+        private final Counts counts = new Counts(64);
+    }
+
+    /**
+     * Open-addressing map from non-negative int keys to counts
+     */
+    private static final class Counts {
+        private int[] keys;
+        private int[] values;
+        private int size;
+
+        private Counts(int capacity) {
+            keys = new int[capacity];
+            values = new int[capacity];
+            Arrays.fill(keys, -1);
+        }
+
+        private int get(int key) {
+            int slot = find(key);
+            return keys[slot] == key ? values[slot] : 0;
+        }
+
+        private boolean contains(int key) {
+            return keys[find(key)] == key;
+        }
+
+        private void add(int key, int amount) {
+            int slot = find(key);
+            if (keys[slot] != key) {
+                if ((size + 1) * 2 > keys.length) {
+                    grow();
+                    slot = find(key);
+                }
+                keys[slot] = key;
+                size++;
+            }
+            values[slot] += amount;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private int[] keysByCountDescending() {
+            Integer[] order = new Integer[size];
+            int n = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] >= 0) {
+                    order[n++] = slot;
+                }
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(values[b], values[a]));
+            int[] sorted = new int[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = keys[order[i]];
+            }
+            return sorted;
+        }
+
+        // Slot holding the key, or the empty slot where it would go
+        private int find(int key) {
+            int mask = keys.length - 1;
+            int slot = (key * 0x9E3779B9 >>> 7) & mask;
+            while (keys[slot] >= 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            Arrays.fill(keys, -1);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] >= 0) {
+                    int slot = find(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import io.ironhawk.zappa.module.notemgmt.dto.TagCleanupReport;
+import io.ironhawk.zappa.module.notemgmt.repository.TagCleanupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntSupplier;
+
+/**
+ * Deletes unused tags and note-tag rows whose note or tag no longer exists with set-based
+ * statements instead of loading and checking every row.
+ *
+ * Work is done in batches of at most batchSize rows, each its own statement and, outside a
+ * surrounding transaction, its own commit, so locks are held briefly and an interrupted run
+ * keeps what it already deleted. The scheduled run sweeps orphaned note-tags off-peak and,
+ * when enabled, unused tags of every user, pausing between batches; its progress can be read
+ * while it runs. Foreign keys cascade deletes of notes and tags to their note-tags, so orphans
+ * only appear when rows were removed with the constraints bypassed.
+ */
+@Slf4j
+@Service
+public class TagCleanupService {
+
+    private final TagCleanupRepository tagCleanupRepository;
+    private final TagAutocompleteService tagAutocompleteService;
+    private final int batchSize;
+    private final Duration batchPause;
+    private final boolean scheduledDeleteUnusedTags;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicReference<TagCleanupReport> progress = new AtomicReference<>();
+
+    public TagCleanupService(TagCleanupRepository tagCleanupRepository,
+                             TagAutocompleteService tagAutocompleteService,
+                             @Value("${app.tags.cleanup.batch-size:1000}") int batchSize,
+                             @Value("${app.tags.cleanup.batch-pause:100ms}") Duration batchPause,
+                             @Value("${app.tags.cleanup.delete-unused-tags:false}") boolean scheduledDeleteUnusedTags) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Tag cleanup batch size must be positive");
+        }
+        this.tagCleanupRepository = tagCleanupRepository;
+        this.tagAutocompleteService = tagAutocompleteService;
+        this.batchSize = batchSize;
+        this.batchPause = batchPause;
+        this.scheduledDeleteUnusedTags = scheduledDeleteUnusedTags;
+    }
+
+    @Scheduled(cron = "${app.tags.cleanup.cron:0 0 4 * * *}")
+    public void scheduledRun() {
+        try {
+            cleanup(false, scheduledDeleteUnusedTags);
+        } catch (IllegalStateException ex) {
+            log.info("Skipping scheduled tag cleanup: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Run one cleanup pass over all users
+     *
+     * @param deleteUnusedTags also delete tags that are on no note
+     * @throws IllegalStateException if a pass is already running
+     */
+    public TagCleanupReport cleanup(boolean dryRun, boolean deleteUnusedTags) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Tag cleanup is already running");
+        }
+        try {
+            Run run = new Run(dryRun);
+            log.info("Tag cleanup started (dryRun={}, deleteUnusedTags={})", dryRun, deleteUnusedTags);
+
+            if (dryRun) {
+                run.orphanedNoteTags = tagCleanupRepository.countOrphanedNoteTags();
+                run.unusedTags = deleteUnusedTags ? tagCleanupRepository.countAllUnusedTags() : 0;
+            } else {
+                int deleted;
+                do {
+                    deleted = tagCleanupRepository.deleteOrphanedNoteTags(batchSize);
+                    run.orphanedNoteTags += deleted;
+                    run.batchDone(deleted == batchSize);
+                } while (deleted == batchSize);
+
+                // Tags are unused only once the orphaned rows pointing at them are gone
+                if (deleteUnusedTags) {
+                    Set<UUID> owners = new HashSet<>();
+                    List<UUID> deletedOwners;
+                    do {
+                        deletedOwners = tagCleanupRepository.deleteAllUnusedTags(batchSize);
+                        run.unusedTags += deletedOwners.size();
+                        owners.addAll(deletedOwners);
+                        run.batchDone(deletedOwners.size() == batchSize);
+                    } while (deletedOwners.size() == batchSize);
+                    owners.forEach(tagAutocompleteService::invalidate);
+                }
+            }
+
+            TagCleanupReport report = run.report(true);
+            progress.set(report);
+            log.info("Tag cleanup finished (dryRun={}): {} {} orphaned note-tags and {} unused tags in {} batches, {} ms",
+                dryRun, dryRun ? "would delete" : "deleted", report.getOrphanedNoteTagsDeleted(),
+                report.getUnusedTagsDeleted(), report.getBatches(), report.getDurationMs());
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Progress of the running pass, or the outcome of the last one
+     */
+    public Optional<TagCleanupReport> getProgress() {
+        return Optional.ofNullable(progress.get());
+    }
+
+    /**
+     * Delete all of one user's tags that are on no note, in batches
+     *
+     * @return number of tags deleted
+     */
+    public int deleteUnusedTags(UUID userId) {
+        return deleteInBatches(userId, () -> tagCleanupRepository.deleteUnusedTags(userId, batchSize));
+    }
+
+    /**
+     * Delete one user's tags in a group that are on no note, in batches
+     *
+     * @param groupId the group, or null for global tags
+     * @return number of tags deleted
+     */
+    public int deleteUnusedTagsInGroup(UUID userId, UUID groupId) {
+        return deleteInBatches(userId, () -> tagCleanupRepository.deleteUnusedTagsInGroup(userId, groupId, batchSize));
+    }
+
+    private int deleteInBatches(UUID userId, IntSupplier batch) {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = batch.getAsInt();
+            total += deleted;
+            if (deleted == batchSize) {
+                log.debug("Deleted {} unused tags of user {} so far", total, userId);
+            }
+        } while (deleted == batchSize);
+
+        if (total > 0) {
+            tagAutocompleteService.invalidate(userId);
+        }
+        return total;
+    }
+
+    /**
+     * Counters of a single pass, published as progress after every batch
+     */
+    private final class Run {
+
+        private final boolean dryRun;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final long startNanos = System.nanoTime();
+
+        private long batches;
+        private long orphanedNoteTags;
+        private long unusedTags;
+
+        private Run(boolean dryRun) {
+            this.dryRun = dryRun;
+            progress.set(report(false));
+        }
+
+        private void batchDone(boolean more) {
+            batches++;
+            progress.set(report(false));
+            log.debug("Tag cleanup batch {}: {} orphaned note-tags and {} unused tags deleted so far",
+                batches, orphanedNoteTags, unusedTags);
+            if (more) {
+                pause();
+            }
+        }
+
+        // Leave room for regular traffic between batches
+        private void pause() {
+            if (batchPause.isZero() || batchPause.isNegative()) {
+                return;
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(batchPause.toMillis());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Tag cleanup interrupted", ex);
+            }
+        }
+
+        private TagCleanupReport report(boolean finished) {
+            return TagCleanupReport.builder()
+                .dryRun(dryRun)
+                .finished(finished)
+                .startedAt(startedAt)
+                .durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos))
+                .batches(batches)
+                .orphanedNoteTagsDeleted(orphanedNoteTags)
+                .unusedTagsDeleted(unusedTags)
+                .build();
+        }
+    }
+}
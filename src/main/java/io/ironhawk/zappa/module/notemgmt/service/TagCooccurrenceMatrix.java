@@ -0,0 +1,132 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Sparse symmetric matrix of how many notes each pair of tags shares, with the number of notes
+ * per tag on the diagonal. Kept up to date one note-tag change at a time; all methods are
+ * synchronized on the matrix.
+ */
+public final class TagCooccurrenceMatrix {
+
+    private final Map<UUID, Map<UUID, Integer>> counts = new HashMap<>();
+    private final Map<UUID, Integer> noteCounts = new HashMap<>();
+
+    /**
+     * Build from (note_id, tag_id) pairs
+     */
+    public static TagCooccurrenceMatrix fromNoteTags(List<Object[]> pairs) {
+        Map<UUID, List<UUID>> tagsByNote = new HashMap<>();
+        for (Object[] pair : pairs) {
+            tagsByNote.computeIfAbsent((UUID) pair[0], id -> new ArrayList<>()).add((UUID) pair[1]);
+        }
+
+        TagCooccurrenceMatrix matrix = new TagCooccurrenceMatrix();
+        for (List<UUID> tags : tagsByNote.values()) {
+            for (int i = 0; i < tags.size(); i++) {
+                matrix.noteCounts.merge(tags.get(i), 1, Integer::sum);
+                for (int j = i + 1; j < tags.size(); j++) {
+                    matrix.addPair(tags.get(i), tags.get(j), 1);
+                }
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * A note carrying {@code otherTags} was given {@code tag}
+     */
+    public synchronized void tagAdded(UUID tag, Collection<UUID> otherTags) {
+        noteCounts.merge(tag, 1, Integer::sum);
+        for (UUID other : otherTags) {
+            addPair(tag, other, 1);
+        }
+    }
+
+    /**
+     * {@code tag} was taken off a note still carrying {@code otherTags}
+     */
+    public synchronized void tagRemoved(UUID tag, Collection<UUID> otherTags) {
+        noteCounts.computeIfPresent(tag, (t, count) -> count > 1 ? count - 1 : null);
+        for (UUID other : otherTags) {
+            addPair(tag, other, -1);
+        }
+    }
+
+    private void addPair(UUID a, UUID b, int delta) {
+        if (a.equals(b)) {
+            return;
+        }
+        addDirected(a, b, delta);
+        addDirected(b, a, delta);
+    }
+
+    private void addDirected(UUID from, UUID to, int delta) {
+        Map<UUID, Integer> row = counts.get(from);
+        if (row == null) {
+            if (delta <= 0) {
+                return;
+            }
+            row = new HashMap<>();
+            counts.put(from, row);
+        }
+        int updated = row.getOrDefault(to, 0) + delta;
+        if (updated > 0) {
+            row.put(to, updated);
+        } else {
+            row.remove(to);
+        }
+        if (row.isEmpty()) {
+            counts.remove(from);
+        }
+    }
+
+    public synchronized int noteCount(UUID tag) {
+        return noteCounts.getOrDefault(tag, 0);
+    }
+
+    /**
+     * Notes carrying both tags
+     */
+    public synchronized int count(UUID a, UUID b) {
+        Map<UUID, Integer> row = counts.get(a);
+        return row != null ? row.getOrDefault(b, 0) : 0;
+    }
+
+    /**
+     * Copy of the tags sharing notes with {@code tag}, with the number shared
+     */
+    public synchronized Map<UUID, Integer> row(UUID tag) {
+        Map<UUID, Integer> row = counts.get(tag);
+        return row != null ? new HashMap<>(row) : new HashMap<>();
+    }
+
+    /**
+     * Tag pairs sharing at least {@code minCount} notes, most shared first, each pair once as
+     * {a, b, count}
+     */
+    public synchronized List<Object[]> topPairs(int minCount, int limit) {
+        PriorityQueue<Object[]> best = new PriorityQueue<>(Comparator.comparingInt((Object[] pair) -> (Integer) pair[2]));
+        counts.forEach((a, row) -> row.forEach((b, count) -> {
+            if (count < minCount || a.compareTo(b) >= 0) {
+                return;
+            }
+            if (best.size() < limit) {
+                best.add(new Object[]{a, b, count});
+            } else if (count > (Integer) best.peek()[2]) {
+                best.poll();
+                best.add(new Object[]{a, b, count});
+            }
+        }));
+        List<Object[]> pairs = new ArrayList<>(best);
+        pairs.sort(Comparator.comparingInt((Object[] pair) -> (Integer) pair[2]).reversed());
+        return pairs;
+    }
+}
@@ -0,0 +1,31 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import io.ironhawk.zappa.module.notemgmt.dto.TagCooccurrence;
+import io.ironhawk.zappa.module.notemgmt.dto.TagPairCount;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tag co-occurrence counts for the current user, from a cached matrix updated as tags are
+ * added to and removed from notes
+ */
+public interface TagCooccurrenceService {
+
+    // Tags sharing notes with a tag, most shared first
+    List<TagCooccurrence> findCoOccurring(UUID tagId, int limit);
+
+    // Tags that most often accompany the given tags, excluding them, best first
+    List<TagCooccurrence> suggestFor(Collection<UUID> tagIds, int limit);
+
+    // Tag pairs sharing at least minCount notes, most shared first
+    List<TagPairCount> findTopPairs(int minCount, int limit);
+
+    // Record a note-tag change once the current transaction (if any) commits
+    void noteTagAdded(UUID noteId, UUID tagId);
+    void noteTagRemoved(UUID noteId, UUID tagId);
+
+    // Drop a user's matrix after bulk changes, such as deleting a note or a tag
+    void invalidate(UUID userId);
+}
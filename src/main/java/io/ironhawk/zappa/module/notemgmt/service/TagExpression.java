@@ -0,0 +1,180 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Boolean expression over tag names, e.g. {@code (java OR kotlin) AND NOT archived}, which
+ * may also test a note's group and creation time. Tag and group names are matched ignoring case.
+ */
+public sealed interface TagExpression
+    permits TagExpression.HasTag, TagExpression.InGroup, TagExpression.CreatedBetween,
+            TagExpression.And, TagExpression.Or, TagExpression.Not {
+
+    static TagExpression tag(String name) {
+        return new HasTag(name);
+    }
+
+    // Notes in the named group or any group below it
+    static TagExpression inGroup(String name) {
+        return new InGroup(name);
+    }
+
+    // Notes created at or after from and before to; either bound may be null
+    static TagExpression createdBetween(LocalDateTime from, LocalDateTime to) {
+        return new CreatedBetween(from, to);
+    }
+
+    static TagExpression and(List<TagExpression> operands) {
+        return operands.size() == 1 ? operands.get(0) : new And(operands);
+    }
+
+    static TagExpression or(List<TagExpression> operands) {
+        return operands.size() == 1 ? operands.get(0) : new Or(operands);
+    }
+
+    static TagExpression not(TagExpression operand) {
+        return new Not(operand);
+    }
+
+    // Notes carrying every one of the names
+    static TagExpression allOf(Collection<String> names) {
+        return and(names.stream().map(TagExpression::tag).toList());
+    }
+
+    // Notes carrying at least one of the names
+    static TagExpression anyOf(Collection<String> names) {
+        return or(names.stream().map(TagExpression::tag).toList());
+    }
+
+    final class HasTag implements TagExpression {
+        private final String name;
+
+        private HasTag(String name) {
+            this.name = name.trim().toLowerCase(Locale.ROOT);
+        }
+
+        // Lower case
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    final class InGroup implements TagExpression {
+        private final String name;
+
+        private InGroup(String name) {
+            this.name = name.trim().toLowerCase(Locale.ROOT);
+        }
+
+        // Lower case
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return "group:\"" + name + "\"";
+        }
+    }
+
+    final class CreatedBetween implements TagExpression {
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+
+        private CreatedBetween(LocalDateTime from, LocalDateTime to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        // Inclusive, or null
+        public LocalDateTime from() {
+            return from;
+        }
+
+        // Exclusive, or null
+        public LocalDateTime to() {
+            return to;
+        }
+
+        @Override
+        public String toString() {
+            return "created:[" + (from != null ? from : "") + ".." + (to != null ? to : "") + ")";
+        }
+    }
+
+    final class And implements TagExpression {
+        private final List<TagExpression> operands;
+
+        private And(List<TagExpression> operands) {
+            if (operands.isEmpty()) {
+                throw new IllegalArgumentException("AND needs at least one operand");
+            }
+            this.operands = List.copyOf(operands);
+        }
+
+        public List<TagExpression> operands() {
+            return operands;
+        }
+
+        @Override
+        public String toString() {
+            return join(operands, " AND ");
+        }
+    }
+
+    final class Or implements TagExpression {
+        private final List<TagExpression> operands;
+
+        private Or(List<TagExpression> operands) {
+            if (operands.isEmpty()) {
+                throw new IllegalArgumentException("OR needs at least one operand");
+            }
+            this.operands = List.copyOf(operands);
+        }
+
+        public List<TagExpression> operands() {
+            return operands;
+        }
+
+        @Override
+        public String toString() {
+            return join(operands, " OR ");
+        }
+    }
+
+    final class Not implements TagExpression {
+        private final TagExpression operand;
+
+        private Not(TagExpression operand) {
+            this.operand = operand;
+        }
+
+        public TagExpression operand() {
+            return operand;
+        }
+
+        @Override
+        public String toString() {
+            boolean simple = !(operand instanceof And) && !(operand instanceof Or);
+            return "NOT " + (simple ? operand : "(" + operand + ")");
+        }
+    }
+
+    private static String join(List<TagExpression> operands, String operator) {
+        List<String> parts = new ArrayList<>();
+        for (TagExpression operand : operands) {
+            boolean simple = !(operand instanceof And) && !(operand instanceof Or);
+            parts.add(simple ? operand.toString() : "(" + operand + ")");
+        }
+        return String.join(operator, parts);
+    }
+}
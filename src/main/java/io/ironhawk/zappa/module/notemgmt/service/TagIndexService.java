@@ -0,0 +1,28 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tag filtering for the current user on a cached {@link TagBitmapIndex}, kept in step with
+ * note-tag changes
+ */
+public interface TagIndexService {
+
+    // Ids of matching notes, newest first
+    List<UUID> findNoteIds(TagExpression expression);
+
+    // A page of matching note ids, newest first unless sorted by createdAt ascending;
+    // any other sort is rejected with IllegalArgumentException
+    Page<UUID> findNoteIds(TagExpression expression, Pageable pageable);
+
+    // Record a note-tag change once the current transaction (if any) commits
+    void noteTagAdded(UUID noteId, UUID tagId);
+    void noteTagRemoved(UUID noteId, UUID tagId);
+
+    // Drop a user's index after changes it cannot follow, such as note deletion or tag renames
+    void invalidate(UUID userId);
+}
@@ -0,0 +1,21 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import io.ironhawk.zappa.module.notemgmt.dto.TagOverviewPage;
+import io.ironhawk.zappa.module.notemgmt.dto.TagResponse;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The current user's tags with usage counts for the tags pages
+ */
+public interface TagOverviewService {
+
+    int MAX_PAGE_SIZE = 200;
+
+    // One keyset page of tags matching the optional name part and colour; a stale cursor gives the first page
+    TagOverviewPage getOverview(String search, String color, UUID after, UUID before, int size);
+
+    // Most used tags, from the cached autocompletion index
+    List<TagResponse> getPopularTags(int limit);
+}
@@ -0,0 +1,183 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Prefix lookup over one user's tag names, most used tags first, for autocompletion.
+ *
+ * Every tag is keyed by its lower-cased name and by each later word of it ("spring-boot" also
+ * under "boot"), and the keys are kept in one sorted array, so the keys with a prefix are a
+ * contiguous range found by two binary searches. Tags whose name starts with the prefix rank
+ * above tags matching by a later word, then by usage. The ranking for the empty prefix and
+ * for every one-character prefix, the widest ranges, is computed when the index is built.
+ * The index is immutable; it is rebuilt when tags change.
+ */
+public final class TagPrefixIndex {
+
+    // Longest list kept for precomputed prefixes; longer requests fall back to scanning
+    public static final int PRECOMPUTED_LIMIT = 50;
+
+    private final Entry[] tags;
+    private final String[] keys;
+    private final int[] keyTags;
+    // Whether a key is the whole name rather than a later word of it
+    private final boolean[] keyIsName;
+    private final Map<String, int[]> precomputed = new HashMap<>();
+    private final Comparator<Candidate> ranking;
+
+    public TagPrefixIndex(List<Entry> entries) {
+        this.tags = entries.toArray(new Entry[0]);
+        this.ranking = Comparator.<Candidate>comparingInt(c -> c.wholeName ? 0 : 1)
+            .thenComparing(Comparator.comparingLong((Candidate c) -> tags[c.tag].usageCount).reversed())
+            .thenComparingInt(c -> tags[c.tag].isKey ? 0 : 1)
+            .thenComparingInt(c -> tags[c.tag].name.length())
+            .thenComparing(c -> tags[c.tag].name, String.CASE_INSENSITIVE_ORDER);
+
+        List<Key> allKeys = new ArrayList<>(tags.length * 2);
+        for (int tag = 0; tag < tags.length; tag++) {
+            String name = normalize(tags[tag].name);
+            allKeys.add(new Key(name, tag, true));
+            for (int i = 1; i < name.length(); i++) {
+                if (Character.isLetterOrDigit(name.charAt(i)) && !Character.isLetterOrDigit(name.charAt(i - 1))) {
+                    allKeys.add(new Key(name.substring(i), tag, false));
+                }
+            }
+        }
+        allKeys.sort(Comparator.comparing((Key k) -> k.text));
+
+        this.keys = new String[allKeys.size()];
+        this.keyTags = new int[allKeys.size()];
+        this.keyIsName = new boolean[allKeys.size()];
+        for (int i = 0; i < allKeys.size(); i++) {
+            keys[i] = allKeys.get(i).text;
+            keyTags[i] = allKeys.get(i).tag;
+            keyIsName[i] = allKeys.get(i).wholeName;
+        }
+
+        precomputed.put("", rank(0, keys.length, PRECOMPUTED_LIMIT));
+        int start = 0;
+        while (start < keys.length) {
+            if (keys[start].isEmpty()) {
+                start++;
+                continue;
+            }
+            String first = keys[start].substring(0, 1);
+            int end = lowerBound(first + Character.MAX_VALUE);
+            precomputed.put(first, rank(start, end, PRECOMPUTED_LIMIT));
+            start = end;
+        }
+    }
+
+    /**
+     * Up to limit tags with a name or word starting with the prefix, best first
+     */
+    public List<Entry> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        int[] ranked = precomputed.get(normalized);
+        if (ranked == null || limit > PRECOMPUTED_LIMIT) {
+            ranked = rank(lowerBound(normalized), lowerBound(normalized + Character.MAX_VALUE), limit);
+        }
+
+        List<Entry> result = new ArrayList<>(Math.min(limit, ranked.length));
+        for (int i = 0; i < ranked.length && i < limit; i++) {
+            result.add(tags[ranked[i]]);
+        }
+        return result;
+    }
+
+    public int size() {
+        return tags.length;
+    }
+
+    /**
+     * Best limit tags among the keys in [from, to), each tag once with its best key
+     */
+    private int[] rank(int from, int to, int limit) {
+        Map<Integer, Boolean> best = new HashMap<>();
+        for (int i = from; i < to; i++) {
+            best.merge(keyTags[i], keyIsName[i], Boolean::logicalOr);
+        }
+
+        // Worst of the kept candidates on top, so it is the one replaced
+        PriorityQueue<Candidate> top = new PriorityQueue<>(limit + 1, ranking.reversed());
+        best.forEach((tag, wholeName) -> {
+            top.add(new Candidate(tag, wholeName));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        });
+
+        Candidate[] sorted = top.toArray(new Candidate[0]);
+        Arrays.sort(sorted, ranking);
+        int[] ranked = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            ranked[i] = sorted[i].tag;
+        }
+        return ranked;
+    }
+
+    // First key not less than the text
+    private int lowerBound(String text) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(text) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public static final class Entry {
+        public final UUID id;
+        public final String name;
+        public final String color;
+        public final boolean isKey;
+        public final long usageCount;
+
+        public Entry(UUID id, String name, String color, boolean isKey, long usageCount) {
+            this.id = id;
+            this.name = name;
+            this.color = color;
+            this.isKey = isKey;
+            this.usageCount = usageCount;
+        }
+    }
+
+    private static final class Key {
+        private final String text;
+        private final int tag;
+        private final boolean wholeName;
+
+        private Key(String text, int tag, boolean wholeName) {
+            this.text = text;
+            this.tag = tag;
+            this.wholeName = wholeName;
+        }
+    }
+
+    private static final class Candidate {
+        private final int tag;
+        private final boolean wholeName;
+
+        private Candidate(int tag, boolean wholeName) {
+            this.tag = tag;
+            this.wholeName = wholeName;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parses note queries such as {@code (java OR kotlin) AND NOT archived group:Programming created:>2025-01}
+ * into a {@link TagExpression}.
+ *
+ * Grammar, loosest binding first:
+ * <pre>
+ * query   = or
+ * or      = and { "OR" and }
+ * and     = unary { ["AND"] unary }          adjacent terms are ANDed
+ * unary   = ("NOT" | "-") unary | primary
+ * primary = "(" or ")" | "group:" name | "created:" range | name
+ * range   = [">" | ">=" | "<" | "<=" | "="] date | date ".." date
+ * date    = yyyy | yyyy-MM | yyyy-MM-dd
+ * </pre>
+ * Keywords are case-insensitive; names containing spaces or parentheses are written in double
+ * quotes. A date stands for its whole year, month or day, so {@code created:>2025-01} means
+ * from February 2025 on and {@code created:2025-01} means during January 2025.
+ */
+public final class TagQueryParser {
+
+    // Keeps a pathological query from exhausting the stack
+    private static final int MAX_DEPTH = 64;
+
+    private final List<Token> tokens;
+    private int position;
+    private int depth;
+
+    private TagQueryParser(List<Token> tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * @throws IllegalArgumentException when the query is empty or malformed
+     */
+    public static TagExpression parse(String query) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Query is empty");
+        }
+        TagQueryParser parser = new TagQueryParser(tokenize(query));
+        TagExpression expression = parser.parseOr();
+        if (parser.position < parser.tokens.size()) {
+            throw new IllegalArgumentException("Unexpected '" + parser.tokens.get(parser.position).text + "' in query");
+        }
+        return expression;
+    }
+
+    private TagExpression parseOr() {
+        List<TagExpression> operands = new ArrayList<>();
+        operands.add(parseAnd());
+        while (peekKeyword("OR")) {
+            position++;
+            operands.add(parseAnd());
+        }
+        return operands.size() == 1 ? operands.get(0) : TagExpression.or(operands);
+    }
+
+    private TagExpression parseAnd() {
+        List<TagExpression> operands = new ArrayList<>();
+        operands.add(parseUnary());
+        while (position < tokens.size() && !peekKeyword("OR") && !peek(TokenType.CLOSE)) {
+            if (peekKeyword("AND")) {
+                position++;
+            }
+            operands.add(parseUnary());
+        }
+        return operands.size() == 1 ? operands.get(0) : TagExpression.and(operands);
+    }
+
+    private TagExpression parseUnary() {
+        if (peekKeyword("NOT") || peek(TokenType.MINUS)) {
+            position++;
+            enter();
+            TagExpression operand = parseUnary();
+            depth--;
+            return TagExpression.not(operand);
+        }
+        return parsePrimary();
+    }
+
+    private TagExpression parsePrimary() {
+        if (position >= tokens.size()) {
+            throw new IllegalArgumentException("Query ends unexpectedly");
+        }
+        Token token = tokens.get(position++);
+        if (token.type == TokenType.OPEN) {
+            enter();
+            TagExpression expression = parseOr();
+            depth--;
+            if (!peek(TokenType.CLOSE)) {
+                throw new IllegalArgumentException("Missing ')' in query");
+            }
+            position++;
+            return expression;
+        }
+        if (token.type == TokenType.CLOSE || token.type == TokenType.MINUS) {
+            throw new IllegalArgumentException("Unexpected '" + token.text + "' in query");
+        }
+
+        if (token.type == TokenType.WORD) {
+            String lower = token.text.toLowerCase(Locale.ROOT);
+            if (lower.equals("and") || lower.equals("or")) {
+                throw new IllegalArgumentException("Unexpected '" + token.text + "' in query");
+            }
+            if (lower.startsWith("group:")) {
+                return TagExpression.inGroup(operand(token, "group:".length()));
+            }
+            if (lower.startsWith("created:")) {
+                return parseCreated(operand(token, "created:".length()));
+            }
+        }
+        return TagExpression.tag(token.text);
+    }
+
+    // The value after a field prefix, which may also be the quoted token that follows it
+    private String operand(Token token, int prefixLength) {
+        String value = token.text.substring(prefixLength);
+        if (value.isEmpty() && peek(TokenType.QUOTED)) {
+            value = tokens.get(position++).text;
+        }
+        if (value.isBlank()) {
+            throw new IllegalArgumentException("Missing value after '" + token.text + "'");
+        }
+        return value;
+    }
+
+    private static TagExpression parseCreated(String value) {
+        int range = value.indexOf("..");
+        if (range >= 0) {
+            String from = value.substring(0, range);
+            String to = value.substring(range + 2);
+            return TagExpression.createdBetween(
+                from.isEmpty() ? null : periodStart(from),
+                to.isEmpty() ? null : periodEnd(to));
+        }
+        if (value.startsWith(">=")) {
+            return TagExpression.createdBetween(periodStart(value.substring(2)), null);
+        }
+        if (value.startsWith("<=")) {
+            return TagExpression.createdBetween(null, periodEnd(value.substring(2)));
+        }
+        if (value.startsWith(">")) {
+            return TagExpression.createdBetween(periodEnd(value.substring(1)), null);
+        }
+        if (value.startsWith("<")) {
+            return TagExpression.createdBetween(null, periodStart(value.substring(1)));
+        }
+        String date = value.startsWith("=") ? value.substring(1) : value;
+        return TagExpression.createdBetween(periodStart(date), periodEnd(date));
+    }
+
+    private static LocalDateTime periodStart(String date) {
+        try {
+            return switch (date.length()) {
+                case 4 -> LocalDate.of(Integer.parseInt(date), 1, 1).atStartOfDay();
+                case 7 -> YearMonth.parse(date).atDay(1).atStartOfDay();
+                case 10 -> LocalDate.parse(date).atStartOfDay();
+                default -> throw new IllegalArgumentException("Invalid date '" + date + "', expected yyyy, yyyy-MM or yyyy-MM-dd");
+            };
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date '" + date + "', expected yyyy, yyyy-MM or yyyy-MM-dd");
+        }
+    }
+
+    // Start of the period after the one the date names
+    private static LocalDateTime periodEnd(String date) {
+        LocalDateTime start = periodStart(date);
+        return switch (date.length()) {
+            case 4 -> start.plusYears(1);
+            case 7 -> start.plusMonths(1);
+            default -> start.plusDays(1);
+        };
+    }
+
+    private boolean peek(TokenType type) {
+        return position < tokens.size() && tokens.get(position).type == type;
+    }
+
+    private boolean peekKeyword(String keyword) {
+        return peek(TokenType.WORD) && tokens.get(position).text.equalsIgnoreCase(keyword);
+    }
+
+    private void enter() {
+        if (++depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Query is nested too deeply");
+        }
+    }
+
+    private static List<Token> tokenize(String query) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(') {
+                tokens.add(new Token(TokenType.OPEN, "("));
+                i++;
+            } else if (c == ')') {
+                tokens.add(new Token(TokenType.CLOSE, ")"));
+                i++;
+            } else if (c == '-' && i + 1 < query.length() && !Character.isWhitespace(query.charAt(i + 1))) {
+                // Negation only directly before a term; "a - b" keeps the dash as a name
+                tokens.add(new Token(TokenType.MINUS, "-"));
+                i++;
+            } else if (c == '"') {
+                int end = query.indexOf('"', i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unterminated quote in query");
+                }
+                tokens.add(new Token(TokenType.QUOTED, query.substring(i + 1, end)));
+                i = end + 1;
+            } else {
+                int start = i;
+                while (i < query.length() && !Character.isWhitespace(query.charAt(i))
+                    && query.charAt(i) != '(' && query.charAt(i) != ')' && query.charAt(i) != '"') {
+                    i++;
+                }
+                tokens.add(new Token(TokenType.WORD, query.substring(start, i)));
+            }
+        }
+        return tokens;
+    }
+
+    private enum TokenType {
+        WORD, QUOTED, OPEN, CLOSE, MINUS
+    }
+
+    private static final class Token {
+        private final TokenType type;
+        private final String text;
+
+        private Token(TokenType type, String text) {
+            this.type = type;
+            this.text = text;
+        }
+    }
+}
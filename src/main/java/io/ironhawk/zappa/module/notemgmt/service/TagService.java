@@ -1,12 +1,15 @@
 package io.ironhawk.zappa.module.notemgmt.service;
 
+import io.ironhawk.zappa.module.notemgmt.dto.TagBulkResult;
 import io.ironhawk.zappa.module.notemgmt.dto.TagResponse;
 import io.ironhawk.zappa.module.notemgmt.entity.Group;
 import io.ironhawk.zappa.module.notemgmt.entity.Tag;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -44,7 +47,9 @@ public interface TagService {
     // Utility methods
     boolean tagExists(String name);
     Tag getOrCreateTag(String name, String color);
-    void deleteUnusedTags();
+    // Ids of tags with the names, ignoring case, creating missing ones in the Default group in one statement
+    List<UUID> getOrCreateTagIds(Collection<String> names);
+    int deleteUnusedTags();
 
     // ===============================
     // Group-scoped tag operations
@@ -84,11 +89,26 @@ public interface TagService {
     List<Tag> findUnusedTagsInGroup(UUID groupId);
 
     // Delete unused tags in specific group
-    void deleteUnusedTagsInGroup(UUID groupId);
+    int deleteUnusedTagsInGroup(UUID groupId);
 
     // Move tag between groups
     Tag moveTagToGroup(UUID tagId, UUID newGroupId);
 
     // Make tag global
     Tag makeTagGlobal(UUID tagId);
+
+    // ===============================
+    // Bulk operations
+    // ===============================
+
+    // Move the notes of the source tags to the target tag and delete the source tags
+    TagBulkResult mergeTags(Collection<UUID> sourceTagIds, UUID targetTagId);
+
+    // Rename several tags at once; new names must not clash with other tags or each other
+    TagBulkResult renameTags(Map<UUID, String> namesById);
+
+    TagBulkResult recolorTags(Collection<UUID> tagIds, String color);
+
+    // Move several tags into a group; names must not clash with tags already there
+    TagBulkResult moveTagsToGroup(Collection<UUID> tagIds, UUID groupId);
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import io.ironhawk.zappa.module.notemgmt.dto.TagSuggestion;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Tags for a note being written, predicted from how the current user has tagged notes with
+ * similar text
+ */
+public interface TagSuggestionService {
+
+    int MAX_LIMIT = 20;
+
+    // Most likely tags first, leaving out the tags already chosen (matched by name, ignoring case)
+    List<TagSuggestion> suggestTags(String title, String content, Collection<String> chosenTagNames, int limit);
+}
@@ -0,0 +1,25 @@
+package io.ironhawk.zappa.module.notemgmt.service;
+
+import io.ironhawk.zappa.module.notemgmt.dto.TagUsageHistogram;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Weekly tag usage of the current user, read from the precomputed roll-up
+ */
+public interface TagUsageService {
+
+    int DEFAULT_WEEKS = 26;
+    int MAX_WEEKS = 520;
+
+    /**
+     * Notes tagged per week, by when the tag was put on them. Weeks start on Monday; the range
+     * covers the weeks containing from and to, defaulting to the last DEFAULT_WEEKS weeks.
+     *
+     * @param groupId tags of this group and its subgroups, or null for all tags
+     * @param tagId   only this tag, or null
+     * @throws IllegalArgumentException if the group or tag is not found or the range is invalid
+     */
+    TagUsageHistogram getHistogram(UUID groupId, UUID tagId, LocalDate from, LocalDate to);
+}
@@ -0,0 +1,362 @@
+package io.ironhawk.zappa.module.notemgmt.service.impl;
+
+import io.ironhawk.zappa.module.notemgmt.dto.NoteComponent;
+import io.ironhawk.zappa.module.notemgmt.dto.NoteNeighbour;
+import io.ironhawk.zappa.module.notemgmt.dto.NotePathResponse;
+import io.ironhawk.zappa.module.notemgmt.dto.NoteScore;
+import io.ironhawk.zappa.module.notemgmt.dto.NoteSubgraph;
+import io.ironhawk.zappa.module.notemgmt.entity.NoteLinkType;
+import io.ironhawk.zappa.module.notemgmt.repository.NoteLinkRepository;
+import io.ironhawk.zappa.module.notemgmt.repository.NoteRepository;
+import io.ironhawk.zappa.module.notemgmt.service.GraphAlgorithmService;
+import io.ironhawk.zappa.module.notemgmt.service.NoteCommunities;
+import io.ironhawk.zappa.module.notemgmt.service.NoteGraph;
+import io.ironhawk.zappa.security.service.CurrentUserService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class GraphAlgorithmServiceImpl implements GraphAlgorithmService {
+
+    private static final double PAGE_RANK_DAMPING = 0.85;
+    private static final int PAGE_RANK_MAX_ITERATIONS = 50;
+    private static final double PAGE_RANK_TOLERANCE = 1e-6;
+
+    private static final int LABEL_PROPAGATION_MAX_ITERATIONS = 20;
+    private static final long LABEL_PROPAGATION_SEED = 42L;
+
+    // Safety net for changes that bypass invalidation, e.g. cascades from group deletion
+    private static final long MAX_GRAPH_AGE_NANOS = Duration.ofMinutes(10).toNanos();
+
+    private final NoteLinkRepository noteLinkRepository;
+    private final NoteRepository noteRepository;
+    private final CurrentUserService currentUserService;
+
+    private final Map<UUID, CachedGraph> graphs = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> generations = new ConcurrentHashMap<>();
+    private final Map<UUID, NoteCommunities> communities = new ConcurrentHashMap<>();
+    private final Set<UUID> communitiesInFlight = ConcurrentHashMap.newKeySet();
+
+    // One background worker is plenty: a warm-started recomputation takes a pass or two
+    private final ThreadPoolExecutor communityExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(100),
+        runnable -> {
+            Thread thread = new Thread(runnable, "graph-communities");
+            thread.setDaemon(true);
+            return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy());
+
+    @Override
+    public NoteGraph getGraph() {
+        UUID userId = currentUserService.getCurrentUserId();
+        long generation = generations.getOrDefault(userId, 0L);
+
+        CachedGraph cached = graphs.get(userId);
+        if (cached != null && cached.generation == generation
+            && System.nanoTime() - cached.builtAt < MAX_GRAPH_AGE_NANOS) {
+            return cached.graph;
+        }
+
+        NoteGraph graph = buildGraph(userId);
+        // A graph built while a change committed is stored under the old generation and rebuilt on next use
+        graphs.put(userId, new CachedGraph(graph, generation, System.nanoTime()));
+        return graph;
+    }
+
+    private NoteGraph buildGraph(UUID userId) {
+        long start = System.nanoTime();
+
+        NoteGraph.Builder builder = new NoteGraph.Builder(noteRepository.findIdsByUserId(userId));
+        for (Object[] edge : noteLinkRepository.findGraphEdgesByUserId(userId)) {
+            builder.addLink(
+                (UUID) edge[0],
+                (UUID) edge[1],
+                edge[2] != null ? ((Number) edge[2]).intValue() : null,
+                Boolean.TRUE.equals(edge[3]),
+                NoteLinkType.valueOf((String) edge[4]).ordinal());
+        }
+        NoteGraph graph = builder.build();
+
+        log.debug("Built link graph for user {}: {} notes, {} edges in {} ms", userId, graph.size(),
+            graph.edgeCount(), (System.nanoTime() - start) / 1_000_000);
+        return graph;
+    }
+
+    /**
+     * Drop graphs past MAX_GRAPH_AGE, which would be rebuilt on next use anyway, so users who
+     * stopped using the graph do not keep theirs in memory, and their communities with them
+     */
+    @Scheduled(fixedDelay = 5, timeUnit = TimeUnit.MINUTES)
+    public void evictExpired() {
+        long now = System.nanoTime();
+        graphs.values().removeIf(cached -> now - cached.builtAt >= MAX_GRAPH_AGE_NANOS);
+        communities.keySet().removeIf(userId -> !graphs.containsKey(userId) && !communitiesInFlight.contains(userId));
+    }
+
+    @Override
+    public void invalidate(UUID userId) {
+        bumpGeneration(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Bump again after commit so a graph rebuilt from pre-commit data is not kept
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bumpGeneration(userId);
+                }
+            });
+        }
+    }
+
+    private void bumpGeneration(UUID userId) {
+        generations.merge(userId, 1L, Long::sum);
+    }
+
+    @Override
+    public Optional<NotePathResponse> findWeightedPath(UUID startNoteId, UUID targetNoteId) {
+        NoteGraph graph = getGraph();
+        int source = graph.indexOf(startNoteId);
+        int target = graph.indexOf(targetNoteId);
+        if (source < 0 || target < 0) {
+            return Optional.empty();
+        }
+
+        NoteGraph.WeightedPath path = graph.shortestPath(source, target);
+        if (path == null) {
+            return Optional.empty();
+        }
+        return Optional.of(NotePathResponse.builder()
+            .path(toNoteIds(graph, path.nodes))
+            .hops(path.nodes.length - 1)
+            .cost(path.cost)
+            .build());
+    }
+
+    @Override
+    public List<NoteNeighbour> findNeighbourhood(UUID noteId, int hops, int limit, boolean undirected) {
+        NoteGraph graph = getGraph();
+        int source = graph.indexOf(noteId);
+        if (source < 0) {
+            return List.of();
+        }
+
+        NoteGraph.Reach reach = graph.breadthFirst(source, hops, limit, undirected);
+        List<NoteNeighbour> neighbours = new ArrayList<>(reach.nodes.length);
+        for (int i = 0; i < reach.nodes.length; i++) {
+            neighbours.add(new NoteNeighbour(graph.noteIdAt(reach.nodes[i]), reach.depths[i]));
+        }
+        return neighbours;
+    }
+
+    /**
+     * One undirected traversal over the cached graph, then a single query for the titles
+     */
+    @Override
+    public Optional<NoteSubgraph> findLocalGraph(UUID noteId, int hops, int limit) {
+        NoteGraph graph = getGraph();
+        int centre = graph.indexOf(noteId);
+        if (centre < 0) {
+            return Optional.empty();
+        }
+
+        NoteGraph.Reach reach = graph.breadthFirst(centre, hops, limit, true);
+        int[] nodes = new int[reach.nodes.length + 1];
+        int[] depths = new int[nodes.length];
+        nodes[0] = centre;
+        System.arraycopy(reach.nodes, 0, nodes, 1, reach.nodes.length);
+        System.arraycopy(reach.depths, 0, depths, 1, reach.depths.length);
+
+        Map<Integer, Integer> localIndex = new HashMap<>(nodes.length * 2);
+        List<UUID> noteIds = new ArrayList<>(nodes.length);
+        for (int i = 0; i < nodes.length; i++) {
+            localIndex.put(nodes[i], i);
+            noteIds.add(graph.noteIdAt(nodes[i]));
+        }
+
+        Map<UUID, String> titles = new HashMap<>(nodes.length * 2);
+        for (Object[] row : noteRepository.findTitlesByUserIdAndIdIn(currentUserService.getCurrentUserId(), noteIds)) {
+            titles.put((UUID) row[0], (String) row[1]);
+        }
+
+        List<NoteSubgraph.Node> subgraphNodes = new ArrayList<>(nodes.length);
+        for (int i = 0; i < nodes.length; i++) {
+            subgraphNodes.add(NoteSubgraph.Node.builder()
+                .noteId(noteIds.get(i))
+                .title(titles.get(noteIds.get(i)))
+                .depth(depths[i])
+                .inDegree(graph.inDegree(nodes[i]))
+                .outDegree(graph.outDegree(nodes[i]))
+                .build());
+        }
+
+        // Links as stored: a bidirectional link once, two one-way links in opposite directions as two edges
+        Map<Long, NoteSubgraph.Edge> edges = new LinkedHashMap<>();
+        NoteLinkType[] linkTypes = NoteLinkType.values();
+        for (int i = 0; i < nodes.length; i++) {
+            int source = i;
+            graph.forEachLink(nodes[i], (neighbour, weight, linkTypeOrdinal, bidirectional) -> {
+                Integer target = localIndex.get(neighbour);
+                if (target == null) {
+                    return;
+                }
+                edges.putIfAbsent(edgeKey(source, target), NoteSubgraph.Edge.builder()
+                    .source(noteIds.get(source))
+                    .target(noteIds.get(target))
+                    .type(linkTypes[linkTypeOrdinal].name())
+                    .weight(weight)
+                    .bidirectional(bidirectional)
+                    .build());
+            });
+        }
+
+        return Optional.of(NoteSubgraph.builder()
+            .centreId(noteId)
+            .hops(hops)
+            .truncated(reach.nodes.length >= limit)
+            .nodes(subgraphNodes)
+            .edges(new ArrayList<>(edges.values()))
+            .build());
+    }
+
+    private static long edgeKey(int source, int target) {
+        return ((long) source << 32) | target;
+    }
+
+    @Override
+    public List<NoteScore> rankNotes(int limit) {
+        NoteGraph graph = getGraph();
+        double[] rank = graph.pageRank(PAGE_RANK_DAMPING, PAGE_RANK_MAX_ITERATIONS, PAGE_RANK_TOLERANCE);
+
+        return IntStream.range(0, graph.size())
+            .boxed()
+            .sorted(Comparator.comparingDouble((Integer node) -> rank[node]).reversed())
+            .limit(limit)
+            .map(node -> new NoteScore(graph.noteIdAt(node), rank[node], graph.inDegree(node), graph.outDegree(node)))
+            .toList();
+    }
+
+    @Override
+    public List<NoteComponent> findComponents(int minSize, int limit) {
+        NoteGraph graph = getGraph();
+        int[] component = graph.connectedComponents();
+
+        int count = Arrays.stream(component).max().orElse(-1) + 1;
+        List<List<UUID>> members = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            members.add(new ArrayList<>());
+        }
+        for (int node = 0; node < component.length; node++) {
+            members.get(component[node]).add(graph.noteIdAt(node));
+        }
+
+        return members.stream()
+            .filter(noteIds -> noteIds.size() >= minSize)
+            .sorted(Comparator.comparingInt((List<UUID> noteIds) -> noteIds.size()).reversed())
+            .limit(limit)
+            .map(noteIds -> new NoteComponent(noteIds.size(), noteIds))
+            .toList();
+    }
+
+    /**
+     * Communities are computed synchronously only the first time. Afterwards a request that finds
+     * them behind the current graph gets the previous partition while a recomputation, warm-started
+     * from it, runs in the background.
+     */
+    @Override
+    public NoteCommunities getCommunities() {
+        UUID userId = currentUserService.getCurrentUserId();
+        NoteGraph graph = getGraph();
+
+        NoteCommunities current = communities.get(userId);
+        if (current == null) {
+            current = detectCommunities(graph, null);
+            communities.put(userId, current);
+        } else if (current.graph() != graph) {
+            scheduleCommunityDetection(userId, graph, current);
+        }
+        return current;
+    }
+
+    private void scheduleCommunityDetection(UUID userId, NoteGraph graph, NoteCommunities previous) {
+        if (!communitiesInFlight.add(userId)) {
+            return;
+        }
+        try {
+            communityExecutor.execute(() -> {
+                try {
+                    communities.put(userId, detectCommunities(graph, previous));
+                } catch (RuntimeException ex) {
+                    log.warn("Community detection failed for user {}", userId, ex);
+                } finally {
+                    communitiesInFlight.remove(userId);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            communitiesInFlight.remove(userId);
+            log.debug("Community detection queue full, skipping user {}", userId);
+        }
+    }
+
+    private NoteCommunities detectCommunities(NoteGraph graph, NoteCommunities previous) {
+        long start = System.nanoTime();
+        int[] labels = graph.labelPropagation(previous != null ? previous.warmStartLabels(graph) : null,
+            LABEL_PROPAGATION_MAX_ITERATIONS, LABEL_PROPAGATION_SEED);
+        NoteCommunities result = NoteCommunities.fromLabels(graph, labels);
+
+        log.debug("Detected {} communities over {} notes ({}) in {} ms", result.count(), graph.size(),
+            previous != null ? "warm start" : "cold start", (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        communityExecutor.shutdownNow();
+    }
+
+    private static List<UUID> toNoteIds(NoteGraph graph, int[] nodes) {
+        List<UUID> noteIds = new ArrayList<>(nodes.length);
+        for (int node : nodes) {
+            noteIds.add(graph.noteIdAt(node));
+        }
+        return noteIds;
+    }
+
+    private static final class CachedGraph {
+        private final NoteGraph graph;
+        private final long generation;
+        private final long builtAt;
+
+        private CachedGraph(NoteGraph graph, long generation, long builtAt) {
+            this.graph = graph;
+            this.generation = generation;
+            this.builtAt = builtAt;
+        }
+    }
+}
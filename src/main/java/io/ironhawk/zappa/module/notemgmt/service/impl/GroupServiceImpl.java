@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import io.ironhawk.zappa.module.notemgmt.entity.Group;
 import io.ironhawk.zappa.module.notemgmt.repository.GroupRepository;
 import io.ironhawk.zappa.module.notemgmt.service.GroupService;
+import io.ironhawk.zappa.module.notemgmt.service.TagIndexService;
 import io.ironhawk.zappa.security.entity.User;
 import io.ironhawk.zappa.security.service.CurrentUserService;
 import org.springframework.stereotype.Service;
@@ -23,6 +24,7 @@ public class GroupServiceImpl implements GroupService {
 
     private final GroupRepository groupRepository;
     private final CurrentUserService currentUserService;
+    private final TagIndexService tagIndexService;
 
     @Override
     @Transactional
@@ -61,7 +63,10 @@ public class GroupServiceImpl implements GroupService {
             throw new IllegalArgumentException("Group with name '" + group.getName() + "' already exists");
         }
 
-        return groupRepository.save(group);
+        Group savedGroup = groupRepository.save(group);
+        // Queries match groups by name
+        tagIndexService.invalidate(currentUser.getId());
+        return savedGroup;
     }
 
     @Override
@@ -74,6 +79,7 @@ public class GroupServiceImpl implements GroupService {
         }
 
         groupRepository.deleteById(id);
+        tagIndexService.invalidate(currentUserService.getCurrentUserId());
     }
 
     @Override
@@ -164,6 +170,7 @@ public class GroupServiceImpl implements GroupService {
 
         group.setParentGroup(newParent);
         groupRepository.save(group);
+        tagIndexService.invalidate(group.getUser().getId());
     }
 
     @Override
@@ -0,0 +1,245 @@
+package io.ironhawk.zappa.module.notemgmt.service.impl;
+
+import io.ironhawk.zappa.module.notemgmt.dto.DuplicateCluster;
+import io.ironhawk.zappa.module.notemgmt.dto.NoteDuplicate;
+import io.ironhawk.zappa.module.notemgmt.entity.Note;
+import io.ironhawk.zappa.module.notemgmt.repository.NoteMinHashRepository;
+import io.ironhawk.zappa.module.notemgmt.repository.NoteRepository;
+import io.ironhawk.zappa.module.notemgmt.service.MinHash;
+import io.ironhawk.zappa.module.notemgmt.service.NoteDuplicateService;
+import io.ironhawk.zappa.security.entity.User;
+import io.ironhawk.zappa.security.service.CurrentUserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Near-duplicate detection over MinHash signatures stored per note.
+ *
+ * Signatures are computed when a note is created or updated, after its transaction commits so
+ * a rolled back edit leaves no trace. A lookup only compares the notes sharing an LSH bucket
+ * with the source; finding all clusters only looks at buckets holding more than one note and
+ * unions the pairs whose estimated similarity passes the threshold. Notes saved before
+ * signatures existed are signed the first time clusters are requested.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class NoteDuplicateServiceImpl implements NoteDuplicateService {
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+
+    private final NoteRepository noteRepository;
+    private final NoteMinHashRepository noteMinHashRepository;
+    private final CurrentUserService currentUserService;
+
+    @Override
+    public void indexNote(Note note) {
+        UUID noteId = note.getId();
+        String title = note.getTitle();
+        String content = note.getContent();
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            saveSignature(noteId, title, content);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    saveSignature(noteId, title, content);
+                } catch (RuntimeException ex) {
+                    // The note is saved; it is signed again by the next edit or cluster run
+                    log.warn("Failed to index note {} for duplicate detection", noteId, ex);
+                }
+            }
+        });
+    }
+
+    private int[] saveSignature(UUID noteId, String title, String content) {
+        int[] signature = MinHash.signature(title, content);
+        noteMinHashRepository.save(noteId, MinHash.toBytes(signature), MinHash.buckets(signature));
+        return signature;
+    }
+
+    @Override
+    public Optional<List<NoteDuplicate>> findDuplicates(UUID noteId, double minSimilarity) {
+        User currentUser = currentUserService.getCurrentUser();
+        Optional<Note> note = noteRepository.findByIdAndUser(noteId, currentUser);
+        if (note.isEmpty()) {
+            return Optional.empty();
+        }
+
+        byte[] stored = noteMinHashRepository.findSignature(noteId);
+        int[] signature = stored != null ? MinHash.fromBytes(stored)
+            : saveSignature(noteId, note.get().getTitle(), note.get().getContent());
+
+        Map<UUID, Double> similarities = new HashMap<>();
+        noteMinHashRepository.findSignaturesInBuckets(currentUser.getId(), MinHash.buckets(signature))
+            .forEach((candidateId, candidate) -> {
+                if (!candidateId.equals(noteId)) {
+                    double similarity = MinHash.similarity(signature, MinHash.fromBytes(candidate));
+                    if (similarity >= minSimilarity) {
+                        similarities.put(candidateId, similarity);
+                    }
+                }
+            });
+
+        Map<UUID, String> titles = findTitles(currentUser.getId(), new ArrayList<>(similarities.keySet()));
+        List<NoteDuplicate> duplicates = new ArrayList<>();
+        similarities.forEach((candidateId, similarity) -> duplicates.add(NoteDuplicate.builder()
+            .noteId(candidateId)
+            .title(titles.get(candidateId))
+            .similarity(similarity)
+            .build()));
+        duplicates.sort(Comparator.comparingDouble(NoteDuplicate::getSimilarity).reversed());
+        return Optional.of(duplicates);
+    }
+
+    @Override
+    public List<DuplicateCluster> findDuplicateClusters(double minSimilarity) {
+        UUID userId = currentUserService.getCurrentUserId();
+        long start = System.nanoTime();
+        backfillSignatures(userId);
+
+        // Candidate groups: notes sharing a bucket
+        Map<UUID, Integer> indexOf = new HashMap<>();
+        List<UUID> noteIds = new ArrayList<>();
+        List<int[]> buckets = new ArrayList<>();
+        List<Integer> members = new ArrayList<>();
+        Long currentBucket = null;
+        for (Object[] row : noteMinHashRepository.findSharedBuckets(userId)) {
+            Long bucket = (Long) row[0];
+            if (!bucket.equals(currentBucket) && !members.isEmpty()) {
+                buckets.add(members.stream().mapToInt(Integer::intValue).toArray());
+                members.clear();
+            }
+            currentBucket = bucket;
+            members.add(indexOf.computeIfAbsent((UUID) row[1], id -> {
+                noteIds.add(id);
+                return noteIds.size() - 1;
+            }));
+        }
+        if (!members.isEmpty()) {
+            buckets.add(members.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        int[][] signatures = new int[noteIds.size()][];
+        for (int from = 0; from < noteIds.size(); from += LOOKUP_BATCH_SIZE) {
+            List<UUID> batch = noteIds.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, noteIds.size()));
+            noteMinHashRepository.findSignatures(userId, batch)
+                .forEach((noteId, signature) -> signatures[indexOf.get(noteId)] = MinHash.fromBytes(signature));
+        }
+
+        // Union the verified pairs; pairs already in one cluster are not compared again
+        int[] parent = new int[noteIds.size()];
+        int[] matches = new int[noteIds.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int[] bucket : buckets) {
+            for (int i = 0; i < bucket.length; i++) {
+                for (int j = i + 1; j < bucket.length; j++) {
+                    int a = bucket[i];
+                    int b = bucket[j];
+                    if (signatures[a] == null || signatures[b] == null || find(parent, a) == find(parent, b)) {
+                        continue;
+                    }
+                    if (MinHash.similarity(signatures[a], signatures[b]) >= minSimilarity) {
+                        parent[find(parent, a)] = find(parent, b);
+                        matches[a]++;
+                        matches[b]++;
+                    }
+                }
+            }
+        }
+
+        Map<Integer, List<Integer>> clusters = new HashMap<>();
+        for (int i = 0; i < parent.length; i++) {
+            clusters.computeIfAbsent(find(parent, i), root -> new ArrayList<>()).add(i);
+        }
+        List<List<Integer>> duplicateGroups = new ArrayList<>();
+        List<UUID> clusteredIds = new ArrayList<>();
+        for (List<Integer> cluster : clusters.values()) {
+            if (cluster.size() > 1) {
+                // The note matched most often stands for the cluster
+                cluster.sort(Comparator.comparingInt((Integer i) -> matches[i]).reversed());
+                duplicateGroups.add(cluster);
+                cluster.forEach(i -> clusteredIds.add(noteIds.get(i)));
+            }
+        }
+        duplicateGroups.sort(Comparator.comparingInt((List<Integer> cluster) -> cluster.size()).reversed());
+
+        Map<UUID, String> titles = findTitles(userId, clusteredIds);
+        List<DuplicateCluster> result = new ArrayList<>();
+        for (List<Integer> cluster : duplicateGroups) {
+            int representative = cluster.get(0);
+            List<NoteDuplicate> duplicates = new ArrayList<>();
+            for (int i : cluster.subList(1, cluster.size())) {
+                duplicates.add(NoteDuplicate.builder()
+                    .noteId(noteIds.get(i))
+                    .title(titles.get(noteIds.get(i)))
+                    .similarity(MinHash.similarity(signatures[representative], signatures[i]))
+                    .build());
+            }
+            duplicates.sort(Comparator.comparingDouble(NoteDuplicate::getSimilarity).reversed());
+            result.add(DuplicateCluster.builder()
+                .representativeId(noteIds.get(representative))
+                .representativeTitle(titles.get(noteIds.get(representative)))
+                .duplicates(duplicates)
+                .build());
+        }
+
+        log.info("Found {} duplicate clusters among {} bucketed notes for user {} in {} ms", result.size(),
+            noteIds.size(), userId, (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    private void backfillSignatures(UUID userId) {
+        int signed = 0;
+        List<Object[]> batch;
+        do {
+            batch = noteMinHashRepository.findUnsignedNotes(userId, BACKFILL_BATCH_SIZE);
+            for (Object[] row : batch) {
+                saveSignature((UUID) row[0], (String) row[1], (String) row[2]);
+            }
+            signed += batch.size();
+        } while (batch.size() == BACKFILL_BATCH_SIZE);
+
+        if (signed > 0) {
+            log.info("Computed MinHash signatures for {} existing notes of user {}", signed, userId);
+        }
+    }
+
+    private Map<UUID, String> findTitles(UUID userId, List<UUID> noteIds) {
+        Map<UUID, String> titles = new HashMap<>();
+        for (int from = 0; from < noteIds.size(); from += LOOKUP_BATCH_SIZE) {
+            List<UUID> batch = noteIds.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, noteIds.size()));
+            for (Object[] row : noteRepository.findTitlesByUserIdAndIdIn(userId, batch)) {
+                titles.put((UUID) row[0], (String) row[1]);
+            }
+        }
+        return titles;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+}
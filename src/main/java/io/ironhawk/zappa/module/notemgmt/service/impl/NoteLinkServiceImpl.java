@@ -2,18 +2,25 @@ package io.ironhawk.zappa.module.notemgmt.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import io.ironhawk.zappa.module.notemgmt.dto.NoteNeighbour;
 import io.ironhawk.zappa.module.notemgmt.entity.Note;
 import io.ironhawk.zappa.module.notemgmt.entity.NoteLink;
 import io.ironhawk.zappa.module.notemgmt.entity.NoteLinkType;
 import io.ironhawk.zappa.module.notemgmt.repository.NoteLinkRepository;
 import io.ironhawk.zappa.module.notemgmt.repository.NoteRepository;
+import io.ironhawk.zappa.module.notemgmt.service.GraphAlgorithmService;
 import io.ironhawk.zappa.module.notemgmt.service.NoteLinkService;
 import io.ironhawk.zappa.security.entity.User;
 import io.ironhawk.zappa.security.service.CurrentUserService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -23,9 +30,14 @@ import java.util.UUID;
 @Transactional(readOnly = true)
 public class NoteLinkServiceImpl implements NoteLinkService {
 
+    // Bidirectional path search: notes per frontier query, and a bound on notes visited
+    private static final int PATH_SEARCH_BATCH_SIZE = 1000;
+    private static final int MAX_PATH_SEARCH_NODES = 200_000;
+
     private final NoteLinkRepository noteLinkRepository;
     private final NoteRepository noteRepository;
     private final CurrentUserService currentUserService;
+    private final GraphAlgorithmService graphAlgorithmService;
 
     @Override
     @Transactional
@@ -35,6 +47,7 @@ public class NoteLinkServiceImpl implements NoteLinkService {
             noteLink.getTargetNote().getId(),
             noteLink.getLinkType());
 
+        graphAlgorithmService.invalidate(currentUserService.getCurrentUserId());
         return noteLinkRepository.save(noteLink);
     }
 
@@ -51,6 +64,7 @@ public class NoteLinkServiceImpl implements NoteLinkService {
         if (!noteLinkRepository.existsById(noteLink.getId())) {
             throw new IllegalArgumentException("NoteLink not found with id: " + noteLink.getId());
         }
+        graphAlgorithmService.invalidate(currentUserService.getCurrentUserId());
         return noteLinkRepository.save(noteLink);
     }
 
@@ -62,6 +76,7 @@ public class NoteLinkServiceImpl implements NoteLinkService {
             throw new IllegalArgumentException("NoteLink not found with id: " + id);
         }
         noteLinkRepository.deleteById(id);
+        graphAlgorithmService.invalidate(currentUserService.getCurrentUserId());
     }
 
     @Override
@@ -107,6 +122,7 @@ public class NoteLinkServiceImpl implements NoteLinkService {
             .weight(weight)
             .build();
 
+        graphAlgorithmService.invalidate(currentUser.getId());
         return noteLinkRepository.save(noteLink);
     }
 
@@ -121,6 +137,7 @@ public class NoteLinkServiceImpl implements NoteLinkService {
             .orElseThrow(() -> new IllegalArgumentException("Link not found"));
 
         noteLinkRepository.delete(link);
+        graphAlgorithmService.invalidate(currentUserService.getCurrentUserId());
     }
 
     @Override
@@ -162,14 +179,120 @@ public class NoteLinkServiceImpl implements NoteLinkService {
     @Override
     public List<UUID> findConnectedNotes(UUID startNoteId, Integer maxDepth) {
         log.debug("Finding connected notes from {} within {} degrees", startNoteId, maxDepth);
-        return noteLinkRepository.findConnectedNotes(startNoteId, maxDepth);
+        return graphAlgorithmService.findNeighbourhood(startNoteId, maxDepth, Integer.MAX_VALUE, false).stream()
+            .map(NoteNeighbour::getNoteId)
+            .toList();
     }
 
     @Override
     public Optional<List<UUID>> findShortestPath(UUID startNoteId, UUID targetNoteId) {
-        log.debug("Finding shortest path from {} to {}", startNoteId, targetNoteId);
-        return noteLinkRepository.findShortestPath(startNoteId, targetNoteId)
-            .map(result -> (List<UUID>) result[0]);
+        return findShortestPath(startNoteId, targetNoteId, null);
+    }
+
+    /**
+     * Unweighted shortest path by bidirectional BFS. Each round expands the smaller of the two
+     * frontiers with one query per batch of notes, and the search stops at the first round in
+     * which the frontiers meet, so only a small ball around each end is ever read.
+     */
+    @Override
+    public Optional<List<UUID>> findShortestPath(UUID startNoteId, UUID targetNoteId, List<NoteLinkType> linkTypes) {
+        User currentUser = currentUserService.getCurrentUser();
+        log.debug("Finding shortest path from {} to {} over {} for user: {}",
+            startNoteId, targetNoteId, linkTypes, currentUser.getUsername());
+
+        if (noteRepository.findByIdAndUser(startNoteId, currentUser).isEmpty()
+            || noteRepository.findByIdAndUser(targetNoteId, currentUser).isEmpty()) {
+            return Optional.empty();
+        }
+        if (startNoteId.equals(targetNoteId)) {
+            return Optional.of(List.of(startNoteId));
+        }
+
+        List<String> types = (linkTypes == null || linkTypes.isEmpty() ? Arrays.asList(NoteLinkType.values()) : linkTypes)
+            .stream().map(Enum::name).toList();
+
+        // note -> (parent towards the side's root, hops from the root)
+        Map<UUID, SearchStep> forward = new HashMap<>();
+        Map<UUID, SearchStep> backward = new HashMap<>();
+        forward.put(startNoteId, new SearchStep(null, 0));
+        backward.put(targetNoteId, new SearchStep(null, 0));
+        List<UUID> forwardFrontier = List.of(startNoteId);
+        List<UUID> backwardFrontier = List.of(targetNoteId);
+
+        long start = System.nanoTime();
+        while (!forwardFrontier.isEmpty() && !backwardFrontier.isEmpty()
+               && forward.size() + backward.size() < MAX_PATH_SEARCH_NODES) {
+
+            boolean expandForward = forwardFrontier.size() <= backwardFrontier.size();
+            Map<UUID, SearchStep> visited = expandForward ? forward : backward;
+            Map<UUID, SearchStep> other = expandForward ? backward : forward;
+            List<UUID> frontier = expandForward ? forwardFrontier : backwardFrontier;
+
+            int depth = visited.get(frontier.get(0)).depth + 1;
+            List<UUID> next = new ArrayList<>();
+            UUID meeting = null;
+
+            for (int i = 0; i < frontier.size(); i += PATH_SEARCH_BATCH_SIZE) {
+                List<UUID> batch = frontier.subList(i, Math.min(frontier.size(), i + PATH_SEARCH_BATCH_SIZE));
+                List<Object[]> steps = expandForward
+                    ? noteLinkRepository.findForwardSteps(batch, types)
+                    : noteLinkRepository.findBackwardSteps(batch, types);
+
+                for (Object[] step : steps) {
+                    UUID from = (UUID) step[0];
+                    UUID to = (UUID) step[1];
+                    if (visited.containsKey(to)) {
+                        continue;
+                    }
+                    visited.put(to, new SearchStep(from, depth));
+                    next.add(to);
+
+                    // Every node found this round has the same depth on this side; prefer the
+                    // meeting point closest to the other side's root
+                    SearchStep otherStep = other.get(to);
+                    if (otherStep != null && (meeting == null || otherStep.depth < other.get(meeting).depth)) {
+                        meeting = to;
+                    }
+                }
+            }
+
+            if (meeting != null) {
+                List<UUID> path = joinPath(meeting, forward, backward);
+                log.debug("Found path of {} hops from {} to {} visiting {} notes in {} ms", path.size() - 1,
+                    startNoteId, targetNoteId, forward.size() + backward.size(), (System.nanoTime() - start) / 1_000_000);
+                return Optional.of(path);
+            }
+
+            if (expandForward) {
+                forwardFrontier = next;
+            } else {
+                backwardFrontier = next;
+            }
+        }
+
+        log.debug("No path from {} to {} after visiting {} notes", startNoteId, targetNoteId, forward.size() + backward.size());
+        return Optional.empty();
+    }
+
+    private static List<UUID> joinPath(UUID meeting, Map<UUID, SearchStep> forward, Map<UUID, SearchStep> backward) {
+        LinkedList<UUID> path = new LinkedList<>();
+        for (UUID node = meeting; node != null; node = forward.get(node).parent) {
+            path.addFirst(node);
+        }
+        for (UUID node = backward.get(meeting).parent; node != null; node = backward.get(node).parent) {
+            path.addLast(node);
+        }
+        return new ArrayList<>(path);
+    }
+
+    private static final class SearchStep {
+        private final UUID parent;
+        private final int depth;
+
+        private SearchStep(UUID parent, int depth) {
+            this.parent = parent;
+            this.depth = depth;
+        }
     }
 
     @Override
@@ -209,6 +332,7 @@ public class NoteLinkServiceImpl implements NoteLinkService {
     public void deleteAllLinksForNote(UUID noteId) {
         log.info("Deleting all links for note: {}", noteId);
         noteLinkRepository.deleteAllLinksForNote(noteId);
+        graphAlgorithmService.invalidate(currentUserService.getCurrentUserId());
     }
 
     @Override
@@ -231,6 +355,7 @@ public class NoteLinkServiceImpl implements NoteLinkService {
             if (link != null) {
                 link.setIsBidirectional(true);
                 noteLinkRepository.save(link);
+                graphAlgorithmService.invalidate(currentUserService.getCurrentUserId());
             }
         }
     }
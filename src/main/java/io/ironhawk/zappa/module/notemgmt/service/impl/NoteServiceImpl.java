@@ -7,19 +7,31 @@ import io.ironhawk.zappa.module.notemgmt.entity.Note;
 import io.ironhawk.zappa.module.notemgmt.entity.NoteTag;
 import io.ironhawk.zappa.module.notemgmt.entity.Tag;
 import io.ironhawk.zappa.module.notemgmt.repository.GroupRepository;
+import io.ironhawk.zappa.module.notemgmt.repository.NoteAttachmentRepository;
 import io.ironhawk.zappa.module.notemgmt.repository.NoteRepository;
 import io.ironhawk.zappa.module.notemgmt.repository.NoteTagRepository;
 import io.ironhawk.zappa.module.notemgmt.repository.TagRepository;
+import io.ironhawk.zappa.module.notemgmt.service.GraphAlgorithmService;
+import io.ironhawk.zappa.module.notemgmt.service.NoteDuplicateService;
 import io.ironhawk.zappa.module.notemgmt.service.NoteService;
+import io.ironhawk.zappa.module.notemgmt.service.TagCooccurrenceService;
+import io.ironhawk.zappa.module.notemgmt.service.TagExpression;
+import io.ironhawk.zappa.module.notemgmt.service.TagIndexService;
+import io.ironhawk.zappa.module.notemgmt.service.TagQueryParser;
 import io.ironhawk.zappa.module.notemgmt.service.GroupService;
 import io.ironhawk.zappa.security.entity.User;
 import io.ironhawk.zappa.security.service.CurrentUserService;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -29,12 +41,19 @@ import java.util.UUID;
 @Transactional(readOnly = true)
 public class NoteServiceImpl implements NoteService {
 
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+
     private final NoteRepository noteRepository;
     private final TagRepository tagRepository;
     private final NoteTagRepository noteTagRepository;
     private final GroupRepository groupRepository;
+    private final NoteAttachmentRepository noteAttachmentRepository;
     private final CurrentUserService currentUserService;
     private final GroupService groupService;
+    private final GraphAlgorithmService graphAlgorithmService;
+    private final NoteDuplicateService noteDuplicateService;
+    private final TagCooccurrenceService tagCooccurrenceService;
+    private final TagIndexService tagIndexService;
 
     @Override
     @Transactional
@@ -63,7 +82,12 @@ public class NoteServiceImpl implements NoteService {
         }
 
         log.info("Creating new note with title: {} for user: {}", note.getTitle(), currentUser.getUsername());
-        return noteRepository.save(note);
+        graphAlgorithmService.invalidate(currentUser.getId());
+        tagIndexService.invalidate(currentUser.getId());
+
+        Note savedNote = noteRepository.save(note);
+        noteDuplicateService.indexNote(savedNote);
+        return savedNote;
     }
 
     @Override
@@ -93,7 +117,17 @@ public class NoteServiceImpl implements NoteService {
         note.setOutgoingLinks(existingNote.getOutgoingLinks()); // Preserve existing links
         note.setIncomingLinks(existingNote.getIncomingLinks()); // Preserve existing links
 
-        return noteRepository.save(note);
+        // The index answers group: queries, so moving a note between groups makes it stale.
+        // A null group removes the note from its group and counts as a move.
+        UUID previousGroupId = existingNote.getGroup() != null ? existingNote.getGroup().getId() : null;
+        UUID groupId = note.getGroup() != null ? note.getGroup().getId() : null;
+
+        Note savedNote = noteRepository.save(note);
+        noteDuplicateService.indexNote(savedNote);
+        if (!Objects.equals(previousGroupId, groupId)) {
+            tagIndexService.invalidate(currentUser.getId());
+        }
+        return savedNote;
     }
 
     @Override
@@ -108,6 +142,9 @@ public class NoteServiceImpl implements NoteService {
         }
 
         noteRepository.deleteById(id);
+        graphAlgorithmService.invalidate(currentUser.getId());
+        tagCooccurrenceService.invalidate(currentUser.getId());
+        tagIndexService.invalidate(currentUser.getId());
     }
 
     @Override
@@ -121,7 +158,11 @@ public class NoteServiceImpl implements NoteService {
     public List<Note> searchNotes(String searchTerm) {
         User currentUser = currentUserService.getCurrentUser();
         log.debug("Searching notes with term: {} for user: {}", searchTerm, currentUser.getUsername());
-        return noteRepository.searchNotesByUser(currentUser, searchTerm);
+        List<UUID> attachmentMatches = noteAttachmentRepository.findNoteIdsByExtractedText(currentUser.getId(), searchTerm);
+        if (attachmentMatches.isEmpty()) {
+            return noteRepository.searchNotesByUser(currentUser, searchTerm);
+        }
+        return noteRepository.searchNotesByUserOrIds(currentUser, searchTerm, attachmentMatches);
     }
 
     @Override
@@ -171,6 +212,8 @@ public class NoteServiceImpl implements NoteService {
 
         NoteTag noteTag = NoteTag.of(note, tag);
         noteTagRepository.save(noteTag);
+        tagCooccurrenceService.noteTagAdded(noteId, tagId);
+        tagIndexService.noteTagAdded(noteId, tagId);
 
         return noteRepository.findByIdAndUserWithTags(noteId, currentUserService.getCurrentUser()).orElse(note);
     }
@@ -184,7 +227,11 @@ public class NoteServiceImpl implements NoteService {
             throw new IllegalArgumentException("Note not found with id: " + noteId);
         }
 
-        noteTagRepository.deleteByNoteIdAndTagId(noteId, tagId);
+        if (noteTagRepository.existsByNoteIdAndTagId(noteId, tagId)) {
+            noteTagRepository.deleteByNoteIdAndTagId(noteId, tagId);
+            tagCooccurrenceService.noteTagRemoved(noteId, tagId);
+            tagIndexService.noteTagRemoved(noteId, tagId);
+        }
 
         return noteRepository.findByIdAndUserWithTags(noteId, currentUserService.getCurrentUser())
             .orElseThrow(() -> new IllegalArgumentException("Note not found with id: " + noteId));
@@ -206,7 +253,11 @@ public class NoteServiceImpl implements NoteService {
     public Page<Note> searchNotes(String searchTerm, Pageable pageable) {
         User currentUser = currentUserService.getCurrentUser();
         log.debug("Searching notes with term: {} and pagination: {} for user: {}", searchTerm, pageable, currentUser.getUsername());
-        Page<Note> notes = noteRepository.searchNotesByUser(currentUser, searchTerm, pageable);
+        // Attachment text is matched through its full-text index; the note query then ORs in those ids
+        List<UUID> attachmentMatches = noteAttachmentRepository.findNoteIdsByExtractedText(currentUser.getId(), searchTerm);
+        Page<Note> notes = attachmentMatches.isEmpty()
+            ? noteRepository.searchNotesByUser(currentUser, searchTerm, pageable)
+            : noteRepository.searchNotesByUserOrIds(currentUser, searchTerm, attachmentMatches, pageable);
 
         // Sort tags within each note (key tags first, then alphabetical)
         notes.getContent().forEach(this::sortNoteTags);
@@ -227,7 +278,7 @@ public class NoteServiceImpl implements NoteService {
         if (tagNames == null || tagNames.isEmpty()) {
             return List.of();
         }
-        return noteRepository.findByAllTags(tagNames, tagNames.size());
+        return findNotesByIds(tagIndexService.findNoteIds(TagExpression.allOf(tagNames)));
     }
 
     @Override
@@ -236,8 +287,7 @@ public class NoteServiceImpl implements NoteService {
         if (tagNames == null || tagNames.isEmpty()) {
             return List.of();
         }
-        User currentUser = currentUserService.getCurrentUser();
-        return noteRepository.findByUserAndTagNames(currentUser, tagNames);
+        return findNotesByIds(tagIndexService.findNoteIds(TagExpression.anyOf(tagNames)));
     }
 
     @Override
@@ -246,9 +296,7 @@ public class NoteServiceImpl implements NoteService {
         if (tagNames == null || tagNames.isEmpty()) {
             return Page.empty(pageable);
         }
-        Page<Note> notes = noteRepository.findByAllTags(tagNames, tagNames.size(), pageable);
-        notes.getContent().forEach(this::sortNoteTags);
-        return notes;
+        return findNotesByIds(tagIndexService.findNoteIds(TagExpression.allOf(tagNames), pageable));
     }
 
     @Override
@@ -257,9 +305,14 @@ public class NoteServiceImpl implements NoteService {
         if (tagNames == null || tagNames.isEmpty()) {
             return Page.empty(pageable);
         }
-        Page<Note> notes = noteRepository.findByAnyTags(tagNames, pageable);
-        notes.getContent().forEach(this::sortNoteTags);
-        return notes;
+        return findNotesByIds(tagIndexService.findNoteIds(TagExpression.anyOf(tagNames), pageable));
+    }
+
+    @Override
+    public Page<Note> findNotesByQuery(String query, Pageable pageable) {
+        TagExpression expression = TagQueryParser.parse(query);
+        log.debug("Finding notes by query: {} - {}", expression, pageable);
+        return findNotesByIds(tagIndexService.findNoteIds(expression, pageable));
     }
 
     @Override
@@ -320,7 +373,9 @@ public class NoteServiceImpl implements NoteService {
             .orElseThrow(() -> new IllegalArgumentException("Group not found with id: " + groupId));
 
         note.setGroup(group);
-        return noteRepository.save(note);
+        Note savedNote = noteRepository.save(note);
+        tagIndexService.invalidate(note.getUser().getId());
+        return savedNote;
     }
 
     @Override
@@ -332,7 +387,38 @@ public class NoteServiceImpl implements NoteService {
             .orElseThrow(() -> new IllegalArgumentException("Note not found with id: " + noteId));
 
         note.setGroup(null);
-        return noteRepository.save(note);
+        Note savedNote = noteRepository.save(note);
+        tagIndexService.invalidate(note.getUser().getId());
+        return savedNote;
+    }
+
+    // Notes for ids from the tag index, in the same order and with tags loaded
+    private List<Note> findNotesByIds(List<UUID> noteIds) {
+        if (noteIds.isEmpty()) {
+            return List.of();
+        }
+        // Broad tag filters match many notes; keep each IN list bounded
+        User currentUser = currentUserService.getCurrentUser();
+        Map<UUID, Note> notesById = new HashMap<>();
+        for (int from = 0; from < noteIds.size(); from += LOOKUP_BATCH_SIZE) {
+            List<UUID> batch = noteIds.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, noteIds.size()));
+            for (Note note : noteRepository.findByUserAndIdInWithTags(currentUser, batch)) {
+                notesById.put(note.getId(), note);
+            }
+        }
+        List<Note> notes = new ArrayList<>(noteIds.size());
+        for (UUID noteId : noteIds) {
+            Note note = notesById.get(noteId);
+            if (note != null) {
+                sortNoteTags(note);
+                notes.add(note);
+            }
+        }
+        return notes;
+    }
+
+    private Page<Note> findNotesByIds(Page<UUID> noteIds) {
+        return new PageImpl<>(findNotesByIds(noteIds.getContent()), noteIds.getPageable(), noteIds.getTotalElements());
     }
 
     // Helper method to sort tags within a note (key tags first, then alphabetical)
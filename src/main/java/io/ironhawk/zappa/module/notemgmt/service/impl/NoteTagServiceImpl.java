@@ -8,12 +8,19 @@ import io.ironhawk.zappa.module.notemgmt.entity.Tag;
 import io.ironhawk.zappa.module.notemgmt.repository.NoteRepository;
 import io.ironhawk.zappa.module.notemgmt.repository.NoteTagRepository;
 import io.ironhawk.zappa.module.notemgmt.repository.TagRepository;
+import io.ironhawk.zappa.module.notemgmt.dto.TagCooccurrence;
 import io.ironhawk.zappa.module.notemgmt.service.NoteTagService;
+import io.ironhawk.zappa.module.notemgmt.service.TagCooccurrenceService;
+import io.ironhawk.zappa.module.notemgmt.service.TagIndexService;
+import io.ironhawk.zappa.security.service.CurrentUserService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Slf4j
@@ -25,6 +32,9 @@ public class NoteTagServiceImpl implements NoteTagService {
     private final NoteTagRepository noteTagRepository;
     private final NoteRepository noteRepository;
     private final TagRepository tagRepository;
+    private final TagCooccurrenceService tagCooccurrenceService;
+    private final TagIndexService tagIndexService;
+    private final CurrentUserService currentUserService;
 
     @Override
     @Transactional
@@ -44,7 +54,10 @@ public class NoteTagServiceImpl implements NoteTagService {
         }
 
         NoteTag noteTag = NoteTag.of(note, tag);
-        return noteTagRepository.save(noteTag);
+        NoteTag savedNoteTag = noteTagRepository.save(noteTag);
+        tagCooccurrenceService.noteTagAdded(noteId, tagId);
+        tagIndexService.noteTagAdded(noteId, tagId);
+        return savedNoteTag;
     }
 
     @Override
@@ -57,6 +70,8 @@ public class NoteTagServiceImpl implements NoteTagService {
         }
 
         noteTagRepository.deleteByNoteIdAndTagId(noteId, tagId);
+        tagCooccurrenceService.noteTagRemoved(noteId, tagId);
+        tagIndexService.noteTagRemoved(noteId, tagId);
     }
 
     @Override
@@ -89,6 +104,8 @@ public class NoteTagServiceImpl implements NoteTagService {
 
             NoteTag noteTag = NoteTag.of(note, tag);
             NoteTag savedNoteTag = noteTagRepository.save(noteTag);
+            tagCooccurrenceService.noteTagAdded(noteId, tagId);
+            tagIndexService.noteTagAdded(noteId, tagId);
             createdRelationships.add(savedNoteTag);
         }
 
@@ -107,6 +124,8 @@ public class NoteTagServiceImpl implements NoteTagService {
 
         long deletedCount = noteTagRepository.findByNoteId(noteId).size();
         noteTagRepository.deleteByNoteId(noteId);
+        tagCooccurrenceService.invalidate(currentUserService.getCurrentUserId());
+        tagIndexService.invalidate(currentUserService.getCurrentUserId());
 
         log.info("Removed {} tag relationships from note {}", deletedCount, noteId);
     }
@@ -122,6 +141,8 @@ public class NoteTagServiceImpl implements NoteTagService {
 
         long deletedCount = noteTagRepository.findByTagId(tagId).size();
         noteTagRepository.deleteByTagId(tagId);
+        tagCooccurrenceService.invalidate(currentUserService.getCurrentUserId());
+        tagIndexService.invalidate(currentUserService.getCurrentUserId());
 
         log.info("Removed tag {} from {} notes", tagId, deletedCount);
     }
@@ -164,29 +185,15 @@ public class NoteTagServiceImpl implements NoteTagService {
     @Override
     public List<Tag> findCoOccurringTags(UUID tagId) {
         log.debug("Finding co-occurring tags for tag {}", tagId);
-        return noteTagRepository.findCoOccurringTags(tagId);
-    }
-
-    @Override
-    @Transactional
-    public void cleanupOrphanedRelationships() {
-        log.info("Cleaning up orphaned note-tag relationships");
 
-        // This would typically involve complex queries to find orphaned relationships
-        // For now, we'll implement a basic cleanup that relies on cascade operations
-        List<NoteTag> allRelationships = noteTagRepository.findAll();
-        int orphanedCount = 0;
-
-        for (NoteTag relationship : allRelationships) {
-            boolean noteExists = noteRepository.existsById(relationship.getNote().getId());
-            boolean tagExists = tagRepository.existsById(relationship.getTag().getId());
-
-            if (!noteExists || !tagExists) {
-                noteTagRepository.delete(relationship);
-                orphanedCount++;
-            }
+        // Most shared notes first, from the maintained co-occurrence counts
+        List<TagCooccurrence> coOccurring = tagCooccurrenceService.findCoOccurring(tagId, Integer.MAX_VALUE);
+        Map<UUID, Integer> rank = new HashMap<>();
+        for (int i = 0; i < coOccurring.size(); i++) {
+            rank.put(coOccurring.get(i).getTagId(), i);
         }
-
-        log.info("Cleaned up {} orphaned relationships", orphanedCount);
+        List<Tag> tags = tagRepository.findAllById(rank.keySet());
+        tags.sort(Comparator.comparingInt(tag -> rank.get(tag.getId())));
+        return tags;
     }
 }
\ No newline at end of file
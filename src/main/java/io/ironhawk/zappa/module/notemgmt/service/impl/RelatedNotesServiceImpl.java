@@ -0,0 +1,177 @@
+package io.ironhawk.zappa.module.notemgmt.service.impl;
+
+import io.ironhawk.zappa.module.notemgmt.dto.RelatedNote;
+import io.ironhawk.zappa.module.notemgmt.repository.NoteRepository;
+import io.ironhawk.zappa.module.notemgmt.repository.NoteTagRepository;
+import io.ironhawk.zappa.module.notemgmt.service.GraphAlgorithmService;
+import io.ironhawk.zappa.module.notemgmt.service.NoteGraph;
+import io.ironhawk.zappa.module.notemgmt.service.RelatedNotesIndex;
+import io.ironhawk.zappa.module.notemgmt.service.RelatedNotesService;
+import io.ironhawk.zappa.security.service.CurrentUserService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Related notes from a per-user {@link RelatedNotesIndex}, built over the cached link graph.
+ *
+ * The index is only ever built in the background: when there is none yet, when the graph
+ * changes or when it is older than MAX_INDEX_AGE (tag and text edits do not change the graph).
+ * Requests keep using the previous index meanwhile, and a note the index does not cover yet,
+ * such as a new one, has no related notes until the build finishes. Results are cached per
+ * note for the lifetime of the index, and indexes not used for MAX_IDLE are dropped.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class RelatedNotesServiceImpl implements RelatedNotesService {
+
+    private static final long MAX_INDEX_AGE_NANOS = Duration.ofMinutes(5).toNanos();
+    private static final long MAX_IDLE_NANOS = Duration.ofMinutes(30).toNanos();
+    // Only the start of long notes is indexed; it usually says what the note is about
+    private static final int INDEXED_CONTENT_LENGTH = 4000;
+    private static final int MAX_CACHED_RESULTS = 10_000;
+
+    private final NoteRepository noteRepository;
+    private final NoteTagRepository noteTagRepository;
+    private final GraphAlgorithmService graphAlgorithmService;
+    private final CurrentUserService currentUserService;
+
+    private final Map<UUID, CachedIndex> indexes = new ConcurrentHashMap<>();
+    private final Set<UUID> indexesInFlight = ConcurrentHashMap.newKeySet();
+
+    private final ThreadPoolExecutor indexExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(100),
+        runnable -> {
+            Thread thread = new Thread(runnable, "related-notes-index");
+            thread.setDaemon(true);
+            return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy());
+
+    @Override
+    public Optional<List<RelatedNote>> findRelatedNotes(UUID noteId, int limit) {
+        UUID userId = currentUserService.getCurrentUserId();
+        NoteGraph graph = graphAlgorithmService.getGraph();
+        if (graph.indexOf(noteId) < 0) {
+            return Optional.empty();
+        }
+
+        CachedIndex cached = indexes.get(userId);
+        if (cached == null || cached.index.graph() != graph || System.nanoTime() - cached.builtAt >= MAX_INDEX_AGE_NANOS) {
+            scheduleIndexBuild(userId, graph);
+        }
+        if (cached == null || cached.index.graph().indexOf(noteId) < 0) {
+            // Nothing to serve this note from yet; building an index here would stall the request
+            return Optional.of(List.of());
+        }
+
+        CachedIndex current = cached;
+        current.usedAt = System.nanoTime();
+        if (current.results.size() >= MAX_CACHED_RESULTS) {
+            current.results.clear();
+        }
+        List<RelatedNote> related = current.results.computeIfAbsent(noteId, id -> computeRelated(current.index, id));
+        return Optional.of(related.subList(0, Math.min(limit, related.size())));
+    }
+
+    @Scheduled(fixedDelay = 5, timeUnit = TimeUnit.MINUTES)
+    public void evictIdle() {
+        long now = System.nanoTime();
+        indexes.values().removeIf(cached -> now - cached.usedAt >= MAX_IDLE_NANOS);
+    }
+
+    private List<RelatedNote> computeRelated(RelatedNotesIndex index, UUID noteId) {
+        NoteGraph graph = index.graph();
+        List<RelatedNote> related = new ArrayList<>();
+        for (RelatedNotesIndex.Candidate candidate : index.related(graph.indexOf(noteId), MAX_LIMIT)) {
+            related.add(RelatedNote.builder()
+                .noteId(graph.noteIdAt(candidate.node))
+                .title(index.titleAt(candidate.node))
+                .score(candidate.score)
+                .tagScore(candidate.tagScore)
+                .linkScore(candidate.linkScore)
+                .textScore(candidate.textScore)
+                .sharedTags(candidate.sharedTags)
+                .commonNeighbours(candidate.commonNeighbours)
+                .build());
+        }
+        return List.copyOf(related);
+    }
+
+    private void scheduleIndexBuild(UUID userId, NoteGraph graph) {
+        if (!indexesInFlight.add(userId)) {
+            return;
+        }
+        try {
+            indexExecutor.execute(() -> {
+                try {
+                    long started = System.nanoTime();
+                    CachedIndex built = new CachedIndex(buildIndex(userId, graph), started);
+                    // Never replace an index built from newer data
+                    indexes.compute(userId, (id, existing) ->
+                        existing != null && existing.builtAt - started > 0 ? existing : built);
+                } catch (RuntimeException ex) {
+                    log.warn("Related notes index build failed for user {}", userId, ex);
+                } finally {
+                    indexesInFlight.remove(userId);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            indexesInFlight.remove(userId);
+            log.debug("Related notes index queue full, skipping user {}", userId);
+        }
+    }
+
+    private RelatedNotesIndex buildIndex(UUID userId, NoteGraph graph) {
+        long start = System.nanoTime();
+
+        RelatedNotesIndex.Builder builder = new RelatedNotesIndex.Builder(graph);
+        for (Object[] pair : noteTagRepository.findNoteTagPairsByUserId(userId)) {
+            builder.addTag((UUID) pair[0], (UUID) pair[1]);
+        }
+        for (Object[] row : noteRepository.findTextByUserId(userId, INDEXED_CONTENT_LENGTH)) {
+            builder.addText((UUID) row[0], (String) row[1], (String) row[2]);
+        }
+        RelatedNotesIndex index = builder.build();
+
+        log.debug("Built related notes index for user {} over {} notes in {} ms", userId, graph.size(),
+            (System.nanoTime() - start) / 1_000_000);
+        return index;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexExecutor.shutdownNow();
+    }
+
+    private static final class CachedIndex {
+        private final RelatedNotesIndex index;
+        private final long builtAt;
+        private final Map<UUID, List<RelatedNote>> results = new ConcurrentHashMap<>();
+        private volatile long usedAt;
+
+        private CachedIndex(RelatedNotesIndex index, long builtAt) {
+            this.index = index;
+            this.builtAt = builtAt;
+            this.usedAt = builtAt;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package io.ironhawk.zappa.module.notemgmt.service.impl;
+
+import io.ironhawk.zappa.module.notemgmt.dto.TagResponse;
+import io.ironhawk.zappa.module.notemgmt.repository.TagRepository;
+import io.ironhawk.zappa.module.notemgmt.service.TagAutocompleteService;
+import io.ironhawk.zappa.module.notemgmt.service.TagPrefixIndex;
+import io.ironhawk.zappa.security.service.CurrentUserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user {@link TagPrefixIndex}, built with usage counts on first use.
+ *
+ * Tag changes drop the index. Usage counts are not followed as tags are added to notes; they
+ * only order suggestions, so the index is simply rebuilt after MAX_INDEX_AGE.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class TagAutocompleteServiceImpl implements TagAutocompleteService {
+
+    private static final long MAX_INDEX_AGE_NANOS = Duration.ofMinutes(10).toNanos();
+
+    private final TagRepository tagRepository;
+    private final CurrentUserService currentUserService;
+
+    private final Map<UUID, CachedIndex> indexes = new ConcurrentHashMap<>();
+
+    @Override
+    public List<TagResponse> suggest(String prefix, int limit) {
+        TagPrefixIndex index = getIndex(currentUserService.getCurrentUserId());
+
+        List<TagResponse> suggestions = new ArrayList<>();
+        for (TagPrefixIndex.Entry entry : index.suggest(prefix, Math.max(1, Math.min(limit, MAX_LIMIT)))) {
+            suggestions.add(TagResponse.builder()
+                .id(entry.id)
+                .name(entry.name)
+                .color(entry.color)
+                .isKey(entry.isKey)
+                .usageCount(entry.usageCount)
+                .build());
+        }
+        return suggestions;
+    }
+
+    // An expired index is rebuilt on the next suggestion, so it can go as soon as it expires
+    @Scheduled(fixedDelay = 5, timeUnit = TimeUnit.MINUTES)
+    public void evictExpired() {
+        long now = System.nanoTime();
+        indexes.values().removeIf(cached -> now - cached.builtAt >= MAX_INDEX_AGE_NANOS);
+    }
+
+    @Override
+    public void invalidate(UUID userId) {
+        indexes.remove(userId);
+        // Drop again after commit so an index rebuilt from pre-commit data is not kept
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    indexes.remove(userId);
+                }
+            });
+        }
+    }
+
+    private TagPrefixIndex getIndex(UUID userId) {
+        CachedIndex cached = indexes.get(userId);
+        if (cached != null && System.nanoTime() - cached.builtAt < MAX_INDEX_AGE_NANOS) {
+            return cached.index;
+        }
+
+        long start = System.nanoTime();
+        List<TagPrefixIndex.Entry> entries = new ArrayList<>();
+        for (Object[] tag : tagRepository.findAutocompleteEntriesByUserId(userId)) {
+            entries.add(new TagPrefixIndex.Entry((UUID) tag[0], (String) tag[1], (String) tag[2],
+                (Boolean) tag[3], ((Number) tag[4]).longValue()));
+        }
+        TagPrefixIndex index = new TagPrefixIndex(entries);
+        indexes.put(userId, new CachedIndex(index, System.nanoTime()));
+
+        log.debug("Built tag prefix index of {} tags for user {} in {} ms", index.size(), userId,
+            (System.nanoTime() - start) / 1_000_000);
+        return index;
+    }
+
+    private static final class CachedIndex {
+        private final TagPrefixIndex index;
+        private final long builtAt;
+
+        private CachedIndex(TagPrefixIndex index, long builtAt) {
+            this.index = index;
+            this.builtAt = builtAt;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package io.ironhawk.zappa.module.notemgmt.service.impl;
+
+import io.ironhawk.zappa.module.notemgmt.dto.TagCooccurrence;
+import io.ironhawk.zappa.module.notemgmt.dto.TagPairCount;
+import io.ironhawk.zappa.module.notemgmt.entity.Tag;
+import io.ironhawk.zappa.module.notemgmt.repository.NoteTagRepository;
+import io.ironhawk.zappa.module.notemgmt.repository.TagRepository;
+import io.ironhawk.zappa.module.notemgmt.service.TagCooccurrenceMatrix;
+import io.ironhawk.zappa.module.notemgmt.service.TagCooccurrenceService;
+import io.ironhawk.zappa.security.service.CurrentUserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Per-user {@link TagCooccurrenceMatrix}, built from {@code note_tags} on first use.
+ *
+ * Single note-tag changes are applied to the cached matrix after their transaction commits.
+ * Bulk changes drop it instead, and it is rebuilt after MAX_MATRIX_AGE regardless, which also
+ * repairs an update lost to a rebuild running at the same time.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class TagCooccurrenceServiceImpl implements TagCooccurrenceService {
+
+    private static final long MAX_MATRIX_AGE_NANOS = Duration.ofMinutes(10).toNanos();
+
+    private final NoteTagRepository noteTagRepository;
+    private final TagRepository tagRepository;
+    private final CurrentUserService currentUserService;
+
+    private final Map<UUID, CachedMatrix> matrices = new ConcurrentHashMap<>();
+
+    @Override
+    public List<TagCooccurrence> findCoOccurring(UUID tagId, int limit) {
+        return suggestFor(List.of(tagId), limit);
+    }
+
+    @Override
+    public List<TagCooccurrence> suggestFor(Collection<UUID> tagIds, int limit) {
+        TagCooccurrenceMatrix matrix = getMatrix(currentUserService.getCurrentUserId());
+        Set<UUID> given = new HashSet<>(tagIds);
+
+        // Score each candidate by the share of each given tag's notes that also carry it
+        Map<UUID, Double> scores = new HashMap<>();
+        Map<UUID, Integer> shared = new HashMap<>();
+        for (UUID tagId : given) {
+            int noteCount = matrix.noteCount(tagId);
+            if (noteCount == 0) {
+                continue;
+            }
+            matrix.row(tagId).forEach((other, count) -> {
+                if (!given.contains(other)) {
+                    scores.merge(other, (double) count / noteCount, Double::sum);
+                    shared.merge(other, count, Integer::sum);
+                }
+            });
+        }
+
+        List<UUID> ranked = scores.keySet().stream()
+            .sorted(Comparator.comparingDouble((UUID id) -> scores.get(id)).reversed()
+                .thenComparing(Comparator.comparingInt((UUID id) -> shared.get(id)).reversed()))
+            .limit(limit)
+            .collect(Collectors.toList());
+
+        Map<UUID, Tag> tags = tagRepository.findAllById(ranked).stream()
+            .collect(Collectors.toMap(Tag::getId, Function.identity()));
+        List<TagCooccurrence> result = new ArrayList<>();
+        for (UUID id : ranked) {
+            Tag tag = tags.get(id);
+            if (tag == null) {
+                continue;
+            }
+            result.add(TagCooccurrence.builder()
+                .tagId(id)
+                .name(tag.getName())
+                .color(tag.getColor())
+                .isKey(tag.isKey())
+                .count(shared.get(id))
+                .usageCount(matrix.noteCount(id))
+                .score(scores.get(id))
+                .build());
+        }
+        return result;
+    }
+
+    @Override
+    public List<TagPairCount> findTopPairs(int minCount, int limit) {
+        TagCooccurrenceMatrix matrix = getMatrix(currentUserService.getCurrentUserId());
+        List<Object[]> pairs = matrix.topPairs(minCount, limit);
+
+        Set<UUID> ids = new HashSet<>();
+        for (Object[] pair : pairs) {
+            ids.add((UUID) pair[0]);
+            ids.add((UUID) pair[1]);
+        }
+        Map<UUID, String> names = tagRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(Tag::getId, Tag::getName));
+
+        List<TagPairCount> result = new ArrayList<>();
+        for (Object[] pair : pairs) {
+            result.add(TagPairCount.builder()
+                .firstTagId((UUID) pair[0])
+                .firstTagName(names.get((UUID) pair[0]))
+                .secondTagId((UUID) pair[1])
+                .secondTagName(names.get((UUID) pair[1]))
+                .count((Integer) pair[2])
+                .build());
+        }
+        return result;
+    }
+
+    @Override
+    public void noteTagAdded(UUID noteId, UUID tagId) {
+        UUID userId = currentUserService.getCurrentUserId();
+        List<UUID> otherTags = otherTags(noteId, tagId);
+        afterCommit(() -> {
+            CachedMatrix cached = matrices.get(userId);
+            if (cached != null) {
+                cached.matrix.tagAdded(tagId, otherTags);
+            }
+        });
+    }
+
+    @Override
+    public void noteTagRemoved(UUID noteId, UUID tagId) {
+        UUID userId = currentUserService.getCurrentUserId();
+        List<UUID> otherTags = otherTags(noteId, tagId);
+        afterCommit(() -> {
+            CachedMatrix cached = matrices.get(userId);
+            if (cached != null) {
+                cached.matrix.tagRemoved(tagId, otherTags);
+            }
+        });
+    }
+
+    /**
+     * Release the matrices of users who have not touched their tags for MAX_MATRIX_AGE; an
+     * expired matrix is never served, only rebuilt
+     */
+    @Scheduled(fixedDelay = 5, timeUnit = TimeUnit.MINUTES)
+    public void evictExpired() {
+        long now = System.nanoTime();
+        matrices.values().removeIf(cached -> now - cached.builtAt >= MAX_MATRIX_AGE_NANOS);
+    }
+
+    @Override
+    public void invalidate(UUID userId) {
+        matrices.remove(userId);
+        // Drop again after commit so a matrix rebuilt from pre-commit data is not kept
+        afterCommit(() -> matrices.remove(userId));
+    }
+
+    private List<UUID> otherTags(UUID noteId, UUID tagId) {
+        List<UUID> tags = new ArrayList<>(noteTagRepository.findTagIdsByNoteId(noteId));
+        tags.remove(tagId);
+        return tags;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private TagCooccurrenceMatrix getMatrix(UUID userId) {
+        CachedMatrix cached = matrices.get(userId);
+        if (cached != null && System.nanoTime() - cached.builtAt < MAX_MATRIX_AGE_NANOS) {
+            return cached.matrix;
+        }
+
+        long start = System.nanoTime();
+        TagCooccurrenceMatrix matrix = TagCooccurrenceMatrix.fromNoteTags(noteTagRepository.findNoteTagPairsByUserId(userId));
+        matrices.put(userId, new CachedMatrix(matrix, System.nanoTime()));
+        log.debug("Built tag co-occurrence matrix for user {} in {} ms", userId, (System.nanoTime() - start) / 1_000_000);
+        return matrix;
+    }
+
+
+    private static final class CachedMatrix {
+        private final TagCooccurrenceMatrix matrix;
+        private final long builtAt;
+
+        private CachedMatrix(TagCooccurrenceMatrix matrix, long builtAt) {
+            this.matrix = matrix;
+            this.builtAt = builtAt;
+        }
+    }
+}
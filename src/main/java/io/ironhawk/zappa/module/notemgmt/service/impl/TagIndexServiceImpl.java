@@ -0,0 +1,199 @@
+package io.ironhawk.zappa.module.notemgmt.service.impl;
+
+import io.ironhawk.zappa.module.notemgmt.entity.Tag;
+import io.ironhawk.zappa.module.notemgmt.repository.GroupRepository;
+import io.ironhawk.zappa.module.notemgmt.repository.NoteRepository;
+import io.ironhawk.zappa.module.notemgmt.repository.NoteTagRepository;
+import io.ironhawk.zappa.module.notemgmt.repository.TagRepository;
+import io.ironhawk.zappa.module.notemgmt.service.TagBitmapIndex;
+import io.ironhawk.zappa.module.notemgmt.service.TagExpression;
+import io.ironhawk.zappa.module.notemgmt.service.TagIndexService;
+import io.ironhawk.zappa.security.service.CurrentUserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user {@link TagBitmapIndex}, built from {@code note_tags} and note groups on first use.
+ *
+ * Single note-tag changes are applied after their transaction commits; changes to notes, tags,
+ * groups and group membership drop the index, and it is rebuilt after MAX_INDEX_AGE regardless.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class TagIndexServiceImpl implements TagIndexService {
+
+    private static final long MAX_INDEX_AGE_NANOS = Duration.ofMinutes(10).toNanos();
+
+    private final NoteRepository noteRepository;
+    private final GroupRepository groupRepository;
+    private final NoteTagRepository noteTagRepository;
+    private final TagRepository tagRepository;
+    private final CurrentUserService currentUserService;
+
+    private final Map<UUID, CachedIndex> indexes = new ConcurrentHashMap<>();
+
+    @Override
+    public List<UUID> findNoteIds(TagExpression expression) {
+        TagBitmapIndex index = getIndex(currentUserService.getCurrentUserId());
+        RoaringBitmap notes = index.evaluate(expression);
+
+        List<UUID> noteIds = new ArrayList<>(notes.getCardinality());
+        IntIterator newestFirst = notes.getReverseIntIterator();
+        while (newestFirst.hasNext()) {
+            noteIds.add(index.noteIdAt(newestFirst.next()));
+        }
+        return noteIds;
+    }
+
+    @Override
+    public Page<UUID> findNoteIds(TagExpression expression, Pageable pageable) {
+        boolean oldestFirst = isOldestFirst(pageable.getSort());
+        TagBitmapIndex index = getIndex(currentUserService.getCurrentUserId());
+        RoaringBitmap notes = index.evaluate(expression);
+
+        List<UUID> noteIds = new ArrayList<>(pageable.getPageSize());
+        IntIterator ordinals = oldestFirst ? notes.getIntIterator() : notes.getReverseIntIterator();
+        long skip = pageable.getOffset();
+        while (ordinals.hasNext() && noteIds.size() < pageable.getPageSize()) {
+            int ordinal = ordinals.next();
+            if (skip > 0) {
+                skip--;
+            } else {
+                noteIds.add(index.noteIdAt(ordinal));
+            }
+        }
+        return new PageImpl<>(noteIds, pageable, notes.getLongCardinality());
+    }
+
+    // Ordinals follow creation time, so that is the only order the index can page in
+    private static boolean isOldestFirst(Sort sort) {
+        if (sort.isUnsorted()) {
+            return false;
+        }
+        List<Sort.Order> orders = sort.toList();
+        if (orders.size() != 1 || !"createdAt".equals(orders.get(0).getProperty())) {
+            throw new IllegalArgumentException("Tag filters can only be sorted by createdAt, not " + sort);
+        }
+        return orders.get(0).isAscending();
+    }
+
+    @Override
+    public void noteTagAdded(UUID noteId, UUID tagId) {
+        UUID userId = currentUserService.getCurrentUserId();
+        // The tag may be newer than the index
+        String tagName = tagRepository.findById(tagId).map(Tag::getName).orElse(null);
+        afterCommit(() -> {
+            CachedIndex cached = indexes.get(userId);
+            if (cached != null && tagName != null) {
+                cached.index.addTagName(tagId, tagName);
+                cached.index.addNoteTag(noteId, tagId);
+            }
+        });
+    }
+
+    @Override
+    public void noteTagRemoved(UUID noteId, UUID tagId) {
+        UUID userId = currentUserService.getCurrentUserId();
+        afterCommit(() -> {
+            CachedIndex cached = indexes.get(userId);
+            if (cached != null) {
+                cached.index.removeNoteTag(noteId, tagId);
+            }
+        });
+    }
+
+    // Bitmaps of users who stopped filtering would otherwise stay until the next restart
+    @Scheduled(fixedDelay = 5, timeUnit = TimeUnit.MINUTES)
+    public void evictExpired() {
+        long now = System.nanoTime();
+        indexes.values().removeIf(cached -> now - cached.builtAt >= MAX_INDEX_AGE_NANOS);
+    }
+
+    @Override
+    public void invalidate(UUID userId) {
+        indexes.remove(userId);
+        // Drop again after commit so an index rebuilt from pre-commit data is not kept
+        afterCommit(() -> indexes.remove(userId));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private TagBitmapIndex getIndex(UUID userId) {
+        CachedIndex cached = indexes.get(userId);
+        if (cached != null && System.nanoTime() - cached.builtAt < MAX_INDEX_AGE_NANOS) {
+            return cached.index;
+        }
+
+        long start = System.nanoTime();
+        List<Object[]> notes = noteRepository.findIndexAttributesByUserId(userId);
+        List<UUID> noteIds = new ArrayList<>(notes.size());
+        List<LocalDateTime> createdAt = new ArrayList<>(notes.size());
+        for (Object[] note : notes) {
+            noteIds.add((UUID) note[0]);
+            createdAt.add((LocalDateTime) note[2]);
+        }
+        TagBitmapIndex index = new TagBitmapIndex(noteIds, createdAt);
+        for (Object[] group : groupRepository.findIdsNamesAndParentsByUserId(userId)) {
+            index.addGroup((UUID) group[0], (String) group[1], (UUID) group[2]);
+        }
+        for (Object[] note : notes) {
+            if (note[1] != null) {
+                index.addNoteGroup((UUID) note[0], (UUID) note[1]);
+            }
+        }
+        for (Object[] tag : tagRepository.findIdsAndNamesByUserId(userId)) {
+            index.addTagName((UUID) tag[0], (String) tag[1]);
+        }
+        for (Object[] pair : noteTagRepository.findNoteTagPairsByUserId(userId)) {
+            index.addNoteTag((UUID) pair[0], (UUID) pair[1]);
+        }
+        index.optimize();
+        indexes.put(userId, new CachedIndex(index, System.nanoTime()));
+
+        log.debug("Built tag bitmap index for user {} in {} ms", userId, (System.nanoTime() - start) / 1_000_000);
+        return index;
+    }
+
+    private static final class CachedIndex {
+        private final TagBitmapIndex index;
+        private final long builtAt;
+
+        private CachedIndex(TagBitmapIndex index, long builtAt) {
+            this.index = index;
+            this.builtAt = builtAt;
+        }
+    }
+}
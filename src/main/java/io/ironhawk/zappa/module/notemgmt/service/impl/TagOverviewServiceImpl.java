@@ -0,0 +1,51 @@
+package io.ironhawk.zappa.module.notemgmt.service.impl;
+
+import io.ironhawk.zappa.module.notemgmt.dto.TagOverviewPage;
+import io.ironhawk.zappa.module.notemgmt.dto.TagResponse;
+import io.ironhawk.zappa.module.notemgmt.repository.TagOverviewRepository;
+import io.ironhawk.zappa.module.notemgmt.service.TagAutocompleteService;
+import io.ironhawk.zappa.module.notemgmt.service.TagOverviewService;
+import io.ironhawk.zappa.security.service.CurrentUserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class TagOverviewServiceImpl implements TagOverviewService {
+
+    private final TagOverviewRepository tagOverviewRepository;
+    private final TagAutocompleteService tagAutocompleteService;
+    private final CurrentUserService currentUserService;
+
+    @Override
+    public TagOverviewPage getOverview(String search, String color, UUID after, UUID before, int size) {
+        UUID userId = currentUserService.getCurrentUserId();
+        String searchFilter = search == null || search.isBlank() ? null : search.trim();
+        String colorFilter = color == null || color.isBlank() ? null : color.trim();
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        TagOverviewPage page = tagOverviewRepository.findPage(userId, searchFilter, colorFilter, after, before, pageSize);
+        if (page.getTags().isEmpty() && (after != null || before != null)) {
+            // The cursor tag was deleted or the page emptied meanwhile; start over
+            log.debug("Tag overview cursor {} gave an empty page for user {}, returning the first page",
+                after != null ? after : before, userId);
+            page = tagOverviewRepository.findPage(userId, searchFilter, colorFilter, null, null, pageSize);
+        }
+        return page;
+    }
+
+    @Override
+    public List<TagResponse> getPopularTags(int limit) {
+        // The empty prefix ranks every tag by usage and is precomputed in the index
+        return tagAutocompleteService.suggest("", limit).stream()
+            .filter(tag -> tag.getUsageCount() != null && tag.getUsageCount() > 0)
+            .toList();
+    }
+}
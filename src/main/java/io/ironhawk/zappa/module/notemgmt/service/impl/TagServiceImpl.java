@@ -2,12 +2,18 @@ package io.ironhawk.zappa.module.notemgmt.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import io.ironhawk.zappa.module.notemgmt.dto.TagBulkResult;
 import io.ironhawk.zappa.module.notemgmt.dto.TagResponse;
 import io.ironhawk.zappa.module.notemgmt.entity.Group;
 import io.ironhawk.zappa.module.notemgmt.entity.Tag;
 import io.ironhawk.zappa.module.notemgmt.repository.NoteTagRepository;
+import io.ironhawk.zappa.module.notemgmt.repository.TagBulkRepository;
 import io.ironhawk.zappa.module.notemgmt.repository.TagRepository;
 import io.ironhawk.zappa.module.notemgmt.service.GroupService;
+import io.ironhawk.zappa.module.notemgmt.service.TagAutocompleteService;
+import io.ironhawk.zappa.module.notemgmt.service.TagCleanupService;
+import io.ironhawk.zappa.module.notemgmt.service.TagCooccurrenceService;
+import io.ironhawk.zappa.module.notemgmt.service.TagIndexService;
 import io.ironhawk.zappa.module.notemgmt.service.TagService;
 import io.ironhawk.zappa.module.notemgmt.service.NoteTagService;
 import io.ironhawk.zappa.security.entity.User;
@@ -15,10 +21,19 @@ import io.ironhawk.zappa.security.service.CurrentUserService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Slf4j
@@ -27,11 +42,19 @@ import java.util.UUID;
 @Transactional(readOnly = true)
 public class TagServiceImpl implements TagService {
 
+    // Lookups repeated for names another transaction created concurrently
+    private static final int GET_OR_CREATE_ATTEMPTS = 3;
+
     private final TagRepository tagRepository;
+    private final TagBulkRepository tagBulkRepository;
     private final NoteTagRepository noteTagRepository;
     private final CurrentUserService currentUserService;
     private final GroupService groupService;
     private final NoteTagService noteTagService;
+    private final TagCooccurrenceService tagCooccurrenceService;
+    private final TagIndexService tagIndexService;
+    private final TagAutocompleteService tagAutocompleteService;
+    private final TagCleanupService tagCleanupService;
 
     @Override
     @Transactional
@@ -45,7 +68,7 @@ public class TagServiceImpl implements TagService {
             throw new IllegalArgumentException("Tag with name '" + tag.getName() + "' already exists");
         }
 
-        return tagRepository.save(tag);
+        return saveTag(tag);
     }
 
     @Override
@@ -74,7 +97,9 @@ public class TagServiceImpl implements TagService {
         // Set the current user to ensure user_id is not null
         tag.setUser(currentUser);
 
-        Tag savedTag = tagRepository.save(tag);
+        Tag savedTag = saveTag(tag);
+        // The name may have changed
+        tagIndexService.invalidate(currentUser.getId());
         return toTagResponse(savedTag);
     }
 
@@ -92,6 +117,9 @@ public class TagServiceImpl implements TagService {
 
         // Then delete the tag
         tagRepository.deleteById(id);
+        tagCooccurrenceService.invalidate(currentUserService.getCurrentUserId());
+        tagIndexService.invalidate(currentUserService.getCurrentUserId());
+        tagAutocompleteService.invalidate(currentUserService.getCurrentUserId());
     }
 
     @Override
@@ -169,7 +197,7 @@ public class TagServiceImpl implements TagService {
     @Override
     public List<Tag> findCoOccurringTags(UUID tagId) {
         log.debug("Finding co-occurring tags for tag id: {}", tagId);
-        return noteTagRepository.findCoOccurringTags(tagId);
+        return noteTagService.findCoOccurringTags(tagId);
     }
 
     @Override
@@ -182,18 +210,15 @@ public class TagServiceImpl implements TagService {
     @Override
     @Transactional
     public Tag getOrCreateTag(String name, String color) {
-        User currentUser = currentUserService.getCurrentUser();
-        log.debug("Getting or creating tag with name: {} for user: {}", name, currentUser.getUsername());
-
-        Optional<Tag> existingTag = tagRepository.findByUserAndNameIgnoreCase(currentUser, name);
-        if (existingTag.isPresent()) {
-            return existingTag.get();
-        }
-
-        Tag newTag = Tag.of(name, color);
-        newTag.setUser(currentUser);
+        log.debug("Getting or creating tag with name: {}", name);
+        return getOrCreateOne(name, color, groupService.getDefaultGroup(), true);
+    }
 
-        return tagRepository.save(newTag);
+    @Override
+    @Transactional
+    public List<UUID> getOrCreateTagIds(Collection<String> names) {
+        log.debug("Getting or creating {} tags by name", names.size());
+        return getOrCreate(names, null, groupService.getDefaultGroup(), true);
     }
 
     @Override
@@ -206,7 +231,7 @@ public class TagServiceImpl implements TagService {
             .orElseThrow(() -> new IllegalArgumentException("Tag not found or access denied with id: " + tagId));
 
         tag.setKey(true);
-        Tag savedTag = tagRepository.save(tag);
+        Tag savedTag = saveTag(tag);
         return toTagResponse(savedTag);
     }
 
@@ -220,7 +245,7 @@ public class TagServiceImpl implements TagService {
             .orElseThrow(() -> new IllegalArgumentException("Tag not found or access denied with id: " + tagId));
 
         tag.setKey(false);
-        Tag savedTag = tagRepository.save(tag);
+        Tag savedTag = saveTag(tag);
         return toTagResponse(savedTag);
     }
 
@@ -238,16 +263,14 @@ public class TagServiceImpl implements TagService {
         return tagRepository.findByUserAndIsKeyTrueOrderByNameAsc(currentUser, pageable);
     }
 
+    // Without a transaction every batch commits on its own
     @Override
-    @Transactional
-    public void deleteUnusedTags() {
-        log.info("Deleting unused tags");
-        List<Tag> unusedTags = findUnusedTags();
-
-        if (!unusedTags.isEmpty()) {
-            log.info("Found {} unused tags to delete", unusedTags.size());
-            tagRepository.deleteAll(unusedTags);
-        }
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int deleteUnusedTags() {
+        UUID userId = currentUserService.getCurrentUserId();
+        int deleted = tagCleanupService.deleteUnusedTags(userId);
+        log.info("Deleted {} unused tags for user: {}", deleted, userId);
+        return deleted;
     }
 
     // ===============================
@@ -323,7 +346,7 @@ public class TagServiceImpl implements TagService {
             }
         }
 
-        return tagRepository.save(tag);
+        return saveTag(tag);
     }
 
     @Override
@@ -343,16 +366,7 @@ public class TagServiceImpl implements TagService {
         if (groupId != null) {
             Group group = groupService.getGroupById(groupId).orElse(null);
             if (group != null) {
-                // Check if tag exists in group context (group-specific or global)
-                Optional<Tag> existingTag = tagRepository.findByUserAndNameIgnoreCaseInGroupOrGlobal(currentUser, name, group);
-                if (existingTag.isPresent()) {
-                    return existingTag.get();
-                }
-
-                // Create new tag in group
-                Tag newTag = Tag.ofGroup(name, color, group);
-                newTag.setUser(currentUser);
-                return tagRepository.save(newTag);
+                return getOrCreateOne(name, color, group, false);
             }
         }
 
@@ -367,16 +381,7 @@ public class TagServiceImpl implements TagService {
         Group defaultGroup = groupService.getDefaultGroup();
         log.debug("Getting or creating tag '{}' in Default group for user: {}", name, currentUser.getUsername());
 
-        // Look for existing tag in Default group
-        Optional<Tag> existingTag = tagRepository.findByUserAndNameIgnoreCaseInGroupOrGlobal(currentUser, name, defaultGroup);
-        if (existingTag.isPresent()) {
-            return existingTag.get();
-        }
-
-        // Create new tag in Default group
-        Tag newTag = Tag.ofGroup(name, color, defaultGroup);
-        newTag.setUser(currentUser);
-        return tagRepository.save(newTag);
+        return getOrCreateOne(name, color, defaultGroup, false);
     }
 
     @Override
@@ -438,13 +443,12 @@ public class TagServiceImpl implements TagService {
     }
 
     @Override
-    @Transactional
-    public void deleteUnusedTagsInGroup(UUID groupId) {
-        List<Tag> unusedTags = findUnusedTagsInGroup(groupId);
-        if (!unusedTags.isEmpty()) {
-            log.info("Deleting {} unused tags in group: {}", unusedTags.size(), groupId);
-            tagRepository.deleteAll(unusedTags);
-        }
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int deleteUnusedTagsInGroup(UUID groupId) {
+        UUID userId = currentUserService.getCurrentUserId();
+        int deleted = tagCleanupService.deleteUnusedTagsInGroup(userId, groupId);
+        log.info("Deleted {} unused tags in group: {}", deleted, groupId);
+        return deleted;
     }
 
     @Override
@@ -463,7 +467,7 @@ public class TagServiceImpl implements TagService {
         tag.setGroup(newGroup);
         log.info("Moving tag '{}' to group: {} for user: {}", tag.getName(), newGroupId, currentUser.getUsername());
 
-        return tagRepository.save(tag);
+        return saveTag(tag);
     }
 
     @Override
@@ -474,6 +478,191 @@ public class TagServiceImpl implements TagService {
         return moveTagToGroup(tagId, defaultGroup.getId());
     }
 
+    // ===============================
+    // Bulk operations
+    // ===============================
+
+    @Override
+    @Transactional
+    public TagBulkResult mergeTags(Collection<UUID> sourceTagIds, UUID targetTagId) {
+        User currentUser = currentUserService.getCurrentUser();
+        Set<UUID> sources = new LinkedHashSet<>(sourceTagIds);
+        sources.remove(targetTagId);
+        log.info("Merging {} tags into tag {} for user: {}", sources.size(), targetTagId, currentUser.getUsername());
+
+        Tag target = tagRepository.findByIdAndUser(targetTagId, currentUser)
+            .orElseThrow(() -> new IllegalArgumentException("Tag not found or access denied with id: " + targetTagId));
+        if (sources.isEmpty()) {
+            return TagBulkResult.builder().tagsAffected(0).notesRetagged(0).target(toTagResponse(target)).build();
+        }
+        requireOwnTags(currentUser, sources);
+
+        int notesRetagged = tagBulkRepository.mergeInto(currentUser.getId(), sources, targetTagId);
+        invalidateTagCaches(currentUser.getId());
+
+        return TagBulkResult.builder()
+            .tagsAffected(sources.size())
+            .notesRetagged(notesRetagged)
+            .target(toTagResponse(target))
+            .build();
+    }
+
+    @Override
+    @Transactional
+    public TagBulkResult renameTags(Map<UUID, String> namesById) {
+        User currentUser = currentUserService.getCurrentUser();
+        log.info("Renaming {} tags for user: {}", namesById.size(), currentUser.getUsername());
+
+        Map<UUID, String> names = new LinkedHashMap<>();
+        namesById.forEach((id, name) -> {
+            if (name == null || name.isBlank()) {
+                throw new IllegalArgumentException("Name is required for tag " + id);
+            }
+            names.put(id, name.trim());
+        });
+        requireOwnTags(currentUser, names.keySet());
+
+        // Tag names are unique per user, ignoring case, as in updateTag
+        Map<String, UUID> taken = new HashMap<>();
+        for (Tag tag : tagRepository.findByUserOrderByNameAsc(currentUser)) {
+            if (!names.containsKey(tag.getId())) {
+                taken.put(tag.getName().toLowerCase(Locale.ROOT), tag.getId());
+            }
+        }
+        names.forEach((id, name) -> {
+            if (taken.putIfAbsent(name.toLowerCase(Locale.ROOT), id) != null) {
+                throw new IllegalArgumentException("Tag with name '" + name + "' already exists");
+            }
+        });
+
+        int renamed = tagBulkRepository.rename(currentUser.getId(), names);
+        // Names are what tag queries and autocompletion match on
+        tagIndexService.invalidate(currentUser.getId());
+        tagAutocompleteService.invalidate(currentUser.getId());
+        return TagBulkResult.builder().tagsAffected(renamed).build();
+    }
+
+    @Override
+    @Transactional
+    public TagBulkResult recolorTags(Collection<UUID> tagIds, String color) {
+        User currentUser = currentUserService.getCurrentUser();
+        Set<UUID> ids = new LinkedHashSet<>(tagIds);
+        log.info("Recolouring {} tags to {} for user: {}", ids.size(), color, currentUser.getUsername());
+
+        requireOwnTags(currentUser, ids);
+        int recolored = tagBulkRepository.recolor(currentUser.getId(), ids, color);
+        tagAutocompleteService.invalidate(currentUser.getId());
+        return TagBulkResult.builder().tagsAffected(recolored).build();
+    }
+
+    @Override
+    @Transactional
+    public TagBulkResult moveTagsToGroup(Collection<UUID> tagIds, UUID groupId) {
+        User currentUser = currentUserService.getCurrentUser();
+        Set<UUID> ids = new LinkedHashSet<>(tagIds);
+        log.info("Moving {} tags to group {} for user: {}", ids.size(), groupId, currentUser.getUsername());
+
+        Group group = groupService.getGroupById(groupId)
+            .orElseThrow(() -> new IllegalArgumentException("Group not found with id: " + groupId));
+        List<Tag> tags = requireOwnTags(currentUser, ids);
+
+        // (user, group, name) is unique, so moved tags must not meet a namesake in the group
+        Set<String> taken = new HashSet<>();
+        for (Tag tag : tagRepository.findByUserAndGroupOrderByNameAsc(currentUser, group)) {
+            if (!ids.contains(tag.getId())) {
+                taken.add(tag.getName().toLowerCase(Locale.ROOT));
+            }
+        }
+        for (Tag tag : tags) {
+            boolean alreadyThere = tag.getGroup() != null && tag.getGroup().getId().equals(groupId);
+            if (!alreadyThere && !taken.add(tag.getName().toLowerCase(Locale.ROOT))) {
+                throw new IllegalArgumentException("Tag with name '" + tag.getName() + "' already exists in group '" + group.getName() + "'");
+            }
+        }
+
+        int moved = tagBulkRepository.moveToGroup(currentUser.getId(), ids, groupId);
+        return TagBulkResult.builder().tagsAffected(moved).build();
+    }
+
+    /**
+     * The tags with the given ids, all of which must belong to the user
+     */
+    private List<Tag> requireOwnTags(User user, Collection<UUID> tagIds) {
+        List<Tag> tags = tagRepository.findAllById(tagIds);
+        Set<UUID> found = new HashSet<>();
+        for (Tag tag : tags) {
+            if (tag.getUser().getId().equals(user.getId())) {
+                found.add(tag.getId());
+            }
+        }
+        for (UUID tagId : tagIds) {
+            if (!found.contains(tagId)) {
+                throw new IllegalArgumentException("Tag not found or access denied with id: " + tagId);
+            }
+        }
+        return tags;
+    }
+
+    // Once per bulk change, rather than once per tag
+    private void invalidateTagCaches(UUID userId) {
+        tagCooccurrenceService.invalidate(userId);
+        tagIndexService.invalidate(userId);
+        tagAutocompleteService.invalidate(userId);
+    }
+
+    private Tag getOrCreateOne(String name, String color, Group group, boolean matchAnyGroup) {
+        List<UUID> ids = getOrCreate(List.of(name == null ? "" : name), color, group, matchAnyGroup);
+        if (ids.isEmpty()) {
+            throw new IllegalArgumentException("Tag name must not be blank");
+        }
+        return tagRepository.findById(ids.get(0))
+            .orElseThrow(() -> new IllegalStateException("Tag vanished after get-or-create: " + name));
+    }
+
+    /**
+     * Ids of the tags with the names, ignoring case and blanks, in order of first appearance,
+     * creating the missing ones in the group with one statement. The unique index on
+     * (user_id, group_id, lower(name)) keeps concurrent callers from creating the same tag
+     * twice; a name another transaction created meanwhile is looked up again, which a new
+     * statement sees once that transaction commits.
+     */
+    private List<UUID> getOrCreate(Collection<String> names, String color, Group group, boolean matchAnyGroup) {
+        UUID userId = currentUserService.getCurrentUserId();
+        Map<String, String> distinctNames = new LinkedHashMap<>();
+        for (String name : names) {
+            if (name != null && !name.isBlank()) {
+                distinctNames.putIfAbsent(name.trim().toLowerCase(Locale.ROOT), name.trim());
+            }
+        }
+
+        Map<String, UUID> idsByName = new HashMap<>();
+        List<String> pending = List.copyOf(distinctNames.values());
+        boolean created = false;
+        for (int attempt = 0; attempt < GET_OR_CREATE_ATTEMPTS && !pending.isEmpty(); attempt++) {
+            List<String> batch = pending;
+            for (Object[] row : tagBulkRepository.getOrCreate(userId, group.getId(), batch, color, matchAnyGroup)) {
+                idsByName.put(batch.get((Integer) row[0]), (UUID) row[1]);
+                created |= (Boolean) row[2];
+            }
+            pending = batch.stream().filter(name -> !idsByName.containsKey(name)).toList();
+        }
+        if (!pending.isEmpty()) {
+            throw new IllegalStateException("Could not get or create tags: " + pending);
+        }
+
+        if (created) {
+            tagAutocompleteService.invalidate(userId);
+        }
+        return distinctNames.values().stream().map(idsByName::get).toList();
+    }
+
+    // Every tag write goes through here so autocompletion sees new names and colours
+    private Tag saveTag(Tag tag) {
+        Tag savedTag = tagRepository.save(tag);
+        tagAutocompleteService.invalidate(savedTag.getUser().getId());
+        return savedTag;
+    }
+
     // Helper method to convert Tag to TagResponse
     private TagResponse toTagResponse(Tag tag) {
         Long usageCount = noteTagService.countNotesForTag(tag.getId());
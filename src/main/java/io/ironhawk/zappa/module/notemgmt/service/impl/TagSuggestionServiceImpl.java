@@ -0,0 +1,244 @@
+package io.ironhawk.zappa.module.notemgmt.service.impl;
+
+import io.ironhawk.zappa.module.notemgmt.dto.TagSuggestion;
+import io.ironhawk.zappa.module.notemgmt.entity.Tag;
+import io.ironhawk.zappa.module.notemgmt.repository.NoteRepository;
+import io.ironhawk.zappa.module.notemgmt.repository.NoteTagRepository;
+import io.ironhawk.zappa.module.notemgmt.repository.TagRepository;
+import io.ironhawk.zappa.module.notemgmt.service.TagClassifier;
+import io.ironhawk.zappa.module.notemgmt.service.TagSuggestionService;
+import io.ironhawk.zappa.security.service.CurrentUserService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tag suggestions from a per-user {@link TagClassifier}.
+ *
+ * The first request trains a model on the user's newest note-tag pairs. After that, note-tag
+ * pairs created since the last training are added in the background at most every
+ * TRAINING_INTERVAL, MAX_PAIRS_PER_INCREMENT at a time, on a single thread shared by all
+ * users. Removed tags and edited notes are only picked up by the full retrain after
+ * MAX_MODEL_AGE. Requests keep using the current model while it trains. Models not asked for
+ * during MAX_MODEL_AGE are dropped, and the next request trains a fresh one.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class TagSuggestionServiceImpl implements TagSuggestionService {
+
+    private static final long MAX_MODEL_AGE_NANOS = Duration.ofHours(1).toNanos();
+    private static final long TRAINING_INTERVAL_NANOS = Duration.ofSeconds(30).toNanos();
+    private static final int MAX_TRAINING_PAIRS = 100_000;
+    private static final int MAX_PAIRS_PER_INCREMENT = 2000;
+    private static final int TEXT_BATCH_SIZE = 500;
+    // Only the start of long notes is trained on; it usually says what the note is about
+    private static final int TRAINED_CONTENT_LENGTH = 4000;
+    private static final double MIN_CONFIDENCE = 0.05;
+    private static final LocalDateTime NO_PAIRS_YET = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final NoteRepository noteRepository;
+    private final NoteTagRepository noteTagRepository;
+    private final TagRepository tagRepository;
+    private final CurrentUserService currentUserService;
+
+    private final Map<UUID, CachedModel> models = new ConcurrentHashMap<>();
+    private final Set<UUID> trainingInFlight = ConcurrentHashMap.newKeySet();
+
+    private final ThreadPoolExecutor trainingExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(100),
+        runnable -> {
+            Thread thread = new Thread(runnable, "tag-suggestion-training");
+            thread.setDaemon(true);
+            return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy());
+
+    @Override
+    public List<TagSuggestion> suggestTags(String title, String content, Collection<String> chosenTagNames, int limit) {
+        TagClassifier.Features features = TagClassifier.features(title, content);
+        if (features.isEmpty()) {
+            return List.of();
+        }
+
+        UUID userId = currentUserService.getCurrentUserId();
+        CachedModel model = models.get(userId);
+        if (model == null) {
+            model = buildModel(userId);
+            models.put(userId, model);
+        } else if (System.nanoTime() - model.builtAt >= MAX_MODEL_AGE_NANOS) {
+            scheduleTraining(userId, () -> models.put(userId, buildModel(userId)));
+        } else if (System.nanoTime() - model.trainedAt >= TRAINING_INTERVAL_NANOS) {
+            CachedModel current = model;
+            scheduleTraining(userId, () -> trainIncrement(userId, current));
+        }
+        model.usedAt = System.nanoTime();
+
+        Set<String> chosen = new HashSet<>();
+        if (chosenTagNames != null) {
+            chosenTagNames.forEach(name -> chosen.add(name.trim().toLowerCase(Locale.ROOT)));
+        }
+
+        // Chosen tags are matched by name, so ask for enough predictions to drop them afterwards
+        List<TagClassifier.Prediction> predictions = model.classifier.predict(features, limit + chosen.size(), Set.of());
+        Map<UUID, Tag> tagsById = new HashMap<>();
+        for (Tag tag : tagRepository.findAllById(predictions.stream().map(p -> p.tagId).toList())) {
+            if (tag.getUser().getId().equals(userId)) {
+                tagsById.put(tag.getId(), tag);
+            }
+        }
+
+        List<TagSuggestion> suggestions = new ArrayList<>();
+        for (TagClassifier.Prediction prediction : predictions) {
+            Tag tag = tagsById.get(prediction.tagId);
+            if (tag == null || prediction.confidence < MIN_CONFIDENCE
+                || chosen.contains(tag.getName().toLowerCase(Locale.ROOT))) {
+                continue;
+            }
+            suggestions.add(TagSuggestion.builder()
+                .tagId(tag.getId())
+                .name(tag.getName())
+                .color(tag.getColor())
+                .isKey(tag.isKey())
+                .confidence(prediction.confidence)
+                .build());
+            if (suggestions.size() >= limit) {
+                break;
+            }
+        }
+        return suggestions;
+    }
+
+    private void scheduleTraining(UUID userId, Runnable training) {
+        if (!trainingInFlight.add(userId)) {
+            return;
+        }
+        try {
+            trainingExecutor.execute(() -> {
+                try {
+                    training.run();
+                } catch (RuntimeException ex) {
+                    log.warn("Tag suggestion training failed for user {}", userId, ex);
+                } finally {
+                    trainingInFlight.remove(userId);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            trainingInFlight.remove(userId);
+            log.debug("Tag suggestion training queue full, skipping user {}", userId);
+        }
+    }
+
+    private CachedModel buildModel(UUID userId) {
+        long start = System.nanoTime();
+        TagClassifier classifier = new TagClassifier();
+        List<Object[]> pairs = noteTagRepository.findRecentNoteTagPairsByUserId(userId, PageRequest.of(0, MAX_TRAINING_PAIRS));
+        int trained = train(userId, classifier, pairs);
+        CachedModel model = new CachedModel(classifier, System.nanoTime(), latestCreatedAt(pairs, NO_PAIRS_YET));
+
+        log.debug("Trained tag suggestion model for user {} on {} pairs ({} notes, {} tags) in {} ms", userId, trained,
+            classifier.noteCount(), classifier.tagCount(), (System.nanoTime() - start) / 1_000_000);
+        return model;
+    }
+
+    private void trainIncrement(UUID userId, CachedModel model) {
+        List<Object[]> pairs = noteTagRepository.findNoteTagPairsByUserIdCreatedAfter(userId, model.watermark,
+            PageRequest.of(0, MAX_PAIRS_PER_INCREMENT));
+        int trained = train(userId, model.classifier, pairs);
+        model.watermark = latestCreatedAt(pairs, model.watermark);
+        model.trainedAt = System.nanoTime();
+        if (trained > 0) {
+            log.debug("Added {} note-tag pairs to the tag suggestion model for user {}", trained, userId);
+        }
+    }
+
+    /**
+     * Train (note id, tag id, created at) pairs, reading note text in batches
+     *
+     * @return number of pairs trained
+     */
+    private int train(UUID userId, TagClassifier classifier, List<Object[]> pairs) {
+        Map<UUID, List<UUID>> tagsByNote = new LinkedHashMap<>();
+        for (Object[] pair : pairs) {
+            tagsByNote.computeIfAbsent((UUID) pair[0], id -> new ArrayList<>()).add((UUID) pair[1]);
+        }
+
+        int trained = 0;
+        List<UUID> noteIds = new ArrayList<>(tagsByNote.keySet());
+        for (int from = 0; from < noteIds.size(); from += TEXT_BATCH_SIZE) {
+            List<UUID> batch = noteIds.subList(from, Math.min(from + TEXT_BATCH_SIZE, noteIds.size()));
+            for (Object[] row : noteRepository.findTextByUserIdAndIdIn(userId, batch, TRAINED_CONTENT_LENGTH)) {
+                TagClassifier.Features features = TagClassifier.features((String) row[1], (String) row[2]);
+                for (UUID tagId : tagsByNote.get((UUID) row[0])) {
+                    if (classifier.train((UUID) row[0], tagId, features)) {
+                        trained++;
+                    }
+                }
+            }
+        }
+        return trained;
+    }
+
+    private static LocalDateTime latestCreatedAt(List<Object[]> pairs, LocalDateTime fallback) {
+        LocalDateTime latest = fallback;
+        for (Object[] pair : pairs) {
+            LocalDateTime createdAt = (LocalDateTime) pair[2];
+            if (createdAt != null && createdAt.isAfter(latest)) {
+                latest = createdAt;
+            }
+        }
+        return latest;
+    }
+
+    @Scheduled(fixedDelay = 5, timeUnit = TimeUnit.MINUTES)
+    public void evictIdle() {
+        long now = System.nanoTime();
+        models.entrySet().removeIf(entry -> now - entry.getValue().usedAt >= MAX_MODEL_AGE_NANOS
+            && !trainingInFlight.contains(entry.getKey()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        trainingExecutor.shutdownNow();
+    }
+
+    private static final class CachedModel {
+        private final TagClassifier classifier;
+        private final long builtAt;
+        // Creation time of the newest trained note-tag pair
+        private volatile LocalDateTime watermark;
+        private volatile long trainedAt;
+        private volatile long usedAt;
+
+        private CachedModel(TagClassifier classifier, long builtAt, LocalDateTime watermark) {
+            this.classifier = classifier;
+            this.builtAt = builtAt;
+            this.trainedAt = builtAt;
+            this.usedAt = builtAt;
+            this.watermark = watermark;
+        }
+    }
+}
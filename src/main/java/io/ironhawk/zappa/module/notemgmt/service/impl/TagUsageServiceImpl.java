@@ -0,0 +1,100 @@
+package io.ironhawk.zappa.module.notemgmt.service.impl;
+
+import io.ironhawk.zappa.module.notemgmt.dto.TagUsageHistogram;
+import io.ironhawk.zappa.module.notemgmt.dto.TagUsageSeries;
+import io.ironhawk.zappa.module.notemgmt.repository.TagUsageRepository;
+import io.ironhawk.zappa.module.notemgmt.service.GroupService;
+import io.ironhawk.zappa.module.notemgmt.service.TagUsageService;
+import io.ironhawk.zappa.security.service.CurrentUserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class TagUsageServiceImpl implements TagUsageService {
+
+    private final TagUsageRepository tagUsageRepository;
+    private final GroupService groupService;
+    private final CurrentUserService currentUserService;
+
+    @Override
+    public TagUsageHistogram getHistogram(UUID groupId, UUID tagId, LocalDate from, LocalDate to) {
+        UUID userId = currentUserService.getCurrentUserId();
+        if (groupId != null && groupService.getGroupById(groupId).isEmpty()) {
+            throw new IllegalArgumentException("Group not found with id: " + groupId);
+        }
+
+        // Weeks start on Monday, as date_trunc('week') in the roll-up does
+        LocalDate end = (to != null ? to : LocalDate.now())
+            .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).plusWeeks(1);
+        LocalDate start = from != null
+            ? from.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+            : end.minusWeeks(DEFAULT_WEEKS);
+        long weekCount = ChronoUnit.WEEKS.between(start, end);
+        if (weekCount <= 0) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        if (weekCount > MAX_WEEKS) {
+            throw new IllegalArgumentException("Date range exceeds " + MAX_WEEKS + " weeks");
+        }
+
+        List<Object[]> tags = tagUsageRepository.findTags(userId, groupId, tagId);
+        if (tagId != null && tags.isEmpty()) {
+            throw new IllegalArgumentException("Tag not found with id: " + tagId);
+        }
+
+        int weeks = (int) weekCount;
+        Map<UUID, TagUsageSeries> seriesByTag = new HashMap<>();
+        List<TagUsageSeries> series = new ArrayList<>(tags.size());
+        for (Object[] tag : tags) {
+            TagUsageSeries tagSeries = TagUsageSeries.builder()
+                .tagId((UUID) tag[0])
+                .name((String) tag[1])
+                .color((String) tag[2])
+                .groupId((UUID) tag[3])
+                .counts(new long[weeks])
+                .build();
+            seriesByTag.put(tagSeries.getTagId(), tagSeries);
+            series.add(tagSeries);
+        }
+
+        long[] totals = new long[weeks];
+        for (Object[] bucket : tagUsageRepository.findWeeklyCounts(userId, groupId, tagId, start, end)) {
+            TagUsageSeries tagSeries = seriesByTag.get((UUID) bucket[0]);
+            if (tagSeries == null) {
+                continue;
+            }
+            int week = (int) ChronoUnit.WEEKS.between(start, (LocalDate) bucket[1]);
+            long count = (Long) bucket[2];
+            tagSeries.getCounts()[week] += count;
+            tagSeries.setTotal(tagSeries.getTotal() + count);
+            totals[week] += count;
+        }
+
+        List<LocalDate> weekStarts = new ArrayList<>(weeks);
+        for (int week = 0; week < weeks; week++) {
+            weekStarts.add(start.plusWeeks(week));
+        }
+        log.debug("Tag usage histogram for user {}: {} tags over {} weeks from {}", userId, series.size(), weeks, start);
+
+        return TagUsageHistogram.builder()
+            .weeks(weekStarts)
+            .tags(series)
+            .totals(totals)
+            .build();
+    }
+}
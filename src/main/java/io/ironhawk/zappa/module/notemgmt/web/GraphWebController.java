@@ -2,13 +2,17 @@ package io.ironhawk.zappa.module.notemgmt.web;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import io.ironhawk.zappa.module.notemgmt.dto.NoteSubgraph;
 import io.ironhawk.zappa.module.notemgmt.entity.Group;
 import io.ironhawk.zappa.module.notemgmt.entity.Note;
 import io.ironhawk.zappa.module.notemgmt.entity.NoteLink;
+import io.ironhawk.zappa.module.notemgmt.service.GraphAlgorithmService;
 import io.ironhawk.zappa.module.notemgmt.service.GroupService;
+import io.ironhawk.zappa.module.notemgmt.service.NoteCommunities;
 import io.ironhawk.zappa.module.notemgmt.service.NoteLinkService;
 import io.ironhawk.zappa.module.notemgmt.service.NoteService;
 import io.ironhawk.zappa.module.notemgmt.service.TagService;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -28,6 +32,14 @@ public class GraphWebController {
     private final NoteLinkService noteLinkService;
     private final GroupService groupService;
     private final TagService tagService;
+    private final GraphAlgorithmService graphAlgorithmService;
+
+    // Communities with fewer visible notes are drawn note by note
+    private static final int MIN_CLUSTER_SIZE = 3;
+    private static final String CLUSTER_ID_PREFIX = "cluster-";
+
+    private static final int MAX_NEIGHBOURHOOD_HOPS = 3;
+    private static final int MAX_NEIGHBOURHOOD_LIMIT = 500;
 
     @GetMapping
     public String showGraphVisualization(
@@ -39,18 +51,7 @@ public class GraphWebController {
 
         List<Note> notes = getFilteredNotes(group, includeSubGroups, tags, tagFilter, model);
         List<NoteLink> links = getLinksForNotes(notes);
-
-        // Get only notes that have links (either as source or target)
-        Set<UUID> linkedNoteIds = new HashSet<>();
-        links.forEach(link -> {
-            linkedNoteIds.add(link.getSourceNote().getId());
-            linkedNoteIds.add(link.getTargetNote().getId());
-        });
-
-        // Filter notes to only include those that have links
-        List<Note> linkedNotes = notes.stream()
-            .filter(note -> linkedNoteIds.contains(note.getId()))
-            .collect(Collectors.toList());
+        List<Note> linkedNotes = getLinkedNotes(notes, links);
 
         model.addAttribute("totalNodes", linkedNotes.size());
         model.addAttribute("totalLinks", links.size());
@@ -78,71 +79,215 @@ public class GraphWebController {
         @RequestParam(defaultValue = "") String group,
         @RequestParam(defaultValue = "false") boolean includeSubGroups,
         @RequestParam(defaultValue = "") String tags,
-        @RequestParam(defaultValue = "any") String tagFilter) {
+        @RequestParam(defaultValue = "any") String tagFilter,
+        @RequestParam(defaultValue = "false") boolean clustered) {
 
         List<Note> notes = getFilteredNotes(group, includeSubGroups, tags, tagFilter, null);
         List<NoteLink> links = getLinksForNotes(notes);
+        List<Note> linkedNotes = getLinkedNotes(notes, links);
 
-        // Get only notes that have links (either as source or target)
-        Set<UUID> linkedNoteIds = new HashSet<>();
-        links.forEach(link -> {
-            linkedNoteIds.add(link.getSourceNote().getId());
-            linkedNoteIds.add(link.getTargetNote().getId());
-        });
-
-        // Filter notes to only include those that have links
-        List<Note> linkedNotes = notes.stream()
-            .filter(note -> linkedNoteIds.contains(note.getId()))
-            .collect(Collectors.toList());
+        if (clustered) {
+            return getClusteredGraphData(linkedNotes, links, null);
+        }
 
         // Create nodes data only for linked notes
         List<Map<String, Object>> nodes = linkedNotes.stream()
-            .map(note -> {
-                Map<String, Object> node = new HashMap<>();
-                node.put("id", note.getId().toString());
-                node.put("title", note.getTitle());
-                node.put("content", note.getContent());
-                node.put("createdAt", note.getCreatedAt().toString());
-
-                // Calculate node properties
-                long linkCount = noteLinkService.countLinksForNote(note.getId());
-                node.put("linkCount", linkCount);
-                // More pronounced size scaling: base 15, scale by linkCount * 8, max 60
-                node.put("size", Math.max(15, Math.min(60, 15 + linkCount * 8))); // Size based on connections
-
-                // Default color
-                node.put("color", "#6c757d");
-
-                return node;
-            })
+            .map(note -> toNodeData(note, noteLinkService.countLinksForNote(note.getId())))
             .collect(Collectors.toList());
 
         // Create links data
         List<Map<String, Object>> linksData = links.stream()
-            .map(link -> {
-                Map<String, Object> linkData = new HashMap<>();
-                linkData.put("id", link.getId().toString());
-                linkData.put("source", link.getSourceNote().getId().toString());
-                linkData.put("target", link.getTargetNote().getId().toString());
-                linkData.put("type", link.getLinkType().toString());
-                linkData.put("weight", link.getWeight());
-                linkData.put("bidirectional", link.getIsBidirectional());
+            .map(this::toLinkData)
+            .collect(Collectors.toList());
+
+        Map<String, Object> graphData = new HashMap<>();
+        graphData.put("nodes", nodes);
+        graphData.put("links", linksData);
 
-                // Line style based on weight
-                linkData.put("strokeWidth", Math.max(1, link.getWeight() / 2));
-                linkData.put("opacity", Math.max(0.3, link.getWeight() / 10.0));
+        return graphData;
+    }
 
+    /**
+     * Members of one collapsed cluster from {@code /data?clustered=true}, under the same filters.
+     * Links leaving the cluster point at the node that stands for the other end in the clustered
+     * view, so the client can swap the cluster node for this data in place.
+     */
+    @GetMapping("/cluster/{clusterId}")
+    @ResponseBody
+    public Map<String, Object> expandCluster(
+        @PathVariable String clusterId,
+        @RequestParam(defaultValue = "") String group,
+        @RequestParam(defaultValue = "false") boolean includeSubGroups,
+        @RequestParam(defaultValue = "") String tags,
+        @RequestParam(defaultValue = "any") String tagFilter) {
+
+        List<Note> notes = getFilteredNotes(group, includeSubGroups, tags, tagFilter, null);
+        List<NoteLink> links = getLinksForNotes(notes);
+        return getClusteredGraphData(getLinkedNotes(notes, links), links, clusterId);
+    }
+
+    /**
+     * Collapse every community with at least {@link #MIN_CLUSTER_SIZE} visible notes into a
+     * single node, and merge the links between two such nodes into one edge. With
+     * {@code expandClusterId} only that cluster's notes and the links touching them are returned.
+     */
+    private Map<String, Object> getClusteredGraphData(List<Note> linkedNotes, List<NoteLink> links, String expandClusterId) {
+        NoteCommunities communities = graphAlgorithmService.getCommunities();
+
+        Map<Integer, List<Note>> notesByCommunity = new HashMap<>();
+        for (Note note : linkedNotes) {
+            int community = communities.communityOf(note.getId());
+            if (community >= 0) {
+                notesByCommunity.computeIfAbsent(community, c -> new ArrayList<>()).add(note);
+            }
+        }
+
+        Map<UUID, Long> linkCounts = new HashMap<>();
+        for (NoteLink link : links) {
+            linkCounts.merge(link.getSourceNote().getId(), 1L, Long::sum);
+            linkCounts.merge(link.getTargetNote().getId(), 1L, Long::sum);
+        }
+
+        // Node each visible note is drawn as
+        Map<UUID, String> nodeIdOf = new HashMap<>();
+        Map<String, Map<String, Object>> clusterNodes = new LinkedHashMap<>();
+        Set<UUID> expandedNoteIds = new HashSet<>();
+        notesByCommunity.forEach((community, members) -> {
+            if (members.size() < MIN_CLUSTER_SIZE) {
+                return;
+            }
+            String clusterId = CLUSTER_ID_PREFIX + communities.representative(community);
+            if (clusterId.equals(expandClusterId)) {
+                members.forEach(note -> expandedNoteIds.add(note.getId()));
+                return;
+            }
+            members.forEach(note -> nodeIdOf.put(note.getId(), clusterId));
+            clusterNodes.put(clusterId, toClusterNodeData(clusterId, members, linkCounts));
+        });
+
+        List<Map<String, Object>> nodes = new ArrayList<>();
+        for (Note note : linkedNotes) {
+            if (!nodeIdOf.containsKey(note.getId())) {
+                nodeIdOf.put(note.getId(), note.getId().toString());
+                if (expandClusterId == null || expandedNoteIds.contains(note.getId())) {
+                    nodes.add(toNodeData(note, linkCounts.getOrDefault(note.getId(), 0L)));
+                }
+            }
+        }
+        if (expandClusterId == null) {
+            nodes.addAll(clusterNodes.values());
+        }
+
+        List<Map<String, Object>> linksData = new ArrayList<>();
+        Map<String, Map<String, Object>> clusterLinks = new LinkedHashMap<>();
+        for (NoteLink link : links) {
+            UUID sourceNoteId = link.getSourceNote().getId();
+            UUID targetNoteId = link.getTargetNote().getId();
+            if (expandClusterId != null
+                && !expandedNoteIds.contains(sourceNoteId) && !expandedNoteIds.contains(targetNoteId)) {
+                continue;
+            }
+
+            String source = nodeIdOf.get(sourceNoteId);
+            String target = nodeIdOf.get(targetNoteId);
+            if (source.equals(target)) {
+                // Link inside a collapsed cluster
+                Map<String, Object> clusterNode = clusterNodes.get(source);
+                if (clusterNode != null) {
+                    clusterNode.merge("internalLinks", 1L, (a, b) -> (Long) a + (Long) b);
+                }
+                continue;
+            }
+            if (source.equals(sourceNoteId.toString()) && target.equals(targetNoteId.toString())) {
+                linksData.add(toLinkData(link));
+                continue;
+            }
+
+            // At least one end collapsed: merge with parallel links into a single edge
+            Map<String, Object> merged = clusterLinks.computeIfAbsent(source + "-" + target, id -> {
+                Map<String, Object> linkData = new HashMap<>();
+                linkData.put("id", id);
+                linkData.put("source", source);
+                linkData.put("target", target);
+                linkData.put("type", "CLUSTER");
+                linkData.put("weight", 0);
+                linkData.put("linkCount", 0);
+                linkData.put("bidirectional", false);
                 return linkData;
-            })
-            .collect(Collectors.toList());
+            });
+            merged.put("weight", Math.max((Integer) merged.get("weight"), link.getWeight()));
+            merged.put("linkCount", (Integer) merged.get("linkCount") + 1);
+        }
+        for (Map<String, Object> linkData : clusterLinks.values()) {
+            int weight = (Integer) linkData.get("weight");
+            linkData.put("strokeWidth", Math.max(1, weight / 2));
+            linkData.put("opacity", Math.max(0.3, weight / 10.0));
+            linksData.add(linkData);
+        }
 
         Map<String, Object> graphData = new HashMap<>();
         graphData.put("nodes", nodes);
         graphData.put("links", linksData);
+        graphData.put("clustered", true);
+        graphData.put("clusterCount", clusterNodes.size());
+        graphData.put("totalNotes", linkedNotes.size());
 
         return graphData;
     }
 
+    private Map<String, Object> toNodeData(Note note, long linkCount) {
+        Map<String, Object> node = new HashMap<>();
+        node.put("id", note.getId().toString());
+        node.put("title", note.getTitle());
+        node.put("content", note.getContent());
+        node.put("createdAt", note.getCreatedAt().toString());
+
+        // Calculate node properties
+        node.put("linkCount", linkCount);
+        // More pronounced size scaling: base 15, scale by linkCount * 8, max 60
+        node.put("size", Math.max(15, Math.min(60, 15 + linkCount * 8))); // Size based on connections
+
+        // Default color
+        node.put("color", "#6c757d");
+
+        return node;
+    }
+
+    private Map<String, Object> toClusterNodeData(String clusterId, List<Note> members, Map<UUID, Long> linkCounts) {
+        // Named after its most linked visible member
+        Note hub = members.stream()
+            .max(Comparator.comparingLong(note -> linkCounts.getOrDefault(note.getId(), 0L)))
+            .orElseThrow();
+
+        Map<String, Object> node = new HashMap<>();
+        node.put("id", clusterId);
+        node.put("title", hub.getTitle() + " +" + (members.size() - 1));
+        node.put("cluster", true);
+        node.put("memberCount", members.size());
+        node.put("internalLinks", 0L);
+        node.put("linkCount", members.stream().mapToLong(note -> linkCounts.getOrDefault(note.getId(), 0L)).sum());
+        // Grows with the log of the member count so large clusters stay drawable
+        node.put("size", Math.min(90, 30 + (long) (10 * Math.log(members.size()))));
+        node.put("color", "#0d6efd");
+        return node;
+    }
+
+    private Map<String, Object> toLinkData(NoteLink link) {
+        Map<String, Object> linkData = new HashMap<>();
+        linkData.put("id", link.getId().toString());
+        linkData.put("source", link.getSourceNote().getId().toString());
+        linkData.put("target", link.getTargetNote().getId().toString());
+        linkData.put("type", link.getLinkType().toString());
+        linkData.put("weight", link.getWeight());
+        linkData.put("bidirectional", link.getIsBidirectional());
+
+        // Line style based on weight
+        linkData.put("strokeWidth", Math.max(1, link.getWeight() / 2));
+        linkData.put("opacity", Math.max(0.3, link.getWeight() / 10.0));
+
+        return linkData;
+    }
+
     @GetMapping("/node/{nodeId}")
     @ResponseBody
     public Map<String, Object> getNodeData(@PathVariable UUID nodeId) {
@@ -189,6 +334,25 @@ public class GraphWebController {
         return nodeData;
     }
 
+    /**
+     * Local subgraph around a note in one round trip: notes up to {@code hops} links away in
+     * either direction, nearest first and at most {@code limit} besides the note itself, with
+     * the links among them
+     */
+    @GetMapping("/neighbourhood/{noteId}")
+    @ResponseBody
+    public ResponseEntity<NoteSubgraph> getNeighbourhood(
+        @PathVariable UUID noteId,
+        @RequestParam(defaultValue = "2") int hops,
+        @RequestParam(defaultValue = "50") int limit) {
+
+        int boundedHops = Math.max(1, Math.min(MAX_NEIGHBOURHOOD_HOPS, hops));
+        int boundedLimit = Math.max(1, Math.min(MAX_NEIGHBOURHOOD_LIMIT, limit));
+        return graphAlgorithmService.findLocalGraph(noteId, boundedHops, boundedLimit)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/stats")
     @ResponseBody
     public Map<String, Object> getGraphStats() {
@@ -290,6 +454,19 @@ public class GraphWebController {
         return notes;
     }
 
+    // Only notes that have links (either as source or target)
+    private List<Note> getLinkedNotes(List<Note> notes, List<NoteLink> links) {
+        Set<UUID> linkedNoteIds = new HashSet<>();
+        links.forEach(link -> {
+            linkedNoteIds.add(link.getSourceNote().getId());
+            linkedNoteIds.add(link.getTargetNote().getId());
+        });
+
+        return notes.stream()
+            .filter(note -> linkedNoteIds.contains(note.getId()))
+            .collect(Collectors.toList());
+    }
+
     private List<NoteLink> getLinksForNotes(List<Note> notes) {
         if (notes.isEmpty()) {
             return Collections.emptyList();
@@ -24,6 +24,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -48,6 +49,7 @@ public class NoteWebController {
         @RequestParam(defaultValue = "0") int page,
         @RequestParam(defaultValue = "36") int size,
         @RequestParam(defaultValue = "") String search,
+        @RequestParam(defaultValue = "") String q,
         @RequestParam(defaultValue = "") String tag,
         @RequestParam(defaultValue = "") String tags,
         @RequestParam(defaultValue = "OR") String tagOperator,
@@ -55,8 +57,8 @@ public class NoteWebController {
         @RequestParam(defaultValue = "false") boolean includeSubGroups,
         Model model) {
 
-        log.info("EXEC: List notes request - page:{}, size:{}, search:'{}', tag:'{}', tags:'{}', group:'{}', includeSubGroups:{}",
-                 page, size, search, tag, tags, group, includeSubGroups);
+        log.info("EXEC: List notes request - page:{}, size:{}, search:'{}', q:'{}', tag:'{}', tags:'{}', group:'{}', includeSubGroups:{}",
+                 page, size, search, q, tag, tags, group, includeSubGroups);
 
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
         Page<Note> notes;
@@ -64,6 +66,16 @@ public class NoteWebController {
         if (!search.isEmpty()) {
             notes = noteService.searchNotes(search, pageable);
             model.addAttribute("search", search);
+        } else if (!q.isBlank()) {
+            // Tag query such as "(java OR kotlin) AND NOT archived group:Programming created:>2025-01"
+            try {
+                notes = noteService.findNotesByQuery(q, pageable);
+                model.addAttribute("query", q);
+            } catch (IllegalArgumentException e) {
+                log.warn("Invalid note query '{}': {}", q, e.getMessage());
+                model.addAttribute("error", "Invalid query: " + e.getMessage());
+                notes = noteService.getNotes(pageable);
+            }
         } else if (!group.isEmpty()) {
             // Handle group filtering
             try {
@@ -176,10 +188,8 @@ public class NoteWebController {
 
             // Add tags if provided
             if (tagNames != null && !tagNames.trim().isEmpty()) {
-                String[] tags = tagNames.split(",");
-                for (String tagName : tags) {
-                    Tag tag = tagService.getOrCreateTag(tagName.trim(), null);
-                    noteService.addTagToNote(createdNote.getId(), tag.getId());
+                for (UUID tagId : tagService.getOrCreateTagIds(Arrays.asList(tagNames.split(",")))) {
+                    noteService.addTagToNote(createdNote.getId(), tagId);
                 }
             }
 
@@ -332,10 +342,8 @@ public class NoteWebController {
             }
 
             if (tagNames != null && !tagNames.trim().isEmpty()) {
-                String[] tags = tagNames.split(",");
-                for (String tagName : tags) {
-                    Tag tag = tagService.getOrCreateTag(tagName.trim(), null);
-                    noteService.addTagToNote(id, tag.getId());
+                for (UUID tagId : tagService.getOrCreateTagIds(Arrays.asList(tagNames.split(",")))) {
+                    noteService.addTagToNote(id, tagId);
                 }
             }
 
@@ -3,16 +3,15 @@ package io.ironhawk.zappa.module.notemgmt.web;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import io.ironhawk.zappa.module.notemgmt.dto.TagCreateRequest;
+import io.ironhawk.zappa.module.notemgmt.dto.TagOverviewPage;
 import io.ironhawk.zappa.module.notemgmt.dto.TagResponse;
 import io.ironhawk.zappa.module.notemgmt.dto.TagUpdateRequest;
 import io.ironhawk.zappa.module.notemgmt.entity.Tag;
 import io.ironhawk.zappa.module.notemgmt.service.GroupService;
 import io.ironhawk.zappa.module.notemgmt.service.NoteTagService;
+import io.ironhawk.zappa.module.notemgmt.service.TagAutocompleteService;
+import io.ironhawk.zappa.module.notemgmt.service.TagOverviewService;
 import io.ironhawk.zappa.module.notemgmt.service.TagService;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -30,42 +29,28 @@ public class TagWebController {
     private final TagService tagService;
     private final NoteTagService noteTagService;
     private final GroupService groupService;
+    private final TagOverviewService tagOverviewService;
 
     @GetMapping
     public String listTags(
-        @RequestParam(defaultValue = "0") int page,
+        @RequestParam(required = false) UUID after,
+        @RequestParam(required = false) UUID before,
         @RequestParam(defaultValue = "64") int size,
         @RequestParam(defaultValue = "") String search,
         @RequestParam(defaultValue = "") String color,
         Model model) {
 
-        // Sort by key tags first, then by name
-        Sort sort = Sort.by(Sort.Order.desc("isKey"), Sort.Order.asc("name"));
-        Pageable pageable = PageRequest.of(page, size, sort);
-        Page<Tag> tags;
+        // Key tags first, then by name, with usage and unused counts from one query
+        TagOverviewPage overview = tagOverviewService.getOverview(search, color, after, before, size);
 
         if (!search.isEmpty()) {
-            tags = tagService.searchTags(search, pageable);
             model.addAttribute("search", search);
-        } else if (!color.isEmpty()) {
-            List<Tag> tagList = tagService.findTagsByColor(color);
-            tags = tagService.getTags(pageable); // Fallback for pagination
+        }
+        if (!color.isEmpty()) {
             model.addAttribute("selectedColor", color);
-        } else {
-            tags = tagService.getTags(pageable);
         }
-
-        // Add usage counts for each tag
-        tags.getContent().forEach(tag -> {
-            long usageCount = noteTagService.countNotesForTag(tag.getId());
-            // We'll pass this in the view logic
-        });
-
-        model.addAttribute("tags", tags);
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", tags.getTotalPages());
-        model.addAttribute("unusedTags", tagService.findUnusedTags());
-        model.addAttribute("popularTags", tagService.findPopularTags());
+        model.addAttribute("overview", overview);
+        model.addAttribute("size", size);
         model.addAttribute("allGroups", groupService.getAllGroups());
 
         return "tags/list";
@@ -211,10 +196,7 @@ public class TagWebController {
     @PostMapping("/cleanup-unused")
     public String cleanupUnusedTags(RedirectAttributes redirectAttributes) {
         try {
-            List<Tag> unusedTags = tagService.findUnusedTags();
-            int count = unusedTags.size();
-
-            tagService.deleteUnusedTags();
+            int count = tagService.deleteUnusedTags();
             redirectAttributes.addFlashAttribute("success",
                 "Cleaned up " + count + " unused tags!");
         } catch (Exception e) {
@@ -234,8 +216,7 @@ public class TagWebController {
 
     @GetMapping("/popular")
     public String listPopularTags(Model model) {
-        List<Tag> popularTags = tagService.findPopularTags();
-        model.addAttribute("popularTags", popularTags);
+        model.addAttribute("popularTags", tagOverviewService.getPopularTags(TagAutocompleteService.MAX_LIMIT));
         return "tags/popular";
     }
 }
\ No newline at end of file
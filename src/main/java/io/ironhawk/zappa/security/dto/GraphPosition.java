@@ -0,0 +1,23 @@
+package io.ironhawk.zappa.security.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Saved position of one note on the graph page for one group key
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GraphPosition {
+
+    private String groupKey;
+    private UUID noteId;
+    private double x;
+    private double y;
+}
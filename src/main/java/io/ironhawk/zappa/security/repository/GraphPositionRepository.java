@@ -0,0 +1,95 @@
+package io.ironhawk.zappa.security.repository;
+
+import io.ironhawk.zappa.security.dto.GraphPosition;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Graph positions in {@code graph_positions}, accessed with plain JDBC so that saving a
+ * group's positions is a single batched upsert instead of one entity merge per note
+ */
+@Repository
+@RequiredArgsConstructor
+public class GraphPositionRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    // Positions for notes the user does not own, or that were deleted meanwhile, are skipped
+    private static final String UPSERT_SQL = """
+        INSERT INTO graph_positions (user_id, group_key, note_id, x, y, updated_at)
+        SELECT ?, ?, n.id, ?, ?, CURRENT_TIMESTAMP
+        FROM notes n
+        WHERE n.id = ? AND n.user_id = ?
+        ON CONFLICT (user_id, group_key, note_id)
+        DO UPDATE SET x = EXCLUDED.x, y = EXCLUDED.y, updated_at = EXCLUDED.updated_at
+        """;
+
+    private static final RowMapper<GraphPosition> ROW_MAPPER = (rs, rowNum) -> GraphPosition.builder()
+        .groupKey(rs.getString("group_key"))
+        .noteId(rs.getObject("note_id", UUID.class))
+        .x(rs.getDouble("x"))
+        .y(rs.getDouble("y"))
+        .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<GraphPosition> findByUserIdAndGroupKey(UUID userId, String groupKey) {
+        return jdbcTemplate.query(
+            "SELECT group_key, note_id, x, y FROM graph_positions WHERE user_id = ? AND group_key = ?",
+            ROW_MAPPER, userId, groupKey);
+    }
+
+    public List<GraphPosition> findByUserId(UUID userId) {
+        return jdbcTemplate.query(
+            "SELECT group_key, note_id, x, y FROM graph_positions WHERE user_id = ? ORDER BY group_key",
+            ROW_MAPPER, userId);
+    }
+
+    /**
+     * Insert or move the given positions; positions of other notes are left as they are
+     */
+    public void upsertAll(UUID userId, Collection<GraphPosition> positions) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, positions, BATCH_SIZE, (ps, position) -> {
+            ps.setObject(1, userId);
+            ps.setString(2, position.getGroupKey());
+            ps.setDouble(3, position.getX());
+            ps.setDouble(4, position.getY());
+            ps.setObject(5, position.getNoteId());
+            ps.setObject(6, userId);
+        });
+    }
+
+    public int deleteByUserIdAndGroupKey(UUID userId, String groupKey) {
+        return jdbcTemplate.update("DELETE FROM graph_positions WHERE user_id = ? AND group_key = ?", userId, groupKey);
+    }
+
+    /**
+     * Delete a group's positions for every note except the given ones
+     */
+    public int deleteByUserIdAndGroupKeyExcept(UUID userId, String groupKey, Collection<UUID> keptNoteIds) {
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                "DELETE FROM graph_positions WHERE user_id = ? AND group_key = ? AND NOT (note_id = ANY (?))");
+            ps.setObject(1, userId);
+            ps.setString(2, groupKey);
+            ps.setArray(3, connection.createArrayOf("uuid", keptNoteIds.toArray()));
+            return ps;
+        });
+    }
+
+    public int deleteByUserId(UUID userId) {
+        return jdbcTemplate.update("DELETE FROM graph_positions WHERE user_id = ?", userId);
+    }
+
+    public boolean existsByUserId(UUID userId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM graph_positions WHERE user_id = ?)", Boolean.class, userId));
+    }
+}
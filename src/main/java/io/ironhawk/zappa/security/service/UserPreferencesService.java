@@ -1,109 +1,349 @@
 package io.ironhawk.zappa.security.service;
 
-import io.ironhawk.zappa.security.entity.User;
-import io.ironhawk.zappa.security.entity.UserPreferences;
-import io.ironhawk.zappa.security.repository.UserPreferencesRepository;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
+import io.ironhawk.zappa.security.dto.GraphPosition;
+import io.ironhawk.zappa.security.repository.GraphPositionRepository;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Graph page positions, kept per user, group key and note in {@code graph_positions}.
+ *
+ * Positions are exchanged with the graph page as {@code {noteId: {x, y}}} per group key.
+ * Saving upserts only the notes sent, so a save never rewrites other groups or notes.
+ *
+ * Saves go to a write-behind buffer first: repeated saves of the same note while it is being
+ * dragged collapse into its latest position, and the buffer is written out on a short
+ * interval, as soon as it holds {@code flush-threshold} positions, and on shutdown. Once it
+ * holds {@code max-pending} positions a save writes the buffer itself, which bounds memory
+ * when the database falls behind. Reads see buffered positions immediately.
+ */
 @Slf4j
 @Service
 @Transactional
-@RequiredArgsConstructor
 public class UserPreferencesService {
 
-    private final UserPreferencesRepository userPreferencesRepository;
-    private final ObjectMapper objectMapper;
+    // Length of graph_positions.group_key
+    private static final int MAX_GROUP_KEY_LENGTH = 100;
+
+    private final GraphPositionRepository graphPositionRepository;
+    private final int flushThreshold;
+    private final int maxPending;
+
+    // Latest unsaved position per note, per user and group key
+    private final Map<PendingKey, Map<UUID, GraphPosition>> pending = new ConcurrentHashMap<>();
+    // Batches taken from pending by a running flush, still visible to reads until written
+    private final Map<PendingKey, Map<UUID, GraphPosition>> flushing = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    // Serialises flushes with deletes, so a flush cannot write back positions cleared meanwhile
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "graph-position-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public UserPreferencesService(GraphPositionRepository graphPositionRepository,
+                                  @Value("${app.graph.positions.flush-threshold:2000}") int flushThreshold,
+                                  @Value("${app.graph.positions.max-pending:50000}") int maxPending) {
+        this.graphPositionRepository = graphPositionRepository;
+        this.flushThreshold = flushThreshold;
+        this.maxPending = maxPending;
+    }
 
     public Map<String, Object> getGraphPositions(UUID userId) {
-        Optional<String> positionsJson = userPreferencesRepository.findGraphPositionsByUserId(userId);
+        Map<String, Object> allPositions = new HashMap<>();
+        for (GraphPosition position : graphPositionRepository.findByUserId(userId)) {
+            groupPositions(allPositions, position.getGroupKey()).put(position.getNoteId().toString(), toPoint(position));
+        }
+        for (PendingKey key : unsavedKeys(userId)) {
+            for (GraphPosition position : unsavedPositions(key)) {
+                groupPositions(allPositions, key.groupKey).put(position.getNoteId().toString(), toPoint(position));
+            }
+        }
+        return allPositions;
+    }
+
+    public Map<String, Object> getGraphPositionsForGroup(UUID userId, String groupKey) {
+        Map<String, Object> positions = new HashMap<>();
+        for (GraphPosition position : graphPositionRepository.findByUserIdAndGroupKey(userId, groupKey)) {
+            positions.put(position.getNoteId().toString(), toPoint(position));
+        }
+        for (GraphPosition position : unsavedPositions(new PendingKey(userId, groupKey))) {
+            positions.put(position.getNoteId().toString(), toPoint(position));
+        }
+        return positions;
+    }
+
+    /**
+     * Save the given positions for a group key. Notes not included keep their saved position;
+     * entries that are not note ids with numeric x and y are ignored.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void saveGraphPositionsForGroup(UUID userId, String groupKey, Map<String, Object> positions) {
+        List<GraphPosition> rows = toRows(groupKey, positions);
 
-        if (positionsJson.isEmpty() || positionsJson.get() == null) {
-            return new HashMap<>();
+        int count = buffer(new PendingKey(userId, groupKey), rows, true);
+        log.debug("Buffered {} graph positions for user {} group {} ({} pending)", rows.size(), userId, groupKey, count);
+
+        if (count >= maxPending) {
+            // The flusher is not keeping up: write in the caller so the buffer stays bounded
+            flushPendingPositions();
+        } else if (count >= flushThreshold && flushRequested.compareAndSet(false, true)) {
+            flushExecutor.execute(() -> {
+                flushRequested.set(false);
+                flushPendingPositions();
+            });
         }
+    }
 
+    /**
+     * Write all buffered positions. Each group's batch is its own statement outside any
+     * transaction, so one failing batch does not hold back the others; a failed batch goes back
+     * into the buffer unless newer positions arrived meanwhile.
+     */
+    @Scheduled(fixedDelayString = "${app.graph.positions.flush-interval-ms:2000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void flushPendingPositions() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        flushLock.lock();
         try {
-            return objectMapper.readValue(positionsJson.get(), Map.class);
-        } catch (JsonProcessingException e) {
-            log.error("Error parsing graph positions for user: {}", userId, e);
-            return new HashMap<>();
+            long start = System.nanoTime();
+            int written = 0;
+            for (PendingKey key : new ArrayList<>(pending.keySet())) {
+                Map<UUID, GraphPosition> batch = pending.remove(key);
+                if (batch == null) {
+                    continue;
+                }
+                pendingCount.addAndGet(-batch.size());
+                flushing.put(key, batch);
+                try {
+                    graphPositionRepository.upsertAll(key.userId, batch.values());
+                    written += batch.size();
+                } catch (RuntimeException ex) {
+                    log.warn("Failed to save {} graph positions for user {} group {}, will retry",
+                        batch.size(), key.userId, key.groupKey, ex);
+                    buffer(key, batch.values(), false);
+                } finally {
+                    flushing.remove(key);
+                }
+            }
+            log.debug("Flushed {} graph positions in {} ms", written, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            flushLock.unlock();
         }
     }
 
-    public void saveGraphPositions(UUID userId, Map<String, Object> positions) {
+    /**
+     * Store a layout computed for a group key in one transaction, bypassing the buffer: the
+     * changed positions are written and saved positions of notes that are no longer in the
+     * layout are deleted. Buffered saves of notes still in the layout are written along with it.
+     *
+     * @param layout  positions of every note in the layout
+     * @param changed the positions that differ from the saved ones
+     */
+    public void saveGraphLayoutForGroup(UUID userId, String groupKey, Map<String, Object> layout,
+                                        Map<String, Object> changed) {
+        Set<UUID> kept = new HashSet<>();
+        for (String key : layout.keySet()) {
+            UUID noteId = parseNoteId(key);
+            if (noteId != null) {
+                kept.add(noteId);
+            }
+        }
+        List<GraphPosition> rows = toRows(groupKey, changed);
+
+        flushLock.lock();
         try {
-            String positionsJson = objectMapper.writeValueAsString(positions);
+            PendingKey key = new PendingKey(userId, groupKey);
+            Map<UUID, GraphPosition> writes = new HashMap<>();
+            for (GraphPosition position : unsavedPositions(key)) {
+                if (kept.contains(position.getNoteId())) {
+                    writes.put(position.getNoteId(), position);
+                }
+            }
+            discard(key);
+            for (GraphPosition position : rows) {
+                writes.put(position.getNoteId(), position);
+            }
 
-            if (userPreferencesRepository.existsByUserId(userId)) {
-                userPreferencesRepository.updateGraphPositions(userId, positionsJson);
-            } else {
-                // Create new preferences record
-                User user = new User();
-                user.setId(userId);
+            graphPositionRepository.upsertAll(userId, writes.values());
+            int deleted = graphPositionRepository.deleteByUserIdAndGroupKeyExcept(userId, groupKey, kept);
+            log.debug("Saved layout of {} notes for user {} group {}: {} positions written, {} stale deleted",
+                kept.size(), userId, groupKey, writes.size(), deleted);
+        } finally {
+            flushLock.unlock();
+        }
+    }
 
-                UserPreferences preferences = UserPreferences.builder()
-                    .user(user)
-                    .graphPositions(positionsJson)
-                    .build();
+    public void clearGraphPositions(UUID userId) {
+        flushLock.lock();
+        try {
+            unsavedKeys(userId).forEach(this::discard);
+            graphPositionRepository.deleteByUserId(userId);
+        } finally {
+            flushLock.unlock();
+        }
+    }
 
-                userPreferencesRepository.save(preferences);
+    public void clearGraphPositionsForGroup(UUID userId, String groupKey) {
+        flushLock.lock();
+        try {
+            discard(new PendingKey(userId, groupKey));
+            graphPositionRepository.deleteByUserIdAndGroupKey(userId, groupKey);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public boolean hasGraphPositions(UUID userId) {
+        return !unsavedKeys(userId).isEmpty() || graphPositionRepository.existsByUserId(userId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdownNow();
+        flushPendingPositions();
+    }
+
+    /**
+     * Add positions to the buffer; with {@code overwrite} false existing entries win, which is
+     * how a failed batch is put back behind newer saves
+     *
+     * @return number of buffered positions afterwards
+     */
+    private int buffer(PendingKey key, Iterable<GraphPosition> positions, boolean overwrite) {
+        int[] added = new int[1];
+        pending.compute(key, (k, batch) -> {
+            Map<UUID, GraphPosition> target = batch != null ? batch : new HashMap<>();
+            for (GraphPosition position : positions) {
+                GraphPosition previous = overwrite
+                    ? target.put(position.getNoteId(), position)
+                    : target.putIfAbsent(position.getNoteId(), position);
+                if (previous == null) {
+                    added[0]++;
+                }
             }
+            return target.isEmpty() ? null : target;
+        });
+        return pendingCount.addAndGet(added[0]);
+    }
 
-            log.debug("Saved graph positions for user: {}", userId);
-        } catch (JsonProcessingException e) {
-            log.error("Error serializing graph positions for user: {}", userId, e);
-            throw new RuntimeException("Failed to save graph positions", e);
+    private void discard(PendingKey key) {
+        Map<UUID, GraphPosition> batch = pending.remove(key);
+        if (batch != null) {
+            pendingCount.addAndGet(-batch.size());
         }
     }
 
-    public Map<String, Object> getGraphPositionsForGroup(UUID userId, String groupKey) {
-        Map<String, Object> allPositions = getGraphPositions(userId);
-        Object groupPositions = allPositions.get(groupKey);
+    private List<PendingKey> unsavedKeys(UUID userId) {
+        List<PendingKey> keys = new ArrayList<>();
+        for (PendingKey key : pending.keySet()) {
+            if (key.userId.equals(userId)) {
+                keys.add(key);
+            }
+        }
+        for (PendingKey key : flushing.keySet()) {
+            if (key.userId.equals(userId) && !keys.contains(key)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
 
-        if (groupPositions instanceof Map) {
-            return (Map<String, Object>) groupPositions;
+    // Positions being flushed, overlaid by newer buffered ones
+    private List<GraphPosition> unsavedPositions(PendingKey key) {
+        Map<UUID, GraphPosition> positions = new HashMap<>();
+        Map<UUID, GraphPosition> inFlight = flushing.get(key);
+        if (inFlight != null) {
+            positions.putAll(inFlight);
         }
+        pending.computeIfPresent(key, (k, batch) -> {
+            positions.putAll(batch);
+            return batch;
+        });
+        return new ArrayList<>(positions.values());
+    }
 
-        return new HashMap<>();
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> groupPositions(Map<String, Object> allPositions, String groupKey) {
+        return (Map<String, Object>) allPositions.computeIfAbsent(groupKey, key -> new HashMap<String, Object>());
     }
 
-    public void saveGraphPositionsForGroup(UUID userId, String groupKey, Map<String, Object> positions) {
-        Map<String, Object> allPositions = getGraphPositions(userId);
-        allPositions.put(groupKey, positions);
-        saveGraphPositions(userId, allPositions);
+    private static Map<String, Object> toPoint(GraphPosition position) {
+        Map<String, Object> point = new HashMap<>();
+        point.put("x", position.getX());
+        point.put("y", position.getY());
+        return point;
     }
 
-    public void clearGraphPositions(UUID userId) {
-        Optional<UserPreferences> preferences = userPreferencesRepository.findByUserId(userId);
-        if (preferences.isPresent()) {
-            preferences.get().setGraphPositions(null);
-            userPreferencesRepository.save(preferences.get());
+    // Clients may also hold positions for nodes that are not notes, such as collapsed clusters
+    // Entries that are not note ids with numeric x and y are ignored
+    private static List<GraphPosition> toRows(String groupKey, Map<String, Object> positions) {
+        if (groupKey.length() > MAX_GROUP_KEY_LENGTH) {
+            throw new IllegalArgumentException("Group key too long: " + groupKey.length() + " characters");
         }
-    }
 
-    public void clearGraphPositionsForGroup(UUID userId, String groupKey) {
-        Map<String, Object> allPositions = getGraphPositions(userId);
-        allPositions.remove(groupKey);
+        List<GraphPosition> rows = new ArrayList<>(positions.size());
+        positions.forEach((key, value) -> {
+            UUID noteId = parseNoteId(key);
+            if (noteId != null && value instanceof Map<?, ?> point
+                && point.get("x") instanceof Number x && point.get("y") instanceof Number y) {
+                rows.add(new GraphPosition(groupKey, noteId, x.doubleValue(), y.doubleValue()));
+            }
+        });
+        return rows;
+    }
 
-        if (allPositions.isEmpty()) {
-            clearGraphPositions(userId);
-        } else {
-            saveGraphPositions(userId, allPositions);
+    private static UUID parseNoteId(String key) {
+        try {
+            return UUID.fromString(key);
+        } catch (IllegalArgumentException e) {
+            return null;
         }
     }
 
-    public boolean hasGraphPositions(UUID userId) {
-        return userPreferencesRepository.findGraphPositionsByUserId(userId)
-            .map(positions -> positions != null && !positions.trim().isEmpty())
-            .orElse(false);
+    private static final class PendingKey {
+        private final UUID userId;
+        private final String groupKey;
+
+        private PendingKey(UUID userId, String groupKey) {
+            this.userId = userId;
+            this.groupKey = groupKey;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof PendingKey key && userId.equals(key.userId) && groupKey.equals(key.groupKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, groupKey);
+        }
     }
-}
\ No newline at end of file
+}